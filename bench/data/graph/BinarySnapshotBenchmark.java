@@ -0,0 +1,198 @@
+package data.graph;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+
+import data.dataModel.Coordinate;
+import data.dataModel.Intersection;
+import data.dataModel.Street;
+
+/**
+ * Compares loading the road network from the NDJSON export, one Gson object per line, with
+ * loading it from a {@link BinarySnapshot} of the same graph.
+ * <p>
+ * The graph is synthetic, generated with a fixed seed: {@code intersections} intersections and
+ * twice as many streets of 2 to 7 points, with names taken from a dictionary of 5000. Run with
+ * {@code mvn -Pbench compile exec:exec}; the JMH options can be given with
+ * {@code -Djmh.args="..."}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+public class BinarySnapshotBenchmark {
+
+	private static final String[] HIGHWAYS = { "residential", "primary", "secondary", "tertiary", "unclassified" };
+
+	@Param({ "300000" })
+	int intersections;
+
+	private Path directory;
+	private Path snapshot;
+	private Path json;
+	private Gson gson;
+
+	@Setup(Level.Trial)
+	public void generate() throws IOException {
+		Random random = new Random(3);
+		String[] names = new String[5000];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = "Via " + i;
+		}
+		List<Intersection> nodes = new ArrayList<>(intersections);
+		for (int i = 0; i < intersections; i++) {
+			Coordinate coordinate = new Coordinate(14.2 + random.nextDouble() * 0.3,
+					40.8 + random.nextDouble() * 0.2);
+			nodes.add(new Intersection(coordinate, i % 7 == 0 ? null : "traffic_signals", 1000000L + i, null,
+					random.nextDouble(), random.nextBoolean(), false, i % 11 == 0, false));
+		}
+		int streetCount = intersections * 2;
+		List<Street> edges = new ArrayList<>(streetCount);
+		for (int j = 0; j < streetCount; j++) {
+			Intersection source = nodes.get(random.nextInt(intersections));
+			Intersection target = nodes.get(random.nextInt(intersections));
+			ArrayList<Coordinate> coordinates = new ArrayList<>();
+			Coordinate origin = source.getCoordinate();
+			int points = 2 + random.nextInt(6);
+			for (int k = 0; k < points; k++) {
+				coordinates.add(new Coordinate(origin.getLongitude() + k * 0.0002,
+						origin.getLatitude() + random.nextGaussian() * 0.0001));
+			}
+			ArrayList<Integer> lanes = new ArrayList<>(Arrays.asList(1 + random.nextInt(3)));
+			ArrayList<Long> osmidEdges = new ArrayList<>(Arrays.asList(source.getOsmid(), target.getOsmid()));
+			edges.add(new Street(coordinates, j, null, null, "no", source.getOsmid(), target.getOsmid(),
+					HIGHWAYS[random.nextInt(HIGHWAYS.length)], null, 0, lanes, random.nextDouble() * 200, "50",
+					names[random.nextInt(names.length)], random.nextBoolean(), osmidEdges, null, false, null, null,
+					j * 3L, random.nextDouble(), random.nextDouble(), random.nextDouble(), j % 13 == 0));
+		}
+
+		directory = Files.createTempDirectory("snapshot-benchmark");
+		snapshot = directory.resolve("graph.otmg");
+		json = directory.resolve("graph.ndjson");
+		gson = new Gson();
+
+		BinarySnapshot.Writer writer = new BinarySnapshot.Writer(LocalDateTime.now(), intersections, streetCount);
+		nodes.forEach(writer::addIntersection);
+		edges.forEach(writer::addStreet);
+		try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(snapshot))) {
+			writer.writeTo(output);
+		}
+		try (Writer output = Files.newBufferedWriter(json)) {
+			for (Intersection i : nodes) {
+				gson.toJson(i, output);
+				output.write('\n');
+			}
+			for (Street s : edges) {
+				gson.toJson(s, output);
+				output.write('\n');
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void delete() throws IOException {
+		Files.deleteIfExists(snapshot);
+		Files.deleteIfExists(json);
+		Files.deleteIfExists(directory);
+	}
+
+	/**
+	 * The JSON path: every intersection and street parsed into its object.
+	 */
+	@Benchmark
+	public double json() throws IOException {
+		double sum = 0;
+		int line = 0;
+		try (BufferedReader reader = Files.newBufferedReader(json)) {
+			String s;
+			while ((s = reader.readLine()) != null) {
+				if (line++ < intersections) {
+					sum += gson.fromJson(s, Intersection.class).getBetweenness();
+				} else {
+					sum += gson.fromJson(s, Street.class).getWeight();
+				}
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Opening the snapshot only: the sections are mapped, not read.
+	 */
+	@Benchmark
+	public BinarySnapshot snapshotOpen() throws IOException {
+		return BinarySnapshot.open(snapshot);
+	}
+
+	/**
+	 * Opening the snapshot and reading the weight and target of every street.
+	 */
+	@Benchmark
+	public double snapshotColumns() throws IOException {
+		BinarySnapshot graph = BinarySnapshot.open(snapshot);
+		double sum = 0;
+		for (int e = 0; e < graph.getStreetCount(); e++) {
+			sum += graph.weight(e) + graph.target(e);
+		}
+		return sum;
+	}
+
+	/**
+	 * Opening the snapshot and decoding the geometry of every street.
+	 */
+	@Benchmark
+	public double snapshotGeometry() throws IOException {
+		BinarySnapshot graph = BinarySnapshot.open(snapshot);
+		double sum = 0;
+		for (int e = 0; e < graph.getStreetCount(); e++) {
+			sum += graph.geometry(e)[0];
+		}
+		return sum;
+	}
+
+	/**
+	 * Opening the snapshot and building every intersection and street, the same objects as the
+	 * JSON path.
+	 */
+	@Benchmark
+	public double snapshotObjects() throws IOException {
+		BinarySnapshot graph = BinarySnapshot.open(snapshot);
+		double sum = 0;
+		for (int i = 0; i < graph.getIntersectionCount(); i++) {
+			sum += graph.intersection(i).getBetweenness();
+		}
+		for (int e = 0; e < graph.getStreetCount(); e++) {
+			sum += graph.street(e).getWeight();
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,424 @@
+package application.databaseManagementService;
+
+import data.dataModel.BetweennessAccuracyReport;
+import data.databaseDriver.DAOAdmin;
+import data.databaseDriver.DAOAdminNeo4jImpl;
+import data.graph.BetweennessCentrality;
+import data.graph.DynamicBetweenness;
+import data.graph.GraphSnapshot;
+import data.graph.ProgressMonitor;
+import org.jboss.logging.Logger;
+import util.ServerUtilities;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import java.io.FileNotFoundException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Singleton Bean that computes the betweenness of the intersections in process and, if
+ * {@code betweenness/dynamic} is set, keeps the result of the last full computation up to date
+ * while the weights and the interruptions of the streets change.
+ * <p>
+ * The changes notified by the service are queued and applied in the background, in batches, by
+ * {@link DynamicBetweenness}; only the intersections whose value has changed are written. A change
+ * of the topology of the graph stops the updates until the next full computation.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class BetweennessManager {
+
+    private final Logger logger;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ConcurrentLinkedQueue<Change> changes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final AtomicLong topology = new AtomicLong();
+    private volatile DynamicBetweenness state;
+    private DAOAdmin database;
+    private ForkJoinPool pool;
+    private int bulkChunkSize = 1000;
+    private int parallelism = 0;
+    private double probability = 0;
+    private boolean dynamic = false;
+
+    @EJB
+    DatabaseConnectionManager connectionManager;
+
+    @EJB
+    GraphSnapshotManager snapshotManager;
+
+    @EJB
+    GraphCache cache;
+
+    @EJB
+    GraphVersion version;
+
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    ManagedExecutorService executor;
+
+    @Resource(lookup = "java:comp/DefaultManagedThreadFactory")
+    ManagedThreadFactory threadFactory;
+
+    public BetweennessManager() {
+        logger = Logger.getLogger(BetweennessManager.class);
+        try {
+            ServerUtilities serverUtilities = new ServerUtilities();
+            this.bulkChunkSize = serverUtilities.getBulkImportChunkSize();
+            this.parallelism = serverUtilities.getBetweennessParallelism();
+            this.probability = serverUtilities.getBetweennessProbability();
+            this.dynamic = serverUtilities.getBetweennessDynamic();
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @PostConstruct
+    public void connect() {
+        logger.info("BetweennessManager.connect: dynamic = " + dynamic);
+        database = new DAOAdminNeo4jImpl(connectionManager.getDriverWrite(), connectionManager.getDriverRead(),
+                connectionManager.getStreetDirectory(), connectionManager.getBookmarks());
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                new ManagedWorkerFactory(threadFactory), null, false);
+    }
+
+    @PreDestroy
+    public void stop() {
+        logger.info("BetweennessManager.stop");
+        pool.shutdownNow();
+    }
+
+    /**
+     * Computes the betweenness of all the intersections on the snapshot of the graph and writes it
+     * back in chunks. Intersections added after the snapshot was read keep their value.
+     *
+     * @param strategy Choice of the sources of the shortest paths.
+     * @return Number of intersections updated.
+     * @throws IllegalStateException If the graph cannot be read.
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public int update(BetweennessCentrality.Strategy strategy) {
+        return update(strategy, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Computes the betweenness as {@link #update(BetweennessCentrality.Strategy)}, reporting the
+     * progress of the phases {@code snapshot}, {@code compute}, {@code write} and {@code publish}.
+     * The monitor is checked for cancellation until the write begins: from then on the database
+     * is being changed and the computation runs to the end.
+     *
+     * @param strategy Choice of the sources of the shortest paths.
+     * @param monitor  Receives the progress.
+     * @return Number of intersections updated.
+     * @throws CancellationException If the monitor has been cancelled before the write.
+     * @throws IllegalStateException If the graph cannot be read.
+     */
+    // The computation takes minutes and commits its chunks in Neo4j: a container transaction
+    // timing out would report as failed a betweenness already written.
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public int update(BetweennessCentrality.Strategy strategy, ProgressMonitor monitor) {
+        // the snapshot is read holding the lock, so no change queued after it can be dropped by a
+        // drain before the new state is installed
+        lock.lock();
+        try {
+            long topologyRead = topology.get();
+            monitor.begin("snapshot", 1);
+            snapshotManager.refresh(false);
+            GraphSnapshot graph = snapshotManager.getOrLoad();
+            if (graph == null) {
+                throw new IllegalStateException("graph snapshot not available");
+            }
+            monitor.worked(1);
+            long start = System.currentTimeMillis();
+            BetweennessCentrality algorithm = new BetweennessCentrality(graph);
+            double p = probability > 0 ? Math.min(1, probability) : algorithm.defaultProbability();
+            int[] sources = algorithm.selectSources(strategy, p, new Random());
+            double scale = strategy == BetweennessCentrality.Strategy.RANDOM && p > 0 ? 1 / p : 1;
+            monitor.begin("compute", sources.length);
+            double[] centrality = algorithm.compute(sources, scale, pool, monitor);
+            if (monitor.isCancelled()) {
+                throw new CancellationException();
+            }
+            logger.info("BetweennessManager.update: strategy = " + strategy + ", sources = " + sources.length
+                    + ", elapsedMillis = " + (System.currentTimeMillis() - start));
+
+            int[] all = new int[centrality.length];
+            for (int v = 0; v < all.length; v++) {
+                all[v] = v;
+            }
+            monitor.begin("write", all.length);
+            int written = write(graph, all, centrality, monitor);
+            monitor.begin("publish", 1);
+            cache.invalidateIntersections();
+            modified();
+            monitor.worked(1);
+            // the changes queued so far may be already in the snapshot: applying them again is harmless
+            boolean current = dynamic && topology.get() == topologyRead;
+            state = current ? new DynamicBetweenness(graph, strategy, sources, scale, centrality) : null;
+            logger.info("BetweennessManager.update: written = " + written + ", elapsedMillis = "
+                    + (System.currentTimeMillis() - start));
+            return written;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a change of the weight of a street, applied in the background.
+     */
+    public void streetWeightChanged(int id, double weight) {
+        enqueue(new Change(id, weight, null));
+    }
+
+    /**
+     * Queues a change of the interruption of a street, applied in the background.
+     */
+    public void streetInterruptedChanged(int id, boolean interrupted) {
+        enqueue(new Change(id, null, interrupted));
+    }
+
+    /**
+     * Stops the updates after a change of the topology of the graph, until the next full
+     * computation.
+     */
+    public void topologyChanged() {
+        topology.incrementAndGet();
+        if (state != null) {
+            logger.info("BetweennessManager.topologyChanged: dynamic updates stopped");
+            state = null;
+        }
+        changes.clear();
+    }
+
+    /**
+     * Compares the values being kept up to date with a full computation from the same sources on
+     * the same graph, after applying the queued changes.
+     *
+     * @return The errors and the work done by the updates.
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public BetweennessAccuracyReport verify() {
+        lock.lock();
+        try {
+            drain();
+            DynamicBetweenness current = state;
+            if (current == null) {
+                return new BetweennessAccuracyReport(dynamic, false, null, 0, 0, 0, 0, 0, changes.size(), 0, 0, 0,
+                        0, 0);
+            }
+            long start = System.currentTimeMillis();
+            DynamicBetweenness.Accuracy accuracy = current.verify(pool);
+            return new BetweennessAccuracyReport(dynamic, true, current.getStrategy().name(),
+                    current.getSourceCount(), current.getGraph().getNodeCount(), current.getUpdates(),
+                    current.getChanges(), current.getAffectedSources(), changes.size(),
+                    accuracy.getMaxAbsoluteError(), accuracy.getMeanAbsoluteError(), accuracy.getMaxRelativeError(),
+                    accuracy.getMismatched(), System.currentTimeMillis() - start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(Change change) {
+        if (!dynamic) {
+            return;
+        }
+        changes.add(change);
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(this::drainInBackground);
+        }
+    }
+
+    private void drainInBackground() {
+        try {
+            lock.lock();
+            try {
+                drain();
+            } finally {
+                lock.unlock();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Error in BetweennessManager.drain()", e);
+        } finally {
+            draining.set(false);
+            if (!changes.isEmpty() && draining.compareAndSet(false, true)) {
+                executor.execute(this::drainInBackground);
+            }
+        }
+    }
+
+    /**
+     * Applies the queued changes as one batch, the last change of a street winning, and writes the
+     * intersections whose betweenness has changed. Called holding the lock. Without a state the
+     * changes are dropped: they are already in the database, where the next full computation
+     * reads its snapshot once it holds the lock.
+     */
+    private void drain() {
+        DynamicBetweenness current = state;
+        if (current == null || changes.isEmpty()) {
+            changes.clear();
+            return;
+        }
+        GraphSnapshot graph = current.getGraph();
+        Map<Integer, double[]> merged = new LinkedHashMap<>();
+        Change change;
+        while ((change = changes.poll()) != null) {
+            double[] street = merged.get(change.id);
+            if (street == null) {
+                int edge = graph.edgeOf(change.id);
+                if (edge < 0) {
+                    logger.info("BetweennessManager.drain: street " + change.id + " not in the graph");
+                    topologyChanged();
+                    return;
+                }
+                street = new double[] { graph.weight(edge), graph.isInterrupted(edge) ? 1 : 0 };
+                merged.put(change.id, street);
+            }
+            if (change.weight != null) {
+                street[0] = change.weight;
+            }
+            if (change.interrupted != null) {
+                street[1] = change.interrupted ? 1 : 0;
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        int[] ids = new int[merged.size()];
+        double[] weights = new double[ids.length];
+        boolean[] interrupted = new boolean[ids.length];
+        int i = 0;
+        for (Map.Entry<Integer, double[]> entry : merged.entrySet()) {
+            ids[i] = entry.getKey();
+            weights[i] = entry.getValue()[0];
+            interrupted[i] = entry.getValue()[1] != 0;
+            i++;
+        }
+        int[] modified = current.update(ids, weights, interrupted, pool);
+        if (modified == null) {
+            topologyChanged();
+            return;
+        }
+        double[] centrality = new double[current.getGraph().getNodeCount()];
+        for (int v : modified) {
+            centrality[v] = current.centrality(v);
+        }
+        int written = write(current.getGraph(), modified, centrality, ProgressMonitor.NONE);
+        if (written > 0) {
+            if (modified.length > bulkChunkSize) {
+                cache.invalidateIntersections();
+            } else {
+                for (int v : modified) {
+                    cache.invalidateIntersection(current.getGraph().osmid(v));
+                }
+            }
+            modified();
+        }
+        logger.info("BetweennessManager.drain: streets = " + ids.length + ", affectedSources = "
+                + current.getAffectedSources() + ", written = " + written + ", elapsedMillis = "
+                + (System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Writes the betweenness of the given intersections in chunks.
+     *
+     * @param graph      Graph of the dense ids.
+     * @param nodes      Dense ids of the intersections to write.
+     * @param centrality Betweenness indexed by dense id.
+     * @param monitor    Receives the progress of every chunk.
+     * @return Number of intersections updated.
+     */
+    private int write(GraphSnapshot graph, int[] nodes, double[] centrality, ProgressMonitor monitor) {
+        int written = 0;
+        Map<Long, Double> chunk = new LinkedHashMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            chunk.put(graph.osmid(nodes[i]), centrality[nodes[i]]);
+            if (chunk.size() == bulkChunkSize || i == nodes.length - 1) {
+                written += database.setBetweennessIntersections(chunk);
+                monitor.worked(chunk.size());
+                chunk.clear();
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Stamps the Control node, see {@link DatabaseManagementService}.
+     */
+    private void modified() {
+        version.modified(database.setLastModified());
+    }
+
+    /**
+     * Creates the workers of the pool on threads of the container. A Java EE 7 ManagedThreadFactory
+     * cannot create a {@link ForkJoinWorkerThread} itself, so every worker is constructed by a
+     * managed thread and inherits its context class loader, thread group and inheritable thread
+     * locals, as a thread of the factory would.
+     */
+    private static final class ManagedWorkerFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private final ManagedThreadFactory threadFactory;
+
+        ManagedWorkerFactory(ManagedThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            FutureTask<ForkJoinWorkerThread> worker = new FutureTask<>(() -> new Worker(pool));
+            Thread creator = threadFactory.newThread(worker);
+            if (creator == null) {
+                return null;
+            }
+            creator.start();
+            try {
+                return worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                Logger.getLogger(BetweennessManager.class).error("Error in ManagedWorkerFactory.newThread()",
+                        e.getCause());
+                return null;
+            }
+        }
+    }
+
+    private static final class Worker extends ForkJoinWorkerThread {
+        Worker(ForkJoinPool pool) {
+            super(pool);
+            setName("betweenness-" + getName());
+        }
+    }
+
+    /**
+     * A change of a street, {@code null} for the unchanged property.
+     */
+    private static final class Change {
+        private final int id;
+        private final Double weight;
+        private final Boolean interrupted;
+
+        Change(int id, Double weight, Boolean interrupted) {
+            this.id = id;
+            this.weight = weight;
+            this.interrupted = interrupted;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package application.databaseManagementService;
+
+import data.graph.BinarySnapshot;
+import org.jboss.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+/**
+ * Singleton Bean that keeps the last {@link BinarySnapshot} written, in a file shared by all the
+ * downloads of the same version of the graph.
+ * <p>
+ * The snapshot is read and written again only when the version of the graph has changed, by one
+ * request at a time: the concurrent requests wait for it and send the same file, which is
+ * streamed from disk, so the heap holds no copy of the graph between two versions. The file is
+ * written under a temporary name and moved into place, and the file of the previous version is
+ * deleted once the new one is in place. A graph without a version is never served from the
+ * cache.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class BinarySnapshotManager {
+
+    private final Logger logger;
+    private final Object loading = new Object();
+    private volatile Snapshot current;
+    private Path directory;
+    private long files;
+
+    public BinarySnapshotManager() {
+        logger = Logger.getLogger(BinarySnapshotManager.class);
+    }
+
+    @PostConstruct
+    public void start() {
+        try {
+            directory = Files.createTempDirectory("graph-snapshot");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        logger.info("BinarySnapshotManager.start: directory = " + directory);
+    }
+
+    @PreDestroy
+    public void stop() {
+        logger.info("BinarySnapshotManager.stop");
+        synchronized (loading) {
+            if (current != null) {
+                current.delete();
+                current = null;
+            }
+            try {
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                logger.warn("BinarySnapshotManager.stop: " + directory + " not deleted", e);
+            }
+        }
+    }
+
+    /**
+     * @param version Current version of the graph, {@code null} if unknown.
+     * @param loader  Reads the whole graph into a writer, {@code null} if the database is not
+     *                available.
+     * @return The snapshot of the version, or of a newer one if the graph has changed while it was
+     *         read; {@code null} if the database is not available.
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public Snapshot get(LocalDateTime version, Supplier<BinarySnapshot.Writer> loader) {
+        Snapshot cached = current;
+        if (cached != null && version != null && version.equals(cached.version)) {
+            return cached;
+        }
+        synchronized (loading) {
+            cached = current;
+            if (cached != null && version != null && version.equals(cached.version)) {
+                return cached;
+            }
+            long start = System.currentTimeMillis();
+            BinarySnapshot.Writer writer = loader.get();
+            if (writer == null) {
+                return null;
+            }
+            Snapshot loaded = write(writer);
+            current = loaded;
+            if (cached != null) {
+                cached.delete();
+            }
+            logger.info("BinarySnapshotManager.get: version = " + loaded.version + ", size = " + loaded.size
+                    + ", elapsedMillis = " + (System.currentTimeMillis() - start));
+            return loaded;
+        }
+    }
+
+    /**
+     * Writes a snapshot in a temporary file, then moves it to its own name, so that no request
+     * ever sees a file partly written.
+     */
+    private Snapshot write(BinarySnapshot.Writer writer) {
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(directory, "snapshot", ".tmp");
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+                writer.writeTo(output);
+            }
+            Path file = directory.resolve("snapshot-" + (++files) + ".otmg");
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            return new Snapshot(writer.getVersion(), file, Files.size(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException e) {
+                    logger.warn("BinarySnapshotManager.write: " + temporary + " not deleted", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * A snapshot written, immutable. The file is deleted when a newer version replaces it: a
+     * download already streaming it goes on, since the file stays readable while it is open.
+     */
+    public static final class Snapshot {
+        private final LocalDateTime version;
+        private final Path file;
+        private final long size;
+
+        Snapshot(LocalDateTime version, Path file, long size) {
+            this.version = version;
+            this.file = file;
+            this.size = size;
+        }
+
+        /**
+         * @return Version of the graph read, {@code null} if unknown.
+         */
+        public LocalDateTime getVersion() {
+            return version;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Copies the file to the output with {@link FileChannel#transferTo}, without loading it.
+         *
+         * @throws IOException If the file has been replaced by a newer version before it was
+         *                     opened, or cannot be read.
+         */
+        public void writeTo(OutputStream output) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(output);
+                long position = 0;
+                while (position < size) {
+                    long transferred = channel.transferTo(position, size - position, target);
+                    if (transferred <= 0) {
+                        throw new IOException("Graph snapshot " + file + " truncated at " + position);
+                    }
+                    position += transferred;
+                }
+            }
+        }
+
+        private void delete() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                Logger.getLogger(BinarySnapshotManager.class).warn("Snapshot.delete: " + file + " not deleted", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package application.databaseManagementService;
+
+import data.dataModel.ConnectionPoolStatistics;
+import data.dataModel.StreetDirectoryStatistics;
+import data.databaseDriver.BookmarkRegistry;
+import data.databaseDriver.DAOAdminNeo4jImpl;
+import data.databaseDriver.StreetDirectory;
+import org.jboss.logging.Logger;
+import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Config;
+import org.neo4j.driver.ConnectionPoolMetrics;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.GraphDatabase;
+import util.ServerUtilities;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Singleton Bean that owns the Neo4j drivers shared by all the instances of
+ * {@link DatabaseManagementService}.
+ * <p>
+ * The drivers, and so their connection pools, are created once at application startup with the
+ * pool settings of the configuration file, instead of once per pooled session bean. The directory
+ * of the endpoints of the streets is shared the same way, and loaded in the background at its first
+ * use, and so are the bookmarks of the last writes, if {@code bookmarks/enabled} is set.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class DatabaseConnectionManager {
+
+    private final Logger logger;
+    private Driver driverRead;
+    private Driver driverWrite;
+    private final StreetDirectory streetDirectory = new StreetDirectory();
+    private BookmarkRegistry bookmarks;
+
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    ManagedExecutorService executor;
+
+    public DatabaseConnectionManager() {
+        logger = Logger.getLogger(DatabaseConnectionManager.class);
+    }
+
+    /**
+     * Called at application startup. Opens the read and write drivers.
+     */
+    @PostConstruct
+    public void open() {
+        logger.info("DatabaseConnectionManager.open");
+        try {
+            ServerUtilities serverUtilities = new ServerUtilities();
+            String uriWrite = serverUtilities.getDatabaseCoreUri();
+            String uriRead = serverUtilities.getDatabaseReplicaUri();
+            String user = serverUtilities.getDatabaseCoreUser();
+            String password = serverUtilities.getDatabaseCorePass();
+            Config config = Config.builder()
+                    .withMaxConnectionPoolSize(serverUtilities.getConnectionPoolMaxSize())
+                    .withConnectionAcquisitionTimeout(serverUtilities.getConnectionAcquisitionTimeout(), TimeUnit.MILLISECONDS)
+                    .withMaxConnectionLifetime(serverUtilities.getConnectionMaxLifetime(), TimeUnit.MILLISECONDS)
+                    .withDriverMetrics()
+                    .build();
+            logger.info("Opening Connection to DataBase URI-read[" + uriRead + "]");
+            logger.info("Opening Connection to DataBase URI-write[" + uriWrite + "]");
+            this.driverRead = GraphDatabase.driver(uriRead, AuthTokens.basic(user, password), config);
+            this.driverWrite = GraphDatabase.driver(uriWrite, AuthTokens.basic(user, password), config);
+            if (serverUtilities.getBookmarksEnabled()) {
+                this.bookmarks = new BookmarkRegistry(serverUtilities.getBookmarksRetained());
+            }
+            streetDirectory.setLoader(generation -> executor.execute(() -> loadStreetDirectory(generation)));
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void loadStreetDirectory(int generation) {
+        try {
+            DAOAdminNeo4jImpl dao = new DAOAdminNeo4jImpl(driverWrite, driverRead, streetDirectory, bookmarks);
+            long streets = dao.loadStreetDirectory(generation);
+            logger.info("DatabaseConnectionManager.loadStreetDirectory: streets = " + streets + ", "
+                    + streetDirectory.getStatistics());
+        } catch (RuntimeException e) {
+            logger.error("Error in DatabaseConnectionManager.loadStreetDirectory()", e);
+            streetDirectory.finishLoading(generation, false, 0);
+        }
+    }
+
+    /**
+     * Called at application shutdown. Closes the drivers and their connection pools.
+     */
+    @PreDestroy
+    public void close() {
+        logger.info("DatabaseConnectionManager.close");
+        if (driverRead != null) {
+            driverRead.closeAsync();
+            driverRead = null;
+        }
+        if (driverWrite != null) {
+            driverWrite.closeAsync();
+            driverWrite = null;
+        }
+    }
+
+    public Driver getDriverRead() {
+        return driverRead;
+    }
+
+    public Driver getDriverWrite() {
+        return driverWrite;
+    }
+
+    public StreetDirectory getStreetDirectory() {
+        return streetDirectory;
+    }
+
+    /**
+     * @return The bookmarks of the last writes, {@code null} if the reads do not wait for them.
+     */
+    public BookmarkRegistry getBookmarks() {
+        return bookmarks;
+    }
+
+    /**
+     * Drops the directory of the endpoints of the streets, which is loaded again at its next use.
+     *
+     * @return Statistics of the directory.
+     */
+    public StreetDirectoryStatistics rebuildStreetDirectory() {
+        logger.info("DatabaseConnectionManager.rebuildStreetDirectory");
+        streetDirectory.invalidate();
+        streetDirectory.requestLoad();
+        return streetDirectory.getStatistics();
+    }
+
+    /**
+     * Returns the state of the connection pools of both drivers, one entry per server.
+     *
+     * @return Statistics of the connection pools.
+     */
+    public ArrayList<ConnectionPoolStatistics> getConnectionPoolStatistics() {
+        logger.info("DatabaseConnectionManager.getConnectionPoolStatistics");
+        ArrayList<ConnectionPoolStatistics> statistics = new ArrayList<>();
+        addStatistics("read", driverRead, statistics);
+        addStatistics("write", driverWrite, statistics);
+        return statistics;
+    }
+
+    private void addStatistics(String role, Driver driver, ArrayList<ConnectionPoolStatistics> statistics) {
+        if (driver == null || !driver.isMetricsEnabled()) {
+            return;
+        }
+        for (ConnectionPoolMetrics m : driver.metrics().connectionPoolMetrics()) {
+            statistics.add(new ConnectionPoolStatistics(role, m.id(), m.inUse(), m.idle(), m.creating(),
+                    m.acquiring(), m.created(), m.failedToCreate(), m.closed(), m.acquired(), m.timedOutToAcquire(),
+                    m.totalAcquisitionTime(), m.totalConnectionTime(), m.totalInUseTime(), m.totalInUseCount()));
+        }
+    }
+}
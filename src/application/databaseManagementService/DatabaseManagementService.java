@@ -1,20 +1,56 @@
 package application.databaseManagementService;
 
+import data.dataModel.BetweennessAccuracyReport;
+import data.dataModel.BatchUpdateReport;
+import data.dataModel.CacheStatistics;
+import data.dataModel.ConnectionPoolStatistics;
+import data.dataModel.GraphSnapshotStatistics;
 import data.dataModel.Coordinate;
+import data.dataModel.GeometryMigrationBatch;
+import data.dataModel.ImportReport;
 import data.dataModel.Intersection;
+import data.dataModel.JobStatus;
+import data.dataModel.NearestIntersection;
+import data.dataModel.SchemaStatus;
+import data.dataModel.SpatialIndexStatistics;
 import data.dataModel.Street;
+import data.dataModel.StreetDirectoryStatistics;
+import data.dataModel.StreetInterruptionUpdate;
+import data.dataModel.StreetWeightUpdate;
+import data.dataModel.WriteBufferStatistics;
+import data.databaseDriver.BookmarkRegistry;
 import data.databaseDriver.DAOAdmin;
+import data.databaseDriver.DAOAdminAsync;
 import data.databaseDriver.DAOAdminNeo4jImpl;
+import data.graph.BetweennessCentrality;
+import data.graph.SpatialIndex;
 import org.jboss.logging.Logger;
 import util.ServerUtilities;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 import java.io.FileNotFoundException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 
 /**
  * Session Bean implementation class DatabaseManagementService.
@@ -28,28 +64,54 @@ public class DatabaseManagementService implements DatabaseManagementServiceRemot
 
     private final Logger logger;
     DAOAdmin database;
-    protected String databeseWriteURI = null;
-    protected String databeseReadURI = null;
-    protected String databaseUser = null;
-    protected String databasePass = null;
+    DAOAdminAsync asyncDatabase;
+    protected int bulkChunkSize = 1000;
+
+    @EJB
+    DatabaseConnectionManager connectionManager;
+
+    @EJB
+    GraphCache cache;
+
+    @EJB
+    GraphVersion version;
+
+    @EJB
+    GraphSnapshotManager snapshotManager;
+
+    @EJB
+    BetweennessManager betweenness;
+
+    @EJB
+    JobManager jobs;
+
+    @EJB
+    StreetWeightBuffer weightBuffer;
+
+    @EJB
+    SchemaManager schema;
+
+    @EJB
+    SpatialIndexManager spatial;
+
+    @EJB
+    VectorTileManager tiles;
+
+    @EJB
+    BinarySnapshotManager binarySnapshots;
 
     /**
      * Default constructor.
      * <p>
-     * Instantiate a driver to access the Neo4j Graph Database for common user with default bolt uri and credentials.
-     *
-     * @throws FileNotFoundException
+     * Reads the settings of the service. The connection to the database is shared by all the
+     * instances of the bean and owned by {@link DatabaseConnectionManager}.
      */
     public DatabaseManagementService() {
         logger = Logger.getLogger(DatabaseManagementService.class);
         logger.info("DatabaseManagementService.DatabaseManagementService");
         try {
             ServerUtilities serverUtilities = new ServerUtilities();
-            this.databeseWriteURI = serverUtilities.getDatabaseCoreUri();
-            this.databeseReadURI = serverUtilities.getDatabaseReplicaUri();
-            this.databaseUser = serverUtilities.getDatabaseCoreUser();
-            this.databasePass = serverUtilities.getDatabaseCorePass();
-            database = new DAOAdminNeo4jImpl(databeseWriteURI, databeseReadURI, databaseUser, databasePass);
+            this.bulkChunkSize = serverUtilities.getBulkImportChunkSize();
         } catch (FileNotFoundException e) {
             e.printStackTrace();
         }
@@ -57,16 +119,20 @@ public class DatabaseManagementService implements DatabaseManagementServiceRemot
 
 
     /**
-     * Called after the EJB construction. Open the connection to the database.
+     * Called after the EJB construction. Binds the DAO to the shared drivers.
      */
     @PostConstruct
     public void connect() {
         logger.info("DatabaseManagementService.connect");
-        database.openConnection();
+        DAOAdminNeo4jImpl dao = new DAOAdminNeo4jImpl(connectionManager.getDriverWrite(), connectionManager.getDriverRead(),
+                connectionManager.getStreetDirectory(), connectionManager.getBookmarks());
+        dao.openConnection();
+        database = dao;
+        asyncDatabase = dao;
     }
 
     /**
-     * Called before the EJB destruction. Close the connection to the database.
+     * Called before the EJB destruction. Releases the shared drivers, which stay open.
      */
     @PreDestroy
     public void preDestroy() {
@@ -77,125 +143,728 @@ public class DatabaseManagementService implements DatabaseManagementServiceRemot
     @Override
     public Intersection addIntersection(Coordinate c, String highway, long osmid, String ref, boolean parking, boolean hospital, boolean busStop, boolean museum) {
         logger.info("DatabaseManagementService.addIntersection: c = " + c + ", highway = " + highway + 
-				", osmid = " + osmid + ", ref = " + ref + ", parking = " + parking + ", hospital = " + hospital + 
-				", busStop = " + busStop + ", museum = " + museum);
+                ", osmid = " + osmid + ", ref = " + ref + ", parking = " + parking + ", hospital = " + hospital + 
+                ", busStop = " + busStop + ", museum = " + museum);
         Intersection i = database.addIntersection(c, highway, osmid, ref, parking, hospital, busStop, museum);
+        cache.invalidateIntersection(osmid);
+        spatial.intersectionWritten(i);
+        betweenness.topologyChanged();
+        modified();
         return i;
     }
 
+    // Every chunk commits in Neo4j on its own, so the import must not run against the timeout of a
+    // container transaction.
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public ImportReport addIntersections(Iterator<Intersection> intersections, int chunkSize) {
+        logger.info("DatabaseManagementService.addIntersections: chunkSize = " + chunkSize);
+        ImportReport report = importInChunks(intersections, chunkSize, i -> i.getCoordinate() != null, chunk -> {
+            int written = database.addIntersections(chunk);
+            if (written > 0) {
+                chunk.forEach(spatial::intersectionWritten);
+            }
+            return written;
+        });
+        cache.invalidateAll();
+        betweenness.topologyChanged();
+        modified();
+        return report;
+    }
+
     @Override
     public Street addStreet(ArrayList<Coordinate> coordinates, int id, String access, String area, String bridge, long osmidStart,
                             long osmidDest, String highway, String junction, int key, ArrayList<Integer> arrayLanes, double length,
                             String maxSpeed, String name, boolean oneWay, ArrayList<Long> osmidEdges, String ref, boolean transportService,
                             String tunnel, String width, int origId, double weight, double flow, double averageTravelTime, boolean interrupted) {
         logger.info("DatabaseManagementService.addStreet: coordinates = " + coordinates + ", id = " + id + ", access = " + access + 
-				", area = " + area + ", bridge = " + bridge + ", osmidStart = " + osmidStart + ", osmidDest = " + osmidDest + 
-				", highway = " + highway + ", junction = " + junction + ", key = " + key + ", arrayLanes = " + arrayLanes + 
-				", length = " + length + ", maxSpeed = " + maxSpeed + ", name = " + name + ", oneWay = " + oneWay + 
-				", osmidEdges = " + osmidEdges + ", ref = " + ref + ", transportService = " + transportService + ", tunnel = " + tunnel + 
-				", width = " + width + ", origId = " + origId + ", weight = " + weight + ", flow = " + flow + 
-				", averageTravelTime = " + averageTravelTime + ", interrupted = " + interrupted);
+                ", area = " + area + ", bridge = " + bridge + ", osmidStart = " + osmidStart + ", osmidDest = " + osmidDest + 
+                ", highway = " + highway + ", junction = " + junction + ", key = " + key + ", arrayLanes = " + arrayLanes + 
+                ", length = " + length + ", maxSpeed = " + maxSpeed + ", name = " + name + ", oneWay = " + oneWay + 
+                ", osmidEdges = " + osmidEdges + ", ref = " + ref + ", transportService = " + transportService + ", tunnel = " + tunnel + 
+                ", width = " + width + ", origId = " + origId + ", weight = " + weight + ", flow = " + flow + 
+                ", averageTravelTime = " + averageTravelTime + ", interrupted = " + interrupted);
         Street s = database.addStreet(coordinates, id, access, area, bridge, osmidStart, osmidDest, highway, junction, key,
                 arrayLanes, length, maxSpeed, name, oneWay, osmidEdges, ref, transportService, tunnel, width, origId, weight, flow, averageTravelTime, interrupted);
 //        database.updateBetweenness();
+        cache.invalidateStreet(id);
+        spatial.streetWritten(s);
+        betweenness.topologyChanged();
+        modified();
         return s;
     }
 
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public ImportReport addStreets(Iterator<Street> streets, int chunkSize) {
+        logger.info("DatabaseManagementService.addStreets: chunkSize = " + chunkSize);
+        ImportReport report = importInChunks(streets, chunkSize,
+                s -> s.getCoordinates() != null && !s.getCoordinates().isEmpty(), chunk -> {
+                    List<Integer> ids = database.addStreets(chunk);
+                    if (ids == null) {
+                        return 0;
+                    }
+                    // the streets whose intersections are missing have not been written
+                    Set<Integer> written = new HashSet<>(ids);
+                    for (Street s : chunk) {
+                        if (written.contains(s.getId())) {
+                            spatial.streetWritten(s);
+                        }
+                    }
+                    return ids.size();
+                });
+        cache.invalidateAll();
+        betweenness.topologyChanged();
+        modified();
+        return report;
+    }
+
 
     @Override
     public Street setStreetWeight(int id, double weight) {
-		logger.info("DatabaseManagementService.setStreetWeight: id = " + id + ", weight = " + weight);
-    	return database.setStreetWeight(id, weight);
+        logger.info("DatabaseManagementService.setStreetWeight: id = " + id + ", weight = " + weight);
+        weightBuffer.discard(Collections.singleton(id));
+        Street s = database.setStreetWeight(id, weight);
+        cache.invalidateStreet(id);
+        modified();
+        spatial.streetWeightChanged(id, weight);
+        betweenness.streetWeightChanged(id, weight);
+        return s;
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public BatchUpdateReport setStreetWeights(Iterator<StreetWeightUpdate> updates, int chunkSize) {
+        logger.info("DatabaseManagementService.setStreetWeights: chunkSize = " + chunkSize);
+        return updateInChunks(updates, chunkSize, StreetWeightUpdate::getId, StreetWeightUpdate::getWeight,
+                chunk -> {
+                    weightBuffer.discard(chunk.keySet());
+                    return database.setStreetWeights(chunk);
+                }, (id, weight) -> {
+                    spatial.streetWeightChanged(id, weight);
+                    betweenness.streetWeightChanged(id, weight);
+                });
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public BatchUpdateReport setStreetsInterrupted(Iterator<StreetInterruptionUpdate> updates, int chunkSize) {
+        logger.info("DatabaseManagementService.setStreetsInterrupted: chunkSize = " + chunkSize);
+        return updateInChunks(updates, chunkSize, StreetInterruptionUpdate::getId,
+                StreetInterruptionUpdate::getInterrupted, database::setStreetsInterrupted, (id, interrupted) -> {
+                    spatial.streetInterruptedChanged(id, interrupted);
+                    betweenness.streetInterruptedChanged(id, interrupted);
+                });
+    }
+
+    @Override
+    public boolean bufferStreetWeight(int id, double weight) {
+        return weightBuffer.put(id, weight);
+    }
+
+    @Override
+    public WriteBufferStatistics flushWriteBuffer() {
+        logger.info("DatabaseManagementService.flushWriteBuffer");
+        weightBuffer.flush();
+        return weightBuffer.getStatistics();
+    }
+
+    @Override
+    public WriteBufferStatistics getWriteBufferStatistics() {
+        logger.info("DatabaseManagementService.getWriteBufferStatistics");
+        return weightBuffer.getStatistics();
+    }
+
+    @Override
+    public String getBookmark() {
+        BookmarkRegistry bookmarks = connectionManager.getBookmarks();
+        return bookmarks == null ? null : bookmarks.current();
+    }
+
+    @Override
+    public StreetDirectoryStatistics getStreetDirectoryStatistics() {
+        logger.info("DatabaseManagementService.getStreetDirectoryStatistics");
+        return connectionManager.getStreetDirectory().getStatistics();
+    }
+
+    @Override
+    public StreetDirectoryStatistics rebuildStreetDirectory() {
+        logger.info("DatabaseManagementService.rebuildStreetDirectory");
+        return connectionManager.rebuildStreetDirectory();
+    }
+
+    @Override
+    public SchemaStatus getSchemaStatus() {
+        logger.info("DatabaseManagementService.getSchemaStatus");
+        return schema.getStatus();
+    }
+
+    @Override
+    public SchemaStatus ensureSchema() {
+        logger.info("DatabaseManagementService.ensureSchema");
+        return schema.ensure();
     }
 
     @Override
     public Intersection setBetweennessIntersection(long osmid, double betweennees) {
-		logger.info("DatabaseManagementService.setBetweennessIntersection: osmid = " + osmid + ", betweennees = " + betweennees);
-        return database.setBetweennessIntersection(osmid, betweennees);
+        logger.info("DatabaseManagementService.setBetweennessIntersection: osmid = " + osmid + ", betweennees = " + betweennees);
+        Intersection i = database.setBetweennessIntersection(osmid, betweennees);
+        cache.invalidateIntersection(osmid);
+        modified();
+        return i;
     }
 
     @Override
     public Intersection getIntersection(long osmid) {
-		logger.info("DatabaseManagementService.getIntersection: osmid = " + osmid);
-    	return database.getIntersection(osmid);
+        logger.info("DatabaseManagementService.getIntersection: osmid = " + osmid);
+        return cache.getIntersection(osmid, () -> database.getIntersection(osmid));
     }
 
     @Override
     public Street getStreet(int id) {
-		logger.info("DatabaseManagementService.getStreet: id = " + id);
-        return database.getStreet(id);
+        logger.info("DatabaseManagementService.getStreet: id = " + id);
+        return cache.getStreet(id, () -> database.getStreet(id));
     }
 
 
     @Override
     public HashMap<Integer, Street> getStreets(long osmid) {
-		logger.info("DatabaseManagementService.getStreets: osmid = " + osmid);
+        logger.info("DatabaseManagementService.getStreets: osmid = " + osmid);
         return database.getStreets(osmid);
     }
 
+    // The export can outlast the container transaction timeout, and Neo4j takes no part in it.
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public long exportIntersections(Consumer<Intersection> consumer) {
+        logger.info("DatabaseManagementService.exportIntersections");
+        return database.exportIntersections(consumer);
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public long exportStreets(Consumer<Street> consumer) {
+        logger.info("DatabaseManagementService.exportStreets");
+        return database.exportStreets(consumer);
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public BinarySnapshotManager.Snapshot getBinarySnapshot() {
+        logger.info("DatabaseManagementService.getBinarySnapshot");
+        return binarySnapshots.get(getGraphVersion(), database::getBinarySnapshot);
+    }
+
     @Override
     public Street getStreet(long osmidStart, long osmidDest) {
-		logger.info("DatabaseManagementService.getStreet: osmidStart = " + osmidStart + ", osmidDest = " + osmidDest);
-        return database.getStreet(osmidStart, osmidDest);
+        logger.info("DatabaseManagementService.getStreet: osmidStart = " + osmidStart + ", osmidDest = " + osmidDest);
+        return cache.getStreet(osmidStart, osmidDest, () -> database.getStreet(osmidStart, osmidDest));
     }
 
     @Override
     public void deleteIntersection(long osmid) {
-		logger.info("DatabaseManagementService.deleteIntersection: osmid = " + osmid);
+        logger.info("DatabaseManagementService.deleteIntersection: osmid = " + osmid);
         database.deleteIntersection(osmid);
+        cache.removeIntersection(osmid);
+        spatial.intersectionDeleted(osmid);
+        betweenness.topologyChanged();
+        modified();
     }
 
     @Override
     public void deleteStreet(int id) {
-		logger.info("DatabaseManagementService.deleteStreet: id = " + id);
+        logger.info("DatabaseManagementService.deleteStreet: id = " + id);
         database.deleteStreet(id);
+        cache.removeStreet(id);
+        spatial.streetDeleted(id);
+        betweenness.topologyChanged();
+        modified();
     }
 
 
     @Override
     public int getLinkKey(long osmidStart, long osmidDest) {
-		logger.info("DatabaseManagementService.getLinkKey: osmidStart = " + osmidStart + ", osmidDest = " + osmidDest);
+        logger.info("DatabaseManagementService.getLinkKey: osmidStart = " + osmidStart + ", osmidDest = " + osmidDest);
         return database.getLinkKey(osmidStart, osmidDest);
     }
 
     @Override
     public void updateBetweennesExact() {
-		logger.info("DatabaseManagementService.updateBetweennesExact");
-        database.updateBetweennesExact();
+        logger.info("DatabaseManagementService.updateBetweennesExact");
+        betweenness.update(BetweennessCentrality.Strategy.EXACT);
     }
 
     @Override
     public void updateBetweeennessBrandesRandom() {
-		logger.info("DatabaseManagementService.updateBetweeennessBrandesRandom");
-    	database.updateBetweeennessBrandesRandom();
+        logger.info("DatabaseManagementService.updateBetweeennessBrandesRandom");
+        betweenness.update(BetweennessCentrality.Strategy.RANDOM);
     }
 
     @Override
     public void updateBetweeennessBrandesDegree() {
-		logger.info("DatabaseManagementService.updateBetweeennessBrandesDegree");
-        database.updateBetweeennessBrandesDegree();
+        logger.info("DatabaseManagementService.updateBetweeennessBrandesDegree");
+        betweenness.update(BetweennessCentrality.Strategy.DEGREE);
     }
 
     @Override
     public void updateBetweenness() {
-		logger.info("DatabaseManagementService.updateBetweenness");
-        database.updateBetweenness();
+        logger.info("DatabaseManagementService.updateBetweenness");
+        betweenness.update(BetweennessCentrality.Strategy.DEGREE);
+    }
+
+    @Override
+    public JobStatus submitBetweennessJob(String strategy) {
+        logger.info("DatabaseManagementService.submitBetweennessJob: strategy = " + strategy);
+        return jobs.submitBetweenness(BetweennessCentrality.Strategy.valueOf(strategy));
+    }
+
+    @Override
+    public JobStatus getJob(String id) {
+        logger.info("DatabaseManagementService.getJob: id = " + id);
+        return jobs.getJob(id);
+    }
+
+    @Override
+    public ArrayList<JobStatus> getJobs() {
+        logger.info("DatabaseManagementService.getJobs");
+        return jobs.getJobs();
+    }
+
+    @Override
+    public JobStatus cancelJob(String id) {
+        logger.info("DatabaseManagementService.cancelJob: id = " + id);
+        return jobs.cancel(id);
     }
 
     @Override
     public LocalDateTime getLastModified() {
-		logger.info("DatabaseManagementService.getLastModified");
+        logger.info("DatabaseManagementService.getLastModified");
     	return database.getLastModified();
     }
 
+    @Override
+    public LocalDateTime getGraphVersion() {
+        return version.get(database::getLastModified);
+    }
+
+    @Override
+    public LocalDateTime getSpatialIndexVersion() {
+        // read first: a change of the version marks the index as stale
+        LocalDateTime graphVersion = getGraphVersion();
+        return spatial.isCurrent() ? graphVersion : null;
+    }
+
     @Override
     public void setStreetInterrupted(int id, boolean interrupted) throws Exception {
-		logger.info("DatabaseManagementService.setStreetInterrupted: id = " + id + ", interrupted = " + interrupted);
-        database.setStreetInterrupted(id, interrupted);
+        logger.info("DatabaseManagementService.setStreetInterrupted: id = " + id + ", interrupted = " + interrupted);
+        try {
+            database.setStreetInterrupted(id, interrupted);
+            modified();
+            spatial.streetInterruptedChanged(id, interrupted);
+            betweenness.streetInterruptedChanged(id, interrupted);
+        } finally {
+            cache.invalidateStreet(id);
+        }
+    }
+
+    @Override
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public ImportReport migrateStreetGeometry(int batchSize) {
+        logger.info("DatabaseManagementService.migrateStreetGeometry: batchSize = " + batchSize);
+        int size = batchSize > 0 ? batchSize : bulkChunkSize;
+        ImportReport report = new ImportReport(size);
+        long start = System.currentTimeMillis();
+        while (true) {
+            long batchStart = System.currentTimeMillis();
+            GeometryMigrationBatch batch = database.migrateStreetGeometry(size);
+            if (batch.getRead() == 0) {
+                break;
+            }
+            ImportReport.Chunk progress = report.addChunk(batch.getRead(), batch.getMigrated(),
+                    System.currentTimeMillis() - batchStart);
+            logger.info("DatabaseManagementService.migrateStreetGeometry: " + progress + ", migrated = "
+                    + report.getImported());
+            // the relations not written would be read again by the next batch
+            if (!batch.isComplete()) {
+                logger.error("Error in DatabaseManagementService.migrateStreetGeometry(): " + batch
+                        + ", migration stopped");
+                break;
+            }
+        }
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        cache.invalidateAll();
+        return report;
+    }
+
+    @Override
+    public Map<String, Long> getQueryStatistics() {
+        logger.info("DatabaseManagementService.getQueryStatistics");
+        return database.getQueryStatistics();
+    }
+
+    @Override
+    public ArrayList<ConnectionPoolStatistics> getConnectionPoolStatistics() {
+        logger.info("DatabaseManagementService.getConnectionPoolStatistics");
+        return connectionManager.getConnectionPoolStatistics();
+    }
+
+    @Override
+    public GraphSnapshotStatistics refreshGraphSnapshot() {
+        logger.info("DatabaseManagementService.refreshGraphSnapshot");
+        snapshotManager.refresh(true);
+        return snapshotManager.getStatistics();
+    }
+
+    @Override
+    public GraphSnapshotStatistics getGraphSnapshotStatistics() {
+        logger.info("DatabaseManagementService.getGraphSnapshotStatistics");
+        return snapshotManager.getStatistics();
+    }
+
+    @Override
+    public BetweennessAccuracyReport getBetweennessAccuracy() {
+        logger.info("DatabaseManagementService.getBetweennessAccuracy");
+        return betweenness.verify();
+    }
+
+    @Override
+    public ArrayList<CacheStatistics> getCacheStatistics() {
+        logger.info("DatabaseManagementService.getCacheStatistics");
+        ArrayList<CacheStatistics> statistics = cache.getStatistics();
+        statistics.add(tiles.getStatistics());
+        return statistics;
+    }
+
+    @Override
+    public CompletionStage<Intersection> getIntersectionAsync(long osmid) {
+        logger.info("DatabaseManagementService.getIntersectionAsync: osmid = " + osmid);
+        return cache.getIntersectionAsync(osmid, () -> asyncDatabase.getIntersectionAsync(osmid));
+    }
+
+    @Override
+    public CompletionStage<Street> getStreetAsync(int id) {
+        logger.info("DatabaseManagementService.getStreetAsync: id = " + id);
+        return cache.getStreetAsync(id, () -> asyncDatabase.getStreetAsync(id));
+    }
+
+    @Override
+    public CompletionStage<HashMap<Integer, Street>> getStreetsAsync(long osmid) {
+        logger.info("DatabaseManagementService.getStreetsAsync: osmid = " + osmid);
+        return asyncDatabase.getStreetsAsync(osmid);
+    }
+
+    @Override
+    public CompletionStage<ArrayList<Intersection>> getIntersectionsWithinAsync(double minLongitude, double minLatitude,
+                                                                               double maxLongitude, double maxLatitude,
+                                                                               int limit) {
+        logger.info("DatabaseManagementService.getIntersectionsWithinAsync: minLongitude = " + minLongitude +
+                ", minLatitude = " + minLatitude + ", maxLongitude = " + maxLongitude + ", maxLatitude = " + maxLatitude +
+                ", limit = " + limit);
+        SpatialIndex index = spatial.get();
+        if (index == null) {
+            return null;
+        }
+        long[] osmids = index.getIntersections(minLongitude, minLatitude, maxLongitude, maxLatitude,
+                boundedLimit(limit));
+        if (osmids.length == 0) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        List<Long> ids = new ArrayList<>(osmids.length);
+        for (long osmid : osmids) {
+            ids.add(osmid);
+        }
+        return asyncDatabase.getIntersectionsAsync(ids);
+    }
+
+    @Override
+    public CompletionStage<ArrayList<Street>> getStreetsWithinAsync(double minLongitude, double minLatitude,
+                                                                   double maxLongitude, double maxLatitude, int limit) {
+        logger.info("DatabaseManagementService.getStreetsWithinAsync: minLongitude = " + minLongitude +
+                ", minLatitude = " + minLatitude + ", maxLongitude = " + maxLongitude + ", maxLatitude = " + maxLatitude +
+                ", limit = " + limit);
+        SpatialIndex index = spatial.get();
+        if (index == null) {
+            return null;
+        }
+        int[] ids = index.getStreets(minLongitude, minLatitude, maxLongitude, maxLatitude, boundedLimit(limit));
+        List<Map<String, Object>> endpoints = new ArrayList<>(ids.length);
+        long[] pair = new long[2];
+        for (int id : ids) {
+            if (index.getStreetEndpoints(id, pair)) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("id", id);
+                row.put("osmidStart", pair[0]);
+                row.put("osmidDest", pair[1]);
+                endpoints.add(row);
+            }
+        }
+        if (endpoints.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        return asyncDatabase.getStreetsByEndpointsAsync(endpoints);
+    }
+
+    @Override
+    public CompletionStage<ArrayList<NearestIntersection>> getNearestIntersectionsAsync(double longitude, double latitude,
+                                                                                      int k, boolean parking,
+                                                                                      boolean hospital, boolean busStop,
+                                                                                      boolean museum) {
+        logger.info("DatabaseManagementService.getNearestIntersectionsAsync: longitude = " + longitude +
+                ", latitude = " + latitude + ", k = " + k + ", parking = " + parking + ", hospital = " + hospital +
+                ", busStop = " + busStop + ", museum = " + museum);
+        SpatialIndex index = spatial.get();
+        if (index == null) {
+            return null;
+        }
+        int size = boundedLimit(k);
+        long[] osmids = new long[size];
+        double[] distances = new double[size];
+        int found = index.getNearestIntersections(longitude, latitude,
+                SpatialIndex.flags(parking, hospital, busStop, museum), osmids, distances);
+        if (found == 0) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        List<Long> ids = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            ids.add(osmids[i]);
+        }
+        return asyncDatabase.getIntersectionsAsync(ids).thenApply(intersections -> {
+            Map<Long, Intersection> byOsmid = new HashMap<>();
+            for (Intersection i : intersections) {
+                byOsmid.put(i.getOsmid(), i);
+            }
+            ArrayList<NearestIntersection> nearest = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) {
+                Intersection intersection = byOsmid.get(osmids[i]);
+                if (intersection != null) {
+                    nearest.add(new NearestIntersection(intersection, distances[i]));
+                }
+            }
+            return nearest;
+        });
+    }
+
+    @Override
+    public byte[] getVectorTile(int z, int x, int y) {
+        logger.info("DatabaseManagementService.getVectorTile: z = " + z + ", x = " + x + ", y = " + y);
+        return tiles.getTile(z, x, y);
+    }
+
+    /**
+     * @return The limit of a query of the spatial index, at most the configured one.
+     */
+    private int boundedLimit(int limit) {
+        return limit > 0 ? Math.min(limit, spatial.getMaxResults()) : spatial.getMaxResults();
+    }
+
+    @Override
+    public SpatialIndexStatistics getSpatialIndexStatistics() {
+        logger.info("DatabaseManagementService.getSpatialIndexStatistics");
+        return spatial.getStatistics();
+    }
+
+    @Override
+    public SpatialIndexStatistics rebuildSpatialIndex() {
+        logger.info("DatabaseManagementService.rebuildSpatialIndex");
+        spatial.rebuild();
+        return spatial.getStatistics();
+    }
+
+    @Override
+    public CompletionStage<Integer> getLinkKeyAsync(long osmidStart, long osmidDest) {
+        logger.info("DatabaseManagementService.getLinkKeyAsync: osmidStart = " + osmidStart + ", osmidDest = " + osmidDest);
+        return asyncDatabase.getLinkKeyAsync(osmidStart, osmidDest);
+    }
+
+    @Override
+    public CompletionStage<Street> setStreetWeightAsync(int id, double weight) {
+        logger.info("DatabaseManagementService.setStreetWeightAsync: id = " + id + ", weight = " + weight);
+        weightBuffer.discard(Collections.singleton(id));
+        return modifiedAsync(asyncDatabase.setStreetWeightAsync(id, weight)
+                .whenComplete((s, e) -> cache.invalidateStreet(id)))
+                .thenApply(s -> {
+                    spatial.streetWeightChanged(id, weight);
+                    betweenness.streetWeightChanged(id, weight);
+                    return s;
+                });
+    }
+
+    @Override
+    public CompletionStage<Void> setStreetInterruptedAsync(int id, boolean interrupted) {
+        logger.info("DatabaseManagementService.setStreetInterruptedAsync: id = " + id + ", interrupted = " + interrupted);
+        return modifiedAsync(asyncDatabase.setStreetInterruptedAsync(id, interrupted)
+                .whenComplete((v, e) -> cache.invalidateStreet(id)))
+                .thenApply(v -> {
+                    spatial.streetInterruptedChanged(id, interrupted);
+                    betweenness.streetInterruptedChanged(id, interrupted);
+                    return v;
+                });
+    }
+
+    @Override
+    public CompletionStage<Intersection> setBetweennessIntersectionAsync(long osmid, double betweennees) {
+        logger.info("DatabaseManagementService.setBetweennessIntersectionAsync: osmid = " + osmid + ", betweennees = " + betweennees);
+        return modifiedAsync(asyncDatabase.setBetweennessIntersectionAsync(osmid, betweennees)
+                .whenComplete((i, e) -> cache.invalidateIntersection(osmid)));
+    }
+
+    @Override
+    public CompletionStage<Void> deleteIntersectionAsync(long osmid) {
+        logger.info("DatabaseManagementService.deleteIntersectionAsync: osmid = " + osmid);
+        return modifiedAsync(asyncDatabase.deleteIntersectionAsync(osmid)
+                .whenComplete((v, e) -> {
+                    cache.removeIntersection(osmid);
+                    if (e == null) {
+                        spatial.intersectionDeleted(osmid);
+                    }
+                    betweenness.topologyChanged();
+                }));
+    }
+
+    @Override
+    public CompletionStage<Void> deleteStreetAsync(int id) {
+        logger.info("DatabaseManagementService.deleteStreetAsync: id = " + id);
+        return modifiedAsync(asyncDatabase.deleteStreetAsync(id)
+                .whenComplete((v, e) -> {
+                    cache.removeStreet(id);
+                    if (e == null) {
+                        spatial.streetDeleted(id);
+                    }
+                    betweenness.topologyChanged();
+                }));
+    }
+
+    /**
+     * Stamps the Control node after a write, so that the graph version seen by the conditional
+     * requests changes, here and on the other servers.
+     */
+    private void modified() {
+        version.modified(database.setLastModified());
+    }
+
+    /**
+     * Non-blocking variant of {@link #modified()}, run after the write succeeds.
+     */
+    private <T> CompletionStage<T> modifiedAsync(CompletionStage<T> write) {
+        return write.thenCompose(result -> asyncDatabase.setLastModifiedAsync().thenApply(stamp -> {
+            version.modified(stamp);
+            return result;
+        })).whenComplete((result, error) -> version.invalidate());
+    }
+
+    /**
+     * Writes a stream of rows in chunks of bounded size, one transaction per chunk, logging the
+     * progress of every chunk.
+     *
+     * @param rows      Rows to write; {@code null} elements are counted as failed.
+     * @param chunkSize Maximum number of rows per chunk, the configured value if not positive.
+     * @param valid     Check applied to every row before it is sent to the database.
+     * @param writer    Writes a chunk and returns the number of rows written.
+     * @return The progress of every chunk and the count of failed rows.
+     */
+    private <T> ImportReport importInChunks(Iterator<T> rows, int chunkSize, Predicate<T> valid,
+                                            ToIntFunction<List<T>> writer) {
+        int size = chunkSize > 0 ? chunkSize : bulkChunkSize;
+        ImportReport report = new ImportReport(size);
+        long start = System.currentTimeMillis();
+        List<T> chunk = new ArrayList<>(size);
+        while (rows.hasNext()) {
+            T row = rows.next();
+            if (row == null || !valid.test(row)) {
+                report.addRejected();
+                continue;
+            }
+            chunk.add(row);
+            if (chunk.size() == size) {
+                writeChunk(chunk, writer, report);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, writer, report);
+        }
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        logger.info("DatabaseManagementService.importInChunks: " + report);
+        return report;
+    }
+
+    /**
+     * Updates a property of many streets in chunks of bounded size, one transaction per chunk. In a
+     * chunk the last row of a street wins. The Control node is stamped once, at the end.
+     *
+     * @param rows      Rows to write; rows without id or value are rejected.
+     * @param chunkSize Maximum number of streets per chunk, the configured value if not positive.
+     * @param id        Id of the street of a row.
+     * @param value     New value of a row.
+     * @param writer    Writes a chunk and returns the ids of the streets found.
+     * @param updated   Called for every street updated.
+     * @return Counters of the rows, with the first ids of the missing streets.
+     */
+    private <T, V> BatchUpdateReport updateInChunks(Iterator<T> rows, int chunkSize, Function<T, Integer> id,
+                                                    Function<T, V> value, Function<Map<Integer, V>, List<Integer>> writer,
+                                                    BiConsumer<Integer, V> updated) {
+        int size = chunkSize > 0 ? chunkSize : bulkChunkSize;
+        BatchUpdateReport report = new BatchUpdateReport(size);
+        long start = System.currentTimeMillis();
+        Map<Integer, V> chunk = new LinkedHashMap<>();
+        try {
+            while (rows.hasNext()) {
+                T row = rows.next();
+                if (row == null || id.apply(row) == null || value.apply(row) == null) {
+                    report.addRejected();
+                    continue;
+                }
+                if (chunk.put(id.apply(row), value.apply(row)) != null) {
+                    report.addMerged();
+                }
+                if (chunk.size() == size) {
+                    updateChunk(chunk, writer, updated, report);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                updateChunk(chunk, writer, updated, report);
+            }
+        } finally {
+            if (report.getUpdated() > 0) {
+                modified();
+            }
+        }
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        logger.info("DatabaseManagementService.updateInChunks: " + report);
+        return report;
+    }
+
+    private <V> void updateChunk(Map<Integer, V> chunk, Function<Map<Integer, V>, List<Integer>> writer,
+                                 BiConsumer<Integer, V> updated, BatchUpdateReport report) {
+        List<Integer> ids = writer.apply(chunk);
+        if (ids == null) {
+            report.addFailedChunk(chunk.size());
+        } else {
+            report.addChunk(chunk.size(), ids.size());
+            for (Integer id : ids) {
+                V value = chunk.remove(id);
+                if (value != null) {
+                    cache.invalidateStreet(id);
+                    updated.accept(id, value);
+                }
+            }
+            for (Integer id : chunk.keySet()) {
+                report.addNotFound(id);
+            }
+        }
+        chunk.clear();
+    }
+
+    private <T> void writeChunk(List<T> chunk, ToIntFunction<List<T>> writer, ImportReport report) {
+        long start = System.currentTimeMillis();
+        int written = writer.applyAsInt(chunk);
+        ImportReport.Chunk progress = report.addChunk(chunk.size(), written, System.currentTimeMillis() - start);
+        logger.info("DatabaseManagementService.writeChunk: " + progress + ", imported = " + report.getImported()
+                + ", failed = " + report.getFailed());
+        chunk.clear();
     }
 
     public String test() {
-		logger.info("DatabaseManagementService.test");
+        logger.info("DatabaseManagementService.test");
         return "Test-String-Admin";
     }
 
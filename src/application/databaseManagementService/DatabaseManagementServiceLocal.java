@@ -1,13 +1,32 @@
 package application.databaseManagementService;
 
+import data.dataModel.BetweennessAccuracyReport;
+import data.dataModel.BatchUpdateReport;
+import data.dataModel.CacheStatistics;
+import data.dataModel.ConnectionPoolStatistics;
+import data.dataModel.GraphSnapshotStatistics;
 import data.dataModel.Coordinate;
+import data.dataModel.ImportReport;
 import data.dataModel.Intersection;
+import data.dataModel.JobStatus;
+import data.dataModel.NearestIntersection;
+import data.dataModel.SchemaStatus;
+import data.dataModel.SpatialIndexStatistics;
 import data.dataModel.Street;
+import data.dataModel.StreetDirectoryStatistics;
+import data.dataModel.StreetInterruptionUpdate;
+import data.dataModel.StreetWeightUpdate;
+import data.dataModel.WriteBufferStatistics;
+import data.graph.BinarySnapshot;
 
 import javax.ejb.Local;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
 
 /**
  * Local Interface for the EJB that implements the administration Service of the
@@ -33,6 +52,18 @@ public interface DatabaseManagementServiceLocal {
 	 */
 	Intersection addIntersection(Coordinate coordinate, String highway, long osmid, String ref, boolean parking, boolean hospital, boolean busStop, boolean museum);
 
+	/**
+	 * Add a stream of Intersections to the database, writing them in chunks of
+	 * bounded size with one transaction per chunk.
+	 *
+	 * @param intersections Intersections to add; {@code null} elements are counted
+	 *                      as failed rows.
+	 * @param chunkSize     Maximum number of Intersections per transaction, the
+	 *                      configured value if not positive.
+	 * @return The progress of every chunk and the count of failed rows.
+	 */
+	ImportReport addIntersections(Iterator<Intersection> intersections, int chunkSize);
+
 	/**
 	 * Add a directional STREET relation to the database with given parameters.
 	 *
@@ -70,6 +101,21 @@ public interface DatabaseManagementServiceLocal {
 					 boolean transportService, String tunnel, String width, int origId, double weight, double flow,
 					 double averageTravelTime, boolean interrupted);
 
+	/**
+	 * Add a stream of directional STREET relations to the database, writing them
+	 * in chunks of bounded size with one transaction per chunk. The starting and
+	 * destination intersections are resolved by {@code osmidStart} and
+	 * {@code osmidDest}.
+	 *
+	 * @param streets   Streets to add; {@code null} elements, streets without
+	 *                  geometry and streets whose intersections are missing are
+	 *                  counted as failed rows.
+	 * @param chunkSize Maximum number of Streets per transaction, the configured
+	 *                  value if not positive.
+	 * @return The progress of every chunk and the count of failed rows.
+	 */
+	ImportReport addStreets(Iterator<Street> streets, int chunkSize);
+
 	// public Intersection setIntersection(int vertexKey, String name, float lat,
 	// float lon, float betweenness);
 
@@ -82,6 +128,112 @@ public interface DatabaseManagementServiceLocal {
 	 */
 	Street setStreetWeight(int id, double weight);
 
+	/**
+	 * Updates the weight of many streets, in chunks of bounded size, one
+	 * transaction per chunk. In a chunk, the last update of a street wins.
+	 *
+	 * @param updates   Id and new weight of every street.
+	 * @param chunkSize Maximum number of streets per transaction, the configured
+	 *                  value if not positive.
+	 * @return Counters of updated, merged, rejected and missing streets.
+	 */
+	BatchUpdateReport setStreetWeights(Iterator<StreetWeightUpdate> updates, int chunkSize);
+
+	/**
+	 * Updates the interrupted value of many streets, in chunks of bounded size,
+	 * one transaction per chunk. In a chunk, the last update of a street wins.
+	 *
+	 * @param updates   Id and new interrupted value of every street.
+	 * @param chunkSize Maximum number of streets per transaction, the configured
+	 *                  value if not positive.
+	 * @return Counters of updated, merged, rejected and missing streets.
+	 */
+	BatchUpdateReport setStreetsInterrupted(Iterator<StreetInterruptionUpdate> updates, int chunkSize);
+
+	/**
+	 * Holds an update of the weight of a street, to be written with the other
+	 * pending updates by the next flush, if the updates are coalesced.
+	 *
+	 * @param id     Id of the street to update.
+	 * @param weight Weight value to be set to the link.
+	 * @return {@code true} if the update has been accepted, {@code false} if the
+	 *         updates are not coalesced and it must be written with
+	 *         {@link #setStreetWeight(int, double)}.
+	 */
+	boolean bufferStreetWeight(int id, double weight);
+
+	/**
+	 * Writes at once the pending coalesced updates of the street weights.
+	 *
+	 * @return Counters of the coalescing buffer.
+	 */
+	WriteBufferStatistics flushWriteBuffer();
+
+	/**
+	 * Returns the counters of the coalescing buffer of the street weights: pending,
+	 * merged and dropped updates, batch sizes and flush latencies.
+	 *
+	 * @return Counters of the buffer.
+	 */
+	WriteBufferStatistics getWriteBufferStatistics();
+
+	/**
+	 * Returns the bookmarks of the last writes done by this server, to be sent back
+	 * by a client that wants to read its writes from any server.
+	 *
+	 * @return Comma separated bookmarks, {@code null} if none.
+	 */
+	String getBookmark();
+
+	/**
+	 * Returns the state of the directory of the endpoints of the streets: size,
+	 * memory, hits and misses of the lookups.
+	 *
+	 * @return Statistics of the directory.
+	 */
+	StreetDirectoryStatistics getStreetDirectoryStatistics();
+
+	/**
+	 * Drops the directory of the endpoints of the streets and loads it again in
+	 * the background.
+	 *
+	 * @return Statistics of the directory.
+	 */
+	StreetDirectoryStatistics rebuildStreetDirectory();
+
+	/**
+	 * Returns the state of the spatial index of the intersections and of the
+	 * streets: size, memory and duration of the queries.
+	 *
+	 * @return Statistics of the index.
+	 */
+	SpatialIndexStatistics getSpatialIndexStatistics();
+
+	/**
+	 * Reads the spatial index again from the database, to see the writes made by
+	 * the other servers. The current index serves the queries meanwhile.
+	 *
+	 * @return Statistics of the index.
+	 */
+	SpatialIndexStatistics rebuildSpatialIndex();
+
+	/**
+	 * Returns the state of the constraint on Intersection.osmid and of the index on
+	 * STREET.id, with the outcome of their creation and all the indexes of the
+	 * database.
+	 *
+	 * @return Status of the schema.
+	 */
+	SchemaStatus getSchemaStatus();
+
+	/**
+	 * Creates the constraint on Intersection.osmid and the index on STREET.id, if
+	 * missing.
+	 *
+	 * @return Status of the schema after the creation.
+	 */
+	SchemaStatus ensureSchema();
+
 	/**
 	 * Update the Betweenness Centrality value of a specific Intersection.
 	 *
@@ -127,6 +279,36 @@ public interface DatabaseManagementServiceLocal {
 	 */
 	HashMap<Integer, Street> getStreets(long osmid);
 
+	/**
+	 * Streams all the Intersections of the road network, in a single read
+	 * transaction, without holding them in memory.
+	 *
+	 * @param consumer Called once for every Intersection; an unchecked exception
+	 *                 stops the export.
+	 * @return Number of Intersections exported.
+	 */
+	long exportIntersections(Consumer<Intersection> consumer);
+
+	/**
+	 * Streams all the Streets of the road network, in a single read transaction,
+	 * without holding them in memory.
+	 *
+	 * @param consumer Called once for every Street; an unchecked exception stops
+	 *                 the export.
+	 * @return Number of Streets exported.
+	 */
+	long exportStreets(Consumer<Street> consumer);
+
+	/**
+	 * Returns the whole road network, at least as recent as its version, in the
+	 * binary snapshot format loaded by
+	 * {@link BinarySnapshot#open(java.nio.file.Path)}. The snapshot is read again
+	 * only when the version of the graph has changed.
+	 *
+	 * @return The snapshot, {@code null} if the database is not available.
+	 */
+	BinarySnapshotManager.Snapshot getBinarySnapshot();
+
 	/**
 	 * Deletes an Intersection identified by given vertexKey.
 	 *
@@ -192,6 +374,36 @@ public interface DatabaseManagementServiceLocal {
 	 */
 	void updateBetweenness();
 
+	/**
+	 * Submits the update of the BetweennessCentrality's value of all Intersection
+	 * as a background job. While a job with the same strategy is queued or running,
+	 * that job is returned instead of a new one. The result of the job is published
+	 * only after the timestamp of last update has been set.
+	 *
+	 * @param strategy EXACT, RANDOM or DEGREE.
+	 * @return Status of the job, {@code null} if too many jobs are queued.
+	 */
+	JobStatus submitBetweennessJob(String strategy);
+
+	/**
+	 * @param id Id of a job.
+	 * @return Progress and timings of the job, {@code null} if unknown.
+	 */
+	JobStatus getJob(String id);
+
+	/**
+	 * @return Status of the jobs queued, running and recently finished.
+	 */
+	ArrayList<JobStatus> getJobs();
+
+	/**
+	 * Cancels a job, unless it has already begun writing to the database.
+	 *
+	 * @param id Id of a job.
+	 * @return Status of the job after the request, {@code null} if unknown.
+	 */
+	JobStatus cancelJob(String id);
+
 	/**
 	 * Querys the database in order to know the timestamp of last update.
 	 *
@@ -199,6 +411,23 @@ public interface DatabaseManagementServiceLocal {
 	 */
 	LocalDateTime getLastModified();
 
+	/**
+	 * Returns the version of the graph, i.e. the timestamp of last update, cached
+	 * for a short interval so that it can be read on every request.
+	 *
+	 * @return Timestamp of last update, {@code null} if unknown.
+	 */
+	LocalDateTime getGraphVersion();
+
+	/**
+	 * Returns the version of the graph, as {@link #getGraphVersion()}, if the
+	 * spatial index reflects it.
+	 *
+	 * @return Timestamp of last update, {@code null} if unknown or if the spatial
+	 *         index is being rebuilt after a write made by another server.
+	 */
+	LocalDateTime getSpatialIndexVersion();
+
 	/**
 	 * Update the interrupted value of a specific street.
 	 * @param id    	Id of the street to update.
@@ -206,5 +435,195 @@ public interface DatabaseManagementServiceLocal {
 	 */
 	void setStreetInterrupted(int id, boolean interrupted) throws Exception;
 
+	/**
+	 * Converts the geometry of all the STREET relations still stored as text to
+	 * the native list format, one batch per transaction.
+	 *
+	 * @param batchSize Maximum number of relations per batch, the configured chunk
+	 *                  size if not positive.
+	 * @return The progress of every batch. Unreadable geometries are flagged and
+	 *         counted as failed; the migration stops at the first batch not
+	 *         entirely written.
+	 */
+	ImportReport migrateStreetGeometry(int batchSize);
+
+	/**
+	 * Returns how many times each parameterized statement has been executed on the
+	 * database, in order to find the hot ones.
+	 *
+	 * @return A map from the name of the statement to the number of its executions.
+	 */
+	Map<String, Long> getQueryStatistics();
+
+	/**
+	 * Returns the state of the connection pools shared by all the instances of the
+	 * service.
+	 *
+	 * @return Statistics of the connection pools, one entry per driver and server.
+	 */
+	ArrayList<ConnectionPoolStatistics> getConnectionPoolStatistics();
+
+	/**
+	 * Rebuilds at once the in-memory snapshot of the road network used by the
+	 * in-process algorithms, unless a rebuild is already running.
+	 *
+	 * @return Size and age of the snapshot.
+	 */
+	GraphSnapshotStatistics refreshGraphSnapshot();
+
+	/**
+	 * Returns the size, memory footprint and age of the in-memory snapshot of the
+	 * road network.
+	 *
+	 * @return Statistics of the snapshot.
+	 */
+	GraphSnapshotStatistics getGraphSnapshotStatistics();
+
+	/**
+	 * Applies the pending changes of the streets to the betweenness kept up to date
+	 * since the last full computation, and compares it with a full computation from
+	 * the same sources.
+	 *
+	 * @return Errors of the incremental updates and work done by them.
+	 */
+	BetweennessAccuracyReport getBetweennessAccuracy();
+
+	/**
+	 * Returns the hit, miss and eviction counters of the caches of intersections,
+	 * streets and vector tiles shared by all the instances of the service.
+	 *
+	 * @return Statistics of the caches.
+	 */
+	ArrayList<CacheStatistics> getCacheStatistics();
+
+	/**
+	 * Non-blocking variant of {@link #getIntersection(long)}: the returned stage
+	 * is completed when the database answers, without holding the calling thread.
+	 *
+	 * @param osmid Id of the Intersection to find.
+	 * @return The searched Intersection.
+	 */
+	CompletionStage<Intersection> getIntersectionAsync(long osmid);
+
+	/**
+	 * Non-blocking variant of {@link #getStreet(int)}.
+	 *
+	 * @param id Id of the Street to find.
+	 * @return The searched Street.
+	 */
+	CompletionStage<Street> getStreetAsync(int id);
+
+	/**
+	 * Non-blocking variant of {@link #getStreets(long)}.
+	 *
+	 * @param osmid Id of the Intersection.
+	 * @return The streets starting from the Intersection, by id.
+	 */
+	CompletionStage<HashMap<Integer, Street>> getStreetsAsync(long osmid);
+
+	/**
+	 * Finds the Intersections inside a bounding box through the spatial index,
+	 * then reads them in a single query.
+	 *
+	 * @param limit Maximum number of Intersections, the configured one if not
+	 *              positive or larger.
+	 * @return The Intersections inside the box, borders included, {@code null} if
+	 *         the spatial index is not available.
+	 */
+	CompletionStage<ArrayList<Intersection>> getIntersectionsWithinAsync(double minLongitude, double minLatitude,
+			double maxLongitude, double maxLatitude, int limit);
+
+	/**
+	 * Finds the Streets whose geometry crosses a bounding box through the spatial
+	 * index, then reads them in a single query.
+	 *
+	 * @param limit Maximum number of Streets, the configured one if not positive or
+	 *              larger.
+	 * @return The Streets crossing the box, {@code null} if the spatial index is not
+	 *         available.
+	 */
+	CompletionStage<ArrayList<Street>> getStreetsWithinAsync(double minLongitude, double minLatitude,
+			double maxLongitude, double maxLatitude, int limit);
+
+	/**
+	 * Finds the Intersections nearest to a point through the spatial index, then
+	 * reads them in a single query.
+	 *
+	 * @param k        Number of Intersections, at most the configured one.
+	 * @param parking  {@code true} to consider only the Intersections with a parking.
+	 * @param hospital {@code true} to consider only the Intersections with a hospital.
+	 * @param busStop  {@code true} to consider only the Intersections with a bus stop.
+	 * @param museum   {@code true} to consider only the Intersections with a museum.
+	 * @return The Intersections with their distance from the point, nearest first,
+	 *         {@code null} if the spatial index is not available.
+	 */
+	CompletionStage<ArrayList<NearestIntersection>> getNearestIntersectionsAsync(double longitude, double latitude,
+			int k, boolean parking, boolean hospital, boolean busStop, boolean museum);
+
+	/**
+	 * Renders the Streets of a tile of the Web Mercator pyramid as a Mapbox Vector
+	 * Tile, with their weight, interruption and highway type. The geometry is
+	 * clipped to the tile and simplified for its zoom level.
+	 *
+	 * @param z Zoom level.
+	 * @param x Column of the tile, from west.
+	 * @param y Row of the tile, from north.
+	 * @return The encoded tile, empty if it contains no Street, {@code null} if the
+	 *         spatial index is not available.
+	 */
+	byte[] getVectorTile(int z, int x, int y);
+
+	/**
+	 * Non-blocking variant of {@link #getLinkKey(long, long)}.
+	 *
+	 * @param osmidStart Id of the starting intersection in the road network.
+	 * @param osmidDest  Id of the destination intersection in the road network.
+	 * @return The id of the street.
+	 */
+	CompletionStage<Integer> getLinkKeyAsync(long osmidStart, long osmidDest);
+
+	/**
+	 * Non-blocking variant of {@link #setStreetWeight(int, double)}.
+	 *
+	 * @param id     Id of the street to update.
+	 * @param weight Weight value to be set to the link.
+	 * @return The Street with update value.
+	 */
+	CompletionStage<Street> setStreetWeightAsync(int id, double weight);
+
+	/**
+	 * Non-blocking variant of {@link #setStreetInterrupted(int, boolean)}.
+	 *
+	 * @param id          Id of the street to update.
+	 * @param interrupted Value to set to the interrupted property of the street.
+	 * @return A stage completed when the street is updated.
+	 */
+	CompletionStage<Void> setStreetInterruptedAsync(int id, boolean interrupted);
+
+	/**
+	 * Non-blocking variant of {@link #setBetweennessIntersection(long, double)}.
+	 *
+	 * @param osmid       Id of the Intersection to update.
+	 * @param betweennees Betweenness value to be set to the Intersection.
+	 * @return The Intersection with update value.
+	 */
+	CompletionStage<Intersection> setBetweennessIntersectionAsync(long osmid, double betweennees);
+
+	/**
+	 * Non-blocking variant of {@link #deleteIntersection(long)}.
+	 *
+	 * @param osmid Id of the Intersection to delete.
+	 * @return A stage completed when the Intersection is deleted.
+	 */
+	CompletionStage<Void> deleteIntersectionAsync(long osmid);
+
+	/**
+	 * Non-blocking variant of {@link #deleteStreet(int)}.
+	 *
+	 * @param id Id of the street to delete.
+	 * @return A stage completed when the street is deleted.
+	 */
+	CompletionStage<Void> deleteStreetAsync(int id);
+
 	String test();
 }
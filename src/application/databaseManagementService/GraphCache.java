@@ -0,0 +1,210 @@
+package application.databaseManagementService;
+
+import data.dataModel.CacheStatistics;
+import data.dataModel.Intersection;
+import data.dataModel.Street;
+import org.jboss.logging.Logger;
+import util.LruCache;
+import util.ServerUtilities;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * Singleton Bean that caches the intersections and the streets read by all the instances of
+ * {@link DatabaseManagementService}.
+ * <p>
+ * The caches are read-through: a miss runs the given loader and stores its result. They are
+ * bounded, evicting the least recently used entry, and are invalidated by the service after every
+ * write that changes a cached element. A write done by another server is seen only as a change of
+ * the {@link GraphVersion}, which drops everything. Cached objects are shared between requests and
+ * must not be modified.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class GraphCache {
+
+    private final Logger logger;
+    private final LruCache<Long, Intersection> intersections;
+    private final LruCache<Integer, Street> streets;
+    private final LruCache<Endpoints, Integer> streetIds;
+
+    @EJB
+    GraphVersion version;
+
+    public GraphCache() {
+        logger = Logger.getLogger(GraphCache.class);
+        int intersectionsSize = 10000;
+        int streetsSize = 50000;
+        try {
+            ServerUtilities serverUtilities = new ServerUtilities();
+            intersectionsSize = serverUtilities.getCacheIntersectionsSize();
+            streetsSize = serverUtilities.getCacheStreetsSize();
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        }
+        logger.info("GraphCache.GraphCache: intersectionsSize = " + intersectionsSize + ", streetsSize = " + streetsSize);
+        intersections = new LruCache<>("intersections", intersectionsSize);
+        streets = new LruCache<>("streets", streetsSize);
+        streetIds = new LruCache<>("streetEndpoints", streetsSize);
+    }
+
+    @PostConstruct
+    public void start() {
+        version.addChangeListener(this::invalidateAll);
+    }
+
+    public Intersection getIntersection(long osmid, Supplier<Intersection> loader) {
+        return readThrough(intersections, osmid, loader);
+    }
+
+    public CompletionStage<Intersection> getIntersectionAsync(long osmid, Supplier<CompletionStage<Intersection>> loader) {
+        return readThroughAsync(intersections, osmid, loader);
+    }
+
+    public Street getStreet(int id, Supplier<Street> loader) {
+        return readThrough(streets, id, loader);
+    }
+
+    public CompletionStage<Street> getStreetAsync(int id, Supplier<CompletionStage<Street>> loader) {
+        return readThroughAsync(streets, id, loader);
+    }
+
+    /**
+     * Looks up the street between two intersections. The endpoints are mapped to the id of the
+     * street, so the street itself is cached, and invalidated, once.
+     */
+    public Street getStreet(long osmidStart, long osmidDest, Supplier<Street> loader) {
+        Endpoints key = new Endpoints(osmidStart, osmidDest);
+        Integer id = streetIds.get(key);
+        Street s = id == null ? null : streets.get(id);
+        if (s != null) {
+            return s;
+        }
+        long streetsGeneration = streets.generation();
+        long streetIdsGeneration = streetIds.generation();
+        s = loader.get();
+        if (s != null) {
+            streets.put(s.getId(), s, streetsGeneration);
+            streetIds.put(key, s.getId(), streetIdsGeneration);
+        }
+        return s;
+    }
+
+    /**
+     * Drops an intersection whose properties have changed.
+     */
+    public void invalidateIntersection(long osmid) {
+        intersections.invalidate(osmid);
+    }
+
+    /**
+     * Drops a street whose properties have changed.
+     */
+    public void invalidateStreet(int id) {
+        streets.invalidate(id);
+    }
+
+    /**
+     * Drops a deleted street and the lookups of its endpoints.
+     */
+    public void removeStreet(int id) {
+        streets.invalidate(id);
+        streetIds.invalidateIf((endpoints, streetId) -> streetId == id);
+    }
+
+    /**
+     * Drops a deleted intersection together with the streets starting or ending in it, which
+     * are deleted with the intersection.
+     */
+    public void removeIntersection(long osmid) {
+        intersections.invalidate(osmid);
+        streets.invalidateIf((id, s) -> s.getOsmidStart() == osmid || s.getOsmidDest() == osmid);
+        streetIds.invalidateIf((endpoints, id) -> endpoints.start == osmid || endpoints.dest == osmid);
+    }
+
+    /**
+     * Drops all the intersections, e.g. after the betweenness of the whole graph is updated.
+     */
+    public void invalidateIntersections() {
+        intersections.invalidateAll();
+    }
+
+    /**
+     * Drops everything, e.g. after a bulk write.
+     */
+    public void invalidateAll() {
+        logger.info("GraphCache.invalidateAll");
+        intersections.invalidateAll();
+        streets.invalidateAll();
+        streetIds.invalidateAll();
+    }
+
+    /**
+     * @return Hit, miss and eviction counters of every cache.
+     */
+    public ArrayList<CacheStatistics> getStatistics() {
+        ArrayList<CacheStatistics> statistics = new ArrayList<>();
+        for (LruCache<?, ?> c : new LruCache<?, ?>[]{intersections, streets, streetIds}) {
+            statistics.add(new CacheStatistics(c.getName(), c.getCapacity(), c.size(), c.getHits(), c.getMisses(),
+                    c.getEvictions(), c.getInvalidations()));
+        }
+        return statistics;
+    }
+
+    private static <K, V> V readThrough(LruCache<K, V> cache, K key, Supplier<V> loader) {
+        V value = cache.get(key);
+        if (value != null) {
+            return value;
+        }
+        long generation = cache.generation();
+        value = loader.get();
+        cache.put(key, value, generation);
+        return value;
+    }
+
+    private static <K, V> CompletionStage<V> readThroughAsync(LruCache<K, V> cache, K key,
+                                                              Supplier<CompletionStage<V>> loader) {
+        V value = cache.get(key);
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+        long generation = cache.generation();
+        return loader.get().thenApply(loaded -> {
+            cache.put(key, loaded, generation);
+            return loaded;
+        });
+    }
+
+    private static final class Endpoints {
+        private final long start;
+        private final long dest;
+
+        Endpoints(long start, long dest) {
+            this.start = start;
+            this.dest = dest;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Endpoints)) {
+                return false;
+            }
+            Endpoints e = (Endpoints) o;
+            return start == e.start && dest == e.dest;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(start) * 31 + Long.hashCode(dest);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package application.databaseManagementService;
+
+import data.dataModel.GraphSnapshotStatistics;
+import data.databaseDriver.DAOAdmin;
+import data.databaseDriver.DAOAdminNeo4jImpl;
+import data.graph.GraphSnapshot;
+import org.jboss.logging.Logger;
+import util.ServerUtilities;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.Timeout;
+import javax.ejb.TimerConfig;
+import javax.ejb.TimerService;
+import java.io.FileNotFoundException;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Singleton Bean that keeps the in-memory {@link GraphSnapshot} of the road network used by the
+ * in-process algorithms.
+ * <p>
+ * The snapshot is rebuilt in the background every {@code refresh-ms} milliseconds if the version
+ * of the graph has changed, and on demand. A rebuild reads a whole new snapshot and then replaces
+ * the reference, so readers always see a complete snapshot and never wait for a rebuild.
+ */
+@Singleton
+@Startup
+@DependsOn("DatabaseConnectionManager")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class GraphSnapshotManager {
+
+    private final Logger logger;
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private volatile GraphSnapshot snapshot;
+    private volatile LocalDateTime refreshedAt;
+    private DAOAdmin database;
+    private int refreshMillis = 60000;
+
+    @EJB
+    DatabaseConnectionManager connectionManager;
+
+    @Resource
+    TimerService timerService;
+
+    public GraphSnapshotManager() {
+        logger = Logger.getLogger(GraphSnapshotManager.class);
+    }
+
+    /**
+     * Called at application startup. Schedules the first load at once and the periodic check of
+     * the version, unless {@code refresh-ms} is not positive.
+     */
+    @PostConstruct
+    public void start() {
+        logger.info("GraphSnapshotManager.start");
+        try {
+            refreshMillis = new ServerUtilities().getGraphSnapshotRefresh();
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        }
+        database = new DAOAdminNeo4jImpl(connectionManager.getDriverWrite(), connectionManager.getDriverRead(),
+                connectionManager.getStreetDirectory(), connectionManager.getBookmarks());
+        if (refreshMillis > 0) {
+            timerService.createIntervalTimer(0, refreshMillis, new TimerConfig("graph-snapshot", false));
+        }
+    }
+
+    @Timeout
+    public void onTimeout() {
+        refresh(false);
+    }
+
+    /**
+     * @return The current snapshot, {@code null} if it has not been loaded yet.
+     */
+    public GraphSnapshot get() {
+        return snapshot;
+    }
+
+    /**
+     * @return The current snapshot, loaded now if it has never been; {@code null} if the first
+     *         load is still running in the background.
+     */
+    public GraphSnapshot getOrLoad() {
+        GraphSnapshot current = snapshot;
+        if (current == null) {
+            refresh(true);
+            current = snapshot;
+        }
+        return current;
+    }
+
+    /**
+     * Rebuilds the snapshot, unless another rebuild is running.
+     *
+     * @param force {@code true} to rebuild even if the version of the graph has not changed.
+     * @return {@code true} if the snapshot has been replaced.
+     */
+    public boolean refresh(boolean force) {
+        if (!refreshing.compareAndSet(false, true)) {
+            logger.info("GraphSnapshotManager.refresh: already running");
+            return false;
+        }
+        try {
+            GraphSnapshot current = snapshot;
+            if (!force && current != null && current.getVersion() != null) {
+                LocalDateTime version = database.getLastModified();
+                if (Objects.equals(version, current.getVersion())) {
+                    return false;
+                }
+            }
+            GraphSnapshot loaded = database.getGraphSnapshot();
+            if (loaded == null) {
+                return false;
+            }
+            snapshot = loaded;
+            refreshedAt = LocalDateTime.now();
+            logger.info("GraphSnapshotManager.refresh: " + loaded);
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Error in GraphSnapshotManager.refresh()", e);
+            return false;
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    /**
+     * @return Size and age of the current snapshot.
+     */
+    public GraphSnapshotStatistics getStatistics() {
+        GraphSnapshot current = snapshot;
+        if (current == null) {
+            return new GraphSnapshotStatistics(false, refreshing.get(), null, null, 0, 0, 0, 0, refreshMillis);
+        }
+        return new GraphSnapshotStatistics(true, refreshing.get(), String.valueOf(current.getVersion()),
+                String.valueOf(refreshedAt), current.getNodeCount(), current.getEdgeCount(),
+                current.getMemoryFootprint(), current.getLoadMillis(), refreshMillis);
+    }
+}
@@ -0,0 +1,140 @@
+package application.databaseManagementService;
+
+import data.dataModel.VersionStamp;
+import org.jboss.logging.Logger;
+import util.ServerUtilities;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import java.io.FileNotFoundException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Singleton Bean that caches the version of the graph, i.e. the timestamp of the {@code Control}
+ * node, shared by all the instances of {@link DatabaseManagementService}.
+ * <p>
+ * The version is read from the database at most once every {@code refresh-ms} milliseconds, so
+ * conditional requests are answered without querying the graph. Writes done by this server
+ * invalidate it at once; writes done by other servers are seen within the refresh interval.
+ * <p>
+ * The beans that keep copies of the graph are invalidated by this server on its own writes, so
+ * they are told here of the writes of the other servers: a version newer than the last one known,
+ * either read from the database or replaced by a stamp of this server, comes from a write that
+ * this server has not seen. The listeners run before the new version is returned, so a response
+ * tagged with it is built after the copies have been dropped. A stamp of this server read before
+ * it is noted, as with concurrent writes, is taken for a foreign write, which only costs a
+ * needless invalidation.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class GraphVersion {
+
+    private final Logger logger;
+    private final long refreshMillis;
+    private LocalDateTime lastModified;
+    private long loadedAt;
+    private boolean valid;
+    private LocalDateTime known;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    public GraphVersion() {
+        logger = Logger.getLogger(GraphVersion.class);
+        int refresh = 1000;
+        try {
+            refresh = new ServerUtilities().getGraphVersionRefresh();
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        }
+        this.refreshMillis = refresh;
+        this.valid = false;
+    }
+
+    /**
+     * @param loader Reads the timestamp of the {@code Control} node from the database.
+     * @return The cached version, {@code null} if the graph has no {@code Control} node.
+     */
+    public LocalDateTime get(Supplier<LocalDateTime> loader) {
+        LocalDateTime version;
+        boolean foreign = false;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (!valid || now - loadedAt >= refreshMillis) {
+                try {
+                    lastModified = loader.get();
+                } catch (RuntimeException e) {
+                    logger.warn("GraphVersion.get: version not available, " + e.getMessage());
+                    lastModified = null;
+                }
+                loadedAt = now;
+                valid = true;
+                foreign = advance(lastModified);
+            }
+            version = lastModified;
+        }
+        if (foreign) {
+            changed(version);
+        }
+        return version;
+    }
+
+    /**
+     * Forces the next {@link #get(Supplier)} to read the version again, after a write.
+     */
+    public synchronized void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Notes a stamp of the {@code Control} node by this server, after a write, and forces the next
+     * {@link #get(Supplier)} to read the version again.
+     *
+     * @param stamp The stamp, {@code null} if the graph has no {@code Control} node.
+     */
+    public void modified(VersionStamp stamp) {
+        boolean foreign;
+        synchronized (this) {
+            valid = false;
+            if (stamp == null) {
+                return;
+            }
+            foreign = advance(stamp.getPrevious());
+            advance(stamp.getTimestamp());
+        }
+        if (foreign) {
+            changed(stamp.getPrevious());
+        }
+    }
+
+    /**
+     * Registers a bean to be told of the writes done by the other servers.
+     */
+    public void addChangeListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Moves the last version known forward.
+     *
+     * @return {@code true} if the version is newer than the last one known, that is it comes from
+     *         a write not seen by this server.
+     */
+    private boolean advance(LocalDateTime version) {
+        if (version == null || (known != null && !version.isAfter(known))) {
+            return false;
+        }
+        boolean foreign = known != null;
+        known = version;
+        return foreign;
+    }
+
+    private void changed(LocalDateTime version) {
+        logger.info("GraphVersion.changed: version = " + version + " written by another server");
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package application.databaseManagementService;
+
+import data.dataModel.JobStatus;
+import data.graph.BetweennessCentrality;
+import data.graph.ProgressMonitor;
+import org.jboss.logging.Logger;
+import util.ServerUtilities;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import java.io.FileNotFoundException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Singleton Bean that runs the long computations in the background, as jobs whose progress can be
+ * followed and which can be cancelled.
+ * <p>
+ * Jobs run on {@code jobs/threads} threads and wait in a queue of at most {@code jobs/queue-size}
+ * jobs; a submission beyond that is rejected. A submission equal to a job still queued or running
+ * returns that job instead of a new one. A job succeeds, and its result is published, only after
+ * the Control node has been stamped, so a client that sees the result also sees the new graph
+ * version. The last {@code jobs/retention} finished jobs are kept.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class JobManager {
+
+    public static final String BETWEENNESS = "betweenness";
+
+    private final Logger logger;
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+    private final Map<String, Job> active = new HashMap<>();
+    private ThreadPoolExecutor executor;
+    private int threads = 1;
+    private int queueSize = 16;
+    private int retention = 100;
+
+    @EJB
+    BetweennessManager betweenness;
+
+    @Resource(lookup = "java:comp/DefaultManagedThreadFactory")
+    ManagedThreadFactory threadFactory;
+
+    public JobManager() {
+        logger = Logger.getLogger(JobManager.class);
+        try {
+            ServerUtilities serverUtilities = new ServerUtilities();
+            this.threads = Math.max(1, serverUtilities.getJobThreads());
+            this.queueSize = Math.max(1, serverUtilities.getJobQueueSize());
+            this.retention = Math.max(0, serverUtilities.getJobRetention());
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        logger.info("JobManager.start: threads = " + threads + ", queueSize = " + queueSize + ", retention = "
+                + retention);
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), threadFactory);
+    }
+
+    @PreDestroy
+    public void stop() {
+        logger.info("JobManager.stop");
+        synchronized (this) {
+            for (Job job : active.values()) {
+                job.cancelRequested = true;
+            }
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Submits the computation of the betweenness of all the intersections.
+     *
+     * @param strategy Choice of the sources of the shortest paths.
+     * @return The new job, or the equal job already queued or running; {@code null} if the queue
+     *         is full.
+     */
+    public synchronized JobStatus submitBetweenness(BetweennessCentrality.Strategy strategy) {
+        String key = BETWEENNESS + "/" + strategy;
+        Job existing = active.get(key);
+        if (existing != null) {
+            logger.info("JobManager.submitBetweenness: deduplicated " + existing.id);
+            return existing.getStatus();
+        }
+        Job job = new Job(key, BETWEENNESS, strategy.name());
+        try {
+            job.future = executor.submit(() -> run(job, () -> (long) betweenness.update(strategy, job)));
+        } catch (RejectedExecutionException e) {
+            logger.error("Error in JobManager.submitBetweenness(): queue full");
+            return null;
+        }
+        active.put(key, job);
+        jobs.put(job.id, job);
+        evict();
+        logger.info("JobManager.submitBetweenness: " + job.id + ", strategy = " + strategy);
+        return job.getStatus();
+    }
+
+    /**
+     * @param id Id of a job.
+     * @return Status of the job, {@code null} if unknown.
+     */
+    public synchronized JobStatus getJob(String id) {
+        Job job = jobs.get(id);
+        return job == null ? null : job.getStatus();
+    }
+
+    /**
+     * @return Status of the jobs queued, running and recently finished, oldest first.
+     */
+    public synchronized ArrayList<JobStatus> getJobs() {
+        ArrayList<JobStatus> statuses = new ArrayList<>(jobs.size());
+        for (Job job : jobs.values()) {
+            statuses.add(job.getStatus());
+        }
+        return statuses;
+    }
+
+    /**
+     * Cancels a job. A queued job is removed from the queue; a running job stops at the next
+     * check, unless it has begun writing, in which case it runs to the end.
+     *
+     * @param id Id of a job.
+     * @return Status of the job after the request, {@code null} if unknown.
+     */
+    public synchronized JobStatus cancel(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            return null;
+        }
+        if (job.state == State.QUEUED || job.state == State.RUNNING) {
+            job.cancelRequested = true;
+            if (job.state == State.QUEUED && job.future.cancel(false)) {
+                executor.remove((Runnable) job.future);
+                finish(job, State.CANCELLED, null, null);
+            }
+            logger.info("JobManager.cancel: " + job.id + ", state = " + job.state);
+        }
+        return job.getStatus();
+    }
+
+    private void run(Job job, Computation computation) {
+        synchronized (this) {
+            if (job.state != State.QUEUED) {
+                return;
+            }
+            job.state = State.RUNNING;
+            job.startedAt = LocalDateTime.now();
+            job.startMillis = System.currentTimeMillis();
+        }
+        try {
+            long result = computation.run();
+            finish(job, State.SUCCEEDED, result, null);
+        } catch (RuntimeException e) {
+            if (isCancellation(e)) {
+                finish(job, State.CANCELLED, null, null);
+                return;
+            }
+            logger.error("Error in JobManager.run(): " + job.id, e);
+            finish(job, State.FAILED, null, String.valueOf(e));
+        }
+    }
+
+    /**
+     * @return {@code true} if the failure is a cancellation, possibly wrapped by the container in
+     *         an {@link javax.ejb.EJBException}.
+     */
+    private static boolean isCancellation(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof CancellationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void finish(Job job, State state, Long result, String error) {
+        job.endPhase();
+        job.result = result;
+        job.error = error;
+        job.finishedAt = LocalDateTime.now();
+        job.endMillis = System.currentTimeMillis();
+        job.state = state;
+        active.remove(job.key, job);
+        evict();
+        logger.info("JobManager.finish: " + job.getStatus());
+    }
+
+    /**
+     * Drops the oldest finished jobs beyond the retention.
+     */
+    private void evict() {
+        int finished = jobs.size() - active.size();
+        Iterator<Job> iterator = jobs.values().iterator();
+        while (finished > retention && iterator.hasNext()) {
+            if (iterator.next().state.isFinished()) {
+                iterator.remove();
+                finished--;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Computation {
+        long run();
+    }
+
+    private enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        boolean isFinished() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+
+    /**
+     * A submitted computation. The fields written by the computation thread are volatile; the
+     * others are guarded by the manager.
+     */
+    private static final class Job implements ProgressMonitor {
+        private final String id = UUID.randomUUID().toString();
+        private final String key, type, parameters;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private final long submitMillis = System.currentTimeMillis();
+        private final AtomicLong done = new AtomicLong();
+        private final LinkedHashMap<String, Long> phaseMillis = new LinkedHashMap<>();
+        private Future<?> future;
+        private volatile State state = State.QUEUED;
+        private volatile boolean cancelRequested;
+        private volatile boolean writing;
+        private volatile String phase;
+        private volatile long total;
+        private volatile long phaseStartMillis;
+        private volatile LocalDateTime startedAt, finishedAt;
+        private volatile long startMillis, endMillis;
+        private Long result;
+        private String error;
+
+        Job(String key, String type, String parameters) {
+            this.key = key;
+            this.type = type;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public void begin(String phase, long total) {
+            endPhase();
+            this.done.set(0);
+            this.total = total;
+            this.phaseStartMillis = System.currentTimeMillis();
+            this.writing |= "write".equals(phase);
+            this.phase = phase;
+        }
+
+        @Override
+        public void worked(long units) {
+            done.addAndGet(units);
+        }
+
+        /**
+         * @return {@code true} if the cancellation has been requested before the job began
+         *         writing.
+         */
+        @Override
+        public boolean isCancelled() {
+            return cancelRequested && !writing;
+        }
+
+        private void endPhase() {
+            String current = phase;
+            if (current != null) {
+                synchronized (phaseMillis) {
+                    phaseMillis.putIfAbsent(current, System.currentTimeMillis() - phaseStartMillis);
+                }
+            }
+        }
+
+        JobStatus getStatus() {
+            long now = System.currentTimeMillis();
+            long queued = (startMillis > 0 ? startMillis : state.isFinished() ? endMillis : now) - submitMillis;
+            long running = startMillis > 0 ? (endMillis > 0 ? endMillis : now) - startMillis : 0;
+            LinkedHashMap<String, Long> phases;
+            synchronized (phaseMillis) {
+                phases = new LinkedHashMap<>(phaseMillis);
+            }
+            return new JobStatus(id, type, parameters, state.name(), phase, done.get(), total, cancelRequested,
+                    String.valueOf(submittedAt), startedAt == null ? null : String.valueOf(startedAt),
+                    finishedAt == null ? null : String.valueOf(finishedAt), queued, running, phases, result, error);
+        }
+    }
+}
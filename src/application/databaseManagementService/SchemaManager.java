@@ -0,0 +1,109 @@
+package application.databaseManagementService;
+
+import data.dataModel.SchemaIndex;
+import data.dataModel.SchemaStatus;
+import data.databaseDriver.CypherQuery;
+import data.databaseDriver.DAOAdmin;
+import data.databaseDriver.DAOAdminNeo4jImpl;
+import org.jboss.logging.Logger;
+import util.ServerUtilities;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import java.io.FileNotFoundException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+/**
+ * Singleton Bean that creates, at startup, the schema the queries rely on: a uniqueness constraint
+ * on {@code Intersection.osmid}, which also indexes it, and an index on {@code STREET.id}.
+ * <p>
+ * Both are created only if missing, so the startup of every server of a cluster is idempotent.
+ * The constraint cannot be created while two intersections share an osmid, and the index on a
+ * relationship property needs Neo4j 4.3 or later: in both cases the server starts anyway and the
+ * error is reported by {@link #getStatus()}, together with the population state of the indexes.
+ * If {@code schema/await-seconds} is set, the startup waits for the population.
+ */
+@Singleton
+@Startup
+@DependsOn("DatabaseConnectionManager")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SchemaManager {
+
+    private static final String OK = "ok";
+    private static final String MISSING = "MISSING";
+
+    private final Logger logger;
+    private DAOAdmin database;
+    private int awaitSeconds = 0;
+    private volatile String osmidConstraint;
+    private volatile String streetIdIndex;
+
+    @EJB
+    DatabaseConnectionManager connectionManager;
+
+    public SchemaManager() {
+        logger = Logger.getLogger(SchemaManager.class);
+        try {
+            this.awaitSeconds = Math.max(0, new ServerUtilities().getSchemaAwaitSeconds());
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        logger.info("SchemaManager.start: awaitSeconds = " + awaitSeconds);
+        database = new DAOAdminNeo4jImpl(connectionManager.getDriverWrite(), connectionManager.getDriverRead(),
+                connectionManager.getStreetDirectory(), connectionManager.getBookmarks());
+        try {
+            ensure();
+            if (awaitSeconds > 0 && !database.awaitSchemaIndexes(awaitSeconds)) {
+                logger.warn("SchemaManager.start: indexes not online after " + awaitSeconds + " seconds");
+            }
+        } catch (RuntimeException e) {
+            logger.error("Error in SchemaManager.start()", e);
+        }
+    }
+
+    /**
+     * Creates the constraint and the index that are missing.
+     *
+     * @return The status of the schema after the creation.
+     */
+    public SchemaStatus ensure() {
+        String constraint = database.createSchemaRule(CypherQuery.CREATE_INTERSECTION_OSMID_CONSTRAINT,
+                CypherQuery.CREATE_INTERSECTION_OSMID_CONSTRAINT_LEGACY);
+        String index = database.createSchemaRule(CypherQuery.CREATE_STREET_ID_INDEX);
+        osmidConstraint = constraint == null ? OK : constraint;
+        streetIdIndex = index == null ? OK : index;
+        SchemaStatus status = getStatus();
+        logger.info("SchemaManager.ensure: " + status);
+        return status;
+    }
+
+    /**
+     * @return The outcome of the last creation and the current state of the indexes.
+     */
+    public SchemaStatus getStatus() {
+        ArrayList<SchemaIndex> indexes = database.getSchemaIndexes();
+        String constraintState = MISSING;
+        String indexState = MISSING;
+        if (indexes != null) {
+            for (SchemaIndex index : indexes) {
+                if (index.isUnique() && index.covers("Intersection", "osmid")) {
+                    constraintState = index.getState();
+                } else if (index.covers("STREET", "id")) {
+                    indexState = index.getState();
+                }
+            }
+        }
+        return new SchemaStatus(String.valueOf(LocalDateTime.now()), osmidConstraint, streetIdIndex, constraintState,
+                indexState, indexes);
+    }
+}
@@ -0,0 +1,254 @@
+package application.databaseManagementService;
+
+import data.dataModel.Coordinate;
+import data.dataModel.Intersection;
+import data.dataModel.SpatialIndexStatistics;
+import data.dataModel.Street;
+import data.databaseDriver.DAOAdmin;
+import data.databaseDriver.DAOAdminNeo4jImpl;
+import data.graph.SpatialIndex;
+import org.jboss.logging.Logger;
+import util.ServerUtilities;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import java.io.FileNotFoundException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Singleton Bean that keeps the {@link SpatialIndex} of the intersections and of the streets,
+ * for the queries by bounding box.
+ * <p>
+ * The index is built in the background at startup and then kept current by the write paths of
+ * this server, one element at a time. A write that happens while the index is being rebuilt is
+ * applied to the current index and replayed on the new one, so the rebuild never loses it. Writes
+ * made by other servers are seen as a change of the {@link GraphVersion}, which starts a rebuild in
+ * the background; until it is over the index is not current, and its results must not be tagged
+ * with the graph version.
+ */
+@Singleton
+@Startup
+@DependsOn("DatabaseConnectionManager")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SpatialIndexManager {
+
+    private final Logger logger;
+    private final List<Consumer<SpatialIndex>> replay = new ArrayList<>();
+    private final AtomicLong foreignWrites = new AtomicLong();
+    private volatile long foreignWritesRead;
+    private volatile SpatialIndex index;
+    private volatile SpatialIndex.ChangeListener listener;
+    private volatile boolean building;
+    private volatile LocalDateTime builtAt;
+    private volatile long loadMillis;
+    private DAOAdmin database;
+    private boolean enabled = true;
+    private double cellDegrees = 0.005;
+    private int maxResults = 10000;
+
+    @EJB
+    DatabaseConnectionManager connectionManager;
+
+    @EJB
+    GraphVersion version;
+
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    ManagedExecutorService executor;
+
+    public SpatialIndexManager() {
+        logger = Logger.getLogger(SpatialIndexManager.class);
+        try {
+            ServerUtilities serverUtilities = new ServerUtilities();
+            this.enabled = serverUtilities.getSpatialIndexEnabled();
+            this.cellDegrees = serverUtilities.getSpatialIndexCellDegrees();
+            this.maxResults = Math.max(1, serverUtilities.getSpatialIndexMaxResults());
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Called at application startup. Schedules the first build, unless the index is disabled.
+     */
+    @PostConstruct
+    public void start() {
+        logger.info("SpatialIndexManager.start: enabled = " + enabled + ", cellDegrees = " + cellDegrees);
+        database = new DAOAdminNeo4jImpl(connectionManager.getDriverWrite(), connectionManager.getDriverRead(),
+                connectionManager.getStreetDirectory(), connectionManager.getBookmarks());
+        if (enabled) {
+            version.addChangeListener(this::graphChanged);
+            executor.execute(this::rebuild);
+        }
+    }
+
+    /**
+     * Called on a write made by another server: rebuilds the index in the background.
+     */
+    private void graphChanged() {
+        foreignWrites.incrementAndGet();
+        executor.execute(this::rebuild);
+    }
+
+    /**
+     * @return The current index, {@code null} if it is disabled or the first build is not over.
+     */
+    public SpatialIndex get() {
+        return index;
+    }
+
+    /**
+     * @return {@code true} if there is an index and it has been read after the last write made by
+     *         another server.
+     */
+    public boolean isCurrent() {
+        return index != null && foreignWritesRead == foreignWrites.get();
+    }
+
+    /**
+     * @return Maximum number of elements returned by a query by bounding box.
+     */
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    /**
+     * @param listener Told of the area of every street written in the current index and in the
+     *                 ones built from now on.
+     */
+    public void setChangeListener(SpatialIndex.ChangeListener listener) {
+        synchronized (replay) {
+            this.listener = listener;
+            if (index != null) {
+                index.setChangeListener(listener);
+            }
+        }
+    }
+
+    /**
+     * Reads the whole index again from the database, unless another rebuild is running or the
+     * index is disabled. The current index keeps serving the queries meanwhile. A write made by
+     * another server during the rebuild is followed by a new one.
+     *
+     * @return {@code true} if the index has been replaced.
+     */
+    public boolean rebuild() {
+        long foreign;
+        synchronized (replay) {
+            if (!enabled || building) {
+                return false;
+            }
+            building = true;
+            replay.clear();
+            foreign = foreignWrites.get();
+        }
+        SpatialIndex loaded = null;
+        long start = System.currentTimeMillis();
+        try {
+            loaded = database.getSpatialIndex(cellDegrees);
+        } catch (RuntimeException e) {
+            logger.error("Error in SpatialIndexManager.rebuild()", e);
+        } finally {
+            synchronized (replay) {
+                if (loaded != null) {
+                    loaded.setChangeListener(listener);
+                    for (Consumer<SpatialIndex> write : replay) {
+                        write.accept(loaded);
+                    }
+                    index = loaded;
+                    foreignWritesRead = foreign;
+                    loadMillis = System.currentTimeMillis() - start;
+                    builtAt = LocalDateTime.now();
+                }
+                replay.clear();
+                building = false;
+            }
+        }
+        if (loaded != null) {
+            logger.info("SpatialIndexManager.rebuild: " + loaded + ", loadMillis = " + loadMillis);
+            if (foreign != foreignWrites.get()) {
+                executor.execute(this::rebuild);
+            }
+        }
+        return loaded != null;
+    }
+
+    /**
+     * Applies a write to the current index and, while a rebuild is running, records it to be
+     * replayed on the new one.
+     */
+    private void apply(Consumer<SpatialIndex> write) {
+        synchronized (replay) {
+            if (index != null) {
+                write.accept(index);
+            }
+            if (building) {
+                replay.add(write);
+            }
+        }
+    }
+
+    public void intersectionWritten(Intersection i) {
+        if (i == null || i.getCoordinate() == null) {
+            return;
+        }
+        double longitude = i.getCoordinate().getLongitude();
+        double latitude = i.getCoordinate().getLatitude();
+        int flags = SpatialIndex.flags(i.isParking(), i.isHospital(), i.isBusStop(), i.isMuseum());
+        apply(target -> target.putIntersection(i.getOsmid(), longitude, latitude, flags));
+    }
+
+    public void intersectionDeleted(long osmid) {
+        apply(target -> target.removeIntersection(osmid));
+    }
+
+    public void streetWritten(Street s) {
+        if (s == null) {
+            return;
+        }
+        List<Coordinate> coordinates = s.getCoordinates() == null ? new ArrayList<>() : s.getCoordinates();
+        double[] longitudes = new double[coordinates.size()];
+        double[] latitudes = new double[coordinates.size()];
+        for (int i = 0; i < coordinates.size(); i++) {
+            longitudes[i] = coordinates.get(i).getLongitude();
+            latitudes[i] = coordinates.get(i).getLatitude();
+        }
+        apply(target -> target.putStreet(s.getId(), s.getOsmidStart(), s.getOsmidDest(), longitudes, latitudes,
+                s.getWeight(), s.isInterrupted(), s.getHighway()));
+    }
+
+    public void streetDeleted(int id) {
+        apply(target -> target.removeStreet(id));
+    }
+
+    public void streetWeightChanged(int id, double weight) {
+        apply(target -> target.setStreetWeight(id, weight));
+    }
+
+    public void streetInterruptedChanged(int id, boolean interrupted) {
+        apply(target -> target.setStreetInterrupted(id, interrupted));
+    }
+
+    /**
+     * @return Size, age and query times of the current index.
+     */
+    public SpatialIndexStatistics getStatistics() {
+        SpatialIndex current = index;
+        if (current == null) {
+            return new SpatialIndexStatistics(false, building, null, 0, 0, 0, cellDegrees, 0, 0, 0, 0);
+        }
+        return new SpatialIndexStatistics(true, building, String.valueOf(builtAt), current.getIntersectionCount(),
+                current.getStreetCount(), current.getCellCount(), current.getCellDegrees(),
+                current.getMemoryFootprint(), loadMillis, current.getQueries(), current.getMeanQueryMicros());
+    }
+}
@@ -0,0 +1,247 @@
+package application.databaseManagementService;
+
+import data.dataModel.WriteBufferStatistics;
+import data.databaseDriver.DAOAdmin;
+import data.databaseDriver.DAOAdminNeo4jImpl;
+import org.jboss.logging.Logger;
+import util.ServerUtilities;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import java.io.FileNotFoundException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Singleton Bean that coalesces the updates of the street weights, if
+ * {@code write-coalescing/enabled} is set.
+ * <p>
+ * An update is held in a map by street id, a later update of the same street replacing the
+ * pending one, and the map is written as one UNWIND transaction every {@code flush-ms}
+ * milliseconds, or as soon as {@code max-entries} streets are pending. A client whose update has
+ * been accepted sees it in the database after the next flush. The flushes are serialized; a
+ * failed flush puts its updates back, unless a later update of the same street has arrived. A
+ * direct write of a weight first waits for the flush in progress, so an older update being
+ * flushed cannot overwrite it.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class StreetWeightBuffer {
+
+    private final Logger logger;
+    private final ConcurrentHashMap<Integer, Double> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    private final LongAdder received = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder batchSizes = new LongAdder();
+    private final LongAdder flushLatencies = new LongAdder();
+    // written by the flushes only, holding the lock
+    private volatile long lastFlushLatency, maxFlushLatency;
+    private volatile int lastBatchSize, maxBatchSize;
+    private ScheduledFuture<?> schedule;
+    private DAOAdmin database;
+    private boolean enabled = false;
+    private int flushMillis = 200;
+    private int maxEntries = 1000;
+
+    @EJB
+    DatabaseConnectionManager connectionManager;
+
+    @EJB
+    GraphCache cache;
+
+    @EJB
+    GraphVersion version;
+
+    @EJB
+    BetweennessManager betweenness;
+
+    @EJB
+    SpatialIndexManager spatial;
+
+    @Resource(lookup = "java:comp/DefaultManagedScheduledExecutorService")
+    ManagedScheduledExecutorService scheduler;
+
+    public StreetWeightBuffer() {
+        logger = Logger.getLogger(StreetWeightBuffer.class);
+        try {
+            ServerUtilities serverUtilities = new ServerUtilities();
+            this.enabled = serverUtilities.getWriteCoalescingEnabled();
+            this.flushMillis = Math.max(1, serverUtilities.getWriteCoalescingFlush());
+            this.maxEntries = Math.max(1, serverUtilities.getWriteCoalescingMaxEntries());
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        logger.info("StreetWeightBuffer.start: enabled = " + enabled + ", flushMillis = " + flushMillis
+                + ", maxEntries = " + maxEntries);
+        database = new DAOAdminNeo4jImpl(connectionManager.getDriverWrite(), connectionManager.getDriverRead(),
+                connectionManager.getStreetDirectory(), connectionManager.getBookmarks());
+        if (enabled) {
+            schedule = scheduler.scheduleWithFixedDelay(this::flushInBackground, flushMillis, flushMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the periodic flush and writes what is pending.
+     */
+    @PreDestroy
+    public void stop() {
+        logger.info("StreetWeightBuffer.stop: pending = " + pending.size());
+        if (schedule != null) {
+            schedule.cancel(false);
+        }
+        flush();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Holds an update of the weight of a street until the next flush.
+     *
+     * @param id     Id of the street.
+     * @param weight New weight.
+     * @return {@code true} if the update has been accepted, {@code false} if coalescing is
+     *         disabled and the caller must write it.
+     */
+    public boolean put(int id, double weight) {
+        if (!enabled) {
+            return false;
+        }
+        received.increment();
+        if (pending.put(id, weight) != null) {
+            merged.increment();
+        }
+        if (pending.size() >= maxEntries && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(this::flushInBackground);
+        }
+        return true;
+    }
+
+    /**
+     * Discards the pending updates of some streets, before a direct write replaces them. Waits for
+     * the flush in progress, if any, so that the direct write is done after it.
+     *
+     * @param ids Ids of the streets.
+     */
+    public void discard(Collection<Integer> ids) {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            for (Integer id : ids) {
+                if (pending.remove(id) != null) {
+                    discarded.increment();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushInBackground() {
+        flushRequested.set(false);
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Error in StreetWeightBuffer.flush()", e);
+        }
+    }
+
+    /**
+     * Writes the pending updates as one transaction, then stamps the Control node.
+     *
+     * @return Number of streets updated.
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return 0;
+            }
+            long start = System.currentTimeMillis();
+            Map<Integer, Double> batch = new LinkedHashMap<>();
+            for (Integer id : pending.keySet()) {
+                Double weight = pending.remove(id);
+                if (weight != null) {
+                    batch.put(id, weight);
+                }
+            }
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            List<Integer> ids = database.setStreetWeights(batch);
+            if (ids == null) {
+                failedFlushes.increment();
+                for (Map.Entry<Integer, Double> e : batch.entrySet()) {
+                    if (pending.putIfAbsent(e.getKey(), e.getValue()) != null) {
+                        merged.increment();
+                    }
+                }
+                logger.error("Error in StreetWeightBuffer.flush(): " + batch.size() + " updates put back");
+                return 0;
+            }
+            for (Integer id : ids) {
+                cache.invalidateStreet(id);
+                spatial.streetWeightChanged(id, batch.get(id));
+                betweenness.streetWeightChanged(id, batch.get(id));
+            }
+            version.modified(database.setLastModified());
+
+            long latency = System.currentTimeMillis() - start;
+            written.add(ids.size());
+            dropped.add(batch.size() - ids.size());
+            flushes.increment();
+            batchSizes.add(batch.size());
+            flushLatencies.add(latency);
+            lastBatchSize = batch.size();
+            maxBatchSize = Math.max(maxBatchSize, batch.size());
+            lastFlushLatency = latency;
+            maxFlushLatency = Math.max(maxFlushLatency, latency);
+            logger.info("StreetWeightBuffer.flush: batch = " + batch.size() + ", written = " + ids.size()
+                    + ", latency = " + latency);
+            return ids.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Reads the counters without waiting for the flush in progress: the values of a flush that is
+     * ending may be partly counted.
+     */
+    public WriteBufferStatistics getStatistics() {
+        long count = flushes.sum();
+        return new WriteBufferStatistics(enabled, flushMillis, maxEntries, pending.size(), received.sum(),
+                merged.sum(), discarded.sum(), dropped.sum(), written.sum(), count, failedFlushes.sum(), lastBatchSize,
+                maxBatchSize, count == 0 ? 0 : (double) batchSizes.sum() / count, lastFlushLatency,
+                maxFlushLatency, count == 0 ? 0 : (double) flushLatencies.sum() / count);
+    }
+}
@@ -0,0 +1,173 @@
+package application.databaseManagementService;
+
+import data.dataModel.CacheStatistics;
+import data.graph.SpatialIndex;
+import data.graph.TileGeometry;
+import org.jboss.logging.Logger;
+import util.LruCache;
+import util.ServerUtilities;
+import util.VectorTileEncoder;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Singleton Bean that renders the streets of the {@link SpatialIndex} as vector tiles and caches
+ * them.
+ * <p>
+ * The geometry of every street is clipped to the tile and simplified with a tolerance in tile
+ * units, so the tiles at a low zoom keep only the shape of the streets and leave out the ones
+ * shorter than the tolerance. Below the minimum zoom the tiles are empty.
+ * <p>
+ * A tile is cached until a street it contains is written: the index tells this bean of the box of
+ * every street written, and only the tiles overlapping it are dropped, so a change of the weight
+ * of a street does not discard the rest of the map. The tiles are keyed by the build of the index
+ * too, so the ones of a replaced index, e.g. rebuilt after a write made by another server, are
+ * never served again.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class VectorTileManager {
+
+    public static final String LAYER = "streets";
+    public static final int MAX_ZOOM = 22;
+
+    private final Logger logger;
+    private final LruCache<Tile, byte[]> tiles;
+    private int minZoom = 10;
+    private int extent = 4096;
+    private int buffer = 64;
+    private double tolerance = 8;
+
+    @EJB
+    SpatialIndexManager spatial;
+
+    public VectorTileManager() {
+        logger = Logger.getLogger(VectorTileManager.class);
+        int cacheSize = 1000;
+        try {
+            ServerUtilities serverUtilities = new ServerUtilities();
+            cacheSize = serverUtilities.getTilesCacheSize();
+            this.minZoom = serverUtilities.getTilesMinZoom();
+            this.extent = serverUtilities.getTilesExtent();
+            this.buffer = serverUtilities.getTilesBuffer();
+            this.tolerance = serverUtilities.getTilesTolerance();
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        }
+        logger.info("VectorTileManager.VectorTileManager: cacheSize = " + cacheSize + ", minZoom = " + minZoom +
+                ", extent = " + extent + ", buffer = " + buffer + ", tolerance = " + tolerance);
+        tiles = new LruCache<>("tiles", cacheSize);
+    }
+
+    @PostConstruct
+    public void start() {
+        spatial.setChangeListener(this::invalidate);
+    }
+
+    /**
+     * @return The tile, empty if it contains no street; {@code null} if the spatial index is not
+     *         available.
+     */
+    public byte[] getTile(int z, int x, int y) {
+        SpatialIndex index = spatial.get();
+        if (index == null) {
+            return null;
+        }
+        if (z < minZoom) {
+            return new byte[0];
+        }
+        Tile key = new Tile(index.getBuild(), z, x, y);
+        byte[] tile = tiles.get(key);
+        if (tile != null) {
+            return tile;
+        }
+        long generation = tiles.generation();
+        tile = render(index, z, x, y);
+        tiles.put(key, tile, generation);
+        return tile;
+    }
+
+    /**
+     * Collects the streets of the tile under the read lock of the index, then clips and encodes
+     * them without holding it, so a large tile does not delay the writes.
+     */
+    private byte[] render(SpatialIndex index, int z, int x, int y) {
+        List<Object[]> streets = new ArrayList<>();
+        double[] bounds = TileGeometry.bounds(z, x, y, (double) buffer / extent);
+        index.visitStreets(bounds[0], bounds[1], bounds[2], bounds[3], (id, geometry, weight, interrupted, highway) ->
+                streets.add(new Object[]{id, geometry, weight, interrupted, highway}));
+        VectorTileEncoder encoder = new VectorTileEncoder(LAYER, extent);
+        for (Object[] s : streets) {
+            List<int[]> lines = TileGeometry.lines((double[]) s[1], z, x, y, extent, buffer, tolerance);
+            if (!lines.isEmpty()) {
+                Map<String, Object> attributes = new LinkedHashMap<>();
+                attributes.put("weight", s[2]);
+                attributes.put("interrupted", s[3]);
+                attributes.put("highway", s[4]);
+                encoder.addLineString((Integer) s[0], lines, attributes);
+            }
+        }
+        return encoder.encode();
+    }
+
+    /**
+     * Drops the cached tiles whose buffered area overlaps the box.
+     */
+    private void invalidate(double minLongitude, double minLatitude, double maxLongitude, double maxLatitude) {
+        double minX = TileGeometry.worldX(minLongitude);
+        double maxX = TileGeometry.worldX(maxLongitude);
+        double minY = TileGeometry.worldY(maxLatitude);
+        double maxY = TileGeometry.worldY(minLatitude);
+        double margin = (double) buffer / extent;
+        tiles.invalidateIf((t, tile) -> {
+            double n = 1 << t.z;
+            return (t.x - margin) / n <= maxX && (t.x + 1 + margin) / n >= minX
+                    && (t.y - margin) / n <= maxY && (t.y + 1 + margin) / n >= minY;
+        });
+    }
+
+    /**
+     * @return Hit, miss and invalidation counters of the tile cache.
+     */
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(tiles.getName(), tiles.getCapacity(), tiles.size(), tiles.getHits(),
+                tiles.getMisses(), tiles.getEvictions(), tiles.getInvalidations());
+    }
+
+    private static final class Tile {
+        private final long build;
+        private final int z;
+        private final int x;
+        private final int y;
+
+        Tile(long build, int z, int x, int y) {
+            this.build = build;
+            this.z = z;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Tile)) {
+                return false;
+            }
+            Tile t = (Tile) o;
+            return build == t.build && z == t.z && x == t.x && y == t.y;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((Long.hashCode(build) * 31 + z) * 31 + x) * 31 + y;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package data.dataModel;
+
+import java.util.ArrayList;
+
+public class BatchUpdateReport {
+
+	/** Maximum number of ids of missing streets listed by the report. */
+	public static final int MAX_NOT_FOUND_IDS = 100;
+
+	private int chunkSize;
+	private long received;
+	private long updated;
+	private long merged;
+	private long rejected;
+	private long notFound;
+	private ArrayList<Integer> notFoundIds;
+	private int chunks;
+	private int failedChunks;
+	private long elapsedMillis;
+
+	/**
+	 * @param chunkSize Maximum number of rows written by a single transaction.
+	 */
+	public BatchUpdateReport(int chunkSize) {
+		super();
+		this.chunkSize = chunkSize;
+		this.notFoundIds = new ArrayList<>();
+	}
+
+	/**
+	 * Registers a row without id or value, not sent to the database.
+	 */
+	public void addRejected() {
+		this.received++;
+		this.rejected++;
+	}
+
+	/**
+	 * Registers a row replaced by a later row of the same street in the same chunk.
+	 */
+	public void addMerged() {
+		this.received++;
+		this.merged++;
+	}
+
+	/**
+	 * Registers the outcome of a chunk written in a single transaction.
+	 *
+	 * @param rows    Number of distinct streets sent to the database.
+	 * @param updated Number of streets found and updated, 0 if the transaction failed.
+	 */
+	public void addChunk(int rows, int updated) {
+		this.chunks++;
+		this.received += rows;
+		this.updated += updated;
+	}
+
+	/**
+	 * Registers a chunk whose transaction failed.
+	 *
+	 * @param rows Number of distinct streets sent to the database.
+	 */
+	public void addFailedChunk(int rows) {
+		this.chunks++;
+		this.failedChunks++;
+		this.received += rows;
+	}
+
+	/**
+	 * Registers a street of a written chunk that does not exist.
+	 *
+	 * @param id Id of the street.
+	 */
+	public void addNotFound(int id) {
+		this.notFound++;
+		if (notFoundIds.size() < MAX_NOT_FOUND_IDS) {
+			notFoundIds.add(id);
+		}
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public long getReceived() {
+		return received;
+	}
+
+	public long getUpdated() {
+		return updated;
+	}
+
+	public long getMerged() {
+		return merged;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public long getNotFound() {
+		return notFound;
+	}
+
+	/**
+	 * @return The first {@value #MAX_NOT_FOUND_IDS} ids of the missing streets.
+	 */
+	public ArrayList<Integer> getNotFoundIds() {
+		return notFoundIds;
+	}
+
+	public int getChunks() {
+		return chunks;
+	}
+
+	public int getFailedChunks() {
+		return failedChunks;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public void setElapsedMillis(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchUpdateReport [chunkSize=" + chunkSize + ", received=" + received + ", updated=" + updated
+				+ ", merged=" + merged + ", rejected=" + rejected + ", notFound=" + notFound + ", chunks=" + chunks
+				+ ", failedChunks=" + failedChunks + ", elapsedMillis=" + elapsedMillis + "]";
+	}
+}
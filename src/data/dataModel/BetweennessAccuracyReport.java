@@ -0,0 +1,113 @@
+package data.dataModel;
+
+public class BetweennessAccuracyReport {
+
+	private boolean enabled, available;
+	private String strategy;
+	private int sources, nodes;
+	private long updates, changes, affectedSources, pending;
+	private double maxAbsoluteError, meanAbsoluteError, maxRelativeError;
+	private int mismatched;
+	private long verifyMillis;
+
+	/**
+	 * @param enabled           {@code true} if the dynamic betweenness is configured.
+	 * @param available         {@code true} if a full computation is being kept up to date.
+	 * @param strategy          Strategy of the last full computation.
+	 * @param sources           Sources of the last full computation.
+	 * @param nodes             Intersections in the graph.
+	 * @param updates           Batches of street changes applied since the full computation.
+	 * @param changes           Street changes applied since the full computation.
+	 * @param affectedSources   Sources recomputed by all the updates.
+	 * @param pending           Street changes waiting to be applied.
+	 * @param maxAbsoluteError  Maximum difference from a full computation.
+	 * @param meanAbsoluteError Mean difference from a full computation.
+	 * @param maxRelativeError  Maximum difference divided by the exact value, or by 1 if smaller.
+	 * @param mismatched        Intersections whose relative error exceeds 1e-9.
+	 * @param verifyMillis      Duration of the full computation, in milliseconds.
+	 */
+	public BetweennessAccuracyReport(boolean enabled, boolean available, String strategy, int sources, int nodes,
+			long updates, long changes, long affectedSources, long pending, double maxAbsoluteError,
+			double meanAbsoluteError, double maxRelativeError, int mismatched, long verifyMillis) {
+		super();
+		this.enabled = enabled;
+		this.available = available;
+		this.strategy = strategy;
+		this.sources = sources;
+		this.nodes = nodes;
+		this.updates = updates;
+		this.changes = changes;
+		this.affectedSources = affectedSources;
+		this.pending = pending;
+		this.maxAbsoluteError = maxAbsoluteError;
+		this.meanAbsoluteError = meanAbsoluteError;
+		this.maxRelativeError = maxRelativeError;
+		this.mismatched = mismatched;
+		this.verifyMillis = verifyMillis;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public boolean isAvailable() {
+		return available;
+	}
+
+	public String getStrategy() {
+		return strategy;
+	}
+
+	public int getSources() {
+		return sources;
+	}
+
+	public int getNodes() {
+		return nodes;
+	}
+
+	public long getUpdates() {
+		return updates;
+	}
+
+	public long getChanges() {
+		return changes;
+	}
+
+	public long getAffectedSources() {
+		return affectedSources;
+	}
+
+	public long getPending() {
+		return pending;
+	}
+
+	public double getMaxAbsoluteError() {
+		return maxAbsoluteError;
+	}
+
+	public double getMeanAbsoluteError() {
+		return meanAbsoluteError;
+	}
+
+	public double getMaxRelativeError() {
+		return maxRelativeError;
+	}
+
+	public int getMismatched() {
+		return mismatched;
+	}
+
+	public long getVerifyMillis() {
+		return verifyMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "BetweennessAccuracyReport [enabled=" + enabled + ", available=" + available + ", strategy=" + strategy
+				+ ", sources=" + sources + ", nodes=" + nodes + ", updates=" + updates + ", changes=" + changes
+				+ ", affectedSources=" + affectedSources + ", pending=" + pending + ", maxAbsoluteError="
+				+ maxAbsoluteError + ", meanAbsoluteError=" + meanAbsoluteError + ", maxRelativeError="
+				+ maxRelativeError + ", mismatched=" + mismatched + ", verifyMillis=" + verifyMillis + "]";
+	}
+}
@@ -0,0 +1,70 @@
+package data.dataModel;
+
+public class CacheStatistics {
+
+	private String name;
+	private int capacity, size;
+	private long hits, misses, evictions, invalidations;
+	private double hitRatio;
+
+	/**
+	 * @param name          Name of the cache.
+	 * @param capacity      Maximum number of entries.
+	 * @param size          Entries currently cached.
+	 * @param hits          Lookups served by the cache.
+	 * @param misses        Lookups that went to the database.
+	 * @param evictions     Entries dropped because the cache was full.
+	 * @param invalidations Entries dropped because of a write.
+	 */
+	public CacheStatistics(String name, int capacity, int size, long hits, long misses, long evictions,
+			long invalidations) {
+		super();
+		this.name = name;
+		this.capacity = capacity;
+		this.size = size;
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.invalidations = invalidations;
+		this.hitRatio = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public long getInvalidations() {
+		return invalidations;
+	}
+
+	public double getHitRatio() {
+		return hitRatio;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStatistics [name=" + name + ", capacity=" + capacity + ", size=" + size + ", hits=" + hits
+				+ ", misses=" + misses + ", evictions=" + evictions + ", invalidations=" + invalidations
+				+ ", hitRatio=" + hitRatio + "]";
+	}
+}
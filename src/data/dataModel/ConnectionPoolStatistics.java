@@ -0,0 +1,116 @@
+package data.dataModel;
+
+public class ConnectionPoolStatistics {
+
+	private String driver;
+	private String id;
+	private int inUse, idle, creating, acquiring;
+	private long created, failedToCreate, closed, acquired, timedOutToAcquire;
+	private long totalAcquisitionTime, totalConnectionTime, totalInUseTime, totalInUseCount;
+
+	/**
+	 * @param driver               Role of the driver owning the pool (read or write).
+	 * @param id                   Id of the pool, i.e. the address of the server.
+	 * @param inUse                Connections currently borrowed from the pool.
+	 * @param idle                 Connections currently idle in the pool.
+	 * @param creating             Connections being created.
+	 * @param acquiring            Requests waiting for a connection.
+	 * @param created              Connections created since the pool started.
+	 * @param failedToCreate       Connections that failed to be created.
+	 * @param closed               Connections closed.
+	 * @param acquired             Connections acquired from the pool.
+	 * @param timedOutToAcquire    Acquisitions that timed out.
+	 * @param totalAcquisitionTime Total time spent acquiring connections, in milliseconds.
+	 * @param totalConnectionTime  Total time spent creating connections, in milliseconds.
+	 * @param totalInUseTime       Total time connections were borrowed, in milliseconds.
+	 * @param totalInUseCount      Connections returned to the pool.
+	 */
+	public ConnectionPoolStatistics(String driver, String id, int inUse, int idle, int creating, int acquiring,
+			long created, long failedToCreate, long closed, long acquired, long timedOutToAcquire,
+			long totalAcquisitionTime, long totalConnectionTime, long totalInUseTime, long totalInUseCount) {
+		super();
+		this.driver = driver;
+		this.id = id;
+		this.inUse = inUse;
+		this.idle = idle;
+		this.creating = creating;
+		this.acquiring = acquiring;
+		this.created = created;
+		this.failedToCreate = failedToCreate;
+		this.closed = closed;
+		this.acquired = acquired;
+		this.timedOutToAcquire = timedOutToAcquire;
+		this.totalAcquisitionTime = totalAcquisitionTime;
+		this.totalConnectionTime = totalConnectionTime;
+		this.totalInUseTime = totalInUseTime;
+		this.totalInUseCount = totalInUseCount;
+	}
+
+	public String getDriver() {
+		return driver;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public int getInUse() {
+		return inUse;
+	}
+
+	public int getIdle() {
+		return idle;
+	}
+
+	public int getCreating() {
+		return creating;
+	}
+
+	public int getAcquiring() {
+		return acquiring;
+	}
+
+	public long getCreated() {
+		return created;
+	}
+
+	public long getFailedToCreate() {
+		return failedToCreate;
+	}
+
+	public long getClosed() {
+		return closed;
+	}
+
+	public long getAcquired() {
+		return acquired;
+	}
+
+	public long getTimedOutToAcquire() {
+		return timedOutToAcquire;
+	}
+
+	public long getTotalAcquisitionTime() {
+		return totalAcquisitionTime;
+	}
+
+	public long getTotalConnectionTime() {
+		return totalConnectionTime;
+	}
+
+	public long getTotalInUseTime() {
+		return totalInUseTime;
+	}
+
+	public long getTotalInUseCount() {
+		return totalInUseCount;
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionPoolStatistics [driver=" + driver + ", id=" + id + ", inUse=" + inUse + ", idle=" + idle
+				+ ", creating=" + creating + ", acquiring=" + acquiring + ", created=" + created + ", failedToCreate="
+				+ failedToCreate + ", closed=" + closed + ", acquired=" + acquired + ", timedOutToAcquire="
+				+ timedOutToAcquire + "]";
+	}
+}
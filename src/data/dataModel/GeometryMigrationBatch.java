@@ -0,0 +1,45 @@
+package data.dataModel;
+
+public class GeometryMigrationBatch {
+
+	private int read;
+	private int migrated;
+	private int flagged;
+
+	/**
+	 * @param read     Number of legacy geometries read.
+	 * @param migrated Number of geometries written in the native format.
+	 * @param flagged  Number of unreadable geometries flagged with {@code geometryInvalid}.
+	 */
+	public GeometryMigrationBatch(int read, int migrated, int flagged) {
+		super();
+		this.read = read;
+		this.migrated = migrated;
+		this.flagged = flagged;
+	}
+
+	public int getRead() {
+		return read;
+	}
+
+	public int getMigrated() {
+		return migrated;
+	}
+
+	public int getFlagged() {
+		return flagged;
+	}
+
+	/**
+	 * @return {@code true} if every geometry read has been migrated or flagged, so that the next
+	 *         batch reads other relations.
+	 */
+	public boolean isComplete() {
+		return migrated + flagged == read;
+	}
+
+	@Override
+	public String toString() {
+		return "GeometryMigrationBatch [read=" + read + ", migrated=" + migrated + ", flagged=" + flagged + "]";
+	}
+}
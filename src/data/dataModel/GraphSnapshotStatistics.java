@@ -0,0 +1,78 @@
+package data.dataModel;
+
+public class GraphSnapshotStatistics {
+
+	private boolean loaded, refreshing;
+	private String version, refreshedAt;
+	private int nodes, edges;
+	private long bytes, loadMillis;
+	private int refreshMillis;
+
+	/**
+	 * @param loaded        {@code true} if a snapshot is available.
+	 * @param refreshing    {@code true} if a rebuild is running.
+	 * @param version       Version of the graph read by the snapshot.
+	 * @param refreshedAt   Time of the last rebuild.
+	 * @param nodes         Intersections in the snapshot.
+	 * @param edges         Streets in the snapshot.
+	 * @param bytes         Approximate heap size of the snapshot.
+	 * @param loadMillis    Duration of the last rebuild, in milliseconds.
+	 * @param refreshMillis Interval between two checks of the version, in milliseconds.
+	 */
+	public GraphSnapshotStatistics(boolean loaded, boolean refreshing, String version, String refreshedAt, int nodes,
+			int edges, long bytes, long loadMillis, int refreshMillis) {
+		super();
+		this.loaded = loaded;
+		this.refreshing = refreshing;
+		this.version = version;
+		this.refreshedAt = refreshedAt;
+		this.nodes = nodes;
+		this.edges = edges;
+		this.bytes = bytes;
+		this.loadMillis = loadMillis;
+		this.refreshMillis = refreshMillis;
+	}
+
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	public boolean isRefreshing() {
+		return refreshing;
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	public String getRefreshedAt() {
+		return refreshedAt;
+	}
+
+	public int getNodes() {
+		return nodes;
+	}
+
+	public int getEdges() {
+		return edges;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public long getLoadMillis() {
+		return loadMillis;
+	}
+
+	public int getRefreshMillis() {
+		return refreshMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "GraphSnapshotStatistics [loaded=" + loaded + ", refreshing=" + refreshing + ", version=" + version
+				+ ", refreshedAt=" + refreshedAt + ", nodes=" + nodes + ", edges=" + edges + ", bytes=" + bytes
+				+ ", loadMillis=" + loadMillis + ", refreshMillis=" + refreshMillis + "]";
+	}
+}
@@ -0,0 +1,132 @@
+package data.dataModel;
+
+import java.util.ArrayList;
+
+public class ImportReport {
+
+	private int chunkSize;
+	private long received;
+	private long imported;
+	private long failed;
+	private long elapsedMillis;
+	private ArrayList<Chunk> chunks;
+
+	/**
+	 * @param chunkSize Maximum number of rows written by a single transaction.
+	 */
+	public ImportReport(int chunkSize) {
+		super();
+		this.chunkSize = chunkSize;
+		this.received = 0;
+		this.imported = 0;
+		this.failed = 0;
+		this.elapsedMillis = 0;
+		this.chunks = new ArrayList<>();
+	}
+
+	/**
+	 * Registers a row rejected before reaching the database.
+	 */
+	public void addRejected() {
+		this.received++;
+		this.failed++;
+	}
+
+	/**
+	 * Registers the outcome of a chunk written in a single transaction.
+	 *
+	 * @param rows          Number of rows sent to the database.
+	 * @param written       Number of rows actually written.
+	 * @param elapsedMillis Duration of the transaction in milliseconds.
+	 * @return The progress entry of the chunk.
+	 */
+	public Chunk addChunk(int rows, int written, long elapsedMillis) {
+		Chunk chunk = new Chunk(chunks.size(), rows, written, rows - written, elapsedMillis);
+		this.chunks.add(chunk);
+		this.received += rows;
+		this.imported += written;
+		this.failed += rows - written;
+		return chunk;
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public long getReceived() {
+		return received;
+	}
+
+	public long getImported() {
+		return imported;
+	}
+
+	public long getFailed() {
+		return failed;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public void setElapsedMillis(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public ArrayList<Chunk> getChunks() {
+		return chunks;
+	}
+
+	@Override
+	public String toString() {
+		return "ImportReport [chunkSize=" + chunkSize + ", received=" + received + ", imported=" + imported
+				+ ", failed=" + failed + ", elapsedMillis=" + elapsedMillis + ", chunks=" + chunks.size() + "]";
+	}
+
+	/**
+	 * Progress of a single chunk of an import.
+	 */
+	public static class Chunk {
+
+		private int index;
+		private int rows;
+		private int written;
+		private int failed;
+		private long elapsedMillis;
+
+		public Chunk(int index, int rows, int written, int failed, long elapsedMillis) {
+			super();
+			this.index = index;
+			this.rows = rows;
+			this.written = written;
+			this.failed = failed;
+			this.elapsedMillis = elapsedMillis;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public int getRows() {
+			return rows;
+		}
+
+		public int getWritten() {
+			return written;
+		}
+
+		public int getFailed() {
+			return failed;
+		}
+
+		public long getElapsedMillis() {
+			return elapsedMillis;
+		}
+
+		@Override
+		public String toString() {
+			return "Chunk [index=" + index + ", rows=" + rows + ", written=" + written + ", failed=" + failed
+					+ ", elapsedMillis=" + elapsedMillis + "]";
+		}
+	}
+}
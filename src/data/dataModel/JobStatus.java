@@ -0,0 +1,137 @@
+package data.dataModel;
+
+import java.util.LinkedHashMap;
+
+public class JobStatus {
+
+	private String id, type, parameters, state, phase;
+	private long done, total;
+	private double progress;
+	private boolean cancelRequested;
+	private String submittedAt, startedAt, finishedAt;
+	private long queuedMillis, runningMillis;
+	private LinkedHashMap<String, Long> phaseMillis;
+	private Long result;
+	private String error;
+
+	/**
+	 * @param id              Id of the job.
+	 * @param type            Kind of computation.
+	 * @param parameters      Parameters of the computation.
+	 * @param state           QUEUED, RUNNING, SUCCEEDED, FAILED or CANCELLED.
+	 * @param phase           Current phase, {@code null} before the start.
+	 * @param done            Units of work of the current phase done.
+	 * @param total           Units of work of the current phase.
+	 * @param cancelRequested {@code true} if the cancellation has been requested.
+	 * @param submittedAt     Time of submission.
+	 * @param startedAt       Time of start, {@code null} before.
+	 * @param finishedAt      Time of end, {@code null} before.
+	 * @param queuedMillis    Time spent waiting for a thread, in milliseconds.
+	 * @param runningMillis   Time spent running, in milliseconds.
+	 * @param phaseMillis     Time spent in every phase, in milliseconds.
+	 * @param result          Result of the computation, {@code null} until it has succeeded.
+	 * @param error           Cause of the failure, {@code null} if it has not failed.
+	 */
+	public JobStatus(String id, String type, String parameters, String state, String phase, long done, long total,
+			boolean cancelRequested, String submittedAt, String startedAt, String finishedAt, long queuedMillis,
+			long runningMillis, LinkedHashMap<String, Long> phaseMillis, Long result, String error) {
+		super();
+		this.id = id;
+		this.type = type;
+		this.parameters = parameters;
+		this.state = state;
+		this.phase = phase;
+		this.done = done;
+		this.total = total;
+		this.progress = total > 0 ? Math.min(1, (double) done / total) : 0;
+		this.cancelRequested = cancelRequested;
+		this.submittedAt = submittedAt;
+		this.startedAt = startedAt;
+		this.finishedAt = finishedAt;
+		this.queuedMillis = queuedMillis;
+		this.runningMillis = runningMillis;
+		this.phaseMillis = phaseMillis;
+		this.result = result;
+		this.error = error;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public String getParameters() {
+		return parameters;
+	}
+
+	public String getState() {
+		return state;
+	}
+
+	public String getPhase() {
+		return phase;
+	}
+
+	public long getDone() {
+		return done;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return Fraction of the current phase done, from 0 to 1.
+	 */
+	public double getProgress() {
+		return progress;
+	}
+
+	public boolean isCancelRequested() {
+		return cancelRequested;
+	}
+
+	public String getSubmittedAt() {
+		return submittedAt;
+	}
+
+	public String getStartedAt() {
+		return startedAt;
+	}
+
+	public String getFinishedAt() {
+		return finishedAt;
+	}
+
+	public long getQueuedMillis() {
+		return queuedMillis;
+	}
+
+	public long getRunningMillis() {
+		return runningMillis;
+	}
+
+	public LinkedHashMap<String, Long> getPhaseMillis() {
+		return phaseMillis;
+	}
+
+	public Long getResult() {
+		return result;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		return "JobStatus [id=" + id + ", type=" + type + ", parameters=" + parameters + ", state=" + state
+				+ ", phase=" + phase + ", done=" + done + ", total=" + total + ", cancelRequested=" + cancelRequested
+				+ ", submittedAt=" + submittedAt + ", startedAt=" + startedAt + ", finishedAt=" + finishedAt
+				+ ", queuedMillis=" + queuedMillis + ", runningMillis=" + runningMillis + ", phaseMillis="
+				+ phaseMillis + ", result=" + result + ", error=" + error + "]";
+	}
+}
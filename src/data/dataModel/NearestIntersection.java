@@ -0,0 +1,30 @@
+package data.dataModel;
+
+public class NearestIntersection {
+
+	private Intersection intersection;
+	private double distance;
+
+	/**
+	 * @param intersection An Intersection near the searched point.
+	 * @param distance     Great-circle distance of the Intersection from the point, in meters.
+	 */
+	public NearestIntersection(Intersection intersection, double distance) {
+		super();
+		this.intersection = intersection;
+		this.distance = distance;
+	}
+
+	public Intersection getIntersection() {
+		return intersection;
+	}
+
+	public double getDistance() {
+		return distance;
+	}
+
+	@Override
+	public String toString() {
+		return "NearestIntersection [intersection=" + intersection + ", distance=" + distance + "]";
+	}
+}
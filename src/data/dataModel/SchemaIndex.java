@@ -0,0 +1,89 @@
+package data.dataModel;
+
+import java.util.ArrayList;
+
+public class SchemaIndex {
+
+	private String name, entityType, type, state, failureMessage;
+	private ArrayList<String> labelsOrTypes, properties;
+	private boolean unique;
+	private double populationPercent;
+
+	/**
+	 * @param name              Name of the index.
+	 * @param entityType        NODE or RELATIONSHIP.
+	 * @param labelsOrTypes     Labels or relationship types indexed.
+	 * @param properties        Properties indexed.
+	 * @param type              Kind of index, e.g. BTREE or RANGE.
+	 * @param unique            {@code true} if the index backs a uniqueness constraint.
+	 * @param state             ONLINE, POPULATING or FAILED.
+	 * @param populationPercent Progress of the population, from 0 to 100.
+	 * @param failureMessage    Cause of the failure of the population, {@code null} if none.
+	 */
+	public SchemaIndex(String name, String entityType, ArrayList<String> labelsOrTypes, ArrayList<String> properties,
+			String type, boolean unique, String state, double populationPercent, String failureMessage) {
+		super();
+		this.name = name;
+		this.entityType = entityType;
+		this.labelsOrTypes = labelsOrTypes;
+		this.properties = properties;
+		this.type = type;
+		this.unique = unique;
+		this.state = state;
+		this.populationPercent = populationPercent;
+		this.failureMessage = failureMessage;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getEntityType() {
+		return entityType;
+	}
+
+	public ArrayList<String> getLabelsOrTypes() {
+		return labelsOrTypes;
+	}
+
+	public ArrayList<String> getProperties() {
+		return properties;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public boolean isUnique() {
+		return unique;
+	}
+
+	public String getState() {
+		return state;
+	}
+
+	public double getPopulationPercent() {
+		return populationPercent;
+	}
+
+	public String getFailureMessage() {
+		return failureMessage;
+	}
+
+	/**
+	 * @param labelOrType Label or relationship type.
+	 * @param property    Property.
+	 * @return {@code true} if this index covers exactly the given property.
+	 */
+	public boolean covers(String labelOrType, String property) {
+		return labelsOrTypes != null && properties != null && labelsOrTypes.size() == 1 && properties.size() == 1
+				&& labelsOrTypes.get(0).equals(labelOrType) && properties.get(0).equals(property);
+	}
+
+	@Override
+	public String toString() {
+		return "SchemaIndex [name=" + name + ", entityType=" + entityType + ", labelsOrTypes=" + labelsOrTypes
+				+ ", properties=" + properties + ", type=" + type + ", unique=" + unique + ", state=" + state
+				+ ", populationPercent=" + populationPercent + ", failureMessage=" + failureMessage + "]";
+	}
+}
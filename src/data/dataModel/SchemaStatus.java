@@ -0,0 +1,72 @@
+package data.dataModel;
+
+import java.util.ArrayList;
+
+public class SchemaStatus {
+
+	private String checkedAt;
+	private String osmidConstraint, streetIdIndex;
+	private String osmidConstraintState, streetIdIndexState;
+	private boolean online;
+	private ArrayList<SchemaIndex> indexes;
+
+	/**
+	 * @param checkedAt            Time of the check.
+	 * @param osmidConstraint      Outcome of the creation of the uniqueness constraint on
+	 *                             Intersection.osmid: {@code ok} or the error.
+	 * @param streetIdIndex        Outcome of the creation of the index on STREET.id: {@code ok} or
+	 *                             the error.
+	 * @param osmidConstraintState State of the index of the constraint, MISSING if not found.
+	 * @param streetIdIndexState   State of the index on STREET.id, MISSING if not found.
+	 * @param indexes              All the indexes of the database.
+	 */
+	public SchemaStatus(String checkedAt, String osmidConstraint, String streetIdIndex, String osmidConstraintState,
+			String streetIdIndexState, ArrayList<SchemaIndex> indexes) {
+		super();
+		this.checkedAt = checkedAt;
+		this.osmidConstraint = osmidConstraint;
+		this.streetIdIndex = streetIdIndex;
+		this.osmidConstraintState = osmidConstraintState;
+		this.streetIdIndexState = streetIdIndexState;
+		this.online = "ONLINE".equals(osmidConstraintState) && "ONLINE".equals(streetIdIndexState);
+		this.indexes = indexes;
+	}
+
+	public String getCheckedAt() {
+		return checkedAt;
+	}
+
+	public String getOsmidConstraint() {
+		return osmidConstraint;
+	}
+
+	public String getStreetIdIndex() {
+		return streetIdIndex;
+	}
+
+	public String getOsmidConstraintState() {
+		return osmidConstraintState;
+	}
+
+	public String getStreetIdIndexState() {
+		return streetIdIndexState;
+	}
+
+	/**
+	 * @return {@code true} if both the constraint and the index are online.
+	 */
+	public boolean isOnline() {
+		return online;
+	}
+
+	public ArrayList<SchemaIndex> getIndexes() {
+		return indexes;
+	}
+
+	@Override
+	public String toString() {
+		return "SchemaStatus [checkedAt=" + checkedAt + ", osmidConstraint=" + osmidConstraint + ", streetIdIndex="
+				+ streetIdIndex + ", osmidConstraintState=" + osmidConstraintState + ", streetIdIndexState="
+				+ streetIdIndexState + ", online=" + online + ", indexes=" + indexes + "]";
+	}
+}
@@ -0,0 +1,94 @@
+package data.dataModel;
+
+public class SpatialIndexStatistics {
+
+	private boolean loaded, building;
+	private String builtAt;
+	private int intersections, streets, cells;
+	private double cellDegrees;
+	private long bytes, loadMillis;
+	private long queries;
+	private double meanQueryMicros;
+
+	/**
+	 * @param loaded          {@code true} if the index is available.
+	 * @param building        {@code true} if a rebuild is running.
+	 * @param builtAt         Time of the last rebuild.
+	 * @param intersections   Intersections in the index.
+	 * @param streets         Streets in the index.
+	 * @param cells           Non-empty cells of the grid.
+	 * @param cellDegrees     Side of a cell, in decimal degrees.
+	 * @param bytes           Approximate heap size of the index.
+	 * @param loadMillis      Duration of the last rebuild, in milliseconds.
+	 * @param queries         Queries by bounding box served by the index.
+	 * @param meanQueryMicros Mean duration of a query in the index, in microseconds, without the
+	 *                        reading of the results from the database.
+	 */
+	public SpatialIndexStatistics(boolean loaded, boolean building, String builtAt, int intersections, int streets,
+			int cells, double cellDegrees, long bytes, long loadMillis, long queries, double meanQueryMicros) {
+		super();
+		this.loaded = loaded;
+		this.building = building;
+		this.builtAt = builtAt;
+		this.intersections = intersections;
+		this.streets = streets;
+		this.cells = cells;
+		this.cellDegrees = cellDegrees;
+		this.bytes = bytes;
+		this.loadMillis = loadMillis;
+		this.queries = queries;
+		this.meanQueryMicros = meanQueryMicros;
+	}
+
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	public boolean isBuilding() {
+		return building;
+	}
+
+	public String getBuiltAt() {
+		return builtAt;
+	}
+
+	public int getIntersections() {
+		return intersections;
+	}
+
+	public int getStreets() {
+		return streets;
+	}
+
+	public int getCells() {
+		return cells;
+	}
+
+	public double getCellDegrees() {
+		return cellDegrees;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public long getLoadMillis() {
+		return loadMillis;
+	}
+
+	public long getQueries() {
+		return queries;
+	}
+
+	public double getMeanQueryMicros() {
+		return meanQueryMicros;
+	}
+
+	@Override
+	public String toString() {
+		return "SpatialIndexStatistics [loaded=" + loaded + ", building=" + building + ", builtAt=" + builtAt
+				+ ", intersections=" + intersections + ", streets=" + streets + ", cells=" + cells + ", cellDegrees="
+				+ cellDegrees + ", bytes=" + bytes + ", loadMillis=" + loadMillis + ", queries=" + queries
+				+ ", meanQueryMicros=" + meanQueryMicros + "]";
+	}
+}
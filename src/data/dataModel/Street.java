@@ -21,6 +21,7 @@ public class Street {
 	private double weight;
 	private double flow, averageTravelTime;
 	private boolean interrupted;
+	private String polyline;
 
 	/**
 	 * 
@@ -347,6 +348,18 @@ public class Street {
 		this.interrupted = interrupted;
 	}
 
+	public String getPolyline() {
+		return polyline;
+	}
+
+	/**
+	 * @param polyline Geometry of the street in the encoded polyline format, used
+	 *                 in place of the coordinates when requested by the client.
+	 */
+	public void setPolyline(String polyline) {
+		this.polyline = polyline;
+	}
+
 	@Override
 	public String toString() {
 		return "Street [coordinates=" + coordinates + ", id=" + id + ", access=" + access + ", area=" + area
@@ -355,7 +368,7 @@ public class Street {
 				+ lenght + ", maxSpeed=" + maxSpeed + ", name=" + name + ", oneWay=" + oneWay + ", osmidEdges="
 				+ osmidEdges + ", ref=" + ref + ", tunnel=" + tunnel + ", width=" + width + ", transportService="
 				+ transportService + ", origId=" + origId + ", weight=" + weight + ", flow=" + flow
-				+ ", averageTravelTime=" + averageTravelTime + ", interrupted=" + interrupted + "]";
+				+ ", averageTravelTime=" + averageTravelTime + ", interrupted=" + interrupted + ", polyline=" + polyline + "]";
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package data.dataModel;
+
+public class StreetDirectoryStatistics {
+
+	private String state;
+	private int size, capacity;
+	private long memoryBytes;
+	private long hits, misses, stale;
+	private long loads, failedLoads, lastLoadMillis;
+	private String loadedAt;
+
+	/**
+	 * @param state          UNLOADED, LOADING or LOADED.
+	 * @param size           Streets in the directory.
+	 * @param capacity       Slots of the hash table.
+	 * @param memoryBytes    Approximate heap size of the directory, in bytes.
+	 * @param hits           Lookups that found the endpoints of the street.
+	 * @param misses         Lookups that did not, including the ones before the load.
+	 * @param stale          Entries found not to match the database, and removed.
+	 * @param loads          Loads completed.
+	 * @param failedLoads    Loads failed.
+	 * @param lastLoadMillis Duration of the last load, in milliseconds.
+	 * @param loadedAt       Time of the end of the last load, {@code null} if never loaded.
+	 */
+	public StreetDirectoryStatistics(String state, int size, int capacity, long memoryBytes, long hits, long misses,
+			long stale, long loads, long failedLoads, long lastLoadMillis, String loadedAt) {
+		super();
+		this.state = state;
+		this.size = size;
+		this.capacity = capacity;
+		this.memoryBytes = memoryBytes;
+		this.hits = hits;
+		this.misses = misses;
+		this.stale = stale;
+		this.loads = loads;
+		this.failedLoads = failedLoads;
+		this.lastLoadMillis = lastLoadMillis;
+		this.loadedAt = loadedAt;
+	}
+
+	public String getState() {
+		return state;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getMemoryBytes() {
+		return memoryBytes;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getStale() {
+		return stale;
+	}
+
+	public long getLoads() {
+		return loads;
+	}
+
+	public long getFailedLoads() {
+		return failedLoads;
+	}
+
+	public long getLastLoadMillis() {
+		return lastLoadMillis;
+	}
+
+	public String getLoadedAt() {
+		return loadedAt;
+	}
+
+	@Override
+	public String toString() {
+		return "StreetDirectoryStatistics [state=" + state + ", size=" + size + ", capacity=" + capacity
+				+ ", memoryBytes=" + memoryBytes + ", hits=" + hits + ", misses=" + misses + ", stale=" + stale
+				+ ", loads=" + loads + ", failedLoads=" + failedLoads + ", lastLoadMillis=" + lastLoadMillis
+				+ ", loadedAt=" + loadedAt + "]";
+	}
+}
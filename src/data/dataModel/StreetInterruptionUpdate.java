@@ -0,0 +1,30 @@
+package data.dataModel;
+
+public class StreetInterruptionUpdate {
+
+	private Integer id;
+	private Boolean interrupted;
+
+	/**
+	 * @param id          Id of the street.
+	 * @param interrupted {@code true} if the street is interrupted.
+	 */
+	public StreetInterruptionUpdate(Integer id, Boolean interrupted) {
+		super();
+		this.id = id;
+		this.interrupted = interrupted;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public Boolean getInterrupted() {
+		return interrupted;
+	}
+
+	@Override
+	public String toString() {
+		return "StreetInterruptionUpdate [id=" + id + ", interrupted=" + interrupted + "]";
+	}
+}
@@ -0,0 +1,30 @@
+package data.dataModel;
+
+public class StreetWeightUpdate {
+
+	private Integer id;
+	private Double weight;
+
+	/**
+	 * @param id     Id of the street.
+	 * @param weight New weight of the street.
+	 */
+	public StreetWeightUpdate(Integer id, Double weight) {
+		super();
+		this.id = id;
+		this.weight = weight;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public Double getWeight() {
+		return weight;
+	}
+
+	@Override
+	public String toString() {
+		return "StreetWeightUpdate [id=" + id + ", weight=" + weight + "]";
+	}
+}
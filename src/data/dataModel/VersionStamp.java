@@ -0,0 +1,33 @@
+package data.dataModel;
+
+import java.time.LocalDateTime;
+
+public class VersionStamp {
+
+	private LocalDateTime previous;
+	private LocalDateTime timestamp;
+
+	/**
+	 * @param previous  Timestamp of the {@code Control} node replaced by the stamp, {@code null}
+	 *                  if it had none.
+	 * @param timestamp Timestamp written by the stamp.
+	 */
+	public VersionStamp(LocalDateTime previous, LocalDateTime timestamp) {
+		super();
+		this.previous = previous;
+		this.timestamp = timestamp;
+	}
+
+	public LocalDateTime getPrevious() {
+		return previous;
+	}
+
+	public LocalDateTime getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public String toString() {
+		return "VersionStamp [previous=" + previous + ", timestamp=" + timestamp + "]";
+	}
+}
@@ -0,0 +1,134 @@
+package data.dataModel;
+
+public class WriteBufferStatistics {
+
+	private boolean enabled;
+	private int flushMillis, maxEntries, pending;
+	private long received, merged, discarded, dropped, written;
+	private long flushes, failedFlushes;
+	private int lastBatchSize, maxBatchSize;
+	private double meanBatchSize;
+	private long lastFlushLatency, maxFlushLatency;
+	private double meanFlushLatency;
+
+	/**
+	 * @param enabled          {@code true} if the street weights are coalesced.
+	 * @param flushMillis      Interval between two flushes, in milliseconds.
+	 * @param maxEntries       Pending streets that trigger a flush before the interval.
+	 * @param pending          Streets waiting to be flushed.
+	 * @param received         Weight updates received.
+	 * @param merged           Updates replaced by a later update of the same street before the flush.
+	 * @param discarded        Updates replaced by a direct write of the same street before the flush.
+	 * @param dropped          Updates flushed for streets that do not exist.
+	 * @param written          Streets updated by the flushes.
+	 * @param flushes          Flushes that wrote a batch.
+	 * @param failedFlushes    Flushes whose transaction failed; their updates are retried.
+	 * @param lastBatchSize    Streets in the last batch.
+	 * @param maxBatchSize     Streets in the largest batch.
+	 * @param meanBatchSize    Mean streets per batch.
+	 * @param lastFlushLatency Duration of the last flush, in milliseconds.
+	 * @param maxFlushLatency  Duration of the slowest flush, in milliseconds.
+	 * @param meanFlushLatency Mean duration of the flushes, in milliseconds.
+	 */
+	public WriteBufferStatistics(boolean enabled, int flushMillis, int maxEntries, int pending, long received,
+			long merged, long discarded, long dropped, long written, long flushes, long failedFlushes, int lastBatchSize,
+			int maxBatchSize, double meanBatchSize, long lastFlushLatency, long maxFlushLatency,
+			double meanFlushLatency) {
+		super();
+		this.enabled = enabled;
+		this.flushMillis = flushMillis;
+		this.maxEntries = maxEntries;
+		this.pending = pending;
+		this.received = received;
+		this.merged = merged;
+		this.discarded = discarded;
+		this.dropped = dropped;
+		this.written = written;
+		this.flushes = flushes;
+		this.failedFlushes = failedFlushes;
+		this.lastBatchSize = lastBatchSize;
+		this.maxBatchSize = maxBatchSize;
+		this.meanBatchSize = meanBatchSize;
+		this.lastFlushLatency = lastFlushLatency;
+		this.maxFlushLatency = maxFlushLatency;
+		this.meanFlushLatency = meanFlushLatency;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public int getFlushMillis() {
+		return flushMillis;
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public int getPending() {
+		return pending;
+	}
+
+	public long getReceived() {
+		return received;
+	}
+
+	public long getMerged() {
+		return merged;
+	}
+
+	public long getDiscarded() {
+		return discarded;
+	}
+
+	public long getDropped() {
+		return dropped;
+	}
+
+	public long getWritten() {
+		return written;
+	}
+
+	public long getFlushes() {
+		return flushes;
+	}
+
+	public long getFailedFlushes() {
+		return failedFlushes;
+	}
+
+	public int getLastBatchSize() {
+		return lastBatchSize;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public double getMeanBatchSize() {
+		return meanBatchSize;
+	}
+
+	public long getLastFlushLatency() {
+		return lastFlushLatency;
+	}
+
+	public long getMaxFlushLatency() {
+		return maxFlushLatency;
+	}
+
+	public double getMeanFlushLatency() {
+		return meanFlushLatency;
+	}
+
+	@Override
+	public String toString() {
+		return "WriteBufferStatistics [enabled=" + enabled + ", flushMillis=" + flushMillis + ", maxEntries="
+				+ maxEntries + ", pending=" + pending + ", received=" + received + ", merged=" + merged
+				+ ", discarded=" + discarded + ", dropped=" + dropped + ", written=" + written + ", flushes=" + flushes + ", failedFlushes="
+				+ failedFlushes + ", lastBatchSize=" + lastBatchSize + ", maxBatchSize=" + maxBatchSize
+				+ ", meanBatchSize=" + meanBatchSize + ", lastFlushLatency=" + lastFlushLatency
+				+ ", maxFlushLatency=" + maxFlushLatency + ", meanFlushLatency=" + meanFlushLatency + "]";
+	}
+}
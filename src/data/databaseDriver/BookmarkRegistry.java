@@ -0,0 +1,128 @@
+package data.databaseDriver;
+
+import org.neo4j.driver.Bookmark;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bookmarks of the last write transactions, shared by the DAO instances, so that a read session on a
+ * replica starts only once the replica has applied them: a read that follows a write on this
+ * server sees it, wherever it runs.
+ * <p>
+ * The registry keeps the bookmarks of the last {@code retained} writes rather than the last one,
+ * because concurrent writes can complete in a different order than they commit; a bookmark older
+ * than that has been overtaken by the later ones. A client can also carry the bookmark across
+ * requests and servers: the bookmark given with a request, see {@link #setRequestBookmark(String)},
+ * is added to the ones of the reads of that request on the calling thread.
+ */
+public class BookmarkRegistry {
+
+    private static final ThreadLocal<Bookmark> REQUEST = new ThreadLocal<>();
+
+    private final ArrayDeque<Bookmark> recent = new ArrayDeque<>();
+    private final int retained;
+
+    /**
+     * @param retained Bookmarks of the last writes kept.
+     */
+    public BookmarkRegistry(int retained) {
+        this.retained = Math.max(1, retained);
+    }
+
+    /**
+     * Records the bookmark of a session that has written.
+     *
+     * @param bookmark The last bookmark of the session, ignored if {@code null} or empty.
+     */
+    public void written(Bookmark bookmark) {
+        if (bookmark == null || bookmark.isEmpty()) {
+            return;
+        }
+        synchronized (recent) {
+            recent.remove(bookmark);
+            recent.addLast(bookmark);
+            while (recent.size() > retained) {
+                recent.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * @return The bookmarks a read must wait for: the ones of the last writes of this server and
+     *         the one of the current request, {@code null} if none.
+     */
+    public Bookmark forRead() {
+        List<Bookmark> bookmarks;
+        synchronized (recent) {
+            bookmarks = new ArrayList<>(recent);
+        }
+        Bookmark request = REQUEST.get();
+        if (request != null) {
+            bookmarks.add(request);
+        }
+        return bookmarks.isEmpty() ? null : merge(bookmarks);
+    }
+
+    /**
+     * @return The bookmarks of the last writes of this server, as a header value, {@code null} if
+     *         none.
+     */
+    public String current() {
+        List<Bookmark> bookmarks;
+        synchronized (recent) {
+            bookmarks = new ArrayList<>(recent);
+        }
+        return bookmarks.isEmpty() ? null : format(merge(bookmarks));
+    }
+
+    private static Bookmark merge(List<Bookmark> bookmarks) {
+        Set<String> values = new LinkedHashSet<>();
+        for (Bookmark b : bookmarks) {
+            values.addAll(b.values());
+        }
+        return Bookmark.from(values);
+    }
+
+    /**
+     * Sets the bookmark given by the client with the request handled by the calling thread, or
+     * clears it. Called at the start of every request, so that it never outlives it.
+     *
+     * @param header Comma separated bookmark values, {@code null} if none.
+     */
+    public static void setRequestBookmark(String header) {
+        Bookmark bookmark = parse(header);
+        if (bookmark == null) {
+            REQUEST.remove();
+        } else {
+            REQUEST.set(bookmark);
+        }
+    }
+
+    /**
+     * @param header Comma separated bookmark values.
+     * @return The bookmark, {@code null} if the header is null or blank.
+     */
+    public static Bookmark parse(String header) {
+        if (header == null || header.trim().isEmpty()) {
+            return null;
+        }
+        Set<String> values = new LinkedHashSet<>();
+        for (String value : header.split(",")) {
+            if (!value.trim().isEmpty()) {
+                values.add(value.trim());
+            }
+        }
+        return values.isEmpty() ? null : Bookmark.from(values);
+    }
+
+    /**
+     * @return The bookmark values separated by commas.
+     */
+    public static String format(Bookmark bookmark) {
+        return String.join(",", bookmark.values());
+    }
+}
@@ -0,0 +1,219 @@
+package data.databaseDriver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Catalog of the parameterized Cypher statements executed by {@link DAOAdminNeo4jImpl}.
+ * <p>
+ * Every statement binds its arguments through {@code $param} placeholders, so the text sent to
+ * Neo4j never changes between calls and the cached execution plan is reused. The catalog also
+ * keeps the number of executions of each statement, shared by all the DAO instances.
+ *
+ * @author Giovanni Codianni
+ * @author Carmine Colarusso
+ * @author Chiara Verdone
+ */
+public enum CypherQuery {
+
+    ADD_INTERSECTION("MERGE (a:Intersection {osmid: $osmid}) ON CREATE SET a.betweenness = 0 "
+            + "SET a.longitude = $longitude, a.latitude = $latitude, a.highway = $highway, a.ref = $ref, "
+            + "a.parking = $parking, a.hospital = $hospital, a.busStop = $busStop, a.museum = $museum "
+            + "RETURN a.osmid"),
+
+    ADD_INTERSECTIONS("UNWIND $rows AS row MERGE (a:Intersection {osmid: row.osmid}) "
+            + "ON CREATE SET a.betweenness = 0 "
+            + "SET a.longitude = row.longitude, a.latitude = row.latitude, a.highway = row.highway, "
+            + "a.ref = row.ref, a.parking = row.parking, a.hospital = row.hospital, a.busStop = row.busStop, "
+            + "a.museum = row.museum RETURN count(a) AS written"),
+
+    ADD_STREET("MATCH (a:Intersection {osmid: $osmidStart}), (b:Intersection {osmid: $osmidDest}) "
+            + "MERGE (a)-[r:STREET {id: $id}]->(b) "
+            + "SET r.longitudes = $longitudes, r.latitudes = $latitudes, r.access = $access, r.area = $area, "
+            + "r.bridge = $bridge, r.osmidStart = $osmidStart, r.osmidDest = $osmidDest, r.highway = $highway, "
+            + "r.junction = $junction, r.key = $key, r.arrayLanes = $arrayLanes, r.length = $length, "
+            + "r.maxSpeed = $maxSpeed, r.name = $name, r.oneWay = $oneWay, r.osmidEdges = $osmidEdges, "
+            + "r.ref = $ref, r.transportService = $transportService, r.tunnel = $tunnel, r.width = $width, "
+            + "r.origId = $origId, r.weight = $weight, r.flow = $flow, r.averageTravelTime = $averageTravelTime, "
+            + "r.interrupted = $interrupted RETURN r.id"),
+
+    ADD_STREETS("UNWIND $rows AS row "
+            + "MATCH (a:Intersection {osmid: row.osmidStart}), (b:Intersection {osmid: row.osmidDest}) "
+            + "MERGE (a)-[r:STREET {id: row.id}]->(b) "
+            + "SET r.longitudes = row.longitudes, r.latitudes = row.latitudes, r.access = row.access, "
+            + "r.area = row.area, r.bridge = row.bridge, r.osmidStart = row.osmidStart, "
+            + "r.osmidDest = row.osmidDest, r.highway = row.highway, r.junction = row.junction, r.key = row.key, "
+            + "r.arrayLanes = row.arrayLanes, r.length = row.length, r.maxSpeed = row.maxSpeed, "
+            + "r.name = row.name, r.oneWay = row.oneWay, r.osmidEdges = row.osmidEdges, r.ref = row.ref, "
+            + "r.transportService = row.transportService, r.tunnel = row.tunnel, r.width = row.width, "
+            + "r.origId = row.origId, r.weight = row.weight, r.flow = row.flow, "
+            + "r.averageTravelTime = row.averageTravelTime, r.interrupted = row.interrupted "
+            + "RETURN collect(r.id) AS ids"),
+
+    SET_STREET_WEIGHT("MATCH (a:Intersection)-[r:STREET]->(b:Intersection) WHERE r.id = $id "
+            + "SET r.weight = $weight RETURN r.id"),
+
+    SET_STREET_WEIGHT_ANCHORED("MATCH (a:Intersection {osmid: $osmidStart})-[r:STREET {id: $id}]->"
+            + "(b:Intersection {osmid: $osmidDest}) SET r.weight = $weight RETURN r.id"),
+
+    SET_STREET_WEIGHTS("UNWIND $rows AS row MATCH ()-[r:STREET {id: row.id}]->() SET r.weight = row.weight "
+            + "RETURN collect(r.id) AS ids"),
+
+    SET_STREET_WEIGHTS_ANCHORED("UNWIND $rows AS row MATCH (a:Intersection {osmid: row.osmidStart})"
+            + "-[r:STREET {id: row.id}]->(b:Intersection {osmid: row.osmidDest}) SET r.weight = row.weight "
+            + "RETURN collect(r.id) AS ids"),
+
+    SET_STREETS_INTERRUPTED("UNWIND $rows AS row MATCH ()-[s:STREET {id: row.id}]->() "
+            + "SET s.interrupted = row.interrupted RETURN collect(s.id) AS ids"),
+
+    SET_STREETS_INTERRUPTED_ANCHORED("UNWIND $rows AS row MATCH (a:Intersection {osmid: row.osmidStart})"
+            + "-[s:STREET {id: row.id}]->(b:Intersection {osmid: row.osmidDest}) "
+            + "SET s.interrupted = row.interrupted RETURN collect(s.id) AS ids"),
+
+    SET_STREET_INTERRUPTED("MATCH ()-[s:STREET {id: $id}]->() SET s.interrupted = $interrupted RETURN s.id"),
+
+    SET_STREET_INTERRUPTED_ANCHORED("MATCH (a:Intersection {osmid: $osmidStart})-[s:STREET {id: $id}]->"
+            + "(b:Intersection {osmid: $osmidDest}) SET s.interrupted = $interrupted RETURN s.id"),
+
+    SET_BETWEENNESS_INTERSECTIONS("UNWIND $rows AS row MATCH (a:Intersection {osmid: row.osmid}) "
+            + "SET a.betweenness = row.betweenness RETURN count(a) AS written"),
+
+    SET_BETWEENNESS_INTERSECTION("MATCH (a:Intersection {osmid: $osmid}) SET a.betweenness = $betweenness "
+            + "RETURN properties(a)"),
+
+    GET_INTERSECTION("MATCH (a:Intersection {osmid: $osmid}) RETURN properties(a)"),
+
+    GET_INTERSECTION_OSMIDS("MATCH (a:Intersection) RETURN a.osmid as osmid"),
+
+    GET_INTERSECTIONS_BY_OSMIDS("UNWIND $osmids AS osmid MATCH (a:Intersection {osmid: osmid}) RETURN properties(a)"),
+
+    GET_INTERSECTION_POSITIONS("MATCH (a:Intersection) RETURN a.osmid AS osmid, a.longitude AS longitude, "
+            + "a.latitude AS latitude, a.parking AS parking, a.hospital AS hospital, a.busStop AS busStop, "
+            + "a.museum AS museum"),
+
+    GET_STREET_BY_ID("MATCH (a:Intersection)-[r:STREET]->(b:Intersection) WHERE r.id = $id RETURN properties(r)"),
+
+    GET_STREET_BY_ID_ANCHORED("MATCH (a:Intersection {osmid: $osmidStart})-[r:STREET {id: $id}]->"
+            + "(b:Intersection {osmid: $osmidDest}) RETURN properties(r)"),
+
+    GET_STREETS_BY_ENDPOINTS_ANCHORED("UNWIND $rows AS row MATCH (a:Intersection {osmid: row.osmidStart})"
+            + "-[r:STREET {id: row.id}]->(b:Intersection {osmid: row.osmidDest}) RETURN properties(r)"),
+
+    GET_STREET_GEOMETRIES("MATCH (a:Intersection)-[r:STREET]->(b:Intersection) "
+            + "RETURN r.id AS id, a.osmid AS osmidStart, b.osmid AS osmidDest, r.longitudes AS longitudes, "
+            + "r.latitudes AS latitudes, r.coordinates AS coordinates, r.weight AS weight, "
+            + "r.interrupted AS interrupted, r.highway AS highway"),
+
+    GET_STREET_ENDPOINTS("MATCH (a:Intersection)-[r:STREET]->(b:Intersection) "
+            + "RETURN r.id AS id, a.osmid AS osmidStart, b.osmid AS osmidDest"),
+
+    GET_STREET_BY_ENDPOINTS("MATCH (a:Intersection {osmid: $osmidStart})-[r:STREET]->"
+            + "(b:Intersection {osmid: $osmidDest}) RETURN properties(r)"),
+
+    GET_STREET_GEOMETRY("MATCH (a:Intersection {osmid: $osmidStart})-[r:STREET]->"
+            + "(b:Intersection {osmid: $osmidDest}) "
+            + "RETURN r.longitudes AS longitudes, r.latitudes AS latitudes, r.coordinates AS coordinates"),
+
+    GET_STREETS("MATCH (a:Intersection {osmid: $osmid})-[r:STREET]->() RETURN properties(r)"),
+
+    EXPORT_INTERSECTIONS("MATCH (a:Intersection) RETURN properties(a)"),
+
+    EXPORT_STREETS("MATCH (a:Intersection)-[r:STREET]->(b:Intersection) RETURN properties(r)"),
+
+    GET_LINK_KEY("MATCH (a:Intersection {osmid: $osmidStart})-[r:STREET]->"
+            + "(b:Intersection {osmid: $osmidDest}) RETURN r.id"),
+
+    DELETE_INTERSECTION("MATCH (a:Intersection {osmid: $osmid}) DETACH DELETE a"),
+
+    DELETE_STREET("MATCH ()-[r:STREET]->() WHERE r.id = $id DELETE r"),
+
+    DELETE_STREET_ANCHORED("MATCH (a:Intersection {osmid: $osmidStart})-[r:STREET {id: $id}]->"
+            + "(b:Intersection {osmid: $osmidDest}) WITH r, r.id AS id DELETE r RETURN id"),
+
+    GET_LEGACY_STREET_GEOMETRIES("MATCH ()-[r:STREET]->() WHERE r.longitudes IS NULL AND r.coordinates IS NOT NULL "
+            + "AND r.geometryInvalid IS NULL RETURN r.id AS id, r.coordinates AS coordinates LIMIT $limit"),
+
+    MIGRATE_STREET_GEOMETRIES("UNWIND $rows AS row MATCH ()-[r:STREET {id: row.id}]->() "
+            + "SET r.longitudes = row.longitudes, r.latitudes = row.latitudes REMOVE r.coordinates "
+            + "RETURN count(r) AS written"),
+
+    FLAG_INVALID_STREET_GEOMETRIES("UNWIND $ids AS id MATCH ()-[r:STREET {id: id}]->() SET r.geometryInvalid = true "
+            + "RETURN count(r) AS written"),
+
+    UPDATE_BETWEENNESS_EXACT("CALL algo.betweenness('Intersection','STREET', {direction:'out', write:true, "
+            + "writeProperty:'betweenness', weightProperty:'weight'})"),
+
+    UPDATE_BETWEENNESS_BRANDES_RANDOM("CALL algo.betweenness.sampled('Intersection','STREET', {strategy:'random', "
+            + "direction:'out', writeProperty:'betweenness', probability: 1, maxDepth: 4, weightProperty:'weight'})"),
+
+    UPDATE_BETWEENNESS_BRANDES_DEGREE("CALL algo.betweenness.sampled('Intersection','STREET', {strategy:'degree', "
+            + "direction:'out', writeProperty:'betweenness', probability: 1, maxDepth: 4, weightProperty:'weight'})"),
+
+    GET_LAST_MODIFIED("MATCH (a:Control) RETURN a.timestamp"),
+
+    SET_LAST_MODIFIED("MATCH (a:Control) WITH a, a.timestamp AS previous SET a.timestamp = localdatetime() "
+            + "RETURN previous, a.timestamp AS timestamp"),
+
+    COUNT_GRAPH("MATCH (a:Intersection) WITH count(a) AS nodes "
+            + "MATCH (:Intersection)-[r:STREET]->(:Intersection) RETURN nodes, count(r) AS edges"),
+
+    GET_GRAPH_EDGES("MATCH (a:Intersection)-[r:STREET]->(b:Intersection) "
+            + "RETURN a.osmid AS osmidStart, b.osmid AS osmidDest, r.id AS id, r.weight AS weight, "
+            + "r.length AS length, r.averageTravelTime AS averageTravelTime, r.interrupted AS interrupted"),
+
+    CREATE_INTERSECTION_OSMID_CONSTRAINT("CREATE CONSTRAINT intersection_osmid IF NOT EXISTS "
+            + "FOR (a:Intersection) REQUIRE a.osmid IS UNIQUE"),
+
+    CREATE_INTERSECTION_OSMID_CONSTRAINT_LEGACY("CREATE CONSTRAINT ON (a:Intersection) ASSERT a.osmid IS UNIQUE"),
+
+    CREATE_STREET_ID_INDEX("CREATE INDEX street_id IF NOT EXISTS FOR ()-[r:STREET]-() ON (r.id)"),
+
+    GET_INDEXES("CALL db.indexes()"),
+
+    SHOW_INDEXES("SHOW INDEXES"),
+
+    AWAIT_INDEXES("CALL db.awaitIndexes($timeout)");
+
+    private final String text;
+    private final LongAdder executions;
+
+    CypherQuery(String text) {
+        this.text = text;
+        this.executions = new LongAdder();
+    }
+
+    /**
+     * @return The Cypher text of the statement, with {@code $param} placeholders.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Counts one execution of the statement.
+     */
+    public void executed() {
+        executions.increment();
+    }
+
+    /**
+     * @return Number of executions of the statement since the application started.
+     */
+    public long getExecutionCount() {
+        return executions.sum();
+    }
+
+    /**
+     * Returns the execution counts of all the statements in the catalog.
+     *
+     * @return A map from the name of the statement to the number of its executions, in catalog order.
+     */
+    public static Map<String, Long> getExecutionCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (CypherQuery query : values()) {
+            counts.put(query.name(), query.getExecutionCount());
+        }
+        return counts;
+    }
+}
@@ -3,12 +3,19 @@ package data.databaseDriver;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.neo4j.driver.Record;
-import org.neo4j.driver.Result;
+import org.neo4j.driver.Value;
 
 import data.dataModel.*;
+import data.graph.BinarySnapshot;
+import data.graph.GraphSnapshot;
+import data.graph.SpatialIndex;
 
 /**
  * Interface that gives all methods that define the operations to do on neo4j
@@ -22,28 +29,87 @@ import data.dataModel.*;
 public interface DAOAdmin {
 
     /**
-     * This method instantiate a new session and runs a read query.
+     * This method instantiate a new session and runs a read query in a
+     * transaction. The session is always closed before returning, also when the
+     * query fails.
+     *
+     * @param query contains a query written in CypherQueryLanguage.
+     * @return Records of query execution, an empty list if driver is not
+     *         instantiated yet.
+     */
+    List<Record> databaseRead(String query);
+
+    /**
+     * This method instantiate a new session, begins a new transaction that runs a
+     * query. If transaction is successful, it commits results.
      *
      * @param query contains a query written in CypherQueryLanguage.
      * @return StatementResult of query execution.
      *         <p>
      *         If driver is not instantiated yet throws
      *         {@link DatabaseNotConnectException}
+     */
+    List<Record> databaseWrite(String query);
+
+    /**
+     * This method instantiate a new session and runs a read statement of the
+     * {@link CypherQuery} catalog.
      *
+     * @param query      statement of the catalog to run.
+     * @param parameters values bound to the {@code $param} placeholders of the statement.
+     * @return Records of query execution, an empty list if driver is not
+     *         instantiated yet.
      */
-    Result databaseRead(String query);
+    List<Record> databaseRead(CypherQuery query, Value parameters);
+
+    /**
+     * This method instantiate a new session and runs a read statement of the
+     * {@link CypherQuery} catalog, handing the records to {@code reader} while
+     * they are fetched from the server. The session and the transaction stay open
+     * only while {@code reader} runs and are always released afterwards.
+     * <p>
+     * The iterator must not escape {@code reader}.
+     *
+     * @param query      statement of the catalog to run.
+     * @param parameters values bound to the {@code $param} placeholders of the statement.
+     * @param reader     consumes the records and returns the outcome of the read.
+     * @return The value returned by {@code reader}, {@code null} if driver is not
+     *         instantiated yet.
+     */
+    <T> T databaseRead(CypherQuery query, Value parameters, Function<Iterator<Record>, T> reader);
+
+    /**
+     * Streams the records of a read statement of the {@link CypherQuery} catalog
+     * to {@code consumer}, one at a time, without materializing the result.
+     *
+     * @param query      statement of the catalog to run.
+     * @param parameters values bound to the {@code $param} placeholders of the statement.
+     * @param consumer   called once for every record.
+     * @return Number of records streamed.
+     */
+    long databaseStream(CypherQuery query, Value parameters, Consumer<Record> consumer);
 
     /**
      * This method instantiate a new session, begins a new transaction that runs a
-     * query. If transaction is successful, it commits results.
+     * write statement of the {@link CypherQuery} catalog. If transaction is
+     * successful, it commits results.
      *
-     * @param query contains a query written in CypherQueryLanguage.
+     * @param query      statement of the catalog to run.
+     * @param parameters values bound to the {@code $param} placeholders of the statement.
      * @return StatementResult of query execution.
      *         <p>
      *         If driver is not instantiated yet throws
      *         {@link DatabaseNotConnectException}
      */
-    List<Record> databaseWrite(String query);
+    List<Record> databaseWrite(CypherQuery query, Value parameters);
+
+    /**
+     * Returns how many times each statement of the {@link CypherQuery} catalog has
+     * been executed.
+     *
+     * @return A map from the name of the statement to the number of its executions.
+     */
+    Map<String, Long> getQueryStatistics();
 
     /**
      * Add an Intersection to the database with given parameters.
@@ -60,6 +126,14 @@ public interface DAOAdmin {
      */
     Intersection addIntersection(Coordinate coordinate, String highway, long osmid, String ref, boolean parking, boolean hospital, boolean busStop, boolean museum);
 
+    /**
+     * Add a chunk of Intersections to the database in a single transaction.
+     *
+     * @param intersections Intersections to add, written through one UNWIND statement.
+     * @return Number of Intersections written, 0 if the transaction failed.
+     */
+    int addIntersections(List<Intersection> intersections);
+
     /**
      * Add a directional STREET relation to the database with given parameters.
      *
@@ -97,6 +171,16 @@ public interface DAOAdmin {
                      boolean transportService, String tunnel, String width, long origId, double weight, double flow,
                      double averageTravelTime, boolean interrupted);
 
+    /**
+     * Add a chunk of directional STREET relations to the database in a single
+     * transaction. The starting and destination intersections are resolved by
+     * osmid; streets whose intersections are missing are not written.
+     *
+     * @param streets Streets to add, written through one UNWIND statement.
+     * @return Ids of the Streets written, {@code null} if the transaction failed.
+     */
+    List<Integer> addStreets(List<Street> streets);
+
     /**
      * Deletes a STREET identified by given linkKey.
      *
@@ -113,6 +197,23 @@ public interface DAOAdmin {
      */
     Street setStreetWeight(int id, double weight);
 
+    /**
+     * Update the weight of many Streets, in a single transaction.
+     *
+     * @param weights Weight value to be set, by Id of the Street.
+     * @return Ids of the Streets updated, {@code null} if the transaction failed.
+     */
+    List<Integer> setStreetWeights(Map<Integer, Double> weights);
+
+    /**
+     * Update the Betweenness Centrality value of many Intersections, in a single
+     * transaction.
+     *
+     * @param betweenness Betweenness value to be set, by Id of the Intersection.
+     * @return Number of Intersections updated.
+     */
+    int setBetweennessIntersections(Map<Long, Double> betweenness);
+
     /**
      * Update the Betweenness Centrality value of a specific Intersection.
      *
@@ -182,6 +283,18 @@ public interface DAOAdmin {
      */
     ArrayList<Coordinate> getStreetGeometry(long osmidStart, long osmidDest);
 
+    /**
+     * Converts a batch of STREET relations from the legacy geometry, stored as the
+     * text of a list of {@link Coordinate}, to the parallel {@code longitudes} and
+     * {@code latitudes} lists. Geometries that cannot be parsed are flagged with
+     * {@code geometryInvalid} and left untouched.
+     *
+     * @param batchSize Maximum number of relations converted.
+     * @return The number of relations read, migrated and flagged; none read when no legacy
+     *         geometry is left. A failed write counts none of its relations.
+     */
+    GeometryMigrationBatch migrateStreetGeometry(int batchSize);
+
     /**
      * Deletes an Intersection identified by given vertexKey.
      *
@@ -218,7 +331,11 @@ public interface DAOAdmin {
      * requires at least O(nm) time for unweighted graphs, where n is the number of
      * nodes and m is the number of relationships.
      *
+     * @deprecated runs the {@code algo.*} procedures, not available in recent Neo4j
+     *             versions; the service computes the betweenness in process and
+     *             writes it with {@link #setBetweennessIntersections(Map)}.
      */
+    @Deprecated
     void updateBetweennesExact();
 
 
@@ -230,7 +347,11 @@ public interface DAOAdmin {
      * RA-Brandes algorithm considers only a subset of nodes. Nodes are selected
      * uniformly, at random, with defined probability of selection. The probability
      * is log10(N) / e^2, were N is the number of nodes in graph.
+     * @deprecated runs the {@code algo.*} procedures, not available in recent Neo4j
+     *             versions; the service computes the betweenness in process and
+     *             writes it with {@link #setBetweennessIntersections(Map)}.
      */
+    @Deprecated
     void updateBetweeennessBrandesRandom();
 
     /**
@@ -240,13 +361,21 @@ public interface DAOAdmin {
      * First, the mean degree of the nodes is calculated, and then only the nodes
      * whose degree is higher than the mean are visited (i.e. only dense nodes are
      * visited).
+     * @deprecated runs the {@code algo.*} procedures, not available in recent Neo4j
+     *             versions; the service computes the betweenness in process and
+     *             writes it with {@link #setBetweennessIntersections(Map)}.
      */
+    @Deprecated
     void updateBetweeennessBrandesDegree();
 
     /**
      * Update the BetweennessCentrality's value of all Intersection in database with
      * default algorithm.
+     * @deprecated runs the {@code algo.*} procedures, not available in recent Neo4j
+     *             versions; the service computes the betweenness in process and
+     *             writes it with {@link #setBetweennessIntersections(Map)}.
      */
+    @Deprecated
     void updateBetweenness();
 
     /**
@@ -256,7 +385,14 @@ public interface DAOAdmin {
      */
     LocalDateTime getLastModified();
 
-    void setLastModified();
+    /**
+     * Stamps the Control node with the current time, as the timestamp of last
+     * update of the graph.
+     *
+     * @return The timestamp replaced and the new one, {@code null} if the graph
+     *         has no Control node.
+     */
+    VersionStamp setLastModified();
 
     /**
      * Update the interrupted's value of the street in database with the given id.
@@ -265,4 +401,103 @@ public interface DAOAdmin {
      */
     void setStreetInterrupted(int id, boolean interrupted) throws Exception;
 
+    /**
+     * Set the interrupted property of many Streets, in a single transaction.
+     *
+     * @param interrupted Value to be set, by Id of the Street.
+     * @return Ids of the Streets updated, {@code null} if the transaction failed.
+     */
+    List<Integer> setStreetsInterrupted(Map<Integer, Boolean> interrupted);
+
+    /**
+     * Reads the whole road network in a single read transaction and builds its
+     * in-memory compressed sparse row form.
+     * <p>
+     * The transaction is read committed, not a snapshot: the version is read
+     * first, so the graph is at least as recent as it, but a write committed
+     * while the queries run can be seen in part. A street whose endpoint was
+     * added after the intersections were read is left out.
+     *
+     * @return The snapshot of the graph, {@code null} if driver is not
+     *         instantiated yet.
+     */
+    GraphSnapshot getGraphSnapshot();
+
+    /**
+     * Reads the endpoints of all the streets into the street directory of this
+     * DAO, if any.
+     *
+     * @param generation The load generation given by the directory to its loader.
+     * @return Number of streets read, -1 if the load failed or has been
+     *         superseded.
+     */
+    long loadStreetDirectory(int generation);
+
+    /**
+     * Reads the positions of all the intersections and the geometries of all the
+     * streets in a single read transaction and builds a spatial index over them.
+     *
+     * @param cellDegrees Side of a cell of the index, in decimal degrees.
+     * @return The index, {@code null} if driver is not instantiated yet.
+     */
+    SpatialIndex getSpatialIndex(double cellDegrees);
+
+    /**
+     * Streams all the intersections to {@code consumer}, in a single read
+     * transaction, reading them from the cursor one batch at a time.
+     *
+     * @param consumer called once for every Intersection; an unchecked exception
+     *                 stops the export and rolls back the transaction.
+     * @return Number of Intersections exported.
+     */
+    long exportIntersections(Consumer<Intersection> consumer);
+
+    /**
+     * Streams all the streets to {@code consumer}, in a single read transaction,
+     * reading them from the cursor one batch at a time.
+     *
+     * @param consumer called once for every Street; an unchecked exception stops
+     *                 the export and rolls back the transaction.
+     * @return Number of Streets exported.
+     */
+    long exportStreets(Consumer<Street> consumer);
+
+    /**
+     * Reads the whole road network in a single read transaction into a writer of
+     * the binary snapshot format. As for {@link #getGraphSnapshot()}, the
+     * network is at least as recent as the version and a write committed during
+     * the read can be seen in part.
+     *
+     * @return The snapshot to be written, {@code null} if driver is not
+     *         instantiated yet.
+     */
+    BinarySnapshot.Writer getBinarySnapshot();
+
+    /**
+     * Creates a constraint or an index, if it does not exist. The alternatives are
+     * the same rule in the syntax of different Neo4j versions, tried in order
+     * while the server rejects them as syntax errors.
+     *
+     * @param alternatives The rule, newest syntax first.
+     * @return {@code null} if the rule has been created or already exists, the
+     *         error otherwise.
+     */
+    String createSchemaRule(CypherQuery... alternatives);
+
+    /**
+     * Lists the indexes of the database, including the ones backing the
+     * constraints.
+     *
+     * @return The indexes, {@code null} if they cannot be listed.
+     */
+    ArrayList<SchemaIndex> getSchemaIndexes();
+
+    /**
+     * Waits for the population of the indexes.
+     *
+     * @param seconds Maximum time to wait.
+     * @return {@code true} if all the indexes are online.
+     */
+    boolean awaitSchemaIndexes(int seconds);
+
 }
\ No newline at end of file
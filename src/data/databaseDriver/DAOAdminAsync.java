@@ -0,0 +1,123 @@
+package data.databaseDriver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
+
+import data.dataModel.*;
+
+/**
+ * Non-blocking variant of the {@link DAOAdmin} operations used to serve single
+ * requests.
+ * <p>
+ * Every method returns immediately with a {@link CompletionStage} completed by
+ * the driver I/O threads when the database answers, so no thread is kept waiting
+ * for the round trip. The stages are completed exceptionally when the query fails
+ * or, for the lookups, when the searched element does not exist
+ * ({@link org.neo4j.driver.exceptions.NoSuchRecordException}). Dependent stages
+ * must not block, since they run on the driver I/O threads.
+ */
+public interface DAOAdminAsync {
+
+    /**
+     * Opens an asynchronous session and runs a read statement of the
+     * {@link CypherQuery} catalog in a read transaction. The session is closed
+     * before the returned stage completes, also when the query fails.
+     *
+     * @param query      statement of the catalog to run.
+     * @param parameters values bound to the {@code $param} placeholders of the statement.
+     * @return Records of query execution.
+     */
+    CompletionStage<List<Record>> databaseReadAsync(CypherQuery query, Value parameters);
+
+    /**
+     * Opens an asynchronous session and runs a write statement of the
+     * {@link CypherQuery} catalog in a write transaction, committed if the
+     * statement succeeds. The session is closed before the returned stage
+     * completes, also when the query fails.
+     *
+     * @param query      statement of the catalog to run.
+     * @param parameters values bound to the {@code $param} placeholders of the statement.
+     * @return Records of query execution.
+     */
+    CompletionStage<List<Record>> databaseWriteAsync(CypherQuery query, Value parameters);
+
+    /**
+     * @see DAOAdmin#getIntersection(long)
+     */
+    CompletionStage<Intersection> getIntersectionAsync(long osmid);
+
+    /**
+     * @see DAOAdmin#getStreet(int)
+     */
+    CompletionStage<Street> getStreetAsync(int id);
+
+    /**
+     * @see DAOAdmin#getStreet(long, long)
+     */
+    CompletionStage<Street> getStreetAsync(long osmidStart, long osmidDest);
+
+    /**
+     * @see DAOAdmin#getStreets(long)
+     */
+    CompletionStage<HashMap<Integer, Street>> getStreetsAsync(long osmid);
+
+    /**
+     * Reads many Intersections by osmid, in a single query.
+     *
+     * @param osmids OpenStreetMap Ids of the Intersections.
+     * @return The Intersections found, in the order of the osmids.
+     */
+    CompletionStage<ArrayList<Intersection>> getIntersectionsAsync(List<Long> osmids);
+
+    /**
+     * Reads many Streets whose endpoints are known, in a single query matched
+     * through the index of {@code Intersection.osmid}.
+     *
+     * @param endpoints One map per Street, with its {@code id}, {@code osmidStart}
+     *                  and {@code osmidDest}.
+     * @return The Streets found, in the order of the endpoints; a Street whose
+     *         endpoints have changed is missing.
+     */
+    CompletionStage<ArrayList<Street>> getStreetsByEndpointsAsync(List<Map<String, Object>> endpoints);
+
+    /**
+     * @see DAOAdmin#getLinkKey(long, long)
+     */
+    CompletionStage<Integer> getLinkKeyAsync(long osmidStart, long osmidDest);
+
+    /**
+     * @see DAOAdmin#setStreetWeight(int, double)
+     */
+    CompletionStage<Street> setStreetWeightAsync(int id, double weight);
+
+    /**
+     * @see DAOAdmin#setStreetInterrupted(int, boolean)
+     */
+    CompletionStage<Void> setStreetInterruptedAsync(int id, boolean interrupted);
+
+    /**
+     * @see DAOAdmin#setBetweennessIntersection(long, double)
+     */
+    CompletionStage<Intersection> setBetweennessIntersectionAsync(long osmid, double betweenness);
+
+    /**
+     * @see DAOAdmin#deleteIntersection(long)
+     */
+    CompletionStage<Void> deleteIntersectionAsync(long osmid);
+
+    /**
+     * @see DAOAdmin#deleteStreet(int)
+     */
+    CompletionStage<Void> deleteStreetAsync(int id);
+
+    /**
+     * @see DAOAdmin#setLastModified()
+     */
+    CompletionStage<VersionStamp> setLastModifiedAsync();
+}
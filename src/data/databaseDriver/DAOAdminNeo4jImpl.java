@@ -2,15 +2,29 @@ package data.databaseDriver;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.jboss.logging.Logger;
 
 import org.neo4j.driver.*;
+import org.neo4j.driver.async.AsyncSession;
+import org.neo4j.driver.async.AsyncTransactionWork;
+import org.neo4j.driver.async.ResultCursor;
+import org.neo4j.driver.exceptions.ClientException;
 import org.neo4j.driver.exceptions.NoSuchRecordException;
+import org.neo4j.driver.types.Type;
 
 import data.dataModel.*;
+import data.graph.BinarySnapshot;
+import data.graph.GraphSnapshot;
+import data.graph.SpatialIndex;
 
-public class DAOAdminNeo4jImpl implements DAOAdmin {
+public class DAOAdminNeo4jImpl implements DAOAdmin, DAOAdminAsync {
+
+    private static final Type LIST = Values.value(Collections.emptyList()).type();
 
     private String uriWrite,uriRead, user, password;
     private Driver driverRead;
@@ -18,6 +32,9 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
     private Logger logger;
     private SessionConfig readSessionConfig;
     private SessionConfig writeSessionConfig;
+    private final boolean sharedDrivers;
+    private final StreetDirectory streetDirectory;
+    private final BookmarkRegistry bookmarks;
 
 
     /**
@@ -35,6 +52,9 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
         this.password = password;
         this.driverRead = null;
         this.driverWrite = null;
+        this.sharedDrivers = false;
+        this.streetDirectory = null;
+        this.bookmarks = null;
         this.readSessionConfig = SessionConfig.builder()
                 .withDefaultAccessMode(AccessMode.READ)
                 .build();
@@ -44,11 +64,68 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
 
     }
 
+    /**
+     * Uses drivers owned by someone else, shared with other DAO instances.
+     * {@link #openConnection()} and {@link #closeConnection()} do not create or close them.
+     *
+     * @param driverWrite is the driver with write access to neo4j database.
+     * @param driverRead  is the driver with read access to neo4j database.
+     */
+    public DAOAdminNeo4jImpl(Driver driverWrite, Driver driverRead) {
+        this(driverWrite, driverRead, null);
+    }
+
+    /**
+     * Uses drivers and a street directory owned by someone else, shared with other DAO instances.
+     * The streets are matched through the endpoints found in the directory, and the writes keep it
+     * current.
+     *
+     * @param driverWrite     is the driver with write access to neo4j database.
+     * @param driverRead      is the driver with read access to neo4j database.
+     * @param streetDirectory is the directory of the endpoints of the streets, {@code null} to
+     *                        match the streets by id.
+     */
+    public DAOAdminNeo4jImpl(Driver driverWrite, Driver driverRead, StreetDirectory streetDirectory) {
+        this(driverWrite, driverRead, streetDirectory, null);
+    }
+
+    /**
+     * Uses drivers, a street directory and a bookmark registry owned by someone else, shared with
+     * other DAO instances. The read sessions wait for the bookmarks of the registry, and the write
+     * sessions add theirs, so a read on a replica sees the writes done before it.
+     *
+     * @param driverWrite     is the driver with write access to neo4j database.
+     * @param driverRead      is the driver with read access to neo4j database.
+     * @param streetDirectory is the directory of the endpoints of the streets, {@code null} to
+     *                        match the streets by id.
+     * @param bookmarks       is the registry of the bookmarks of the writes, {@code null} to read
+     *                        without causal consistency.
+     */
+    public DAOAdminNeo4jImpl(Driver driverWrite, Driver driverRead, StreetDirectory streetDirectory,
+                             BookmarkRegistry bookmarks) {
+        logger = Logger.getLogger(DAOAdminNeo4jImpl.class);
+        logger.info("DAOAdminNeo4jImpl.DAOAdminNeo4jImpl: shared drivers");
+        this.driverRead = driverRead;
+        this.driverWrite = driverWrite;
+        this.sharedDrivers = true;
+        this.streetDirectory = streetDirectory;
+        this.bookmarks = bookmarks;
+        this.readSessionConfig = SessionConfig.builder()
+                .withDefaultAccessMode(AccessMode.READ)
+                .build();
+        this.writeSessionConfig = SessionConfig.builder()
+                .withDefaultAccessMode(AccessMode.WRITE)
+                .build();
+    }
+
     // CONNESSIONE
 
     @Override
     public void openConnection() {
         logger.info("DAOAdminNeo4jImpl.openConnection");
+        if (sharedDrivers) {
+            return;
+        }
         logger.info("Opening Connection to DataBase URI-read[" + uriRead + "]");
         logger.info("Opening Connection to DataBase URI-write[" + uriWrite + "]");
         this.driverRead = GraphDatabase.driver(uriRead, AuthTokens.basic(user, password));
@@ -58,6 +135,11 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
     @Override
     public void closeConnection() {
         logger.info("DAOAdminNeo4jImpl.closeConnection");
+        if (sharedDrivers) {
+            driverRead = null;
+            driverWrite = null;
+            return;
+        }
         logger.info("Closing Connection to DataBase URI-read[" + uriRead + "]");
         logger.info("Closing Connection to DataBase URI-write[" + uriWrite + "]");
         // Logica bloccante
@@ -72,36 +154,370 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
 
     // INTERROGAZIONE
 
+    /**
+     * Opens a session that must be closed by the caller, using try-with-resources. A read session
+     * waits for the bookmarks of the last writes.
+     */
+    private Session openSession(Driver driver, SessionConfig config) throws DatabaseNotConnectException {
+        if (driver == null)
+            throw new DatabaseNotConnectException("Database Non Connesso");
+        return driver.session(causal(config));
+    }
+
+    /**
+     * @return The read configuration with the bookmarks to wait for, the configuration itself if it
+     *         is not the read one or if there is nothing to wait for.
+     */
+    private SessionConfig causal(SessionConfig config) {
+        if (bookmarks == null || config != readSessionConfig) {
+            return config;
+        }
+        Bookmark bookmark = bookmarks.forRead();
+        if (bookmark == null) {
+            return config;
+        }
+        return SessionConfig.builder()
+                .withDefaultAccessMode(AccessMode.READ)
+                .withBookmarks(bookmark)
+                .build();
+    }
+
+    /**
+     * Records the bookmark of a session that has written, for the reads that follow.
+     *
+     * @return {@code result}
+     */
+    private <T> T written(Session session, T result) {
+        if (bookmarks != null) {
+            bookmarks.written(session.lastBookmark());
+        }
+        return result;
+    }
+
+    /**
+     * Logs a statement: at INFO with the size of the list parameters in place of their content,
+     * since the rows of an UNWIND chunk would fill the log, and at DEBUG with all the parameters.
+     */
+    private void logStatement(String method, Object query, Value parameters) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("DAOAdminNeo4jImpl." + method + ": query = " + query + ", parameters = " + parameters);
+            return;
+        }
+        StringBuilder sizes = new StringBuilder();
+        for (String key : parameters.keys()) {
+            Value value = parameters.get(key);
+            if (value.hasType(LIST)) {
+                sizes.append(sizes.length() == 0 ? "" : ", ").append(key).append(" = ").append(value.size());
+            }
+        }
+        logger.info("DAOAdminNeo4jImpl." + method + ": query = " + query + (sizes.length() == 0 ? "" : ", " + sizes));
+    }
+
+    /**
+     * {@link #logStatement(String, Object, Value)} for the parameters of a single street.
+     */
+    private void logStatement(String method, Object query, Map<String, Object> parameters) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("DAOAdminNeo4jImpl." + method + ": query = " + query + ", parameters = " + parameters);
+        } else {
+            logger.info("DAOAdminNeo4jImpl." + method + ": query = " + query + ", id = " + parameters.get("id"));
+        }
+    }
+
     @Override
-    public Result databaseRead(String query) {
+    public List<Record> databaseRead(String query) {
         logger.info("DAOAdminNeo4jImpl.databaseRead:query = " + query);
-        try {
-            if (driverRead == null)
-                throw new DatabaseNotConnectException("Database Non Connesso");
-            Session session = driverRead.session(readSessionConfig);
-            return session.run(query);
+        try (Session session = openSession(driverRead, readSessionConfig)) {
+            return session.readTransaction(tx -> tx.run(query).list());
         } catch (DatabaseNotConnectException e) {
             e.printStackTrace();
-            return null;
+            return Collections.emptyList();
         }
     }
 
     @Override
     public List<Record> databaseWrite(String query) {
-        logger.info("DAOAdminNeo4jImpl.databaseRead:query = " + query);
+        logger.info("DAOAdminNeo4jImpl.databaseWrite:query = " + query);
+        try (Session session = openSession(driverWrite, writeSessionConfig)) {
+            return written(session, session.writeTransaction(tx -> tx.run(query).list()));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public List<Record> databaseRead(CypherQuery query, Value parameters) {
+        logStatement("databaseRead", query, parameters);
+        try (Session session = openSession(driverRead, readSessionConfig)) {
+            query.executed();
+            return session.readTransaction(tx -> tx.run(query.getText(), parameters).list());
+        } catch (DatabaseNotConnectException e) {
+            e.printStackTrace();
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public <T> T databaseRead(CypherQuery query, Value parameters, Function<Iterator<Record>, T> reader) {
+        logStatement("databaseRead", query, parameters);
+        // An explicit transaction is not retried, so the reader never sees the same record twice.
+        try (Session session = openSession(driverRead, readSessionConfig);
+             Transaction tx = session.beginTransaction()) {
+            query.executed();
+            T result = reader.apply(tx.run(query.getText(), parameters));
+            tx.commit();
+            return result;
+        } catch (DatabaseNotConnectException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public long databaseStream(CypherQuery query, Value parameters, Consumer<Record> consumer) {
+        Long count = databaseRead(query, parameters, records -> {
+            long n = 0;
+            while (records.hasNext()) {
+                consumer.accept(records.next());
+                n++;
+            }
+            return n;
+        });
+        return count == null ? 0 : count;
+    }
+
+    @Override
+    public List<Record> databaseWrite(CypherQuery query, Value parameters) {
+        logStatement("databaseWrite", query, parameters);
+        try (Session session = openSession(driverWrite, writeSessionConfig)) {
+            query.executed();
+            return written(session, session.writeTransaction(tx -> tx.run(query.getText(), parameters).list()));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public CompletionStage<List<Record>> databaseReadAsync(CypherQuery query, Value parameters) {
+        logStatement("databaseReadAsync", query, parameters);
+        return withAsyncSession(driverRead, readSessionConfig, session -> {
+            query.executed();
+            return session.readTransactionAsync(tx -> tx.runAsync(query.getText(), parameters)
+                    .thenCompose(ResultCursor::listAsync));
+        });
+    }
+
+    @Override
+    public CompletionStage<List<Record>> databaseWriteAsync(CypherQuery query, Value parameters) {
+        logStatement("databaseWriteAsync", query, parameters);
+        return withAsyncSession(driverWrite, writeSessionConfig, session -> {
+            query.executed();
+            return session.writeTransactionAsync(tx -> tx.runAsync(query.getText(), parameters)
+                    .thenCompose(ResultCursor::listAsync));
+        });
+    }
 
+    /**
+     * Runs {@code work} in a new asynchronous session and closes the session
+     * before completing the returned stage, whatever the outcome of the work.
+     */
+    private <T> CompletionStage<T> withAsyncSession(Driver driver, SessionConfig config,
+                                                    Function<AsyncSession, CompletionStage<T>> work) {
+        if (driver == null) {
+            return failed(new DatabaseNotConnectException("Database Non Connesso"));
+        }
+        AsyncSession session = driver.asyncSession(causal(config));
+        CompletionStage<T> stage;
         try {
-            if (driverWrite == null)
-                throw new DatabaseNotConnectException("Database Non Connesso");
+            stage = work.apply(session);
+        } catch (RuntimeException e) {
+            stage = failed(e);
+        }
+        return stage.handle((result, error) -> {
+            if (error == null && bookmarks != null && config == writeSessionConfig) {
+                bookmarks.written(session.lastBookmark());
+            }
+            return session.closeAsync().thenCompose(closed -> {
+                if (error != null) {
+                    return DAOAdminNeo4jImpl.<T>failed(error);
+                }
+                return CompletableFuture.completedFuture(result);
+            });
+        }).thenCompose(Function.identity());
+    }
 
-            Session session = driverWrite.session(writeSessionConfig);
-            Transaction tx = session.beginTransaction();
+    private static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
 
-            List<Record> result = tx.run(query).list();
-            tx.commit();
+    /**
+     * @return The only record of a result, as {@link Result#single()} does.
+     */
+    private static Record single(List<Record> records) {
+        if (records.size() != 1) {
+            throw new NoSuchRecordException("Expected a result with a single record, but found " + records.size());
+        }
+        return records.get(0);
+    }
 
-            return result;
+    /**
+     * @return The first record of a result, as {@link Result#next()} does.
+     */
+    private static Record first(List<Record> records) {
+        if (records.isEmpty()) {
+            throw new NoSuchRecordException("Cannot access the first record of an empty result");
+        }
+        return records.get(0);
+    }
+
+    // DIRECTORY OF THE STREETS
+
+    /**
+     * @return The osmids of the endpoints of the street, {@code null} if unknown.
+     */
+    private long[] streetEndpoints(int id) {
+        return streetDirectory == null ? null : streetDirectory.lookup(id);
+    }
+
+    /**
+     * Runs a query on one street in one transaction: through its endpoints if the directory knows
+     * them, by id if it does not or if the anchored query finds nothing.
+     *
+     * @param anchored   Query matching the street by {@code $osmidStart}, {@code $osmidDest} and
+     *                   {@code $id}.
+     * @param byId       Query matching the street by {@code $id}.
+     * @param parameters Parameters of the query, including {@code id}.
+     * @return The records of the query that found the street.
+     */
+    private TransactionWork<List<Record>> streetWork(CypherQuery anchored, CypherQuery byId, int id,
+                                                     Map<String, Object> parameters) {
+        long[] endpoints = streetEndpoints(id);
+        return tx -> {
+            if (endpoints != null) {
+                Map<String, Object> anchoredParameters = new HashMap<>(parameters);
+                anchoredParameters.put("osmidStart", endpoints[0]);
+                anchoredParameters.put("osmidDest", endpoints[1]);
+                anchored.executed();
+                List<Record> records = tx.run(anchored.getText(), anchoredParameters).list();
+                if (!records.isEmpty()) {
+                    return records;
+                }
+                streetDirectory.stale(id);
+            }
+            byId.executed();
+            return tx.run(byId.getText(), parameters).list();
+        };
+    }
+
+    private List<Record> streetRead(CypherQuery anchored, CypherQuery byId, int id, Map<String, Object> parameters) {
+        logStatement("streetRead", anchored, parameters);
+        try (Session session = openSession(driverRead, readSessionConfig)) {
+            return session.readTransaction(streetWork(anchored, byId, id, parameters));
+        } catch (DatabaseNotConnectException e) {
+            e.printStackTrace();
+            return Collections.emptyList();
+        }
+    }
+
+    private List<Record> streetWrite(CypherQuery anchored, CypherQuery byId, int id, Map<String, Object> parameters) {
+        logStatement("streetWrite", anchored, parameters);
+        try (Session session = openSession(driverWrite, writeSessionConfig)) {
+            return written(session, session.writeTransaction(streetWork(anchored, byId, id, parameters)));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Asynchronous form of {@link #streetWork(CypherQuery, CypherQuery, int, Map)}.
+     */
+    private CompletionStage<List<Record>> streetQueryAsync(CypherQuery anchored, CypherQuery byId, int id,
+                                                           Map<String, Object> parameters, boolean write) {
+        logStatement("streetQueryAsync", anchored, parameters);
+        long[] endpoints = streetEndpoints(id);
+        AsyncTransactionWork<CompletionStage<List<Record>>> work = tx -> {
+            CompletionStage<List<Record>> first;
+            if (endpoints == null) {
+                first = CompletableFuture.completedFuture(Collections.emptyList());
+            } else {
+                Map<String, Object> anchoredParameters = new HashMap<>(parameters);
+                anchoredParameters.put("osmidStart", endpoints[0]);
+                anchoredParameters.put("osmidDest", endpoints[1]);
+                anchored.executed();
+                first = tx.runAsync(anchored.getText(), anchoredParameters).thenCompose(ResultCursor::listAsync);
+            }
+            return first.thenCompose(records -> {
+                if (!records.isEmpty()) {
+                    return CompletableFuture.completedFuture(records);
+                }
+                if (endpoints != null) {
+                    streetDirectory.stale(id);
+                }
+                byId.executed();
+                return tx.runAsync(byId.getText(), parameters).thenCompose(ResultCursor::listAsync);
+            });
+        };
+        return write
+                ? withAsyncSession(driverWrite, writeSessionConfig, session -> session.writeTransactionAsync(work))
+                : withAsyncSession(driverRead, readSessionConfig, session -> session.readTransactionAsync(work));
+    }
 
+    /**
+     * Updates many streets in one transaction: the ones whose endpoints are in the directory
+     * through the anchored query, the others, and the ones the anchored query has not found, by id.
+     *
+     * @param anchored Query matching the rows by {@code osmidStart}, {@code osmidDest} and
+     *                 {@code id}, returning the ids of the updated streets as {@code ids}.
+     * @param byId     Query matching the rows by {@code id}, returning {@code ids} as well.
+     * @param rows     Rows of the update, with an {@code id}.
+     * @return Ids of the updated streets, {@code null} if the transaction failed.
+     */
+    private List<Integer> streetsWrite(CypherQuery anchored, CypherQuery byId, List<Map<String, Object>> rows) {
+        logger.info("DAOAdminNeo4jImpl.streetsWrite: query = " + anchored + ", rows = " + rows.size());
+        List<Map<String, Object>> anchoredRows = new ArrayList<>();
+        List<Map<String, Object>> idRows = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            long[] endpoints = streetEndpoints((Integer) row.get("id"));
+            if (endpoints == null) {
+                idRows.add(row);
+            } else {
+                Map<String, Object> anchoredRow = new HashMap<>(row);
+                anchoredRow.put("osmidStart", endpoints[0]);
+                anchoredRow.put("osmidDest", endpoints[1]);
+                anchoredRows.add(anchoredRow);
+            }
+        }
+        try (Session session = openSession(driverWrite, writeSessionConfig)) {
+            return written(session, session.writeTransaction(tx -> {
+                List<Integer> ids = new ArrayList<>(rows.size());
+                List<Map<String, Object>> missed = new ArrayList<>(idRows);
+                if (!anchoredRows.isEmpty()) {
+                    anchored.executed();
+                    ids.addAll(tx.run(anchored.getText(), Values.parameters("rows", anchoredRows)).single()
+                            .get("ids").asList(Value::asInt));
+                    if (ids.size() < anchoredRows.size()) {
+                        Set<Integer> found = new HashSet<>(ids);
+                        for (Map<String, Object> row : anchoredRows) {
+                            Integer id = (Integer) row.get("id");
+                            if (!found.contains(id)) {
+                                streetDirectory.stale(id);
+                                missed.add(row);
+                            }
+                        }
+                    }
+                }
+                if (!missed.isEmpty()) {
+                    byId.executed();
+                    ids.addAll(tx.run(byId.getText(), Values.parameters("rows", missed)).single()
+                            .get("ids").asList(Value::asInt));
+                }
+                return ids;
+            }));
         } catch (Exception e) {
             e.printStackTrace();
             return null;
@@ -110,7 +526,41 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
 
     /**
      * Executed Query <br>
-     * "MERGE (a:Intersection {longitude: c.getLongitude(), latitude:+ c.getLatitude(), highway: highway, osmid: osmid, ref: ref, betweenness: 0, parking: parking, hospital: hospital, busStop: busStop, museum: museum}) RETURN a.osmid"
+     * MATCH (a:Intersection)-[r:STREET]->(b:Intersection) RETURN r.id, a.osmid, b.osmid
+     */
+    @Override
+    public long loadStreetDirectory(int generation) {
+        logger.info("DAOAdminNeo4jImpl.loadStreetDirectory: generation = " + generation);
+        if (streetDirectory == null) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        Long count = databaseRead(CypherQuery.GET_STREET_ENDPOINTS, Values.EmptyMap, records -> {
+            long n = 0;
+            while (records.hasNext()) {
+                Record r = records.next();
+                if (!streetDirectory.putLoaded(generation, r.get("id").asInt(), r.get("osmidStart").asLong(),
+                        r.get("osmidDest").asLong())) {
+                    return -1L;
+                }
+                n++;
+            }
+            return n;
+        });
+        streetDirectory.finishLoading(generation, count != null && count >= 0, System.currentTimeMillis() - start);
+        return count == null ? -1 : count;
+    }
+
+    @Override
+    public Map<String, Long> getQueryStatistics() {
+        logger.info("DAOAdminNeo4jImpl.getQueryStatistics");
+        return CypherQuery.getExecutionCounts();
+    }
+
+    /**
+     * Executed Query <br>
+     * MERGE (a:Intersection {osmid: osmid}) ON CREATE SET a.betweenness = 0 <br>
+     * SET a.longitude = longitude, a.latitude = latitude, a.highway = highway, ... RETURN a.osmid
      */
     @Override
     public Intersection addIntersection(Coordinate c, String highway, long osmid, String ref, boolean parking,
@@ -118,11 +568,10 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
         logger.info("DAOAdminNeo4jImpl.addIntersection: c = " + c + ", highway = " + highway + ", osmid = " + osmid + ", ref = " + ref + ", parking = " + parking + ", hospital = " + hospital + ", busStop = " + busStop + ", museum = " + museum);
 
         Intersection result = null;
-        String query = "MERGE (a:Intersection {longitude: " + c.getLongitude() + ", latitude: " + c.getLatitude()
-                + ", highway: \"" + highway + "\", osmid: " + osmid + ", ref: \"" + ref
-                + "\",  betweenness: 0, parking: " + parking + ", hospital: " + hospital + ", busStop: " + busStop
-                + ", museum: " + museum + "})" + " RETURN a.osmid";
-        Record resultRecord = databaseWrite(query).get(0);
+        Value parameters = Values.parameters("longitude", c.getLongitude(), "latitude", c.getLatitude(),
+                "highway", text(highway), "osmid", osmid, "ref", text(ref), "parking", parking, "hospital", hospital,
+                "busStop", busStop, "museum", museum);
+        Record resultRecord = databaseWrite(CypherQuery.ADD_INTERSECTION, parameters).get(0);
         if (resultRecord.get("a.osmid").asLong() == osmid) {
             result = new Intersection(c, highway, osmid, ref, parking, hospital, busStop, museum);
         }
@@ -130,14 +579,43 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
         return result;
     }
 
+    /**
+     * Executed Query <br>
+     * UNWIND $rows AS row MERGE (a:Intersection {osmid: row.osmid}) ON CREATE SET a.betweenness = 0 <br>
+     * SET a.longitude = row.longitude, ... RETURN count(a)
+     */
+    @Override
+    public int addIntersections(List<Intersection> intersections) {
+        logger.info("DAOAdminNeo4jImpl.addIntersections: intersections = " + intersections.size());
+
+        List<Map<String, Object>> rows = new ArrayList<>(intersections.size());
+        for (Intersection i : intersections) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("longitude", i.getCoordinate().getLongitude());
+            row.put("latitude", i.getCoordinate().getLatitude());
+            row.put("highway", text(i.getHighway()));
+            row.put("osmid", i.getOsmid());
+            row.put("ref", text(i.getRef()));
+            row.put("parking", i.isParking());
+            row.put("hospital", i.isHospital());
+            row.put("busStop", i.isBusStop());
+            row.put("museum", i.isMuseum());
+            rows.add(row);
+        }
+
+        List<Record> result = databaseWrite(CypherQuery.ADD_INTERSECTIONS, Values.parameters("rows", rows));
+        if (result == null || result.isEmpty()) {
+            logger.error("Error in addIntersections()");
+            return 0;
+        }
+        return result.get(0).get("written").asInt();
+    }
+
     /**
      * Executed Query <br>
      * MATCH (a:Intersection {osmid: osmidStart}), (b:Intersection {osmid: osmidDest}) <br>
-     * MERGE (a)-[r:STREET {id: id + ", coordinates :[coordinates], access: access, area: area, bridge :bridge,
-     * osmidStart: osmidStart, osmidDest: osmidDest, highway: highway, junction: junction, key: key,
-     * arrayLanes: [arrayLanes], length: length, maxSpeed: maxSpeed, name: name, oneWay: oneWay,
-     * osmidEdges : [osmidEdges], ref: ref, transportService: transportService, tunnel: tunnel, width: width,
-     * origId: origId, weight: weight, flow: flow, averageTravelTime :averageTravelTime, interrupted: interrupted}]->(b)<br>
+     * MERGE (a)-[r:STREET {id: id}]->(b) <br>
+     * SET r.longitudes = [longitudes], r.latitudes = [latitudes], r.access = access, ..., r.interrupted = interrupted <br>
      * RETURN r.id
      */
     @Override
@@ -148,74 +626,97 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
                             double averageTravelTime, boolean interrupted) {
         logger.info("DAOAdminNeo4jImpl.addStreet: coordinates = " + coordinates + ", id = " + id + ", access = " + access + ", area = " + area + ", bridge = " + bridge + ", osmidStart = " + osmidStart + ", osmidDest = " + osmidDest + ", highway = " + highway + ", junction = " + junction + ", key = " + key + ", arrayLanes = " + arrayLanes + ", length = " + length + ", maxSpeed = " + maxSpeed + ", name = " + name + ", oneWay = " + oneWay + ", osmidEdges = " + osmidEdges + ", ref = " + ref + ", transportService = " + transportService + ", tunnel = " + tunnel + ", width = " + width + ", origId = " + origId + ", weight = " + weight + ", flow = " + flow + ", averageTravelTime = " + averageTravelTime + ", interrupted = " + interrupted);
 
-        StringBuilder sbLanes = new StringBuilder();
-        StringBuilder sbEdges = new StringBuilder();
-        StringBuilder sbCoordinates = new StringBuilder();
-
-        int i = 0;
+        Street street = new Street(coordinates, id, access, area, bridge, osmidStart, osmidDest, highway, junction,
+                key, arrayLanes, length, maxSpeed, name, oneWay, osmidEdges, ref, transportService, tunnel, width, origId,
+                weight, flow, averageTravelTime, interrupted);
 
-        if (arrayLanes == null) {
-            sbLanes.append("");
-        } else if (arrayLanes.isEmpty()) {
-            sbLanes.append("");
-        } else {
-            for (; i < arrayLanes.size() - 1; i++) {
-                sbLanes.append(arrayLanes.get(i) + ", ");
+        Record resultRecord = databaseWrite(CypherQuery.ADD_STREET, Values.value(streetRow(street))).get(0);
+        if (resultRecord.get("r.id").asLong() == id) {
+            if (streetDirectory != null) {
+                streetDirectory.put(id, osmidStart, osmidDest);
             }
-            sbLanes.append(arrayLanes.get(i));
+            return street;
         }
+        return null;
+    }
 
-        if (osmidEdges == null) {
-            sbEdges.append("");
-        } else if (osmidEdges.isEmpty()) {
-            sbEdges.append("");
-        } else {
-            for (i = 0; i < osmidEdges.size() - 1; i++) {
-                sbEdges.append(osmidEdges.get(i) + ", ");
-            }
-            sbEdges.append(osmidEdges.get(i));
+    /**
+     * Executed Query <br>
+     * UNWIND $rows AS row MATCH (a:Intersection {osmid: row.osmidStart}), (b:Intersection {osmid: row.osmidDest}) <br>
+     * MERGE (a)-[r:STREET {id: row.id}]->(b) SET r.longitudes = row.longitudes, ... RETURN collect(r.id) AS ids
+     */
+    @Override
+    public List<Integer> addStreets(List<Street> streets) {
+        logger.info("DAOAdminNeo4jImpl.addStreets: streets = " + streets.size());
+
+        List<Map<String, Object>> rows = new ArrayList<>(streets.size());
+        for (Street s : streets) {
+            rows.add(streetRow(s));
         }
 
-        if (coordinates == null) {
-            sbCoordinates.append("");
-        } else if (coordinates.isEmpty()) {
-            sbCoordinates.append("");
-        } else {
-            for (i = 0; i < coordinates.size() - 1; i++) {
-                sbCoordinates.append(coordinates.get(i) + ", ");
+        List<Record> result = databaseWrite(CypherQuery.ADD_STREETS, Values.parameters("rows", rows));
+        if (result == null || result.isEmpty()) {
+            logger.error("Error in addStreets()");
+            return null;
+        }
+        List<Integer> ids = result.get(0).get("ids").asList(Value::asInt);
+        if (streetDirectory != null) {
+            // a street not written for a missing endpoint must not be anchored to it
+            Set<Integer> written = new HashSet<>(ids);
+            for (Street s : streets) {
+                if (written.contains(s.getId())) {
+                    streetDirectory.put(s.getId(), s.getOsmidStart(), s.getOsmidDest());
+                }
             }
-            sbCoordinates.append(coordinates.get(i));
-        }
-        String query = "MATCH (a:Intersection {osmid: " + osmidStart + "}), (b:Intersection {osmid: " + osmidDest
-                + "}) " + "MERGE (a)-[r:STREET {id: " + id + ", coordinates : \"" + sbCoordinates + "\""
-                + ", access : \"" + access + "\"" + ", area : \"" + area + "\"" + ", bridge : \"" + bridge + "\""
-                + ", osmidStart : " + osmidStart + ", osmidDest : " + osmidDest + ", highway : \"" + highway + "\""
-                + ", junction : \"" + junction + "\"" + ", key : " + key + ", arrayLanes : [" + sbLanes.toString() + "]"
-                + ", length : " + length + ", maxSpeed : \"" + maxSpeed + "\"" + ", name : \"" + name + "\""
-                + ", oneWay : " + oneWay + ", osmidEdges : [" + sbEdges.toString() + "]" + ", ref : \"" + ref + "\""
-                + ", transportService : " + transportService + ", tunnel : \"" + tunnel + "\"" + ", width : \"" + width
-                + "\"" + ", origId : " + origId + ", weight : " + weight + ", flow : " + flow + ", averageTravelTime : "
-                + averageTravelTime + ", interrupted : " + interrupted + "}]->(b) " + "RETURN r.id";
-
-        Record resultRecord = databaseWrite(query).get(0);
-        if (resultRecord.get("r.id").asLong() == id) {
-            return new Street(coordinates, id, access, area, bridge, osmidStart, osmidDest, highway, junction, key,
-                    arrayLanes, length, maxSpeed, name, oneWay, osmidEdges, ref, transportService, tunnel, width, origId,
-                    weight, flow, averageTravelTime, interrupted);
         }
-        return null;
+        return ids;
+    }
+
+    /**
+     * Converts a Street in the properties of its STREET relationship.
+     */
+    private Map<String, Object> streetRow(Street s) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", s.getId());
+        putGeometry(row, s.getCoordinates());
+        row.put("access", text(s.getAccess()));
+        row.put("area", text(s.getArea()));
+        row.put("bridge", text(s.getBridge()));
+        row.put("osmidStart", s.getOsmidStart());
+        row.put("osmidDest", s.getOsmidDest());
+        row.put("highway", text(s.getHighway()));
+        row.put("junction", text(s.getJunction()));
+        row.put("key", s.getKey());
+        row.put("arrayLanes", s.getArrayLanes() == null ? Collections.emptyList() : s.getArrayLanes());
+        row.put("length", s.getLenght());
+        row.put("maxSpeed", text(s.getMaxSpeed()));
+        row.put("name", text(s.getName()));
+        row.put("oneWay", s.isOneWay());
+        row.put("osmidEdges", s.getOsmidEdges() == null ? Collections.emptyList() : s.getOsmidEdges());
+        row.put("ref", text(s.getRef()));
+        row.put("transportService", s.isTransportService());
+        row.put("tunnel", text(s.getTunnel()));
+        row.put("width", text(s.getWidth()));
+        row.put("origId", s.getOrigId());
+        row.put("weight", s.getWeight());
+        row.put("flow", s.getFlow());
+        row.put("averageTravelTime", s.getAverageTravelTime());
+        row.put("interrupted", s.isInterrupted());
+        return row;
     }
 
     /**
      * Executed Query <br>
+     * MATCH (a:Intersection {osmid: osmidStart})-[r:STREET {id: id}]->(b:Intersection {osmid: osmidDest})
+     * SET r.weight = weight RETURN r.id <br>
+     * or, if the endpoints are not in the directory, <br>
      * MATCH (a:Intersection)-[r:STREET]->(b:Intersection) WHERE r.id = id SET r.weight=weight RETURN r.id
      */
     @Override
     public Street setStreetWeight(int id, double weight) {
         logger.info("DAOAdminNeo4jImpl.setStreetWeight: id = " + id + ", weight = " + weight);
-        String query = "MATCH (a:Intersection)-[r:STREET]->(b:Intersection) WHERE r.id = " + id + " SET r.weight= "
-                + weight + " RETURN r.id";
-        Record resultRecord = databaseWrite(query).get(0);
+        Record resultRecord = streetWrite(CypherQuery.SET_STREET_WEIGHT_ANCHORED, CypherQuery.SET_STREET_WEIGHT, id,
+                Values.parameters("id", id, "weight", weight).asMap()).get(0);
 
         //Record r = result.single();
 
@@ -227,6 +728,55 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
         }
     }
 
+    /**
+     * Executed Queries, in one transaction <br>
+     * UNWIND $rows AS row MATCH (a:Intersection {osmid: row.osmidStart})-[r:STREET {id: row.id}]->(b:Intersection
+     * {osmid: row.osmidDest}) SET r.weight = row.weight RETURN collect(r.id) AS ids <br>
+     * for the streets whose endpoints are in the directory, <br>
+     * UNWIND $rows AS row MATCH ()-[r:STREET {id: row.id}]->() SET r.weight = row.weight
+     * RETURN collect(r.id) AS ids <br>
+     * for the others
+     */
+    @Override
+    public List<Integer> setStreetWeights(Map<Integer, Double> weights) {
+        logger.info("DAOAdminNeo4jImpl.setStreetWeights: size = " + weights.size());
+        List<Map<String, Object>> rows = new ArrayList<>(weights.size());
+        for (Map.Entry<Integer, Double> e : weights.entrySet()) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", e.getKey());
+            row.put("weight", e.getValue());
+            rows.add(row);
+        }
+        List<Integer> ids = streetsWrite(CypherQuery.SET_STREET_WEIGHTS_ANCHORED, CypherQuery.SET_STREET_WEIGHTS, rows);
+        if (ids == null) {
+            logger.error("Error in setStreetWeights()");
+        }
+        return ids;
+    }
+
+    /**
+     * Executed Query <br>
+     * UNWIND $rows AS row MATCH (a:Intersection {osmid: row.osmid}) SET a.betweenness = row.betweenness
+     * RETURN count(a) AS written
+     */
+    @Override
+    public int setBetweennessIntersections(Map<Long, Double> betweenness) {
+        logger.info("DAOAdminNeo4jImpl.setBetweennessIntersections: size = " + betweenness.size());
+        List<Map<String, Object>> rows = new ArrayList<>(betweenness.size());
+        for (Map.Entry<Long, Double> e : betweenness.entrySet()) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("osmid", e.getKey());
+            row.put("betweenness", e.getValue());
+            rows.add(row);
+        }
+        List<Record> result = databaseWrite(CypherQuery.SET_BETWEENNESS_INTERSECTIONS, Values.parameters("rows", rows));
+        if (result == null || result.isEmpty()) {
+            logger.error("Error in setBetweennessIntersections()");
+            return 0;
+        }
+        return result.get(0).get("written").asInt();
+    }
+
     /**
      * Executed Query <br>
      * MATCH (a:Intersection {osmid: osmid}) SET a.betweenness = betweenness RETURN properties(a)
@@ -235,10 +785,8 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
     public Intersection setBetweennessIntersection(long osmid, double betweenness) {
         logger.info("DAOAdminNeo4jImpl.setBetweennessIntersection: osmid = " + osmid + ", betweenness = " + betweenness);
 
-        String query = "MATCH (a:Intersection {osmid:" + osmid + "}) SET a.betweenness =" + betweenness
-                + " RETURN properties(a)";
-
-        Record resultRecord = databaseWrite(query).get(0);
+        Record resultRecord = databaseWrite(CypherQuery.SET_BETWEENNESS_INTERSECTION,
+                Values.parameters("osmid", osmid, "betweenness", betweenness)).get(0);
 
         Value r = resultRecord.get("properties(a)");
         // String nome = r.get("name").asString();
@@ -264,10 +812,7 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
     public Intersection getIntersection(long osmid) {
         logger.info("DAOAdminNeo4jImpl.getIntersection: osmid = " + osmid);
 
-        String query = "MATCH (a:Intersection {osmid:" + osmid + "}) RETURN properties(a)";
-
-
-        Record resultRecord = databaseRead(query).single();
+        Record resultRecord = single(databaseRead(CypherQuery.GET_INTERSECTION, Values.parameters("osmid", osmid)));
         Value v = resultRecord.get("properties(a)");
 
         return convertIntersection(v);
@@ -282,11 +827,8 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
     public Intersection getIntersectionLight(long osmid) {
         logger.info("DAOAdminNeo4jImpl.getIntersectionLight: osmid = " + osmid);
 
-        String query = "MATCH (a:Intersection {osmid:" + osmid + "}) RETURN properties(a)";
-
-
-        Record resultRecord = databaseRead(query).single();
         try {
+            Record resultRecord = single(databaseRead(CypherQuery.GET_INTERSECTION, Values.parameters("osmid", osmid)));
             Value v = resultRecord.get("properties(a)");
 
             return convertIntersection(v);
@@ -304,89 +846,47 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
     public Street getStreet(long osmidS, long osmidD) {
         logger.info("DAOAdminNeo4jImpl.getStreet: osmidS = " + osmidS + ", osmidD = " + osmidD);
         // TEST NODES 13445152 3991897787
-        String query = "MATCH (a:Intersection{osmid:" + osmidS + "})-[r:STREET]->(b:Intersection{osmid:" + osmidD
-                + "}) RETURN properties(r)";
-
-        Result result = databaseRead(query);
-        Record r = result.next();
-
-        Value v = r.get("properties(r)");
-
-        String sCord = v.get("coordinates").asString();
-
-        ArrayList<Coordinate> coordinates = getCoordinateList(sCord);
-
-        int ids = v.get("id").asInt();
-        String access = v.get("access").asString();
-        String area = v.get("area").asString();
-        String bridge = v.get("bridge").asString();
-        long osmidStart = v.get("osmidStart").asLong();
-        long osmidDest = v.get("osmidDest").asLong();
-        String highway = v.get("highway").asString();
-        String junction = v.get("junction").asString();
-        int key = v.get("key").asInt();
-        List<Object> listLanes = v.get("arrayLanes").asList();
-        ArrayList<Integer> arrayLanes = new ArrayList<>();
-        for (Object o : listLanes) {
-            arrayLanes.add(((Long) o).intValue());
-        }
-
-        double length = v.get("length").asDouble();
-        String maxSpeed = v.get("maxSpeed").asString();
-        String name = v.get("name").asString();
-        boolean oneWay = v.get("oneWay").asBoolean();
-        List<Object> listEdges = v.get("osmidEdges").asList();
-        ArrayList<Long> osmidEdges = new ArrayList<>();
-        for (Object o : listEdges) {
-            osmidEdges.add((Long) o);
-        }
-        String ref = v.get("ref").asString();
-        boolean transportService = v.get("transportService").asBoolean();
-        String tunnel = v.get("tunnel").asString();
-        String width = v.get("width").asString();
-        long origId = v.get("origId").asLong();
-        double weight = v.get("weight").asDouble();
-        double flow = v.get("flow").asDouble();
-        double averageTravelTime = v.get("averageTravelTime").asDouble();
-        boolean interrupted = v.get("interrupted").asBoolean();
-
-        return new Street(coordinates, ids, access, area, bridge, osmidStart, osmidDest, highway, junction, key,
-                arrayLanes, length, maxSpeed, name, oneWay, osmidEdges, ref, transportService, tunnel, width, origId,
-                weight, flow, averageTravelTime, interrupted);
+        Record r = first(databaseRead(CypherQuery.GET_STREET_BY_ENDPOINTS,
+                Values.parameters("osmidStart", osmidS, "osmidDest", osmidD)));
 
+        return convertStreet(r.get("properties(r)"));
     }
 
 
     /**
      * Executed Query <br>
-     * MATCH (a:Intersection{osmid: osmidS})-[r:STREET]->(b:Intersection{osmid: osmidD}) RETURN r.coordinates
+     * MATCH (a:Intersection{osmid: osmidS})-[r:STREET]->(b:Intersection{osmid: osmidD}) RETURN r.longitudes, r.latitudes
      */
     @Override
     public ArrayList<Coordinate> getStreetGeometry(long osmidS, long osmidD) {
         logger.info("DAOAdminNeo4jImpl.getStreetGeometry: osmidS = " + osmidS + ", osmidD = " + osmidD);
-        String query = "MATCH (a:Intersection{osmid:" + osmidS + "})-[r:STREET]->(b:Intersection{osmid:" + osmidD
-                + "}) RETURN r.coordinates";
-
-        String sCord = databaseRead(query).list().get(0).get("r.coordinates").asString();
-        return getCoordinateList(sCord);
+        Record r = first(databaseRead(CypherQuery.GET_STREET_GEOMETRY,
+                Values.parameters("osmidStart", osmidS, "osmidDest", osmidD)));
+        return getCoordinateList(r.get("longitudes"), r.get("latitudes"), r.get("coordinates"));
     }
 
     /**
      * Executed Query <br>
-     * MATCH (a:Intersection{osmid: osmidS})-[r:STREET]->(b:Intersection{osmid: osmidD}) RETURN properties(r)
+     * MATCH (a:Intersection{osmid: osmidS})-[r:STREET {id: id}]->(b:Intersection{osmid: osmidD}) RETURN properties(r) <br>
+     * or, if the endpoints are not in the directory, <br>
+     * MATCH (a:Intersection)-[r:STREET]->(b:Intersection) WHERE r.id = id RETURN properties(r)
      */
     @Override
     public Street getStreet(int id) {
         logger.info("DAOAdminNeo4jImpl.getStreet: id = " + id);
 
-        String query = "MATCH (a:Intersection)-[r:STREET]->(b:Intersection) WHERE r.id=" + id + " RETURN properties(r)";
-        Result result = databaseRead(query);
-        Record r = result.single();
-        Value v = r.get("properties(r)");
+        Record r = single(streetRead(CypherQuery.GET_STREET_BY_ID_ANCHORED, CypherQuery.GET_STREET_BY_ID, id,
+                Values.parameters("id", id).asMap()));
 
-        String sCord = v.get("coordinates").asString();
+        return convertStreet(r.get("properties(r)"));
+    }
 
-        ArrayList<Coordinate> coordinates = getCoordinateList(sCord);
+    /**
+     * Converts the properties of a STREET relationship in a Street.
+     */
+    private Street convertStreet(Value v) {
+        ArrayList<Coordinate> coordinates = getCoordinateList(v.get("longitudes"), v.get("latitudes"),
+                v.get("coordinates"));
 
         int ids = v.get("id").asInt();
         String access = v.get("access").asString();
@@ -397,23 +897,23 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
         String highway = v.get("highway").asString();
         String junction = v.get("junction").asString();
         int key = v.get("key").asInt();
-//		List<Object> listLanes = v.get("arrayLanes").asList();
         ArrayList<Integer> arrayLanes = new ArrayList<>();
-        // TODO
-        // for (Object o : listLanes) {
-        // arrayLanes.add(((Long) o).intValue());
-        // }
+        if (!v.get("arrayLanes").isNull()) {
+            for (Object o : v.get("arrayLanes").asList()) {
+                arrayLanes.add(((Number) o).intValue());
+            }
+        }
 
         double length = v.get("length").asDouble();
         String maxSpeed = v.get("maxSpeed").asString();
         String name = v.get("name").asString();
         boolean oneWay = v.get("oneWay").asBoolean();
-//		List<Object> listEdges = v.get("osmidEdges").asList();
-        // TODO
         ArrayList<Long> osmidEdges = new ArrayList<>();
-//		for (Object o : listEdges) {
-//			osmidEdges.add((Long) o);
-//		}
+        if (!v.get("osmidEdges").isNull()) {
+            for (Object o : v.get("osmidEdges").asList()) {
+                osmidEdges.add(((Number) o).longValue());
+            }
+        }
         String ref = v.get("ref").asString();
         boolean transportService = v.get("transportService").asBoolean();
         String tunnel = v.get("tunnel").asString();
@@ -427,11 +927,55 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
         return new Street(coordinates, ids, access, area, bridge, osmidStart, osmidDest, highway, junction, key,
                 arrayLanes, length, maxSpeed, name, oneWay, osmidEdges, ref, transportService, tunnel, width, origId,
                 weight, flow, averageTravelTime, interrupted);
+    }
+
+    /**
+     * String properties used to be concatenated inside double quotes, so a missing value was stored
+     * as the text "null". Keeps that representation now that the values are bound as parameters.
+     */
+    private static String text(String value) {
+        return String.valueOf(value);
+    }
 
+    /**
+     * Stores the geometry of a street as the parallel {@code longitudes} and {@code latitudes} lists.
+     */
+    private static void putGeometry(Map<String, Object> row, List<Coordinate> coordinates) {
+        int size = coordinates == null ? 0 : coordinates.size();
+        List<Double> longitudes = new ArrayList<>(size);
+        List<Double> latitudes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            longitudes.add(coordinates.get(i).getLongitude());
+            latitudes.add(coordinates.get(i).getLatitude());
+        }
+        row.put("longitudes", longitudes);
+        row.put("latitudes", latitudes);
     }
 
+    /**
+     * Reads the geometry of a street from the parallel {@code longitudes} and {@code latitudes}
+     * lists. Relationships not migrated yet still carry the {@code coordinates} text.
+     */
+    private ArrayList<Coordinate> getCoordinateList(Value longitudes, Value latitudes, Value legacy) {
+        if (longitudes.isNull()) {
+            return getCoordinateList(legacy.asString());
+        }
+        int size = longitudes.size();
+        ArrayList<Coordinate> coordinates = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            coordinates.add(new Coordinate(longitudes.get(i).asDouble(), latitudes.get(i).asDouble()));
+        }
+        return coordinates;
+    }
+
+    /**
+     * Parses the legacy geometry, stored as the text of a list of {@link Coordinate}.
+     */
     private ArrayList<Coordinate> getCoordinateList(String sCord) {
         logger.info("DAOAdminNeo4jImpl.getCoordinateList: sCord = " + sCord);
+        if (sCord.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
 
         sCord = sCord.replaceAll("Coordinate ", "");
         sCord = sCord.replaceAll("\\[longitude\\=", "");
@@ -454,23 +998,17 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
 
     /**
      * Executed Query <br>
-     * MATCH (a:Intersection{osmid: osmidS})-[r:STREET]->(b:Intersection{osmid: osmidD}) RETURN collect(r.id) as ids
+     * MATCH (a:Intersection {osmid: osmid})-[r:STREET]->() RETURN properties(r)
      */
     @Override
     public HashMap<Integer, Street> getStreets(long osmid) {
         logger.info("DAOAdminNeo4jImpl.getStreets: osmid = " + osmid);
 
-        String query = "MATCH (a:Intersection {osmid:" + osmid + "})-[r:STREET]->(b:Intersection)"
-                + " RETURN collect(r.id) as ids";
-        Result result = databaseRead(query);
-
         HashMap<Integer, Street> strade = new HashMap<>();
-        List<Object> ids = result.single().get("ids").asList();
-        for (Object o : ids) {
-            int id = ((Long) o).intValue();
-            Street s = getStreet(id);
-            strade.put(id, s);
-        }
+        databaseStream(CypherQuery.GET_STREETS, Values.parameters("osmid", osmid), r -> {
+            Street s = convertStreet(r.get("properties(r)"));
+            strade.put(s.getId(), s);
+        });
         return strade;
     }
 
@@ -481,19 +1019,70 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
     @Override
     public void deleteIntersection(long osmid) {
         logger.info("DAOAdminNeo4jImpl.deleteIntersection: osmid = " + osmid);
-        String query = "MATCH (a:Intersection {osmid:" + osmid + "}) DETACH DELETE a";
-        databaseWrite(query);
+        databaseWrite(CypherQuery.DELETE_INTERSECTION, Values.parameters("osmid", osmid));
+        if (streetDirectory != null) {
+            streetDirectory.removeIntersection(osmid);
+        }
     }
 
     /**
      * Executed Query <br>
+     * MATCH (a:Intersection {osmid: osmidStart})-[r:STREET {id: id}]->(b:Intersection {osmid: osmidDest}) DELETE r <br>
+     * or, if the endpoints are not in the directory, <br>
      * MATCH ()-[r:STREET]->() WHERE r.id = id DELETE r
      */
     @Override
     public void deleteStreet(int id) {
         logger.info("DAOAdminNeo4jImpl.deleteStreet: id = " + id);
-        String query = "MATCH ()-[r:STREET]->() WHERE r.id = " + id + " DELETE r";
-        databaseWrite(query);
+        streetWrite(CypherQuery.DELETE_STREET_ANCHORED, CypherQuery.DELETE_STREET, id,
+                Values.parameters("id", id).asMap());
+        if (streetDirectory != null) {
+            streetDirectory.remove(id);
+        }
+    }
+
+    /**
+     * Executed Query <br>
+     * MATCH ()-[r:STREET]->() WHERE r.longitudes IS NULL AND r.coordinates IS NOT NULL RETURN r.id, r.coordinates LIMIT batchSize<br>
+     * UNWIND $rows AS row MATCH ()-[r:STREET {id: row.id}]->() SET r.longitudes = row.longitudes, r.latitudes = row.latitudes REMOVE r.coordinates RETURN count(r)<br>
+     * UNWIND $ids AS id MATCH ()-[r:STREET {id: id}]->() SET r.geometryInvalid = true RETURN count(r)
+     */
+    @Override
+    public GeometryMigrationBatch migrateStreetGeometry(int batchSize) {
+        logger.info("DAOAdminNeo4jImpl.migrateStreetGeometry: batchSize = " + batchSize);
+
+        List<Record> legacy = databaseRead(CypherQuery.GET_LEGACY_STREET_GEOMETRIES,
+                Values.parameters("limit", batchSize));
+        List<Map<String, Object>> rows = new ArrayList<>(legacy.size());
+        List<Integer> invalid = new ArrayList<>();
+        for (Record r : legacy) {
+            int id = r.get("id").asInt();
+            try {
+                Map<String, Object> row = new HashMap<>();
+                row.put("id", id);
+                putGeometry(row, getCoordinateList(r.get("coordinates").asString()));
+                rows.add(row);
+            } catch (RuntimeException e) {
+                logger.error("Unreadable geometry of STREET " + id + ", flagged with geometryInvalid", e);
+                invalid.add(id);
+            }
+        }
+        int migrated = 0;
+        if (!rows.isEmpty()) {
+            migrated = count(databaseWrite(CypherQuery.MIGRATE_STREET_GEOMETRIES, Values.parameters("rows", rows)));
+        }
+        int flagged = 0;
+        if (!invalid.isEmpty()) {
+            flagged = count(databaseWrite(CypherQuery.FLAG_INVALID_STREET_GEOMETRIES, Values.parameters("ids", invalid)));
+        }
+        return new GeometryMigrationBatch(legacy.size(), migrated, flagged);
+    }
+
+    /**
+     * @return The {@code written} count of a write, 0 if the transaction failed.
+     */
+    private static int count(List<Record> result) {
+        return result == null || result.isEmpty() ? 0 : result.get(0).get("written").asInt();
     }
 
     private ArrayList<Intersection> extractIntersectionArrayList(Result result) {
@@ -521,38 +1110,38 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
     @Override
     public int getLinkKey(long osmidStart, long osmidDest) {
         logger.info("DAOAdminNeo4jImpl.getLinkKey: osmidStart = " + osmidStart + ", osmidDest = " + osmidDest);
-        String query = "MATCH (a:Intersection{osmid:" + osmidStart + "})-[r:STREET]->(b:Intersection{osmid:" + osmidDest
-                + "}) RETURN r.id";
-        Result result = databaseRead(query);
+        Record r = single(databaseRead(CypherQuery.GET_LINK_KEY,
+                Values.parameters("osmidStart", osmidStart, "osmidDest", osmidDest)));
 
-        return result.single().get("r.id").asInt();
+        return r.get("r.id").asInt();
     }
 
     @Override
+    @Deprecated
     public void updateBetweennesExact() {
         logger.info("DAOAdminNeo4jImpl.updateBetweennesExact");
-        String query = "CALL algo.betweenness('Intersection','STREET', {direction:'out',write:true, writeProperty:'betweenness', weightProperty:'weight'})";
-        databaseWrite(query);
+        databaseWrite(CypherQuery.UPDATE_BETWEENNESS_EXACT, Values.EmptyMap);
         setLastModified();
     }
 
     @Override
+    @Deprecated
     public void updateBetweeennessBrandesRandom() {
         logger.info("DAOAdminNeo4jImpl.updateBetweeennessBrandesRandom");
-        String query = "CALL algo.betweenness.sampled('Intersection','STREET', {strategy:'random', direction: \"out\", writeProperty:'betweenness',probability: 1, maxDepth: 4, weightProperty:'weight'})";
-        databaseWrite(query);
+        databaseWrite(CypherQuery.UPDATE_BETWEENNESS_BRANDES_RANDOM, Values.EmptyMap);
         setLastModified();
     }
 
     @Override
+    @Deprecated
     public void updateBetweeennessBrandesDegree() {
         logger.info("DAOAdminNeo4jImpl.updateBetweeennessBrandesDegree");
-        String query = "CALL algo.betweenness.sampled('Intersection','STREET', {strategy:'degree', direction: \"out\", writeProperty:'betweenness',probability: 1, maxDepth: 4, weightProperty:'weight'})";
-        databaseWrite(query);
+        databaseWrite(CypherQuery.UPDATE_BETWEENNESS_BRANDES_DEGREE, Values.EmptyMap);
         setLastModified();
     }
 
     @Override
+    @Deprecated
     public void updateBetweenness() {
         logger.info("DAOAdminNeo4jImpl.updateBetweenness");
         this.updateBetweeennessBrandesDegree();
@@ -561,28 +1150,34 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
     @Override
     public LocalDateTime getLastModified() {
         logger.info("DAOAdminNeo4jImpl.getLastModified");
-        Result result = databaseRead("MATCH (a:Control) Return a.timestamp");
-        Record r = result.single();
+        Record r = single(databaseRead(CypherQuery.GET_LAST_MODIFIED, Values.EmptyMap));
         LocalDateTime ldt = r.get("a.timestamp").asLocalDateTime();
         return ldt;
     }
 
     @Override
-    public void setLastModified() {
+    public VersionStamp setLastModified() {
         logger.info("DAOAdminNeo4jImpl.setLastModified");
         //todo deploy kafka
 //        String query = "MATCH (a:Control)  SET a.timestamp = localdatetime() WITH a CALL streams.publish('test', a.timestamp) Return *";
-        String query = "MATCH (a:Control)  SET a.timestamp = localdatetime()";
-        databaseWrite(query);
+        return versionStamp(databaseWrite(CypherQuery.SET_LAST_MODIFIED, Values.EmptyMap));
+    }
+
+    private static VersionStamp versionStamp(List<Record> records) {
+        if (records.isEmpty()) {
+            return null;
+        }
+        Record r = records.get(0);
+        return new VersionStamp(r.get("previous").asLocalDateTime(null), r.get("timestamp").asLocalDateTime());
     }
 
 
     @Override
     public void setStreetInterrupted(int id, boolean interrupted) throws Exception {
         logger.info("DAOAdminNeo4jImpl.setStreetInterrupted: id = " + id + ", interrupted = " + interrupted);
-        String query = "MATCH ()-[s:STREET{id:" + id + "}]->() SET s.interrupted= " + interrupted + " return s.id";
-
-        Record resultRecord = databaseWrite(query).get(0);
+        Record resultRecord = streetWrite(CypherQuery.SET_STREET_INTERRUPTED_ANCHORED,
+                CypherQuery.SET_STREET_INTERRUPTED, id, Values.parameters("id", id, "interrupted", interrupted).asMap())
+                .get(0);
 
         if (resultRecord.get("s.id").asInt() != id) {
             throw new Exception("setStreetInterrupted(" + id + ") Error");
@@ -590,6 +1185,33 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
 
     }
 
+    /**
+     * Executed Queries, in one transaction <br>
+     * UNWIND $rows AS row MATCH (a:Intersection {osmid: row.osmidStart})-[s:STREET {id: row.id}]->(b:Intersection
+     * {osmid: row.osmidDest}) SET s.interrupted = row.interrupted RETURN collect(s.id) AS ids <br>
+     * for the streets whose endpoints are in the directory, <br>
+     * UNWIND $rows AS row MATCH ()-[s:STREET {id: row.id}]->() SET s.interrupted = row.interrupted
+     * RETURN collect(s.id) AS ids <br>
+     * for the others
+     */
+    @Override
+    public List<Integer> setStreetsInterrupted(Map<Integer, Boolean> interrupted) {
+        logger.info("DAOAdminNeo4jImpl.setStreetsInterrupted: size = " + interrupted.size());
+        List<Map<String, Object>> rows = new ArrayList<>(interrupted.size());
+        for (Map.Entry<Integer, Boolean> e : interrupted.entrySet()) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", e.getKey());
+            row.put("interrupted", e.getValue());
+            rows.add(row);
+        }
+        List<Integer> ids = streetsWrite(CypherQuery.SET_STREETS_INTERRUPTED_ANCHORED,
+                CypherQuery.SET_STREETS_INTERRUPTED, rows);
+        if (ids == null) {
+            logger.error("Error in setStreetsInterrupted()");
+        }
+        return ids;
+    }
+
     private ArrayList<Intersection> convertToIntersectionArrayList(Result result, String nodeName) {
         logger.info("DAOAdminNeo4jImpl.convertToIntersectionArrayList: result = " + result + ", nodeName = " + nodeName);
         ArrayList<Intersection> intersections = new ArrayList<>();
@@ -616,7 +1238,13 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
 
     private Intersection convertIntersection(Value r) {
         logger.info("DAOAdminNeo4jImpl.convertIntersection: r = " + r);
+        return readIntersection(r);
+    }
 
+    /**
+     * Converts the properties of an Intersection node, without logging them.
+     */
+    private Intersection readIntersection(Value r) {
         try {
 
             // String nome = r.get("name").asString();
@@ -640,19 +1268,442 @@ public class DAOAdminNeo4jImpl implements DAOAdmin {
         }
     }
 
+    /**
+     * Executed Queries, in one read committed transaction <br>
+     * MATCH (a:Control) RETURN a.timestamp <br>
+     * MATCH (a:Intersection) WITH count(a) AS nodes MATCH (:Intersection)-[r:STREET]->(:Intersection)
+     * RETURN nodes, count(r) AS edges <br>
+     * MATCH (a:Intersection) RETURN a.osmid as osmid <br>
+     * MATCH (a:Intersection)-[r:STREET]->(b:Intersection) RETURN a.osmid, b.osmid, r.id, r.weight, r.length,
+     * r.averageTravelTime, r.interrupted
+     */
+    @Override
+    public GraphSnapshot getGraphSnapshot() {
+        logger.info("DAOAdminNeo4jImpl.getGraphSnapshot");
+        try (Session session = openSession(driverRead, readSessionConfig);
+             Transaction tx = session.beginTransaction()) {
+            CypherQuery.GET_LAST_MODIFIED.executed();
+            List<Record> control = tx.run(CypherQuery.GET_LAST_MODIFIED.getText()).list();
+            LocalDateTime version = control.isEmpty() ? null : control.get(0).get("a.timestamp").asLocalDateTime(null);
+
+            CypherQuery.COUNT_GRAPH.executed();
+            Record counts = tx.run(CypherQuery.COUNT_GRAPH.getText()).single();
+            GraphSnapshot.Builder builder = new GraphSnapshot.Builder(version, counts.get("nodes").asInt(),
+                    counts.get("edges").asInt());
+
+            CypherQuery.GET_INTERSECTION_OSMIDS.executed();
+            Result nodes = tx.run(CypherQuery.GET_INTERSECTION_OSMIDS.getText());
+            while (nodes.hasNext()) {
+                builder.addNode(nodes.next().get("osmid").asLong());
+            }
+
+            CypherQuery.GET_GRAPH_EDGES.executed();
+            Result edges = tx.run(CypherQuery.GET_GRAPH_EDGES.getText());
+            while (edges.hasNext()) {
+                Record r = edges.next();
+                builder.addEdge(r.get("osmidStart").asLong(), r.get("osmidDest").asLong(), r.get("id").asInt(),
+                        r.get("weight").asDouble(0), r.get("length").asDouble(0),
+                        r.get("averageTravelTime").asDouble(0), r.get("interrupted").asBoolean(false));
+            }
+            tx.commit();
+
+            // streets added while the intersections were read, seen by the later query
+            if (builder.getDropped() > 0) {
+                logger.warn("DAOAdminNeo4jImpl.getGraphSnapshot: " + builder.getDropped()
+                        + " streets without endpoints left out");
+            }
+            GraphSnapshot snapshot = builder.build();
+            logger.info("DAOAdminNeo4jImpl.getGraphSnapshot: " + snapshot);
+            return snapshot;
+        } catch (DatabaseNotConnectException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Executed Queries, in one read committed transaction <br>
+     * MATCH (a:Intersection) WITH count(a) AS nodes MATCH (:Intersection)-[r:STREET]->(:Intersection)
+     * RETURN nodes, count(r) AS edges <br>
+     * MATCH (a:Intersection) RETURN a.osmid AS osmid, a.longitude AS longitude, a.latitude AS latitude, ... <br>
+     * MATCH (a:Intersection)-[r:STREET]->(b:Intersection) RETURN r.id AS id, a.osmid AS osmidStart,
+     * b.osmid AS osmidDest, r.longitudes AS longitudes, r.latitudes AS latitudes, ...
+     */
+    @Override
+    public SpatialIndex getSpatialIndex(double cellDegrees) {
+        logger.info("DAOAdminNeo4jImpl.getSpatialIndex: cellDegrees = " + cellDegrees);
+        try (Session session = openSession(driverRead, readSessionConfig);
+             Transaction tx = session.beginTransaction()) {
+            CypherQuery.COUNT_GRAPH.executed();
+            Record counts = tx.run(CypherQuery.COUNT_GRAPH.getText()).single();
+            SpatialIndex index = new SpatialIndex(cellDegrees, counts.get("nodes").asInt(), counts.get("edges").asInt());
+
+            CypherQuery.GET_INTERSECTION_POSITIONS.executed();
+            Result nodes = tx.run(CypherQuery.GET_INTERSECTION_POSITIONS.getText());
+            while (nodes.hasNext()) {
+                Record r = nodes.next();
+                if (r.get("longitude").isNull() || r.get("latitude").isNull()) {
+                    continue;
+                }
+                index.putIntersection(r.get("osmid").asLong(), r.get("longitude").asDouble(),
+                        r.get("latitude").asDouble(), SpatialIndex.flags(r.get("parking").asBoolean(false),
+                                r.get("hospital").asBoolean(false), r.get("busStop").asBoolean(false),
+                                r.get("museum").asBoolean(false)));
+            }
+
+            CypherQuery.GET_STREET_GEOMETRIES.executed();
+            Result edges = tx.run(CypherQuery.GET_STREET_GEOMETRIES.getText());
+            while (edges.hasNext()) {
+                Record r = edges.next();
+                double[][] geometry = geometryArrays(r.get("longitudes"), r.get("latitudes"), r.get("coordinates"));
+                index.putStreet(r.get("id").asInt(), r.get("osmidStart").asLong(), r.get("osmidDest").asLong(),
+                        geometry[0], geometry[1], r.get("weight").asDouble(0), r.get("interrupted").asBoolean(false),
+                        r.get("highway").asString(null));
+            }
+            tx.commit();
+            logger.info("DAOAdminNeo4jImpl.getSpatialIndex: " + index);
+            return index;
+        } catch (DatabaseNotConnectException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Reads the geometry of a street as an array of longitudes and one of latitudes, from the
+     * parallel lists or, for the relationships not migrated yet, from the legacy text.
+     */
+    private double[][] geometryArrays(Value longitudes, Value latitudes, Value legacy) {
+        if (longitudes.isNull() && legacy.isNull()) {
+            return new double[2][0];
+        }
+        ArrayList<Coordinate> coordinates = getCoordinateList(longitudes, latitudes, legacy);
+        double[][] geometry = new double[2][coordinates.size()];
+        for (int i = 0; i < coordinates.size(); i++) {
+            geometry[0][i] = coordinates.get(i).getLongitude();
+            geometry[1][i] = coordinates.get(i).getLatitude();
+        }
+        return geometry;
+    }
+
+    /**
+     * Executed Query, in an explicit read transaction <br>
+     * MATCH (a:Intersection) RETURN properties(a)
+     */
+    @Override
+    public long exportIntersections(Consumer<Intersection> consumer) {
+        logger.info("DAOAdminNeo4jImpl.exportIntersections");
+        return databaseStream(CypherQuery.EXPORT_INTERSECTIONS, Values.EmptyMap,
+                r -> consumer.accept(readIntersection(r.get("properties(a)"))));
+    }
+
+    /**
+     * Executed Query, in an explicit read transaction <br>
+     * MATCH (a:Intersection)-[r:STREET]->(b:Intersection) RETURN properties(r)
+     */
+    @Override
+    public long exportStreets(Consumer<Street> consumer) {
+        logger.info("DAOAdminNeo4jImpl.exportStreets");
+        return databaseStream(CypherQuery.EXPORT_STREETS, Values.EmptyMap,
+                r -> consumer.accept(convertStreet(r.get("properties(r)"))));
+    }
+
+    /**
+     * Executed Queries, in one read committed transaction <br>
+     * MATCH (a:Control) RETURN a.timestamp <br>
+     * MATCH (a:Intersection) WITH count(a) AS nodes MATCH (:Intersection)-[r:STREET]->(:Intersection)
+     * RETURN nodes, count(r) AS edges <br>
+     * MATCH (a:Intersection) RETURN properties(a) <br>
+     * MATCH (a:Intersection)-[r:STREET]->(b:Intersection) RETURN properties(r)
+     */
+    @Override
+    public BinarySnapshot.Writer getBinarySnapshot() {
+        logger.info("DAOAdminNeo4jImpl.getBinarySnapshot");
+        try (Session session = openSession(driverRead, readSessionConfig);
+             Transaction tx = session.beginTransaction()) {
+            CypherQuery.GET_LAST_MODIFIED.executed();
+            List<Record> control = tx.run(CypherQuery.GET_LAST_MODIFIED.getText()).list();
+            LocalDateTime version = control.isEmpty() ? null : control.get(0).get("a.timestamp").asLocalDateTime(null);
+
+            CypherQuery.COUNT_GRAPH.executed();
+            Record counts = tx.run(CypherQuery.COUNT_GRAPH.getText()).single();
+            BinarySnapshot.Writer writer = new BinarySnapshot.Writer(version, counts.get("nodes").asInt(),
+                    counts.get("edges").asInt());
+
+            CypherQuery.EXPORT_INTERSECTIONS.executed();
+            Result nodes = tx.run(CypherQuery.EXPORT_INTERSECTIONS.getText());
+            while (nodes.hasNext()) {
+                writer.addIntersection(readIntersection(nodes.next().get("properties(a)")));
+            }
+
+            CypherQuery.EXPORT_STREETS.executed();
+            Result edges = tx.run(CypherQuery.EXPORT_STREETS.getText());
+            while (edges.hasNext()) {
+                writer.addStreet(convertStreet(edges.next().get("properties(r)")));
+            }
+            tx.commit();
+
+            if (writer.getDropped() > 0) {
+                logger.warn("DAOAdminNeo4jImpl.getBinarySnapshot: " + writer.getDropped()
+                        + " streets without endpoints left out");
+            }
+            logger.info("DAOAdminNeo4jImpl.getBinarySnapshot: " + writer);
+            return writer;
+        } catch (DatabaseNotConnectException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     public ArrayList<Long> getIntersectionOsmids() {
-        String query = "MATCH (a:Intersection) RETURN a.osmid as osmid";
-        Result result = databaseRead(query);
         ArrayList<Long> osmids = new ArrayList<>();
-        Record r;
-        long osmid;
+        databaseStream(CypherQuery.GET_INTERSECTION_OSMIDS, Values.EmptyMap, r -> osmids.add(r.get("osmid").asLong()));
+        return osmids;
+    }
 
-        while (result.hasNext()) {
-            r = result.next();
-            osmid = r.get("osmid").asLong();
+    // SCHEMA
 
-            osmids.add(osmid);
+    /**
+     * Executed Query, in an auto-commit transaction, one alternative after the other while they
+     * are rejected as syntax errors <br>
+     * CREATE CONSTRAINT ... / CREATE INDEX ...
+     */
+    @Override
+    public String createSchemaRule(CypherQuery... alternatives) {
+        String error = null;
+        for (CypherQuery rule : alternatives) {
+            logger.info("DAOAdminNeo4jImpl.createSchemaRule: rule = " + rule);
+            rule.executed();
+            try (Session session = openSession(driverWrite, writeSessionConfig)) {
+                session.run(rule.getText()).consume();
+                return null;
+            } catch (ClientException e) {
+                if (e.code() != null && e.code().contains("AlreadyExists")) {
+                    return null;
+                }
+                error = e.code() + ": " + e.getMessage();
+                logger.error("Error in createSchemaRule(): " + rule + ", " + error);
+                if (e.code() == null || !e.code().endsWith("SyntaxError")) {
+                    return error;
+                }
+            } catch (Exception e) {
+                logger.error("Error in createSchemaRule(): " + rule, e);
+                return String.valueOf(e);
+            }
         }
-        return osmids;
+        return error;
+    }
+
+    /**
+     * Executed Query <br>
+     * CALL db.indexes(), or SHOW INDEXES where the procedure has been removed
+     */
+    @Override
+    public ArrayList<SchemaIndex> getSchemaIndexes() {
+        logger.info("DAOAdminNeo4jImpl.getSchemaIndexes");
+        for (CypherQuery query : new CypherQuery[]{CypherQuery.GET_INDEXES, CypherQuery.SHOW_INDEXES}) {
+            query.executed();
+            try (Session session = openSession(driverRead, readSessionConfig)) {
+                List<Record> records = session.run(query.getText()).list();
+                ArrayList<SchemaIndex> indexes = new ArrayList<>(records.size());
+                for (Record r : records) {
+                    indexes.add(convertSchemaIndex(r));
+                }
+                return indexes;
+            } catch (ClientException e) {
+                logger.error("Error in getSchemaIndexes(): " + query + ", " + e.code());
+            } catch (Exception e) {
+                logger.error("Error in getSchemaIndexes()", e);
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads a row of db.indexes() or SHOW INDEXES, whose columns differ between the Neo4j
+     * versions: 3.5 has indexName, tokenNames and progress, and tells unique indexes by their type;
+     * 4.x has name, labelsOrTypes, populationPercent and uniqueness; 5.x has owningConstraint.
+     */
+    private SchemaIndex convertSchemaIndex(Record r) {
+        String type = column(r, "type").asString(null);
+        boolean legacyNodeIndex = type != null && type.startsWith("node_");
+        boolean unique = "UNIQUE".equals(column(r, "uniqueness").asString(null))
+                || !column(r, "owningConstraint").isNull()
+                || (legacyNodeIndex && type.contains("unique"));
+        String failureMessage = column(r, "failureMessage").asString(null);
+        return new SchemaIndex(column(r, "name", "indexName").asString(null),
+                column(r, "entityType").asString(legacyNodeIndex ? "NODE" : null),
+                new ArrayList<>(column(r, "labelsOrTypes", "tokenNames").asList(Value::asString, new ArrayList<>())),
+                new ArrayList<>(column(r, "properties").asList(Value::asString, new ArrayList<>())),
+                type, unique, column(r, "state").asString(null),
+                column(r, "populationPercent", "progress").computeOrDefault(v -> v.asNumber().doubleValue(), 0.0),
+                failureMessage == null || failureMessage.isEmpty() ? null : failureMessage);
+    }
+
+    /**
+     * @return The first of the columns present and not null, {@link Values#NULL} if none.
+     */
+    private static Value column(Record r, String... keys) {
+        for (String key : keys) {
+            if (r.containsKey(key) && !r.get(key).isNull()) {
+                return r.get(key);
+            }
+        }
+        return Values.NULL;
+    }
+
+    /**
+     * Executed Query <br>
+     * CALL db.awaitIndexes(timeout)
+     */
+    @Override
+    public boolean awaitSchemaIndexes(int seconds) {
+        logger.info("DAOAdminNeo4jImpl.awaitSchemaIndexes: seconds = " + seconds);
+        CypherQuery.AWAIT_INDEXES.executed();
+        try (Session session = openSession(driverRead, readSessionConfig)) {
+            session.run(CypherQuery.AWAIT_INDEXES.getText(), Values.parameters("timeout", seconds)).consume();
+            return true;
+        } catch (Exception e) {
+            logger.error("Error in awaitSchemaIndexes(): " + e.getMessage());
+            return false;
+        }
+    }
+
+    // ASINCRONO
+
+    @Override
+    public CompletionStage<Intersection> getIntersectionAsync(long osmid) {
+        logger.info("DAOAdminNeo4jImpl.getIntersectionAsync: osmid = " + osmid);
+        return databaseReadAsync(CypherQuery.GET_INTERSECTION, Values.parameters("osmid", osmid))
+                .thenApply(records -> convertIntersection(single(records).get("properties(a)")));
+    }
+
+    @Override
+    public CompletionStage<Street> getStreetAsync(int id) {
+        logger.info("DAOAdminNeo4jImpl.getStreetAsync: id = " + id);
+        return streetQueryAsync(CypherQuery.GET_STREET_BY_ID_ANCHORED, CypherQuery.GET_STREET_BY_ID, id,
+                Values.parameters("id", id).asMap(), false)
+                .thenApply(records -> convertStreet(single(records).get("properties(r)")));
+    }
+
+    @Override
+    public CompletionStage<Street> getStreetAsync(long osmidStart, long osmidDest) {
+        logger.info("DAOAdminNeo4jImpl.getStreetAsync: osmidStart = " + osmidStart + ", osmidDest = " + osmidDest);
+        return databaseReadAsync(CypherQuery.GET_STREET_BY_ENDPOINTS,
+                Values.parameters("osmidStart", osmidStart, "osmidDest", osmidDest))
+                .thenApply(records -> convertStreet(first(records).get("properties(r)")));
+    }
+
+    @Override
+    public CompletionStage<HashMap<Integer, Street>> getStreetsAsync(long osmid) {
+        logger.info("DAOAdminNeo4jImpl.getStreetsAsync: osmid = " + osmid);
+        return databaseReadAsync(CypherQuery.GET_STREETS, Values.parameters("osmid", osmid))
+                .thenApply(records -> {
+                    HashMap<Integer, Street> strade = new HashMap<>();
+                    for (Record r : records) {
+                        Street s = convertStreet(r.get("properties(r)"));
+                        strade.put(s.getId(), s);
+                    }
+                    return strade;
+                });
+    }
+
+    @Override
+    public CompletionStage<ArrayList<Intersection>> getIntersectionsAsync(List<Long> osmids) {
+        logger.info("DAOAdminNeo4jImpl.getIntersectionsAsync: osmids = " + osmids.size());
+        return databaseReadAsync(CypherQuery.GET_INTERSECTIONS_BY_OSMIDS, Values.parameters("osmids", osmids))
+                .thenApply(records -> {
+                    ArrayList<Intersection> intersections = new ArrayList<>(records.size());
+                    for (Record r : records) {
+                        intersections.add(convertIntersection(r.get("properties(a)")));
+                    }
+                    return intersections;
+                });
+    }
+
+    @Override
+    public CompletionStage<ArrayList<Street>> getStreetsByEndpointsAsync(List<Map<String, Object>> endpoints) {
+        logger.info("DAOAdminNeo4jImpl.getStreetsByEndpointsAsync: endpoints = " + endpoints.size());
+        return databaseReadAsync(CypherQuery.GET_STREETS_BY_ENDPOINTS_ANCHORED, Values.parameters("rows", endpoints))
+                .thenApply(records -> {
+                    ArrayList<Street> streets = new ArrayList<>(records.size());
+                    for (Record r : records) {
+                        streets.add(convertStreet(r.get("properties(r)")));
+                    }
+                    return streets;
+                });
+    }
+
+    @Override
+    public CompletionStage<Integer> getLinkKeyAsync(long osmidStart, long osmidDest) {
+        logger.info("DAOAdminNeo4jImpl.getLinkKeyAsync: osmidStart = " + osmidStart + ", osmidDest = " + osmidDest);
+        return databaseReadAsync(CypherQuery.GET_LINK_KEY,
+                Values.parameters("osmidStart", osmidStart, "osmidDest", osmidDest))
+                .thenApply(records -> single(records).get("r.id").asInt());
+    }
+
+    @Override
+    public CompletionStage<Street> setStreetWeightAsync(int id, double weight) {
+        logger.info("DAOAdminNeo4jImpl.setStreetWeightAsync: id = " + id + ", weight = " + weight);
+        return streetQueryAsync(CypherQuery.SET_STREET_WEIGHT_ANCHORED, CypherQuery.SET_STREET_WEIGHT, id,
+                Values.parameters("id", id, "weight", weight).asMap(), true)
+                .thenCompose(records -> {
+                    if (first(records).get("r.id").asInt() != id) {
+                        logger.error("Error in setStreetWeightAsync()");
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return getStreetAsync(id);
+                });
+    }
+
+    @Override
+    public CompletionStage<Void> setStreetInterruptedAsync(int id, boolean interrupted) {
+        logger.info("DAOAdminNeo4jImpl.setStreetInterruptedAsync: id = " + id + ", interrupted = " + interrupted);
+        return streetQueryAsync(CypherQuery.SET_STREET_INTERRUPTED_ANCHORED, CypherQuery.SET_STREET_INTERRUPTED, id,
+                Values.parameters("id", id, "interrupted", interrupted).asMap(), true)
+                .thenAccept(records -> {
+                    if (first(records).get("s.id").asInt() != id) {
+                        throw new IllegalStateException("setStreetInterrupted(" + id + ") Error");
+                    }
+                });
+    }
+
+    @Override
+    public CompletionStage<Intersection> setBetweennessIntersectionAsync(long osmid, double betweenness) {
+        logger.info("DAOAdminNeo4jImpl.setBetweennessIntersectionAsync: osmid = " + osmid + ", betweenness = " + betweenness);
+        return databaseWriteAsync(CypherQuery.SET_BETWEENNESS_INTERSECTION,
+                Values.parameters("osmid", osmid, "betweenness", betweenness))
+                .thenApply(records -> convertIntersection(first(records).get("properties(a)")));
+    }
+
+    @Override
+    public CompletionStage<Void> deleteIntersectionAsync(long osmid) {
+        logger.info("DAOAdminNeo4jImpl.deleteIntersectionAsync: osmid = " + osmid);
+        return databaseWriteAsync(CypherQuery.DELETE_INTERSECTION, Values.parameters("osmid", osmid))
+                .thenAccept(records -> {
+                    if (streetDirectory != null) {
+                        streetDirectory.removeIntersection(osmid);
+                    }
+                });
+    }
+
+    @Override
+    public CompletionStage<Void> deleteStreetAsync(int id) {
+        logger.info("DAOAdminNeo4jImpl.deleteStreetAsync: id = " + id);
+        return streetQueryAsync(CypherQuery.DELETE_STREET_ANCHORED, CypherQuery.DELETE_STREET, id,
+                Values.parameters("id", id).asMap(), true)
+                .thenAccept(records -> {
+                    if (streetDirectory != null) {
+                        streetDirectory.remove(id);
+                    }
+                });
+    }
+
+    @Override
+    public CompletionStage<VersionStamp> setLastModifiedAsync() {
+        logger.info("DAOAdminNeo4jImpl.setLastModifiedAsync");
+        return databaseWriteAsync(CypherQuery.SET_LAST_MODIFIED, Values.EmptyMap)
+                .thenApply(DAOAdminNeo4jImpl::versionStamp);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,195 @@
+package data.databaseDriver;
+
+import data.dataModel.StreetDirectoryStatistics;
+import util.IntLongPairHashMap;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Directory from the id of every STREET relation to the osmids of its endpoints, shared by the DAO
+ * instances, so that a street can be matched through the unique index of {@code Intersection.osmid}
+ * instead of a scan of all the relations.
+ * <p>
+ * The directory is loaded lazily: the first lookup asks the loader to read it in the background,
+ * and until the load is over every lookup misses, so the callers match by id as before. The DAO
+ * write paths keep it current, also while it is being loaded. A street written by another server
+ * is not seen, or is seen at stale endpoints: the anchored match then finds nothing, and the
+ * caller removes the entry with {@link #stale(int)} and matches by id.
+ */
+public class StreetDirectory {
+
+    private enum State {
+        UNLOADED, LOADING, LOADED
+    }
+
+    private final IntLongPairHashMap endpoints = new IntLongPairHashMap(1024);
+    private final Set<Integer> removedWhileLoading = new HashSet<>();
+    private final Set<Long> removedIntersectionsWhileLoading = new HashSet<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private State state = State.UNLOADED;
+    private int generation;
+    private long loads, failedLoads, lastLoadMillis;
+    private LocalDateTime loadedAt;
+    private IntConsumer loader;
+
+    /**
+     * @param loader Called with a load generation when the directory must be loaded; it should read
+     *               the streets in the background, pass them to {@link #putLoaded(int, int, long, long)}
+     *               and end with {@link #finishLoading(int, boolean, long)}.
+     */
+    public synchronized void setLoader(IntConsumer loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * @param id Id of the street.
+     * @return The osmids of the start and of the destination of the street, {@code null} if unknown
+     *         or if the directory is not loaded yet.
+     */
+    public long[] lookup(int id) {
+        long[] pair = new long[2];
+        boolean found;
+        synchronized (this) {
+            if (state != State.LOADED) {
+                requestLoad();
+                misses.increment();
+                return null;
+            }
+            found = endpoints.get(id, pair);
+        }
+        (found ? hits : misses).increment();
+        return found ? pair : null;
+    }
+
+    /**
+     * Records a new or changed street.
+     */
+    public synchronized void put(int id, long osmidStart, long osmidDest) {
+        if (state == State.UNLOADED) {
+            return;
+        }
+        endpoints.put(id, osmidStart, osmidDest);
+    }
+
+    /**
+     * Forgets a deleted street.
+     */
+    public synchronized void remove(int id) {
+        if (state == State.UNLOADED) {
+            return;
+        }
+        endpoints.remove(id);
+        if (state == State.LOADING) {
+            removedWhileLoading.add(id);
+        }
+    }
+
+    /**
+     * Forgets the streets of a deleted intersection.
+     */
+    public synchronized void removeIntersection(long osmid) {
+        if (state == State.UNLOADED) {
+            return;
+        }
+        endpoints.removeValue(osmid);
+        if (state == State.LOADING) {
+            removedIntersectionsWhileLoading.add(osmid);
+        }
+    }
+
+    /**
+     * Forgets a street whose recorded endpoints no longer match the database.
+     */
+    public void stale(int id) {
+        stale.increment();
+        remove(id);
+    }
+
+    /**
+     * Starts a load, if the directory is not loaded nor being loaded and there is a loader.
+     */
+    public synchronized void requestLoad() {
+        if (state != State.UNLOADED || loader == null) {
+            return;
+        }
+        endpoints.clear();
+        removedWhileLoading.clear();
+        removedIntersectionsWhileLoading.clear();
+        state = State.LOADING;
+        int current = ++generation;
+        try {
+            loader.accept(current);
+        } catch (RuntimeException e) {
+            // e.g. the executor is shutting down: the lookups keep missing, the next one retries
+            failedLoads++;
+            state = State.UNLOADED;
+        }
+    }
+
+    /**
+     * Records a street read by the load, unless a write has changed or deleted it meanwhile.
+     *
+     * @param generation The generation passed to the loader.
+     * @return {@code false} if the load has been superseded and must stop.
+     */
+    public synchronized boolean putLoaded(int generation, int id, long osmidStart, long osmidDest) {
+        if (state != State.LOADING || generation != this.generation) {
+            return false;
+        }
+        if (!endpoints.containsKey(id) && !removedWhileLoading.contains(id)
+                && !removedIntersectionsWhileLoading.contains(osmidStart)
+                && !removedIntersectionsWhileLoading.contains(osmidDest)) {
+            endpoints.put(id, osmidStart, osmidDest);
+        }
+        return true;
+    }
+
+    /**
+     * Ends a load.
+     *
+     * @param generation The generation passed to the loader.
+     * @param success    {@code false} if the load has failed, in which case the next lookup starts
+     *                   another one.
+     * @param millis     Duration of the load.
+     */
+    public synchronized void finishLoading(int generation, boolean success, long millis) {
+        if (state != State.LOADING || generation != this.generation) {
+            return;
+        }
+        removedWhileLoading.clear();
+        removedIntersectionsWhileLoading.clear();
+        if (success) {
+            state = State.LOADED;
+            loads++;
+            lastLoadMillis = millis;
+            loadedAt = LocalDateTime.now();
+        } else {
+            state = State.UNLOADED;
+            failedLoads++;
+            endpoints.clear();
+        }
+    }
+
+    /**
+     * Drops the directory, which is loaded again at the next lookup.
+     */
+    public synchronized void invalidate() {
+        state = State.UNLOADED;
+        generation++;
+        endpoints.clear();
+        removedWhileLoading.clear();
+        removedIntersectionsWhileLoading.clear();
+    }
+
+    public synchronized StreetDirectoryStatistics getStatistics() {
+        return new StreetDirectoryStatistics(state.name(), endpoints.size(), endpoints.capacity(),
+                endpoints.getMemoryFootprint(), hits.sum(), misses.sum(), stale.sum(), loads, failedLoads,
+                lastLoadMillis, loadedAt == null ? null : String.valueOf(loadedAt));
+    }
+}
@@ -0,0 +1,277 @@
+package data.graph;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Weighted betweenness centrality of the intersections, computed with the Brandes algorithm on a
+ * {@link GraphSnapshot}.
+ * <p>
+ * Streets are directed, their cost is the {@code weight} property and interrupted streets are not
+ * traversed. Every source runs a Dijkstra visit followed by the back-propagation of the
+ * dependencies; sources are taken in small blocks by one task per thread of a
+ * {@link ForkJoinPool}, and every task reuses its own primitive buffers and accumulates its own
+ * partial result, so the visits allocate nothing and share nothing until the partial results are
+ * summed. The buffers belong to the computation and are released when it returns.
+ */
+public class BetweennessCentrality {
+
+	/**
+	 * Choice of the sources of the shortest paths.
+	 */
+	public enum Strategy {
+		/** Every intersection, exact result. */
+		EXACT,
+		/** Intersections chosen uniformly at random with a given probability. */
+		RANDOM,
+		/** Intersections whose degree is higher than the mean degree. */
+		DEGREE
+	}
+
+	private final GraphSnapshot graph;
+
+	/**
+	 * @param graph The graph.
+	 */
+	public BetweennessCentrality(GraphSnapshot graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Default probability of the random strategy, log10(N) / e^2, where N is the number of nodes.
+	 *
+	 * @return The probability, at most 1.
+	 */
+	public double defaultProbability() {
+		return Math.min(1, Math.log10(Math.max(1, graph.getNodeCount())) / (Math.E * Math.E));
+	}
+
+	/**
+	 * @param strategy    How to choose the sources.
+	 * @param probability Probability of selection of the random strategy, ignored by the others.
+	 * @param random      Source of randomness of the random strategy.
+	 * @return The dense ids of the sources.
+	 */
+	public int[] selectSources(Strategy strategy, double probability, Random random) {
+		int n = graph.getNodeCount();
+		int[] sources = new int[n];
+		int count = 0;
+		switch (strategy) {
+			case RANDOM:
+				for (int v = 0; v < n; v++) {
+					if (random.nextDouble() < probability) {
+						sources[count++] = v;
+					}
+				}
+				break;
+			case DEGREE:
+				double meanDegree = n == 0 ? 0 : (double) graph.getEdgeCount() / n;
+				for (int v = 0; v < n; v++) {
+					if (graph.outDegree(v) > meanDegree) {
+						sources[count++] = v;
+					}
+				}
+				break;
+			default:
+				for (int v = 0; v < n; v++) {
+					sources[count++] = v;
+				}
+		}
+		return Arrays.copyOf(sources, count);
+	}
+
+	/**
+	 * Computes the betweenness from the given sources.
+	 *
+	 * @param sources Dense ids of the sources.
+	 * @param scale   Factor applied to every dependency, e.g. 1 / probability to estimate the exact
+	 *                value from a random sample.
+	 * @param pool    Threads running the visits.
+	 * @return The betweenness of every intersection, indexed by dense id.
+	 */
+	public double[] compute(int[] sources, double scale, ForkJoinPool pool) {
+		return compute(sources, scale, pool, ProgressMonitor.NONE);
+	}
+
+	/**
+	 * Computes the betweenness from the given sources, reporting one unit of work per visited
+	 * source.
+	 *
+	 * @param sources Dense ids of the sources.
+	 * @param scale   Factor applied to every dependency.
+	 * @param pool    Threads running the visits.
+	 * @param monitor Receives the progress; checked for cancellation before every visit.
+	 * @return The betweenness of every intersection, indexed by dense id.
+	 * @throws CancellationException If the monitor has been cancelled.
+	 */
+	public double[] compute(int[] sources, double scale, ForkJoinPool pool, ProgressMonitor monitor) {
+		int tasks = Math.max(1, Math.min(pool.getParallelism(), sources.length));
+		int block = Math.max(1, sources.length / (tasks * 8));
+		AtomicInteger next = new AtomicInteger();
+		Visits[] visits = new Visits[tasks];
+		for (int t = 0; t < tasks; t++) {
+			visits[t] = new Visits(sources, next, block, scale, monitor);
+			pool.execute(visits[t]);
+		}
+
+		// every task is joined, so none is still running when the first failure is thrown
+		double[] centrality = new double[graph.getNodeCount()];
+		RuntimeException failure = null;
+		for (Visits task : visits) {
+			try {
+				double[] partial = task.join();
+				for (int v = 0; v < centrality.length; v++) {
+					centrality[v] += partial[v];
+				}
+			} catch (RuntimeException e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		return centrality;
+	}
+
+	/**
+	 * Visits blocks of {@code block} sources, taken from the shared counter until none is left,
+	 * with its own workspace.
+	 */
+	private final class Visits extends RecursiveTask<double[]> {
+		private static final long serialVersionUID = 1L;
+
+		private final int[] sources;
+		private final AtomicInteger next;
+		private final int block;
+		private final double scale;
+		private final ProgressMonitor monitor;
+
+		Visits(int[] sources, AtomicInteger next, int block, double scale, ProgressMonitor monitor) {
+			this.sources = sources;
+			this.next = next;
+			this.block = block;
+			this.scale = scale;
+			this.monitor = monitor;
+		}
+
+		@Override
+		protected double[] compute() {
+			Workspace w = new Workspace(graph);
+			int from;
+			while ((from = next.getAndAdd(block)) < sources.length) {
+				for (int i = from, to = Math.min(sources.length, from + block); i < to; i++) {
+					if (monitor.isCancelled()) {
+						throw new CancellationException();
+					}
+					w.visit(sources[i], scale);
+					monitor.worked(1);
+				}
+			}
+			return w.centrality;
+		}
+	}
+
+	/**
+	 * Buffers of a task, sized once for the graph and reset after every visit only where the
+	 * visit has written.
+	 */
+	private static final class Workspace {
+		private final GraphSnapshot graph;
+		private final double[] centrality;
+		private final double[] distance;
+		private final double[] sigma;
+		private final double[] delta;
+		private final boolean[] settled;
+		private final int[] stack;
+		private final int[] predecessorHead;
+		private final int[] predecessorNext;
+		private final int[] predecessorNode;
+		private final MinHeap heap;
+
+		Workspace(GraphSnapshot graph) {
+			int n = graph.getNodeCount();
+			int m = graph.getEdgeCount();
+			this.graph = graph;
+			this.centrality = new double[n];
+			this.distance = new double[n];
+			this.sigma = new double[n];
+			this.delta = new double[n];
+			this.settled = new boolean[n];
+			this.stack = new int[n];
+			this.predecessorHead = new int[n];
+			this.predecessorNext = new int[m];
+			this.predecessorNode = new int[m];
+			this.heap = new MinHeap(m + 1);
+			Arrays.fill(distance, Double.POSITIVE_INFINITY);
+			Arrays.fill(predecessorHead, -1);
+		}
+
+		void visit(int source, double scale) {
+			int stackSize = 0;
+			int predecessors = 0;
+
+			distance[source] = 0;
+			sigma[source] = 1;
+			heap.clear();
+			heap.push(0, source);
+			while (!heap.isEmpty()) {
+				int v = heap.peekNode();
+				double d = heap.peekKey();
+				heap.pop();
+				if (settled[v] || d > distance[v]) {
+					continue;
+				}
+				settled[v] = true;
+				stack[stackSize++] = v;
+				for (int e = graph.offset(v), end = graph.offset(v + 1); e < end; e++) {
+					double cost = graph.cost(e);
+					int w = graph.target(e);
+					if (cost == Double.POSITIVE_INFINITY || settled[w]) {
+						continue;
+					}
+					double alternative = d + cost;
+					if (alternative < distance[w]) {
+						distance[w] = alternative;
+						sigma[w] = sigma[v];
+						predecessorHead[w] = -1;
+						heap.push(alternative, w);
+					} else if (alternative == distance[w]) {
+						sigma[w] += sigma[v];
+					} else {
+						continue;
+					}
+					predecessorNode[predecessors] = v;
+					predecessorNext[predecessors] = predecessorHead[w];
+					predecessorHead[w] = predecessors++;
+				}
+			}
+
+			for (int i = stackSize - 1; i >= 0; i--) {
+				int w = stack[i];
+				double coefficient = (1 + delta[w]) / sigma[w];
+				for (int p = predecessorHead[w]; p >= 0; p = predecessorNext[p]) {
+					int v = predecessorNode[p];
+					delta[v] += sigma[v] * coefficient;
+				}
+				if (w != source) {
+					centrality[w] += delta[w] * scale;
+				}
+			}
+
+			for (int i = 0; i < stackSize; i++) {
+				int v = stack[i];
+				distance[v] = Double.POSITIVE_INFINITY;
+				sigma[v] = 0;
+				delta[v] = 0;
+				settled[v] = false;
+				predecessorHead[v] = -1;
+			}
+		}
+	}
+}
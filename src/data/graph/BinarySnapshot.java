@@ -0,0 +1,1007 @@
+package data.graph;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import data.dataModel.Coordinate;
+import data.dataModel.Intersection;
+import data.dataModel.Street;
+import util.LongIntHashMap;
+
+/**
+ * Read-only view of a binary snapshot of the road network, mapped in memory from a file: the
+ * values are read from the file pages when they are asked for, so opening a snapshot costs the
+ * same whatever its size and nothing is parsed.
+ * <p>
+ * The file is little-endian and made of a header and five sections:
+ * <ul>
+ * <li>header, {@value #HEADER_SIZE} bytes: magic number, major and minor version of the format,
+ * version of the graph, number of intersections, streets and strings, offset of every
+ * section;</li>
+ * <li>strings: the dictionary of all the string attributes, {@code int} offsets followed by the
+ * UTF-8 bytes; the attributes store the index of the string, -1 for none;</li>
+ * <li>intersections: fixed-width columns, sorted by osmid, including the offset of the first
+ * outgoing street of every intersection, so the streets are in compressed sparse row form; the
+ * position in units of 10^-{@value #COORDINATE_DIGITS} degrees, about a centimeter;</li>
+ * <li>streets: fixed-width columns, grouped by source intersection, including the offset of the
+ * geometry and of the lists of every street;</li>
+ * <li>geometry: for every street the number of points followed by the coordinates in units of
+ * 10^-{@value #COORDINATE_DIGITS} degrees, each one as the zig-zag varint of the difference from
+ * the previous point, the first one from the source intersection;</li>
+ * <li>lists: for every street the lanes and the crossed OSM nodes, each list as its length
+ * followed by zig-zag varints, the nodes as differences from the previous one.</li>
+ * </ul>
+ * Every column starts on a multiple of 8 bytes and has one slot more than the rows. A reader
+ * accepts any minor version of its major version: a minor version only appends to the header
+ * reserved fields or to the end of the sections.
+ * <p>
+ * Each section is mapped on its own, so a section cannot exceed 2 GB. Thread-safe, as it is never
+ * modified.
+ */
+public class BinarySnapshot {
+
+	public static final String MEDIA_TYPE = "application/vnd.otm.graph-snapshot";
+
+	public static final int MAGIC = 0x474D544F; // "OTMG"
+	public static final short MAJOR_VERSION = 1;
+	public static final short MINOR_VERSION = 0;
+	public static final int HEADER_SIZE = 96;
+	public static final int COORDINATE_DIGITS = 7;
+
+	public static final int PARKING = 1;
+	public static final int HOSPITAL = 2;
+	public static final int BUS_STOP = 4;
+	public static final int MUSEUM = 8;
+
+	public static final int ONE_WAY = 1;
+	public static final int TRANSPORT_SERVICE = 2;
+	public static final int INTERRUPTED = 4;
+
+	private static final double SCALE = Math.pow(10, COORDINATE_DIGITS);
+	private static final int MISSING_COORDINATE = Integer.MIN_VALUE;
+	private static final int NONE = -1;
+
+	// Sections, in the order of their offsets in the header.
+	private static final int STRINGS = 0;
+	private static final int INTERSECTIONS = 1;
+	private static final int STREETS = 2;
+	private static final int GEOMETRY = 3;
+	private static final int LISTS = 4;
+	private static final int END = 5;
+
+	// Columns of the intersections, with their width.
+	private static final int N_OSMID = 0;
+	private static final int N_FIRST_STREET = 1;
+	private static final int N_LONGITUDE = 2;
+	private static final int N_LATITUDE = 3;
+	private static final int N_BETWEENNESS = 4;
+	private static final int N_HIGHWAY = 5;
+	private static final int N_REF = 6;
+	private static final int N_FLAGS = 7;
+	private static final int[] INTERSECTION_WIDTHS = { 8, 4, 4, 4, 8, 4, 4, 1 };
+
+	// Columns of the streets, with their width; the string attributes are contiguous.
+	private static final int S_ID = 0;
+	private static final int S_SOURCE = 1;
+	private static final int S_TARGET = 2;
+	private static final int S_WEIGHT = 3;
+	private static final int S_LENGTH = 4;
+	private static final int S_FLOW = 5;
+	private static final int S_AVERAGE_TRAVEL_TIME = 6;
+	private static final int S_ORIG_ID = 7;
+	private static final int S_KEY = 8;
+	private static final int S_ACCESS = 9;
+	private static final int S_AREA = 10;
+	private static final int S_BRIDGE = 11;
+	private static final int S_HIGHWAY = 12;
+	private static final int S_JUNCTION = 13;
+	private static final int S_MAX_SPEED = 14;
+	private static final int S_NAME = 15;
+	private static final int S_REF = 16;
+	private static final int S_TUNNEL = 17;
+	private static final int S_WIDTH = 18;
+	private static final int S_FLAGS = 19;
+	private static final int S_GEOMETRY = 20;
+	private static final int S_LISTS = 21;
+	private static final int[] STREET_WIDTHS = { 4, 4, 4, 8, 8, 8, 8, 8, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 1, 8, 8 };
+	private static final int STREET_STRINGS = S_WIDTH - S_ACCESS + 1;
+
+	private final LocalDateTime version;
+	private final short minorVersion;
+	private final int intersectionCount;
+	private final int streetCount;
+	private final int stringCount;
+	private final long size;
+	private final ByteBuffer strings;
+	private final ByteBuffer intersections;
+	private final ByteBuffer streets;
+	private final ByteBuffer geometry;
+	private final ByteBuffer lists;
+	private final long[] intersectionColumns;
+	private final long[] streetColumns;
+	private final String[] decoded;
+	private final long loadMillis;
+
+	private BinarySnapshot(FileChannel channel) throws IOException {
+		long start = System.currentTimeMillis();
+		this.size = channel.size();
+		if (size < HEADER_SIZE) {
+			throw new IOException("Not a graph snapshot: " + size + " bytes");
+		}
+		ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		if (header.getInt(0) != MAGIC) {
+			throw new IOException("Not a graph snapshot: wrong magic number");
+		}
+		if (header.getShort(4) != MAJOR_VERSION) {
+			throw new IOException("Unsupported graph snapshot version " + header.getShort(4) + "." + header.getShort(6));
+		}
+		this.minorVersion = header.getShort(6);
+		long seconds = header.getLong(8);
+		this.version = seconds == Long.MIN_VALUE ? null
+				: LocalDateTime.ofEpochSecond(seconds, header.getInt(16), ZoneOffset.UTC);
+		this.intersectionCount = header.getInt(24);
+		this.streetCount = header.getInt(28);
+		this.stringCount = header.getInt(32);
+		long[] sections = new long[END + 1];
+		for (int i = 0; i <= END; i++) {
+			sections[i] = header.getLong(40 + 8 * i);
+			if (sections[i] < (i == 0 ? HEADER_SIZE : sections[i - 1]) || sections[i] > size) {
+				throw new IOException("Corrupted graph snapshot: section " + i + " at " + sections[i]);
+			}
+		}
+		this.intersectionColumns = layout(intersectionCount, INTERSECTION_WIDTHS);
+		this.streetColumns = layout(streetCount, STREET_WIDTHS);
+		if (intersectionColumns[INTERSECTION_WIDTHS.length] > sections[INTERSECTIONS + 1] - sections[INTERSECTIONS]
+				|| streetColumns[STREET_WIDTHS.length] > sections[STREETS + 1] - sections[STREETS]) {
+			throw new IOException("Corrupted graph snapshot: truncated columns");
+		}
+		this.strings = map(channel, sections, STRINGS);
+		this.intersections = map(channel, sections, INTERSECTIONS);
+		this.streets = map(channel, sections, STREETS);
+		this.geometry = map(channel, sections, GEOMETRY);
+		this.lists = map(channel, sections, LISTS);
+		this.decoded = new String[stringCount];
+		this.loadMillis = System.currentTimeMillis() - start;
+	}
+
+	/**
+	 * Maps a snapshot file. The file must not be modified while the snapshot is in use.
+	 *
+	 * @param file The snapshot file.
+	 * @return The snapshot.
+	 * @throws IOException if the file cannot be read or is not a snapshot of a supported version.
+	 */
+	public static BinarySnapshot open(Path file) throws IOException {
+		// The mappings stay valid after the channel is closed.
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new BinarySnapshot(channel);
+		}
+	}
+
+	private static ByteBuffer map(FileChannel channel, long[] sections, int section) throws IOException {
+		long length = sections[section + 1] - sections[section];
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("Graph snapshot section " + section + " larger than 2 GB");
+		}
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, sections[section], length);
+		return buffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * @return The offset of every column from the start of its section, and the size of the
+	 *         section as last element.
+	 */
+	private static long[] layout(int rows, int[] widths) {
+		long[] offsets = new long[widths.length + 1];
+		long position = 0;
+		for (int i = 0; i < widths.length; i++) {
+			offsets[i] = position;
+			position = align((long) widths[i] * (rows + 1));
+			position += offsets[i];
+		}
+		offsets[widths.length] = position;
+		return offsets;
+	}
+
+	private static long align(long position) {
+		return (position + 7) & ~7L;
+	}
+
+	/**
+	 * @return Version of the graph the snapshot was taken at, {@code null} if unknown.
+	 */
+	public LocalDateTime getVersion() {
+		return version;
+	}
+
+	public short getMinorVersion() {
+		return minorVersion;
+	}
+
+	public int getIntersectionCount() {
+		return intersectionCount;
+	}
+
+	public int getStreetCount() {
+		return streetCount;
+	}
+
+	public int getStringCount() {
+		return stringCount;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return Time taken to map the file, in milliseconds.
+	 */
+	public long getLoadMillis() {
+		return loadMillis;
+	}
+
+	// STRINGS
+
+	/**
+	 * @param index Index of a string of the dictionary, -1 for none.
+	 * @return The string, {@code null} for -1.
+	 */
+	public String string(int index) {
+		if (index == NONE) {
+			return null;
+		}
+		String s = decoded[index];
+		if (s == null) {
+			int from = strings.getInt(4 * index);
+			int to = strings.getInt(4 * (index + 1));
+			byte[] bytes = new byte[to - from];
+			ByteBuffer blob = strings.duplicate();
+			blob.position((int) align(4L * (stringCount + 1)) + from);
+			blob.get(bytes);
+			s = new String(bytes, StandardCharsets.UTF_8);
+			decoded[index] = s;
+		}
+		return s;
+	}
+
+	// INTERSECTIONS
+
+	private long intersectionColumn(int column, int row) {
+		return intersectionColumns[column] + (long) INTERSECTION_WIDTHS[column] * row;
+	}
+
+	/**
+	 * @param node Row of an intersection, from 0 to the number of intersections.
+	 */
+	public long osmid(int node) {
+		return intersections.getLong((int) intersectionColumn(N_OSMID, node));
+	}
+
+	/**
+	 * @return Row of the intersection, -1 if missing; a binary search on the sorted osmids.
+	 */
+	public int indexOf(long osmid) {
+		int low = 0;
+		int high = intersectionCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			long value = osmid(mid);
+			if (value < osmid) {
+				low = mid + 1;
+			} else if (value > osmid) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return Row of the first street leaving the intersection; the streets leaving it are the rows
+	 *         from this one to {@code firstStreet(node + 1)} excluded.
+	 */
+	public int firstStreet(int node) {
+		return intersections.getInt((int) intersectionColumn(N_FIRST_STREET, node));
+	}
+
+	public int outDegree(int node) {
+		return firstStreet(node + 1) - firstStreet(node);
+	}
+
+	/**
+	 * @return Longitude in decimal degrees, NaN if unknown.
+	 */
+	public double longitude(int node) {
+		return coordinate(intersections.getInt((int) intersectionColumn(N_LONGITUDE, node)));
+	}
+
+	/**
+	 * @return Latitude in decimal degrees, NaN if unknown.
+	 */
+	public double latitude(int node) {
+		return coordinate(intersections.getInt((int) intersectionColumn(N_LATITUDE, node)));
+	}
+
+	private static double coordinate(int fixed) {
+		return fixed == MISSING_COORDINATE ? Double.NaN : fixed / SCALE;
+	}
+
+	public double betweenness(int node) {
+		return intersections.getDouble((int) intersectionColumn(N_BETWEENNESS, node));
+	}
+
+	public String intersectionHighway(int node) {
+		return string(intersections.getInt((int) intersectionColumn(N_HIGHWAY, node)));
+	}
+
+	public String intersectionRef(int node) {
+		return string(intersections.getInt((int) intersectionColumn(N_REF, node)));
+	}
+
+	/**
+	 * @return The {@link #PARKING}, {@link #HOSPITAL}, {@link #BUS_STOP} and {@link #MUSEUM} flags.
+	 */
+	public int intersectionFlags(int node) {
+		return intersections.get((int) intersectionColumn(N_FLAGS, node));
+	}
+
+	/**
+	 * @return A new Intersection with all the properties of a row.
+	 */
+	public Intersection intersection(int node) {
+		int flags = intersectionFlags(node);
+		double longitude = longitude(node);
+		double latitude = latitude(node);
+		Coordinate c = Double.isNaN(longitude) || Double.isNaN(latitude) ? null : new Coordinate(longitude, latitude);
+		return new Intersection(c, intersectionHighway(node), osmid(node), intersectionRef(node), betweenness(node),
+				(flags & PARKING) != 0, (flags & HOSPITAL) != 0, (flags & BUS_STOP) != 0, (flags & MUSEUM) != 0);
+	}
+
+	// STREETS
+
+	private int streetColumn(int column, int row) {
+		return (int) (streetColumns[column] + (long) STREET_WIDTHS[column] * row);
+	}
+
+	/**
+	 * @param edge Row of a street, from 0 to the number of streets.
+	 */
+	public int streetId(int edge) {
+		return streets.getInt(streetColumn(S_ID, edge));
+	}
+
+	/**
+	 * @return Row of the source intersection.
+	 */
+	public int source(int edge) {
+		return streets.getInt(streetColumn(S_SOURCE, edge));
+	}
+
+	/**
+	 * @return Row of the destination intersection.
+	 */
+	public int target(int edge) {
+		return streets.getInt(streetColumn(S_TARGET, edge));
+	}
+
+	public double weight(int edge) {
+		return streets.getDouble(streetColumn(S_WEIGHT, edge));
+	}
+
+	public double length(int edge) {
+		return streets.getDouble(streetColumn(S_LENGTH, edge));
+	}
+
+	public double flow(int edge) {
+		return streets.getDouble(streetColumn(S_FLOW, edge));
+	}
+
+	public double averageTravelTime(int edge) {
+		return streets.getDouble(streetColumn(S_AVERAGE_TRAVEL_TIME, edge));
+	}
+
+	public String streetHighway(int edge) {
+		return streetString(edge, S_HIGHWAY);
+	}
+
+	public String name(int edge) {
+		return streetString(edge, S_NAME);
+	}
+
+	public String maxSpeed(int edge) {
+		return streetString(edge, S_MAX_SPEED);
+	}
+
+	private String streetString(int edge, int column) {
+		return string(streets.getInt(streetColumn(column, edge)));
+	}
+
+	/**
+	 * @return The {@link #ONE_WAY}, {@link #TRANSPORT_SERVICE} and {@link #INTERRUPTED} flags.
+	 */
+	public int streetFlags(int edge) {
+		return streets.get(streetColumn(S_FLAGS, edge));
+	}
+
+	public boolean isInterrupted(int edge) {
+		return (streetFlags(edge) & INTERRUPTED) != 0;
+	}
+
+	/**
+	 * @return The points of the street, interleaved, longitude first; empty if it has no geometry.
+	 */
+	public double[] geometry(int edge) {
+		int[] position = { (int) streets.getLong(streetColumn(S_GEOMETRY, edge)) };
+		int points = (int) readVarint(geometry, position);
+		double[] g = new double[2 * points];
+		int node = source(edge);
+		long longitude = intersections.getInt((int) intersectionColumn(N_LONGITUDE, node));
+		long latitude = intersections.getInt((int) intersectionColumn(N_LATITUDE, node));
+		if (longitude == MISSING_COORDINATE || latitude == MISSING_COORDINATE) {
+			longitude = 0;
+			latitude = 0;
+		}
+		for (int i = 0; i < points; i++) {
+			longitude += zigZag(readVarint(geometry, position));
+			latitude += zigZag(readVarint(geometry, position));
+			g[2 * i] = longitude / SCALE;
+			g[2 * i + 1] = latitude / SCALE;
+		}
+		return g;
+	}
+
+	/**
+	 * @return A new Street with all the properties of a row, the geometry as coordinates.
+	 */
+	public Street street(int edge) {
+		double[] g = geometry(edge);
+		ArrayList<Coordinate> coordinates = new ArrayList<>(g.length / 2);
+		for (int i = 0; i < g.length; i += 2) {
+			coordinates.add(new Coordinate(g[i], g[i + 1]));
+		}
+		int[] position = { (int) streets.getLong(streetColumn(S_LISTS, edge)) };
+		int lanes = (int) readVarint(lists, position);
+		ArrayList<Integer> arrayLanes = new ArrayList<>(lanes);
+		for (int i = 0; i < lanes; i++) {
+			arrayLanes.add((int) zigZag(readVarint(lists, position)));
+		}
+		int nodes = (int) readVarint(lists, position);
+		ArrayList<Long> osmidEdges = new ArrayList<>(nodes);
+		long osmid = 0;
+		for (int i = 0; i < nodes; i++) {
+			osmid += zigZag(readVarint(lists, position));
+			osmidEdges.add(osmid);
+		}
+		int flags = streetFlags(edge);
+		return new Street(coordinates, streetId(edge), streetString(edge, S_ACCESS), streetString(edge, S_AREA),
+				streetString(edge, S_BRIDGE), osmid(source(edge)), osmid(target(edge)), streetHighway(edge),
+				streetString(edge, S_JUNCTION), streets.getInt(streetColumn(S_KEY, edge)), arrayLanes, length(edge),
+				maxSpeed(edge), name(edge), (flags & ONE_WAY) != 0, osmidEdges, streetString(edge, S_REF),
+				(flags & TRANSPORT_SERVICE) != 0, streetString(edge, S_TUNNEL), streetString(edge, S_WIDTH),
+				streets.getLong(streetColumn(S_ORIG_ID, edge)), weight(edge), flow(edge), averageTravelTime(edge),
+				(flags & INTERRUPTED) != 0);
+	}
+
+	private static long readVarint(ByteBuffer buffer, int[] position) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get(position[0]++);
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	private static long zigZag(long n) {
+		return (n >>> 1) ^ -(n & 1);
+	}
+
+	@Override
+	public String toString() {
+		return "BinarySnapshot [version=" + version + ", format=" + MAJOR_VERSION + "." + minorVersion
+				+ ", intersections=" + intersectionCount + ", streets=" + streetCount + ", strings=" + stringCount
+				+ ", size=" + size + ", loadMillis=" + loadMillis + "]";
+	}
+
+	/**
+	 * Collects the intersections and the streets read from the database and writes them as a
+	 * snapshot. The intersections must be added before the streets leaving them: a street whose
+	 * endpoints have not been added is dropped. The geometry and the lists are encoded as they are
+	 * added, so the writer holds the network in compact form.
+	 */
+	public static class Writer {
+
+		private final LocalDateTime version;
+		private final LongIntHashMap nodes;
+		private long[] osmids;
+		private int[] longitudes;
+		private int[] latitudes;
+		private double[] betweenness;
+		// highway and ref, the columns from N_HIGHWAY
+		private int[][] nodeStrings;
+		private byte[] nodeFlags;
+		private int nodeCount;
+
+		private int[] streetIds;
+		private int[] sources;
+		private int[] targets;
+		// weight, length, flow and average travel time, the columns from S_WEIGHT
+		private double[][] streetNumbers;
+		private long[] origIds;
+		private int[] keys;
+		private int[][] streetStrings;
+		private byte[] streetFlags;
+		private int[] geometryEnds;
+		private int[] listEnds;
+		private final Bytes geometry = new Bytes();
+		private final Bytes lists = new Bytes();
+		private int edgeCount;
+		private int dropped;
+
+		private final Map<String, Integer> dictionary = new HashMap<>();
+		private final List<byte[]> strings = new ArrayList<>();
+		private int stringBytes;
+
+		/**
+		 * @param version       Version of the graph being read, {@code null} if unknown.
+		 * @param expectedNodes Expected number of intersections, to size the arrays.
+		 * @param expectedEdges Expected number of streets, to size the arrays.
+		 */
+		public Writer(LocalDateTime version, int expectedNodes, int expectedEdges) {
+			this.version = version;
+			int n = Math.max(16, expectedNodes);
+			int m = Math.max(16, expectedEdges);
+			this.nodes = new LongIntHashMap(n);
+			this.osmids = new long[n];
+			this.longitudes = new int[n];
+			this.latitudes = new int[n];
+			this.betweenness = new double[n];
+			this.nodeStrings = new int[2][n];
+			this.nodeFlags = new byte[n];
+			this.streetIds = new int[m];
+			this.sources = new int[m];
+			this.targets = new int[m];
+			this.streetNumbers = new double[4][m];
+			this.origIds = new long[m];
+			this.keys = new int[m];
+			this.streetStrings = new int[STREET_STRINGS][m];
+			this.streetFlags = new byte[m];
+			this.geometryEnds = new int[m];
+			this.listEnds = new int[m];
+		}
+
+		/**
+		 * @param i An intersection; duplicates of an osmid already added are ignored.
+		 */
+		public void addIntersection(Intersection i) {
+			if (nodes.get(i.getOsmid()) != LongIntHashMap.MISSING) {
+				return;
+			}
+			if (nodeCount == osmids.length) {
+				int capacity = nodeCount * 2;
+				osmids = Arrays.copyOf(osmids, capacity);
+				longitudes = Arrays.copyOf(longitudes, capacity);
+				latitudes = Arrays.copyOf(latitudes, capacity);
+				betweenness = Arrays.copyOf(betweenness, capacity);
+				for (int k = 0; k < nodeStrings.length; k++) {
+					nodeStrings[k] = Arrays.copyOf(nodeStrings[k], capacity);
+				}
+				nodeFlags = Arrays.copyOf(nodeFlags, capacity);
+			}
+			nodes.put(i.getOsmid(), nodeCount);
+			osmids[nodeCount] = i.getOsmid();
+			Coordinate c = i.getCoordinate();
+			longitudes[nodeCount] = c == null ? MISSING_COORDINATE : fixed(c.getLongitude());
+			latitudes[nodeCount] = c == null ? MISSING_COORDINATE : fixed(c.getLatitude());
+			betweenness[nodeCount] = i.getBetweenness();
+			nodeStrings[0][nodeCount] = intern(i.getHighway());
+			nodeStrings[1][nodeCount] = intern(i.getRef());
+			nodeFlags[nodeCount] = (byte) ((i.isParking() ? PARKING : 0) | (i.isHospital() ? HOSPITAL : 0)
+					| (i.isBusStop() ? BUS_STOP : 0) | (i.isMuseum() ? MUSEUM : 0));
+			nodeCount++;
+		}
+
+		/**
+		 * @param s A street with the geometry as coordinates.
+		 */
+		public void addStreet(Street s) {
+			int source = nodes.get(s.getOsmidStart());
+			int target = nodes.get(s.getOsmidDest());
+			if (source == LongIntHashMap.MISSING || target == LongIntHashMap.MISSING) {
+				dropped++;
+				return;
+			}
+			if (edgeCount == streetIds.length) {
+				int capacity = edgeCount * 2;
+				streetIds = Arrays.copyOf(streetIds, capacity);
+				sources = Arrays.copyOf(sources, capacity);
+				targets = Arrays.copyOf(targets, capacity);
+				for (int k = 0; k < streetNumbers.length; k++) {
+					streetNumbers[k] = Arrays.copyOf(streetNumbers[k], capacity);
+				}
+				origIds = Arrays.copyOf(origIds, capacity);
+				keys = Arrays.copyOf(keys, capacity);
+				for (int k = 0; k < streetStrings.length; k++) {
+					streetStrings[k] = Arrays.copyOf(streetStrings[k], capacity);
+				}
+				streetFlags = Arrays.copyOf(streetFlags, capacity);
+				geometryEnds = Arrays.copyOf(geometryEnds, capacity);
+				listEnds = Arrays.copyOf(listEnds, capacity);
+			}
+			int e = edgeCount;
+			streetIds[e] = s.getId();
+			sources[e] = source;
+			targets[e] = target;
+			double[] numbers = { s.getWeight(), s.getLenght(), s.getFlow(), s.getAverageTravelTime() };
+			for (int k = 0; k < streetNumbers.length; k++) {
+				streetNumbers[k][e] = numbers[k];
+			}
+			origIds[e] = s.getOrigId();
+			keys[e] = s.getKey();
+			String[] attributes = { s.getAccess(), s.getArea(), s.getBridge(), s.getHighway(), s.getJunction(),
+					s.getMaxSpeed(), s.getName(), s.getRef(), s.getTunnel(), s.getWidth() };
+			for (int k = 0; k < STREET_STRINGS; k++) {
+				streetStrings[k][e] = intern(attributes[k]);
+			}
+			streetFlags[e] = (byte) ((s.isOneWay() ? ONE_WAY : 0) | (s.isTransportService() ? TRANSPORT_SERVICE : 0)
+					| (s.isInterrupted() ? INTERRUPTED : 0));
+
+			List<Coordinate> coordinates = s.getCoordinates() == null ? new ArrayList<>() : s.getCoordinates();
+			geometry.varint(coordinates.size());
+			long longitude = longitudes[source] == MISSING_COORDINATE ? 0 : longitudes[source];
+			long latitude = latitudes[source] == MISSING_COORDINATE ? 0 : latitudes[source];
+			for (Coordinate c : coordinates) {
+				int x = fixed(c.getLongitude());
+				int y = fixed(c.getLatitude());
+				geometry.zigZag(x - longitude);
+				geometry.zigZag(y - latitude);
+				longitude = x;
+				latitude = y;
+			}
+			geometryEnds[e] = geometry.size;
+
+			List<Integer> lanes = s.getArrayLanes() == null ? new ArrayList<>() : s.getArrayLanes();
+			lists.varint(lanes.size());
+			for (Integer lane : lanes) {
+				lists.zigZag(lane == null ? 0 : lane);
+			}
+			List<Long> osmidEdges = s.getOsmidEdges() == null ? new ArrayList<>() : s.getOsmidEdges();
+			lists.varint(osmidEdges.size());
+			long previous = 0;
+			for (Long osmid : osmidEdges) {
+				long value = osmid == null ? 0 : osmid;
+				lists.zigZag(value - previous);
+				previous = value;
+			}
+			listEnds[e] = lists.size;
+			edgeCount++;
+		}
+
+		private static int fixed(double degrees) {
+			return (int) Math.round(degrees * SCALE);
+		}
+
+		private int intern(String s) {
+			if (s == null) {
+				return NONE;
+			}
+			Integer index = dictionary.get(s);
+			if (index == null) {
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				index = strings.size();
+				dictionary.put(s, index);
+				strings.add(bytes);
+				stringBytes += bytes.length;
+			}
+			return index;
+		}
+
+		public int getIntersectionCount() {
+			return nodeCount;
+		}
+
+		public int getStreetCount() {
+			return edgeCount;
+		}
+
+		/**
+		 * @return Streets dropped because an endpoint was missing.
+		 */
+		public int getDropped() {
+			return dropped;
+		}
+
+		public LocalDateTime getVersion() {
+			return version;
+		}
+
+		/**
+		 * Writes the snapshot: sorts the intersections by osmid and groups the streets by source
+		 * with a counting sort, stable with respect to the order in which they were added.
+		 *
+		 * @return Number of bytes written.
+		 */
+		public long writeTo(OutputStream output) throws IOException {
+			int n = nodeCount;
+			int m = edgeCount;
+			long[] sorted = Arrays.copyOf(osmids, n);
+			Arrays.sort(sorted);
+			int[] rowOf = new int[n];
+			int[] nodeOf = new int[n];
+			for (int i = 0; i < n; i++) {
+				rowOf[i] = Arrays.binarySearch(sorted, osmids[i]);
+				nodeOf[rowOf[i]] = i;
+			}
+			int[] firstStreet = new int[n + 1];
+			for (int e = 0; e < m; e++) {
+				firstStreet[rowOf[sources[e]] + 1]++;
+			}
+			for (int r = 0; r < n; r++) {
+				firstStreet[r + 1] += firstStreet[r];
+			}
+			int[] edgeOf = new int[m];
+			int[] next = Arrays.copyOf(firstStreet, n);
+			for (int e = 0; e < m; e++) {
+				edgeOf[next[rowOf[sources[e]]]++] = e;
+			}
+
+			long[] sections = new long[END + 1];
+			long[] intersectionColumns = layout(n, INTERSECTION_WIDTHS);
+			long[] streetColumns = layout(m, STREET_WIDTHS);
+			sections[STRINGS] = HEADER_SIZE;
+			sections[INTERSECTIONS] = align(sections[STRINGS] + align(4L * (strings.size() + 1)) + stringBytes);
+			sections[STREETS] = sections[INTERSECTIONS] + intersectionColumns[INTERSECTION_WIDTHS.length];
+			sections[GEOMETRY] = sections[STREETS] + streetColumns[STREET_WIDTHS.length];
+			sections[LISTS] = align(sections[GEOMETRY] + geometry.size);
+			sections[END] = align(sections[LISTS] + lists.size);
+
+			Output out = new Output(output);
+			out.putInt(MAGIC);
+			out.putShort(MAJOR_VERSION);
+			out.putShort(MINOR_VERSION);
+			out.putLong(version == null ? Long.MIN_VALUE : version.toEpochSecond(ZoneOffset.UTC));
+			out.putInt(version == null ? 0 : version.getNano());
+			out.putInt(COORDINATE_DIGITS);
+			out.putInt(n);
+			out.putInt(m);
+			out.putInt(strings.size());
+			out.putInt(0);
+			for (long s : sections) {
+				out.putLong(s);
+			}
+			out.padTo(HEADER_SIZE);
+
+			int offset = 0;
+			out.putInt(offset);
+			for (byte[] s : strings) {
+				offset += s.length;
+				out.putInt(offset);
+			}
+			out.padTo(align(out.position));
+			for (byte[] s : strings) {
+				out.put(s, 0, s.length);
+			}
+			out.padTo(sections[INTERSECTIONS]);
+
+			long base = sections[INTERSECTIONS];
+			out.padTo(base + intersectionColumns[N_OSMID]);
+			for (int r = 0; r < n; r++) {
+				out.putLong(sorted[r]);
+			}
+			out.padTo(base + intersectionColumns[N_FIRST_STREET]);
+			for (int r = 0; r <= n; r++) {
+				out.putInt(firstStreet[r]);
+			}
+			out.padTo(base + intersectionColumns[N_LONGITUDE]);
+			for (int r = 0; r < n; r++) {
+				out.putInt(longitudes[nodeOf[r]]);
+			}
+			out.padTo(base + intersectionColumns[N_LATITUDE]);
+			for (int r = 0; r < n; r++) {
+				out.putInt(latitudes[nodeOf[r]]);
+			}
+			out.padTo(base + intersectionColumns[N_BETWEENNESS]);
+			for (int r = 0; r < n; r++) {
+				out.putDouble(betweenness[nodeOf[r]]);
+			}
+			for (int k = 0; k < nodeStrings.length; k++) {
+				out.padTo(base + intersectionColumns[N_HIGHWAY + k]);
+				for (int r = 0; r < n; r++) {
+					out.putInt(nodeStrings[k][nodeOf[r]]);
+				}
+			}
+			out.padTo(base + intersectionColumns[N_FLAGS]);
+			for (int r = 0; r < n; r++) {
+				out.put(nodeFlags[nodeOf[r]]);
+			}
+			out.padTo(sections[STREETS]);
+
+			base = sections[STREETS];
+			out.padTo(base + streetColumns[S_ID]);
+			for (int k = 0; k < m; k++) {
+				out.putInt(streetIds[edgeOf[k]]);
+			}
+			out.padTo(base + streetColumns[S_SOURCE]);
+			for (int k = 0; k < m; k++) {
+				out.putInt(rowOf[sources[edgeOf[k]]]);
+			}
+			out.padTo(base + streetColumns[S_TARGET]);
+			for (int k = 0; k < m; k++) {
+				out.putInt(rowOf[targets[edgeOf[k]]]);
+			}
+			for (int c = 0; c < streetNumbers.length; c++) {
+				out.padTo(base + streetColumns[S_WEIGHT + c]);
+				for (int k = 0; k < m; k++) {
+					out.putDouble(streetNumbers[c][edgeOf[k]]);
+				}
+			}
+			out.padTo(base + streetColumns[S_ORIG_ID]);
+			for (int k = 0; k < m; k++) {
+				out.putLong(origIds[edgeOf[k]]);
+			}
+			out.padTo(base + streetColumns[S_KEY]);
+			for (int k = 0; k < m; k++) {
+				out.putInt(keys[edgeOf[k]]);
+			}
+			for (int c = 0; c < STREET_STRINGS; c++) {
+				out.padTo(base + streetColumns[S_ACCESS + c]);
+				for (int k = 0; k < m; k++) {
+					out.putInt(streetStrings[c][edgeOf[k]]);
+				}
+			}
+			out.padTo(base + streetColumns[S_FLAGS]);
+			for (int k = 0; k < m; k++) {
+				out.put(streetFlags[edgeOf[k]]);
+			}
+			out.padTo(base + streetColumns[S_GEOMETRY]);
+			long position = 0;
+			for (int k = 0; k < m; k++) {
+				out.putLong(position);
+				int e = edgeOf[k];
+				position += geometryEnds[e] - (e == 0 ? 0 : geometryEnds[e - 1]);
+			}
+			out.padTo(base + streetColumns[S_LISTS]);
+			position = 0;
+			for (int k = 0; k < m; k++) {
+				out.putLong(position);
+				int e = edgeOf[k];
+				position += listEnds[e] - (e == 0 ? 0 : listEnds[e - 1]);
+			}
+			out.padTo(sections[GEOMETRY]);
+
+			for (int k = 0; k < m; k++) {
+				int e = edgeOf[k];
+				int from = e == 0 ? 0 : geometryEnds[e - 1];
+				out.put(geometry.data, from, geometryEnds[e] - from);
+			}
+			out.padTo(sections[LISTS]);
+			for (int k = 0; k < m; k++) {
+				int e = edgeOf[k];
+				int from = e == 0 ? 0 : listEnds[e - 1];
+				out.put(lists.data, from, listEnds[e] - from);
+			}
+			out.padTo(sections[END]);
+			out.flush();
+			return out.position;
+		}
+
+		@Override
+		public String toString() {
+			return "BinarySnapshot.Writer [version=" + version + ", intersections=" + nodeCount + ", streets="
+					+ edgeCount + ", strings=" + strings.size() + ", geometryBytes=" + geometry.size
+					+ ", listBytes=" + lists.size + ", dropped=" + dropped + "]";
+		}
+	}
+
+	/**
+	 * Growable array of varints.
+	 */
+	private static class Bytes {
+
+		private byte[] data = new byte[1024];
+		private int size;
+
+		void varint(long value) {
+			if (size + 10 > data.length) {
+				data = Arrays.copyOf(data, data.length * 2);
+			}
+			while ((value & ~0x7FL) != 0) {
+				data[size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			data[size++] = (byte) value;
+		}
+
+		void zigZag(long value) {
+			varint((value << 1) ^ (value >> 63));
+		}
+	}
+
+	/**
+	 * Little-endian writer that counts its position, through a buffer.
+	 */
+	private static class Output {
+
+		private final OutputStream output;
+		private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+		private long position;
+
+		Output(OutputStream output) {
+			this.output = output;
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				output.write(buffer.array(), 0, buffer.position());
+				buffer.clear();
+			}
+			position += bytes;
+		}
+
+		void put(byte value) throws IOException {
+			ensure(1);
+			buffer.put(value);
+		}
+
+		void putShort(short value) throws IOException {
+			ensure(2);
+			buffer.putShort(value);
+		}
+
+		void putInt(int value) throws IOException {
+			ensure(4);
+			buffer.putInt(value);
+		}
+
+		void putLong(long value) throws IOException {
+			ensure(8);
+			buffer.putLong(value);
+		}
+
+		void putDouble(double value) throws IOException {
+			ensure(8);
+			buffer.putDouble(value);
+		}
+
+		void put(byte[] bytes, int from, int length) throws IOException {
+			flush();
+			output.write(bytes, from, length);
+			position += length;
+		}
+
+		/**
+		 * Writes zeros up to a position, never beyond it.
+		 */
+		void padTo(long target) throws IOException {
+			if (target < position) {
+				throw new IllegalStateException("Graph snapshot layout overrun: " + position + " > " + target);
+			}
+			while (position < target) {
+				put((byte) 0);
+			}
+		}
+
+		void flush() throws IOException {
+			output.write(buffer.array(), 0, buffer.position());
+			buffer.clear();
+		}
+	}
+}
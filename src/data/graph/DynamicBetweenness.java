@@ -0,0 +1,284 @@
+package data.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Betweenness centrality kept up to date while the weights and the interruptions of the streets
+ * change, without a full recomputation.
+ * <p>
+ * The betweenness is the sum of the dependencies of every source. A change of the cost of the
+ * street (u, v) can only change the dependencies of the sources s whose shortest-path DAG contains
+ * the street before or after the change, that is d(s, u) + cost == d(s, v) with the old cost, or
+ * d(s, u) + cost &lt;= d(s, v) with the new one; every other source keeps its distances and its
+ * shortest paths. The distances d(s, u) and d(s, v) of all the sources are found with two visits
+ * of the reversed graph from u and v, then the old dependencies of the affected sources are
+ * subtracted and the new ones added. The same holds for a batch of changes, checked against the
+ * graph before the batch. The result is exact up to floating point rounding, which accumulates
+ * over the updates and is measured by {@link #verify(ForkJoinPool)}.
+ * <p>
+ * Topology changes are not supported: a new street or intersection needs a new instance, built
+ * from a full computation. Not thread-safe.
+ */
+public class DynamicBetweenness {
+
+	private static final double TOLERANCE = 1e-9;
+
+	private final BetweennessCentrality.Strategy strategy;
+	private final int[] sources;
+	private final boolean[] isSource;
+	private final double scale;
+	private final double[] centrality;
+	private final int[] reverseOffsets;
+	private final int[] reverseEdges;
+	private GraphSnapshot graph;
+	private long updates, changes, affectedSources;
+
+	/**
+	 * @param graph      The graph on which {@code centrality} has been computed.
+	 * @param strategy   How the sources have been chosen.
+	 * @param sources    Dense ids of the sources.
+	 * @param scale      Factor applied to every dependency.
+	 * @param centrality Result of {@link BetweennessCentrality#compute(int[], double, ForkJoinPool)},
+	 *                   updated in place from now on.
+	 */
+	public DynamicBetweenness(GraphSnapshot graph, BetweennessCentrality.Strategy strategy, int[] sources,
+			double scale, double[] centrality) {
+		int n = graph.getNodeCount();
+		int m = graph.getEdgeCount();
+		this.graph = graph;
+		this.strategy = strategy;
+		this.sources = sources;
+		this.isSource = new boolean[n];
+		for (int s : sources) {
+			isSource[s] = true;
+		}
+		this.scale = scale;
+		this.centrality = centrality;
+
+		// incoming edges of every node, for the visits of the reversed graph
+		this.reverseOffsets = new int[n + 1];
+		this.reverseEdges = new int[m];
+		for (int e = 0; e < m; e++) {
+			reverseOffsets[graph.target(e) + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			reverseOffsets[v + 1] += reverseOffsets[v];
+		}
+		int[] next = Arrays.copyOf(reverseOffsets, n);
+		for (int e = 0; e < m; e++) {
+			reverseEdges[next[graph.target(e)]++] = e;
+		}
+	}
+
+	public GraphSnapshot getGraph() {
+		return graph;
+	}
+
+	public BetweennessCentrality.Strategy getStrategy() {
+		return strategy;
+	}
+
+	public int getSourceCount() {
+		return sources.length;
+	}
+
+	/**
+	 * @return Batches of changes applied.
+	 */
+	public long getUpdates() {
+		return updates;
+	}
+
+	/**
+	 * @return Street changes applied.
+	 */
+	public long getChanges() {
+		return changes;
+	}
+
+	/**
+	 * @return Sources recomputed by all the updates.
+	 */
+	public long getAffectedSources() {
+		return affectedSources;
+	}
+
+	/**
+	 * @param node Dense id of an intersection.
+	 * @return Current betweenness of the intersection.
+	 */
+	public double centrality(int node) {
+		return centrality[node];
+	}
+
+	/**
+	 * Applies a batch of changes of the streets.
+	 *
+	 * @param streetIds     Ids of the changed STREET relations.
+	 * @param weights       New weights, in the order of {@code streetIds}.
+	 * @param isInterrupted New interruptions, in the order of {@code streetIds}.
+	 * @param pool          Threads running the visits.
+	 * @return Dense ids of the intersections whose betweenness has changed, {@code null} if a
+	 *         street is not in the graph, in which case nothing is changed.
+	 */
+	public int[] update(int[] streetIds, double[] weights, boolean[] isInterrupted, ForkJoinPool pool) {
+		int[] edges = new int[streetIds.length];
+		for (int i = 0; i < streetIds.length; i++) {
+			edges[i] = graph.edgeOf(streetIds[i]);
+			if (edges[i] < 0) {
+				return null;
+			}
+		}
+		GraphSnapshot changed = graph.withStreets(edges, weights, isInterrupted);
+		int[] affected = affectedSources(edges, changed);
+
+		double[] previous = centrality.clone();
+		if (affected.length > sources.length / 2) {
+			// two visits per affected source cost more than one visit per source
+			double[] computed = new BetweennessCentrality(changed).compute(sources, scale, pool);
+			System.arraycopy(computed, 0, centrality, 0, centrality.length);
+		} else if (affected.length > 0) {
+			double[] removed = new BetweennessCentrality(graph).compute(affected, -scale, pool);
+			double[] added = new BetweennessCentrality(changed).compute(affected, scale, pool);
+			for (int v = 0; v < centrality.length; v++) {
+				centrality[v] += removed[v] + added[v];
+			}
+		}
+		graph = changed;
+		updates++;
+		changes += streetIds.length;
+		affectedSources += affected.length;
+
+		int[] modified = new int[centrality.length];
+		int count = 0;
+		for (int v = 0; v < centrality.length; v++) {
+			if (Math.abs(centrality[v] - previous[v]) > TOLERANCE * Math.max(1, Math.abs(previous[v]))) {
+				modified[count++] = v;
+			}
+		}
+		return Arrays.copyOf(modified, count);
+	}
+
+	/**
+	 * @param edges   Changed streets.
+	 * @param changed The graph after the changes.
+	 * @return Sources whose shortest-path DAG contains one of the streets, before or after the
+	 *         changes. Distances are compared with a relative tolerance, since they are summed in a
+	 *         different order by the reversed visits: a source taken by mistake is only recomputed.
+	 */
+	private int[] affectedSources(int[] edges, GraphSnapshot changed) {
+		int n = graph.getNodeCount();
+		boolean[] affected = new boolean[n];
+		double[] toStart = new double[n];
+		double[] toDest = new double[n];
+		MinHeap heap = new MinHeap(graph.getEdgeCount() + 1);
+		for (int e : edges) {
+			double oldCost = graph.cost(e);
+			double newCost = changed.cost(e);
+			distancesTo(graph.source(e), toStart, heap);
+			distancesTo(graph.target(e), toDest, heap);
+			for (int s : sources) {
+				double du = toStart[s];
+				double dv = toDest[s];
+				if (affected[s] || du == Double.POSITIVE_INFINITY) {
+					continue;
+				}
+				double limit = dv + TOLERANCE * Math.max(1, dv);
+				affected[s] = (oldCost != Double.POSITIVE_INFINITY && du + oldCost <= limit)
+						|| (newCost != Double.POSITIVE_INFINITY && du + newCost <= limit);
+			}
+		}
+		int[] result = new int[sources.length];
+		int count = 0;
+		for (int s = 0; s < n; s++) {
+			if (affected[s] && isSource[s]) {
+				result[count++] = s;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Dijkstra visit of the reversed graph.
+	 *
+	 * @param target   Dense id of the destination.
+	 * @param distance Filled with the distance from every node to {@code target}.
+	 */
+	private void distancesTo(int target, double[] distance, MinHeap heap) {
+		Arrays.fill(distance, Double.POSITIVE_INFINITY);
+		distance[target] = 0;
+		heap.clear();
+		heap.push(0, target);
+		while (!heap.isEmpty()) {
+			int v = heap.peekNode();
+			double d = heap.peekKey();
+			heap.pop();
+			if (d > distance[v]) {
+				continue;
+			}
+			for (int i = reverseOffsets[v], end = reverseOffsets[v + 1]; i < end; i++) {
+				int e = reverseEdges[i];
+				double alternative = d + graph.cost(e);
+				int u = graph.source(e);
+				if (alternative < distance[u]) {
+					distance[u] = alternative;
+					heap.push(alternative, u);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compares the current values with a full computation from the same sources on the current
+	 * graph.
+	 *
+	 * @param pool Threads running the visits.
+	 * @return The errors of the current values.
+	 */
+	public Accuracy verify(ForkJoinPool pool) {
+		double[] exact = new BetweennessCentrality(graph).compute(sources, scale, pool);
+		Accuracy accuracy = new Accuracy();
+		double sumAbsolute = 0;
+		for (int v = 0; v < exact.length; v++) {
+			double error = Math.abs(centrality[v] - exact[v]);
+			double relative = error / Math.max(1, Math.abs(exact[v]));
+			accuracy.maxAbsoluteError = Math.max(accuracy.maxAbsoluteError, error);
+			accuracy.maxRelativeError = Math.max(accuracy.maxRelativeError, relative);
+			sumAbsolute += error;
+			if (relative > TOLERANCE) {
+				accuracy.mismatched++;
+			}
+		}
+		accuracy.meanAbsoluteError = exact.length == 0 ? 0 : sumAbsolute / exact.length;
+		return accuracy;
+	}
+
+	/**
+	 * Errors of the maintained values with respect to a full computation. The relative error of an
+	 * intersection is divided by its exact value, or by 1 if smaller.
+	 */
+	public static class Accuracy {
+		private double maxAbsoluteError, meanAbsoluteError, maxRelativeError;
+		private int mismatched;
+
+		public double getMaxAbsoluteError() {
+			return maxAbsoluteError;
+		}
+
+		public double getMeanAbsoluteError() {
+			return meanAbsoluteError;
+		}
+
+		public double getMaxRelativeError() {
+			return maxRelativeError;
+		}
+
+		/**
+		 * @return Intersections whose relative error exceeds 1e-9.
+		 */
+		public int getMismatched() {
+			return mismatched;
+		}
+	}
+}
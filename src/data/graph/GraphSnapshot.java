@@ -0,0 +1,330 @@
+package data.graph;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import util.LongIntHashMap;
+
+/**
+ * Immutable in-memory copy of the road network in compressed sparse row form.
+ * <p>
+ * Intersections are numbered densely from 0 to {@link #getNodeCount()} - 1 and streets from 0 to
+ * {@link #getEdgeCount()} - 1. The streets leaving node {@code n} are the edges from
+ * {@code offset(n)} (included) to {@code offset(n + 1)} (excluded); every property of a street is
+ * an element of a primitive array indexed by the edge, so a traversal touches contiguous memory
+ * and no object is allocated.
+ */
+public class GraphSnapshot {
+
+	private final LocalDateTime version;
+	private final long loadMillis;
+	private final long[] osmids;
+	private final LongIntHashMap nodes;
+	private final LongIntHashMap edges;
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] streetIds;
+	private final double[] weights;
+	private final double[] lengths;
+	private final double[] averageTravelTimes;
+	private final boolean[] interrupted;
+
+	private GraphSnapshot(LocalDateTime version, long loadMillis, long[] osmids, LongIntHashMap nodes,
+			LongIntHashMap edges, int[] offsets, int[] targets, int[] streetIds, double[] weights, double[] lengths,
+			double[] averageTravelTimes, boolean[] interrupted) {
+		this.version = version;
+		this.loadMillis = loadMillis;
+		this.osmids = osmids;
+		this.nodes = nodes;
+		this.edges = edges;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.streetIds = streetIds;
+		this.weights = weights;
+		this.lengths = lengths;
+		this.averageTravelTimes = averageTravelTimes;
+		this.interrupted = interrupted;
+	}
+
+	/**
+	 * @return Version of the graph (timestamp of the Control node) when the snapshot was read,
+	 *         {@code null} if unknown.
+	 */
+	public LocalDateTime getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return Time spent reading and building the snapshot, in milliseconds.
+	 */
+	public long getLoadMillis() {
+		return loadMillis;
+	}
+
+	public int getNodeCount() {
+		return osmids.length;
+	}
+
+	public int getEdgeCount() {
+		return targets.length;
+	}
+
+	/**
+	 * @param osmid OpenStreetMap id of an intersection.
+	 * @return Dense id of the intersection, -1 if it is not in the snapshot.
+	 */
+	public int indexOf(long osmid) {
+		return nodes.get(osmid);
+	}
+
+	/**
+	 * @param node Dense id of an intersection.
+	 * @return OpenStreetMap id of the intersection.
+	 */
+	public long osmid(int node) {
+		return osmids[node];
+	}
+
+	/**
+	 * @param node Dense id of an intersection, or {@link #getNodeCount()}.
+	 * @return First edge leaving {@code node}; the edges of {@code node} end at
+	 *         {@code offset(node + 1)}.
+	 */
+	public int offset(int node) {
+		return offsets[node];
+	}
+
+	public int outDegree(int node) {
+		return offsets[node + 1] - offsets[node];
+	}
+
+	/**
+	 * @param streetId Id of a STREET relation.
+	 * @return Dense id of the street, -1 if it is not in the snapshot.
+	 */
+	public int edgeOf(int streetId) {
+		return edges.get(streetId);
+	}
+
+	/**
+	 * @param edge Dense id of a street.
+	 * @return Dense id of the starting intersection, found by binary search on the offsets.
+	 */
+	public int source(int edge) {
+		int low = 0;
+		int high = osmids.length - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (offsets[middle] <= edge) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @param edge Dense id of a street.
+	 * @return Dense id of the destination intersection.
+	 */
+	public int target(int edge) {
+		return targets[edge];
+	}
+
+	/**
+	 * @param edge Dense id of a street.
+	 * @return Id of the STREET relation.
+	 */
+	public int streetId(int edge) {
+		return streetIds[edge];
+	}
+
+	public double weight(int edge) {
+		return weights[edge];
+	}
+
+	public double length(int edge) {
+		return lengths[edge];
+	}
+
+	public double averageTravelTime(int edge) {
+		return averageTravelTimes[edge];
+	}
+
+	public boolean isInterrupted(int edge) {
+		return interrupted[edge];
+	}
+
+	/**
+	 * @param edge Dense id of a street.
+	 * @return Cost of traversing the street in a shortest path: its weight, or infinity if the
+	 *         street is interrupted or its weight is not a non-negative number.
+	 */
+	public double cost(int edge) {
+		double weight = weights[edge];
+		return interrupted[edge] || !(weight >= 0) ? Double.POSITIVE_INFINITY : weight;
+	}
+
+	/**
+	 * Copy of the snapshot with the weight and the interruption of some streets changed. The
+	 * topology and the other properties are shared with this snapshot, which is not modified.
+	 *
+	 * @param edges         Dense ids of the streets.
+	 * @param weights       New weights, in the order of {@code edges}.
+	 * @param isInterrupted New interruptions, in the order of {@code edges}.
+	 * @return The changed snapshot, with the same version.
+	 */
+	public GraphSnapshot withStreets(int[] edges, double[] weights, boolean[] isInterrupted) {
+		double[] changedWeights = this.weights.clone();
+		boolean[] changedInterrupted = this.interrupted.clone();
+		for (int i = 0; i < edges.length; i++) {
+			changedWeights[edges[i]] = weights[i];
+			changedInterrupted[edges[i]] = isInterrupted[i];
+		}
+		return new GraphSnapshot(version, loadMillis, osmids, nodes, this.edges, offsets, targets, streetIds,
+				changedWeights, lengths, averageTravelTimes, changedInterrupted);
+	}
+
+	/**
+	 * @return Approximate heap size of the snapshot, in bytes.
+	 */
+	public long getMemoryFootprint() {
+		long arrays = 8L * osmids.length + 4L * offsets.length + 4L * targets.length + 4L * streetIds.length
+				+ 8L * weights.length + 8L * lengths.length + 8L * averageTravelTimes.length + interrupted.length;
+		return arrays + 9 * 16L + nodes.getMemoryFootprint() + edges.getMemoryFootprint() + 64L;
+	}
+
+	@Override
+	public String toString() {
+		return "GraphSnapshot [version=" + version + ", nodes=" + getNodeCount() + ", edges=" + getEdgeCount()
+				+ ", bytes=" + getMemoryFootprint() + ", loadMillis=" + loadMillis + "]";
+	}
+
+	/**
+	 * Collects the intersections and the streets read from the database, in any order, and sorts
+	 * them in compressed sparse row form. Streets whose endpoints have not been added are dropped.
+	 */
+	public static class Builder {
+
+		private final long start;
+		private final LocalDateTime version;
+		private long[] osmids;
+		private int nodeCount;
+		private final LongIntHashMap nodes;
+		private int[] sources;
+		private int[] targets;
+		private int[] streetIds;
+		private double[] weights;
+		private double[] lengths;
+		private double[] averageTravelTimes;
+		private boolean[] interrupted;
+		private int edgeCount;
+		private int dropped;
+
+		/**
+		 * @param version       Version of the graph being read.
+		 * @param expectedNodes Expected number of intersections, to size the arrays.
+		 * @param expectedEdges Expected number of streets, to size the arrays.
+		 */
+		public Builder(LocalDateTime version, int expectedNodes, int expectedEdges) {
+			this.start = System.currentTimeMillis();
+			this.version = version;
+			int n = Math.max(16, expectedNodes);
+			int m = Math.max(16, expectedEdges);
+			this.osmids = new long[n];
+			this.nodes = new LongIntHashMap(n);
+			this.sources = new int[m];
+			this.targets = new int[m];
+			this.streetIds = new int[m];
+			this.weights = new double[m];
+			this.lengths = new double[m];
+			this.averageTravelTimes = new double[m];
+			this.interrupted = new boolean[m];
+		}
+
+		/**
+		 * @param osmid OpenStreetMap id of an intersection; duplicates are ignored.
+		 */
+		public void addNode(long osmid) {
+			if (nodes.get(osmid) != LongIntHashMap.MISSING) {
+				return;
+			}
+			if (nodeCount == osmids.length) {
+				osmids = Arrays.copyOf(osmids, nodeCount * 2);
+			}
+			nodes.put(osmid, nodeCount);
+			osmids[nodeCount++] = osmid;
+		}
+
+		public void addEdge(long osmidStart, long osmidDest, int streetId, double weight, double length,
+				double averageTravelTime, boolean isInterrupted) {
+			int source = nodes.get(osmidStart);
+			int target = nodes.get(osmidDest);
+			if (source == LongIntHashMap.MISSING || target == LongIntHashMap.MISSING) {
+				dropped++;
+				return;
+			}
+			if (edgeCount == targets.length) {
+				int capacity = edgeCount * 2;
+				sources = Arrays.copyOf(sources, capacity);
+				targets = Arrays.copyOf(targets, capacity);
+				streetIds = Arrays.copyOf(streetIds, capacity);
+				weights = Arrays.copyOf(weights, capacity);
+				lengths = Arrays.copyOf(lengths, capacity);
+				averageTravelTimes = Arrays.copyOf(averageTravelTimes, capacity);
+				interrupted = Arrays.copyOf(interrupted, capacity);
+			}
+			sources[edgeCount] = source;
+			targets[edgeCount] = target;
+			streetIds[edgeCount] = streetId;
+			weights[edgeCount] = weight;
+			lengths[edgeCount] = length;
+			averageTravelTimes[edgeCount] = averageTravelTime;
+			interrupted[edgeCount] = isInterrupted;
+			edgeCount++;
+		}
+
+		/**
+		 * @return Streets dropped because an endpoint was missing.
+		 */
+		public int getDropped() {
+			return dropped;
+		}
+
+		/**
+		 * Sorts the edges by source with a counting sort, stable with respect to the order in which
+		 * they were added.
+		 */
+		public GraphSnapshot build() {
+			int[] offsets = new int[nodeCount + 1];
+			for (int e = 0; e < edgeCount; e++) {
+				offsets[sources[e] + 1]++;
+			}
+			for (int n = 0; n < nodeCount; n++) {
+				offsets[n + 1] += offsets[n];
+			}
+			int[] next = Arrays.copyOf(offsets, nodeCount);
+			int[] sortedTargets = new int[edgeCount];
+			int[] sortedIds = new int[edgeCount];
+			double[] sortedWeights = new double[edgeCount];
+			double[] sortedLengths = new double[edgeCount];
+			double[] sortedTimes = new double[edgeCount];
+			boolean[] sortedInterrupted = new boolean[edgeCount];
+			LongIntHashMap edges = new LongIntHashMap(edgeCount);
+			for (int e = 0; e < edgeCount; e++) {
+				int position = next[sources[e]]++;
+				edges.put(streetIds[e], position);
+				sortedTargets[position] = targets[e];
+				sortedIds[position] = streetIds[e];
+				sortedWeights[position] = weights[e];
+				sortedLengths[position] = lengths[e];
+				sortedTimes[position] = averageTravelTimes[e];
+				sortedInterrupted[position] = interrupted[e];
+			}
+			return new GraphSnapshot(version, System.currentTimeMillis() - start, Arrays.copyOf(osmids, nodeCount),
+					nodes, edges, offsets, sortedTargets, sortedIds, sortedWeights, sortedLengths, sortedTimes,
+					sortedInterrupted);
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package data.graph;
+
+/**
+ * Binary min-heap of (distance, node) pairs on primitive arrays, for the Dijkstra visits.
+ * <p>
+ * There is no decrease-key: a node is pushed again when its distance improves, and the stale
+ * entries are skipped by the visit when popped, so the capacity must be the number of edges plus
+ * one.
+ */
+final class MinHeap {
+
+	private final double[] keys;
+	private final int[] nodes;
+	private int size;
+
+	MinHeap(int capacity) {
+		this.keys = new double[capacity];
+		this.nodes = new int[capacity];
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	void clear() {
+		size = 0;
+	}
+
+	double peekKey() {
+		return keys[0];
+	}
+
+	int peekNode() {
+		return nodes[0];
+	}
+
+	void push(double key, int node) {
+		int i = size++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (keys[parent] <= key) {
+				break;
+			}
+			keys[i] = keys[parent];
+			nodes[i] = nodes[parent];
+			i = parent;
+		}
+		keys[i] = key;
+		nodes[i] = node;
+	}
+
+	void pop() {
+		size--;
+		double key = keys[size];
+		int node = nodes[size];
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && keys[child + 1] < keys[child]) {
+				child++;
+			}
+			if (keys[child] >= key) {
+				break;
+			}
+			keys[i] = keys[child];
+			nodes[i] = nodes[child];
+			i = child;
+		}
+		keys[i] = key;
+		nodes[i] = node;
+	}
+}
@@ -0,0 +1,42 @@
+package data.graph;
+
+/**
+ * Receives the progress of a long computation and tells it whether to stop.
+ * <p>
+ * A computation is a sequence of phases, each made of a known number of units of work. The
+ * methods may be called by several threads at once.
+ */
+public interface ProgressMonitor {
+
+	/** Monitor that ignores the progress and never cancels. */
+	ProgressMonitor NONE = new ProgressMonitor() {
+		@Override
+		public void begin(String phase, long total) {
+		}
+
+		@Override
+		public void worked(long units) {
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+	};
+
+	/**
+	 * @param phase Name of the phase starting now.
+	 * @param total Units of work of the phase.
+	 */
+	void begin(String phase, long total);
+
+	/**
+	 * @param units Units of work of the current phase done since the last call.
+	 */
+	void worked(long units);
+
+	/**
+	 * @return {@code true} if the computation should stop as soon as possible.
+	 */
+	boolean isCancelled();
+}
@@ -0,0 +1,932 @@
+package data.graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import util.LongIntHashMap;
+
+/**
+ * In-memory uniform grid over the positions of the intersections and the geometries of the
+ * streets, to find them by bounding box without querying the database.
+ * <p>
+ * The plane of longitudes and latitudes is divided in square cells of {@code cellDegrees} degrees:
+ * an intersection is recorded in the cell of its position, a street in every cell its bounding
+ * box overlaps. Unlike a packed R-tree, the grid is updated in place, so every write of the graph
+ * is applied as it happens instead of rebuilding the index. Every property is an element of a
+ * primitive array indexed by a slot; the slot of a removed element is reused.
+ * <p>
+ * Thread-safe: the queries share a read lock, the updates take the write lock. A
+ * {@link ChangeListener} is told, under the write lock, of the area of every street written.
+ */
+public class SpatialIndex {
+
+	public static final int PARKING = 1;
+	public static final int HOSPITAL = 2;
+	public static final int BUS_STOP = 4;
+	public static final int MUSEUM = 8;
+
+	/**
+	 * Mean radius of the Earth, in meters.
+	 */
+	public static final double EARTH_RADIUS = 6371008.8;
+
+	private static final AtomicLong BUILDS = new AtomicLong();
+
+	private final long build = BUILDS.incrementAndGet();
+	private final double cellDegrees;
+	private volatile ChangeListener listener;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final LongAdder queries = new LongAdder();
+	private final LongAdder queryNanos = new LongAdder();
+
+	private final LongIntHashMap nodeSlots;
+	private final HashMap<Long, Cell> nodeCells = new HashMap<>();
+	private long[] osmids;
+	private double[] longitudes;
+	private double[] latitudes;
+	private byte[] flags;
+	private int nodeTop;
+	private int[] freeNodes = new int[16];
+	private int freeNodeCount;
+
+	private final LongIntHashMap edgeSlots;
+	private final HashMap<Long, Cell> edgeCells = new HashMap<>();
+	private int[] streetIds;
+	private long[] starts;
+	private long[] dests;
+	private double[][] geometries;
+	private double[] minLongitudes;
+	private double[] minLatitudes;
+	private double[] maxLongitudes;
+	private double[] maxLatitudes;
+	private double[] weights;
+	private boolean[] interrupted;
+	private String[] highways;
+	private int edgeTop;
+	private int[] freeEdges = new int[16];
+	private int freeEdgeCount;
+
+	/**
+	 * @param cellDegrees   Side of a cell, in decimal degrees.
+	 * @param expectedNodes Number of intersections expected, to size the arrays once.
+	 * @param expectedEdges Number of streets expected, to size the arrays once.
+	 */
+	public SpatialIndex(double cellDegrees, int expectedNodes, int expectedEdges) {
+		if (!(cellDegrees > 0)) {
+			throw new IllegalArgumentException("cellDegrees = " + cellDegrees);
+		}
+		this.cellDegrees = cellDegrees;
+		int nodes = Math.max(16, expectedNodes);
+		int edges = Math.max(16, expectedEdges);
+		nodeSlots = new LongIntHashMap(nodes);
+		osmids = new long[nodes];
+		longitudes = new double[nodes];
+		latitudes = new double[nodes];
+		flags = new byte[nodes];
+		edgeSlots = new LongIntHashMap(edges);
+		streetIds = new int[edges];
+		starts = new long[edges];
+		dests = new long[edges];
+		geometries = new double[edges][];
+		minLongitudes = new double[edges];
+		minLatitudes = new double[edges];
+		maxLongitudes = new double[edges];
+		maxLatitudes = new double[edges];
+		weights = new double[edges];
+		interrupted = new boolean[edges];
+		highways = new String[edges];
+	}
+
+	/**
+	 * @return Flags of the services of an intersection, as used by the index.
+	 */
+	public static int flags(boolean parking, boolean hospital, boolean busStop, boolean museum) {
+		return (parking ? PARKING : 0) | (hospital ? HOSPITAL : 0) | (busStop ? BUS_STOP : 0) | (museum ? MUSEUM : 0);
+	}
+
+	/**
+	 * @return Serial number of this index, different for every index built in the process.
+	 */
+	public long getBuild() {
+		return build;
+	}
+
+	/**
+	 * @param listener Told of the area of every street written from now on, {@code null} for none.
+	 */
+	public void setChangeListener(ChangeListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Tells the listener of the bounding box of the street in a slot, if it has a geometry.
+	 */
+	private void changed(int slot) {
+		ChangeListener current = listener;
+		if (current != null && geometries[slot].length > 0) {
+			current.changed(minLongitudes[slot], minLatitudes[slot], maxLongitudes[slot], maxLatitudes[slot]);
+		}
+	}
+
+	// INTERSECTIONS
+
+	/**
+	 * Records a new intersection, or moves an existing one.
+	 *
+	 * @param flags Services of the intersection, see {@link #flags(boolean, boolean, boolean, boolean)}.
+	 */
+	public void putIntersection(long osmid, double longitude, double latitude, int flags) {
+		lock.writeLock().lock();
+		try {
+			int slot = nodeSlots.get(osmid);
+			if (slot == LongIntHashMap.MISSING) {
+				slot = freeNodeCount > 0 ? freeNodes[--freeNodeCount] : newNodeSlot();
+				nodeSlots.put(osmid, slot);
+			} else {
+				long key = cellKey(longitudes[slot], latitudes[slot]);
+				Cell cell = nodeCells.get(key);
+				if (cell.remove(slot) && cell.size == 0) {
+					nodeCells.remove(key);
+				}
+			}
+			osmids[slot] = osmid;
+			longitudes[slot] = longitude;
+			latitudes[slot] = latitude;
+			this.flags[slot] = (byte) flags;
+			nodeCells.computeIfAbsent(cellKey(longitude, latitude), k -> new Cell()).add(slot);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private int newNodeSlot() {
+		if (nodeTop == osmids.length) {
+			int capacity = osmids.length << 1;
+			osmids = Arrays.copyOf(osmids, capacity);
+			longitudes = Arrays.copyOf(longitudes, capacity);
+			latitudes = Arrays.copyOf(latitudes, capacity);
+			flags = Arrays.copyOf(flags, capacity);
+		}
+		return nodeTop++;
+	}
+
+	/**
+	 * Forgets a deleted intersection and the streets that start or end there.
+	 *
+	 * @return {@code true} if the intersection was in the index.
+	 */
+	public boolean removeIntersection(long osmid) {
+		lock.writeLock().lock();
+		try {
+			for (int slot = 0; slot < edgeTop; slot++) {
+				if (geometries[slot] != null && (starts[slot] == osmid || dests[slot] == osmid)) {
+					removeEdgeSlot(slot);
+				}
+			}
+			int slot = nodeSlots.remove(osmid);
+			if (slot == LongIntHashMap.MISSING) {
+				return false;
+			}
+			long key = cellKey(longitudes[slot], latitudes[slot]);
+			Cell cell = nodeCells.get(key);
+			if (cell.remove(slot) && cell.size == 0) {
+				nodeCells.remove(key);
+			}
+			if (freeNodeCount == freeNodes.length) {
+				freeNodes = Arrays.copyOf(freeNodes, freeNodeCount << 1);
+			}
+			freeNodes[freeNodeCount++] = slot;
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @param osmid    The intersection.
+	 * @param position Receives the longitude and the latitude of the intersection, if present.
+	 * @return {@code true} if the intersection is in the index.
+	 */
+	public boolean getPosition(long osmid, double[] position) {
+		lock.readLock().lock();
+		try {
+			int slot = nodeSlots.get(osmid);
+			if (slot == LongIntHashMap.MISSING) {
+				return false;
+			}
+			position[0] = longitudes[slot];
+			position[1] = latitudes[slot];
+			return true;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @param limit Maximum number of intersections returned.
+	 * @return The osmids of the intersections inside the box, borders included, in no particular
+	 *         order.
+	 */
+	public long[] getIntersections(double minLongitude, double minLatitude, double maxLongitude,
+			double maxLatitude, int limit) {
+		long start = System.nanoTime();
+		lock.readLock().lock();
+		try {
+			Hits hits = new Hits(limit);
+			visitCells(nodeCells, minLongitude, minLatitude, maxLongitude, maxLatitude, (cx, cy, cell) -> {
+				for (int i = 0; i < cell.size; i++) {
+					int slot = cell.slots[i];
+					if (longitudes[slot] >= minLongitude && longitudes[slot] <= maxLongitude
+							&& latitudes[slot] >= minLatitude && latitudes[slot] <= maxLatitude
+							&& !hits.add(osmids[slot])) {
+						return false;
+					}
+				}
+				return true;
+			});
+			return hits.toLongArray();
+		} finally {
+			lock.readLock().unlock();
+			timed(start);
+		}
+	}
+
+	/**
+	 * Finds the intersections nearest to a point, by great-circle distance.
+	 * <p>
+	 * The cells are visited in square rings of growing radius around the cell of the point. A cell
+	 * is skipped when a lower bound of the distance of its points is not better than the k-th
+	 * distance found, and the visit stops when the same holds for every cell out of the rings
+	 * visited, so the cost depends on the density of the network around the point rather than on
+	 * its size. The bound of a gap in longitude is the distance from the point to the meridian at
+	 * that gap, which shrinks with the latitude. When a ring has more cells than the non-empty
+	 * ones, as for a rare filter, the remaining non-empty cells are scanned instead.
+	 *
+	 * @param flags     Services the intersections must all have, 0 for any.
+	 * @param osmids    Receives the osmids of the intersections, nearest first; its length is the
+	 *                  number of intersections searched.
+	 * @param distances Receives the distances of the intersections, in meters.
+	 * @return Number of intersections found, less than searched if fewer match.
+	 */
+	public int getNearestIntersections(double longitude, double latitude, int flags, long[] osmids,
+			double[] distances) {
+		int k = Math.min(osmids.length, distances.length);
+		if (k == 0) {
+			return 0;
+		}
+		long start = System.nanoTime();
+		lock.readLock().lock();
+		try {
+			// max-heap of the best k, by negated distance
+			MinHeap best = new MinHeap(k + 1);
+			int cx = cell(longitude);
+			int cy = cell(latitude);
+			double cosLatitude = Math.cos(Math.toRadians(latitude));
+			for (int r = 0;; r++) {
+				if (8L * r > nodeCells.size()) {
+					for (Map.Entry<Long, Cell> e : nodeCells.entrySet()) {
+						int x = (int) (e.getKey() >> 32);
+						int y = (int) (long) e.getKey();
+						if (Math.max(Math.abs((long) x - cx), Math.abs((long) y - cy)) >= r) {
+							nearest(e.getValue(), x, y, longitude, latitude, cosLatitude, flags, k, best);
+						}
+					}
+					break;
+				}
+				for (int x = cx - r; x <= cx + r; x++) {
+					int step = x == cx - r || x == cx + r ? 1 : Math.max(1, 2 * r);
+					for (int y = cy - r; y <= cy + r; y += step) {
+						Cell cell = nodeCells.get(cellKey(x, y));
+						if (cell != null) {
+							nearest(cell, x, y, longitude, latitude, cosLatitude, flags, k, best);
+						}
+					}
+				}
+				if (best.size() == k && -best.peekKey() <= outsideBound(cx, cy, r, longitude, latitude, cosLatitude)) {
+					break;
+				}
+			}
+			int found = best.size();
+			for (int i = found - 1; i >= 0; i--) {
+				distances[i] = -best.peekKey();
+				osmids[i] = this.osmids[best.peekNode()];
+				best.pop();
+			}
+			return found;
+		} finally {
+			lock.readLock().unlock();
+			timed(start);
+		}
+	}
+
+	/**
+	 * Offers the matching intersections of a cell to the k best, unless the cell is too far.
+	 */
+	private void nearest(Cell cell, int x, int y, double longitude, double latitude, double cosLatitude,
+			int flags, int k, MinHeap best) {
+		if (best.size() == k) {
+			double gapLongitude = Math.max(0, Math.max(x * cellDegrees - longitude, longitude - (x + 1) * cellDegrees));
+			double gapLatitude = Math.max(0, Math.max(y * cellDegrees - latitude, latitude - (y + 1) * cellDegrees));
+			double bound = Math.max(latitudeBound(gapLatitude), longitudeBound(gapLongitude, cosLatitude));
+			if (bound >= -best.peekKey()) {
+				return;
+			}
+		}
+		for (int i = 0; i < cell.size; i++) {
+			int slot = cell.slots[i];
+			if ((this.flags[slot] & flags) != flags) {
+				continue;
+			}
+			double distance = haversine(longitude, latitude, longitudes[slot], latitudes[slot]);
+			if (best.size() < k) {
+				best.push(-distance, slot);
+			} else if (distance < -best.peekKey()) {
+				best.pop();
+				best.push(-distance, slot);
+			}
+		}
+	}
+
+	/**
+	 * @return A lower bound of the distance of the point from any point out of the square of
+	 *         cells of radius {@code r} around its cell.
+	 */
+	private double outsideBound(int cx, int cy, int r, double longitude, double latitude, double cosLatitude) {
+		double gapLongitude = Math.min(longitude - (cx - r) * cellDegrees, (cx + r + 1) * cellDegrees - longitude);
+		double gapLatitude = Math.min(latitude - (cy - r) * cellDegrees, (cy + r + 1) * cellDegrees - latitude);
+		return Math.min(latitudeBound(gapLatitude), longitudeBound(gapLongitude, cosLatitude));
+	}
+
+	private static double latitudeBound(double gapDegrees) {
+		return EARTH_RADIUS * Math.toRadians(gapDegrees);
+	}
+
+	private static double longitudeBound(double gapDegrees, double cosLatitude) {
+		return EARTH_RADIUS * Math.asin(Math.min(1, cosLatitude * Math.sin(Math.toRadians(Math.min(90, gapDegrees)))));
+	}
+
+	/**
+	 * @return The great-circle distance between two points, in meters.
+	 */
+	public static double haversine(double longitude1, double latitude1, double longitude2, double latitude2) {
+		double sinLatitude = Math.sin(Math.toRadians(latitude2 - latitude1) / 2);
+		double sinLongitude = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+		double h = sinLatitude * sinLatitude + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+				* sinLongitude * sinLongitude;
+		return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(h)));
+	}
+
+	// STREETS
+
+	/**
+	 * Records a new street, or replaces an existing one. A street without geometry is placed on
+	 * the segment between its endpoints, if they are in the index; otherwise it is recorded but
+	 * never found by box.
+	 *
+	 * @param longitudes Longitudes of the points of the geometry.
+	 * @param latitudes  Latitudes of the points of the geometry, as many as the longitudes.
+	 */
+	public void putStreet(int id, long osmidStart, long osmidDest, double[] longitudes, double[] latitudes,
+			double weight, boolean interrupted, String highway) {
+		lock.writeLock().lock();
+		try {
+			int slot = edgeSlots.get(id);
+			if (slot == LongIntHashMap.MISSING) {
+				slot = freeEdgeCount > 0 ? freeEdges[--freeEdgeCount] : newEdgeSlot();
+				edgeSlots.put(id, slot);
+			} else {
+				changed(slot);
+				removeFromCells(slot);
+			}
+			streetIds[slot] = id;
+			starts[slot] = osmidStart;
+			dests[slot] = osmidDest;
+			geometries[slot] = geometry(osmidStart, osmidDest, longitudes, latitudes);
+			weights[slot] = weight;
+			this.interrupted[slot] = interrupted;
+			highways[slot] = highway == null ? null : highway.intern();
+			addToCells(slot);
+			changed(slot);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return The points of a geometry interleaved, longitude first.
+	 */
+	private double[] geometry(long osmidStart, long osmidDest, double[] longitudes, double[] latitudes) {
+		int points = longitudes == null || latitudes == null ? 0 : Math.min(longitudes.length, latitudes.length);
+		if (points > 0) {
+			double[] geometry = new double[points << 1];
+			for (int i = 0; i < points; i++) {
+				geometry[i << 1] = longitudes[i];
+				geometry[(i << 1) + 1] = latitudes[i];
+			}
+			return geometry;
+		}
+		int a = nodeSlots.get(osmidStart);
+		int b = nodeSlots.get(osmidDest);
+		if (a == LongIntHashMap.MISSING || b == LongIntHashMap.MISSING) {
+			return new double[0];
+		}
+		return new double[] { this.longitudes[a], this.latitudes[a], this.longitudes[b], this.latitudes[b] };
+	}
+
+	private int newEdgeSlot() {
+		if (edgeTop == streetIds.length) {
+			int capacity = streetIds.length << 1;
+			streetIds = Arrays.copyOf(streetIds, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			dests = Arrays.copyOf(dests, capacity);
+			geometries = Arrays.copyOf(geometries, capacity);
+			minLongitudes = Arrays.copyOf(minLongitudes, capacity);
+			minLatitudes = Arrays.copyOf(minLatitudes, capacity);
+			maxLongitudes = Arrays.copyOf(maxLongitudes, capacity);
+			maxLatitudes = Arrays.copyOf(maxLatitudes, capacity);
+			weights = Arrays.copyOf(weights, capacity);
+			interrupted = Arrays.copyOf(interrupted, capacity);
+			highways = Arrays.copyOf(highways, capacity);
+		}
+		return edgeTop++;
+	}
+
+	/**
+	 * Computes the bounding box of the street in a slot and records it in the cells it overlaps.
+	 */
+	private void addToCells(int slot) {
+		double[] geometry = geometries[slot];
+		if (geometry.length == 0) {
+			return;
+		}
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < geometry.length; i += 2) {
+			minX = Math.min(minX, geometry[i]);
+			maxX = Math.max(maxX, geometry[i]);
+			minY = Math.min(minY, geometry[i + 1]);
+			maxY = Math.max(maxY, geometry[i + 1]);
+		}
+		minLongitudes[slot] = minX;
+		minLatitudes[slot] = minY;
+		maxLongitudes[slot] = maxX;
+		maxLatitudes[slot] = maxY;
+		for (int cx = cell(minX); cx <= cell(maxX); cx++) {
+			for (int cy = cell(minY); cy <= cell(maxY); cy++) {
+				edgeCells.computeIfAbsent(cellKey(cx, cy), k -> new Cell()).add(slot);
+			}
+		}
+	}
+
+	private void removeFromCells(int slot) {
+		if (geometries[slot].length == 0) {
+			return;
+		}
+		for (int cx = cell(minLongitudes[slot]); cx <= cell(maxLongitudes[slot]); cx++) {
+			for (int cy = cell(minLatitudes[slot]); cy <= cell(maxLatitudes[slot]); cy++) {
+				long key = cellKey(cx, cy);
+				Cell cell = edgeCells.get(key);
+				if (cell != null && cell.remove(slot) && cell.size == 0) {
+					edgeCells.remove(key);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Forgets a deleted street.
+	 *
+	 * @return {@code true} if the street was in the index.
+	 */
+	public boolean removeStreet(int id) {
+		lock.writeLock().lock();
+		try {
+			int slot = edgeSlots.get(id);
+			if (slot == LongIntHashMap.MISSING) {
+				return false;
+			}
+			removeEdgeSlot(slot);
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void removeEdgeSlot(int slot) {
+		changed(slot);
+		removeFromCells(slot);
+		edgeSlots.remove(streetIds[slot]);
+		geometries[slot] = null;
+		highways[slot] = null;
+		if (freeEdgeCount == freeEdges.length) {
+			freeEdges = Arrays.copyOf(freeEdges, freeEdgeCount << 1);
+		}
+		freeEdges[freeEdgeCount++] = slot;
+	}
+
+	/**
+	 * @return {@code true} if the street is in the index.
+	 */
+	public boolean setStreetWeight(int id, double weight) {
+		lock.writeLock().lock();
+		try {
+			int slot = edgeSlots.get(id);
+			if (slot == LongIntHashMap.MISSING) {
+				return false;
+			}
+			if (weights[slot] != weight) {
+				weights[slot] = weight;
+				changed(slot);
+			}
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return {@code true} if the street is in the index.
+	 */
+	public boolean setStreetInterrupted(int id, boolean interrupted) {
+		lock.writeLock().lock();
+		try {
+			int slot = edgeSlots.get(id);
+			if (slot == LongIntHashMap.MISSING) {
+				return false;
+			}
+			if (this.interrupted[slot] != interrupted) {
+				this.interrupted[slot] = interrupted;
+				changed(slot);
+			}
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @param id   The street.
+	 * @param pair Receives the osmids of the start and of the destination of the street, if present.
+	 * @return {@code true} if the street is in the index.
+	 */
+	public boolean getStreetEndpoints(int id, long[] pair) {
+		lock.readLock().lock();
+		try {
+			int slot = edgeSlots.get(id);
+			if (slot == LongIntHashMap.MISSING) {
+				return false;
+			}
+			pair[0] = starts[slot];
+			pair[1] = dests[slot];
+			return true;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @param limit Maximum number of streets returned.
+	 * @return The ids of the streets whose geometry crosses the box or lies inside it, in no
+	 *         particular order.
+	 */
+	public int[] getStreets(double minLongitude, double minLatitude, double maxLongitude, double maxLatitude,
+			int limit) {
+		Hits hits = new Hits(limit);
+		visitStreetSlots(minLongitude, minLatitude, maxLongitude, maxLatitude, slot -> hits.add(streetIds[slot]));
+		return hits.toIntArray();
+	}
+
+	/**
+	 * Visits, under the read lock, the streets whose geometry crosses the box or lies inside it,
+	 * each once. A stored geometry is replaced and never changed, so the visitor may keep it to
+	 * work on it after the visit, but must not modify it.
+	 */
+	public void visitStreets(double minLongitude, double minLatitude, double maxLongitude, double maxLatitude,
+			StreetVisitor visitor) {
+		visitStreetSlots(minLongitude, minLatitude, maxLongitude, maxLatitude, slot -> visitor.visit(streetIds[slot],
+				geometries[slot], weights[slot], interrupted[slot], highways[slot]));
+	}
+
+	/**
+	 * Visits, under the read lock, the slots of the streets whose geometry crosses the box or lies
+	 * inside it, each once.
+	 */
+	private void visitStreetSlots(double minLongitude, double minLatitude, double maxLongitude, double maxLatitude,
+			SlotVisitor visitor) {
+		long start = System.nanoTime();
+		lock.readLock().lock();
+		try {
+			int qx = cell(minLongitude);
+			int qy = cell(minLatitude);
+			visitCells(edgeCells, minLongitude, minLatitude, maxLongitude, maxLatitude, (cx, cy, cell) -> {
+				for (int i = 0; i < cell.size; i++) {
+					int slot = cell.slots[i];
+					// a street spanning several cells is reported only in the first one the query visits
+					if (cx != Math.max(qx, cell(minLongitudes[slot])) || cy != Math.max(qy, cell(minLatitudes[slot]))) {
+						continue;
+					}
+					if (maxLongitudes[slot] < minLongitude || minLongitudes[slot] > maxLongitude
+							|| maxLatitudes[slot] < minLatitude || minLatitudes[slot] > maxLatitude) {
+						continue;
+					}
+					if (crosses(geometries[slot], minLongitude, minLatitude, maxLongitude, maxLatitude)
+							&& !visitor.visit(slot)) {
+						return false;
+					}
+				}
+				return true;
+			});
+		} finally {
+			lock.readLock().unlock();
+			timed(start);
+		}
+	}
+
+	/**
+	 * @return {@code true} if a polyline, with interleaved coordinates, has a point inside the box or
+	 *         a segment crossing it.
+	 */
+	static boolean crosses(double[] geometry, double minX, double minY, double maxX, double maxY) {
+		if (geometry.length == 2) {
+			return geometry[0] >= minX && geometry[0] <= maxX && geometry[1] >= minY && geometry[1] <= maxY;
+		}
+		for (int i = 2; i < geometry.length; i += 2) {
+			if (clip(geometry[i - 2], geometry[i - 1], geometry[i], geometry[i + 1], minX, minY, maxX, maxY, null)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Clips a segment to a box (Liang-Barsky).
+	 *
+	 * @param clipped Receives the parameters, from 0 to 1, of the ends of the part of the segment
+	 *                inside the box; may be {@code null}.
+	 * @return {@code true} if some part of the segment, possibly a single point, is inside the box.
+	 */
+	static boolean clip(double x1, double y1, double x2, double y2, double minX, double minY, double maxX,
+			double maxY, double[] clipped) {
+		double dx = x2 - x1;
+		double dy = y2 - y1;
+		double[] p = { -dx, dx, -dy, dy };
+		double[] q = { x1 - minX, maxX - x1, y1 - minY, maxY - y1 };
+		double t0 = 0, t1 = 1;
+		for (int i = 0; i < 4; i++) {
+			if (p[i] == 0) {
+				if (q[i] < 0) {
+					return false;
+				}
+			} else {
+				double t = q[i] / p[i];
+				if (p[i] < 0) {
+					t0 = Math.max(t0, t);
+				} else {
+					t1 = Math.min(t1, t);
+				}
+				if (t0 > t1) {
+					return false;
+				}
+			}
+		}
+		if (clipped != null) {
+			clipped[0] = t0;
+			clipped[1] = t1;
+		}
+		return true;
+	}
+
+	// GRID
+
+	private int cell(double degrees) {
+		return (int) Math.floor(degrees / cellDegrees);
+	}
+
+	private long cellKey(double longitude, double latitude) {
+		return cellKey(cell(longitude), cell(latitude));
+	}
+
+	private static long cellKey(int cx, int cy) {
+		return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Visits the non-empty cells overlapping a box, row by row. A box covering more cells than the
+	 * non-empty ones is served by a scan of the non-empty cells instead, so a query of the whole
+	 * map costs as much as the index; the order of the visits is then arbitrary.
+	 */
+	private void visitCells(HashMap<Long, Cell> cells, double minLongitude, double minLatitude, double maxLongitude,
+			double maxLatitude, CellVisitor visitor) {
+		if (!(minLongitude <= maxLongitude) || !(minLatitude <= maxLatitude)) {
+			return;
+		}
+		int x0 = cell(minLongitude), x1 = cell(maxLongitude);
+		int y0 = cell(minLatitude), y1 = cell(maxLatitude);
+		if (((long) x1 - x0 + 1) * ((long) y1 - y0 + 1) > cells.size()) {
+			for (Map.Entry<Long, Cell> e : cells.entrySet()) {
+				int cx = (int) (e.getKey() >> 32);
+				int cy = (int) (long) e.getKey();
+				if (cx >= x0 && cx <= x1 && cy >= y0 && cy <= y1 && !visitor.visit(cx, cy, e.getValue())) {
+					return;
+				}
+			}
+			return;
+		}
+		for (int cx = x0; cx <= x1; cx++) {
+			for (int cy = y0; cy <= y1; cy++) {
+				Cell cell = cells.get(cellKey(cx, cy));
+				if (cell != null && !visitor.visit(cx, cy, cell)) {
+					return;
+				}
+			}
+		}
+	}
+
+	private void timed(long start) {
+		queries.increment();
+		queryNanos.add(System.nanoTime() - start);
+	}
+
+	// STATISTICS
+
+	public double getCellDegrees() {
+		return cellDegrees;
+	}
+
+	public int getIntersectionCount() {
+		lock.readLock().lock();
+		try {
+			return nodeSlots.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int getStreetCount() {
+		lock.readLock().lock();
+		try {
+			return edgeSlots.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int getCellCount() {
+		lock.readLock().lock();
+		try {
+			return nodeCells.size() + edgeCells.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long getQueries() {
+		return queries.sum();
+	}
+
+	/**
+	 * @return Mean duration of the queries by box, in microseconds.
+	 */
+	public double getMeanQueryMicros() {
+		long n = queries.sum();
+		return n == 0 ? 0 : queryNanos.sum() / 1000.0 / n;
+	}
+
+	/**
+	 * @return Approximate heap size of the index, in bytes.
+	 */
+	public long getMemoryFootprint() {
+		lock.readLock().lock();
+		try {
+			long bytes = nodeSlots.getMemoryFootprint() + edgeSlots.getMemoryFootprint();
+			bytes += 3 * (16L + 8L * osmids.length) + 16L + flags.length;
+			bytes += 16L + 4L * streetIds.length + 8 * (16L + 8L * starts.length) + 16L + interrupted.length
+					+ 2 * (16L + 4L * geometries.length);
+			for (int slot = 0; slot < edgeTop; slot++) {
+				if (geometries[slot] != null) {
+					bytes += 16L + 8L * geometries[slot].length;
+				}
+			}
+			for (Cell cell : nodeCells.values()) {
+				bytes += 80L + 4L * cell.slots.length;
+			}
+			for (Cell cell : edgeCells.values()) {
+				bytes += 80L + 4L * cell.slots.length;
+			}
+			return bytes;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SpatialIndex [cellDegrees=" + cellDegrees + ", intersections=" + getIntersectionCount()
+				+ ", streets=" + getStreetCount() + ", cells=" + getCellCount() + "]";
+	}
+
+	/**
+	 * Slots of the elements recorded in a cell, in no particular order.
+	 */
+	private static final class Cell {
+
+		private int[] slots = new int[4];
+		private int size;
+
+		void add(int slot) {
+			if (size == slots.length) {
+				slots = Arrays.copyOf(slots, size << 1);
+			}
+			slots[size++] = slot;
+		}
+
+		boolean remove(int slot) {
+			for (int i = 0; i < size; i++) {
+				if (slots[i] == slot) {
+					slots[i] = slots[--size];
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Results of a query, up to a limit.
+	 */
+	private static final class Hits {
+
+		private final int limit;
+		private long[] values;
+		private int size;
+
+		Hits(int limit) {
+			this.limit = Math.max(0, limit);
+			this.values = new long[Math.min(this.limit, 64)];
+		}
+
+		/**
+		 * @return {@code false} if the limit has been reached and the value has been dropped.
+		 */
+		boolean add(long value) {
+			if (size == limit) {
+				return false;
+			}
+			if (size == values.length) {
+				values = Arrays.copyOf(values, (int) Math.min((long) size << 1, limit));
+			}
+			values[size++] = value;
+			return true;
+		}
+
+		long[] toLongArray() {
+			return Arrays.copyOf(values, size);
+		}
+
+		int[] toIntArray() {
+			int[] ints = new int[size];
+			for (int i = 0; i < size; i++) {
+				ints[i] = (int) values[i];
+			}
+			return ints;
+		}
+	}
+
+	public interface StreetVisitor {
+
+		/**
+		 * @param geometry Points of the street, interleaved, longitude first.
+		 * @return {@code false} to stop the visit.
+		 */
+		boolean visit(int id, double[] geometry, double weight, boolean interrupted, String highway);
+	}
+
+	public interface ChangeListener {
+
+		/**
+		 * Called under the write lock of the index, after a street in the box has been changed and
+		 * before a street in the box is removed or moved, with the box of its geometry.
+		 */
+		void changed(double minLongitude, double minLatitude, double maxLongitude, double maxLatitude);
+	}
+
+	private interface CellVisitor {
+
+		/**
+		 * @return {@code false} to stop the visit.
+		 */
+		boolean visit(int cx, int cy, Cell cell);
+	}
+
+	private interface SlotVisitor {
+
+		/**
+		 * @return {@code false} to stop the visit.
+		 */
+		boolean visit(int slot);
+	}
+}
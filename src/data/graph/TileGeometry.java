@@ -0,0 +1,204 @@
+package data.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Geometry of the tiles of the Web Mercator pyramid ({@code z/x/y}, y growing southwards, as the
+ * slippy maps): bounds of a tile and conversion of a polyline to the integer coordinates of a
+ * tile, clipped to it and simplified.
+ * <p>
+ * A tile spans {@code extent} units on both sides, and the geometry is clipped {@code buffer} units
+ * outside of it, so that the lines crossing the border join with the ones of the next tile. The
+ * simplification tolerance is also in tile units, so the same tolerance removes more detail at a
+ * lower zoom, where a unit covers more ground.
+ */
+public final class TileGeometry {
+
+	/**
+	 * Latitude of the border of the Web Mercator square.
+	 */
+	public static final double MAX_LATITUDE = 85.0511287798066;
+
+	private TileGeometry() {
+	}
+
+	/**
+	 * @param buffer Margin added on every side, as a fraction of the tile.
+	 * @return The bounds of the tile, margin included: minimum longitude, minimum latitude,
+	 *         maximum longitude, maximum latitude.
+	 */
+	public static double[] bounds(int z, int x, int y, double buffer) {
+		double n = 1 << z;
+		return new double[] { longitude((x - buffer) / n), latitude((y + 1 + buffer) / n),
+				longitude((x + 1 + buffer) / n), latitude((y - buffer) / n) };
+	}
+
+	private static double longitude(double worldX) {
+		return Math.max(-180, Math.min(180, worldX * 360 - 180));
+	}
+
+	private static double latitude(double worldY) {
+		double clamped = Math.max(0, Math.min(1, worldY));
+		return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * clamped))));
+	}
+
+	/**
+	 * @return The Web Mercator position of a longitude, from 0 (west) to 1 (east).
+	 */
+	public static double worldX(double longitude) {
+		return (longitude + 180) / 360;
+	}
+
+	/**
+	 * @return The Web Mercator position of a latitude, from 0 (north) to 1 (south).
+	 */
+	public static double worldY(double latitude) {
+		double radians = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude)));
+		return (1 - Math.log(Math.tan(radians) + 1 / Math.cos(radians)) / Math.PI) / 2;
+	}
+
+	/**
+	 * Converts a polyline to the coordinates of a tile.
+	 *
+	 * @param geometry  Points of the polyline, interleaved, longitude first.
+	 * @param extent    Units of a side of the tile.
+	 * @param buffer    Units kept outside of the tile on every side.
+	 * @param tolerance Maximum distance, in units, of a removed point from the simplified line; a
+	 *                  line shorter than this is dropped.
+	 * @return The parts of the polyline inside the tile, each with at least two distinct points,
+	 *         interleaved, x first; empty if none.
+	 */
+	public static List<int[]> lines(double[] geometry, int z, int x, int y, int extent, int buffer,
+			double tolerance) {
+		List<int[]> lines = new ArrayList<>();
+		int points = geometry.length / 2;
+		if (points < 2) {
+			return lines;
+		}
+		double n = 1 << z;
+		double[] projected = new double[geometry.length];
+		for (int i = 0; i < points; i++) {
+			projected[2 * i] = (worldX(geometry[2 * i]) * n - x) * extent;
+			projected[2 * i + 1] = (worldY(geometry[2 * i + 1]) * n - y) * extent;
+		}
+		double min = -buffer;
+		double max = extent + buffer;
+		double[] part = new double[geometry.length + 2];
+		int size = 0;
+		double[] clipped = new double[2];
+		for (int i = 1; i < points; i++) {
+			double x1 = projected[2 * i - 2], y1 = projected[2 * i - 1];
+			double x2 = projected[2 * i], y2 = projected[2 * i + 1];
+			if (!SpatialIndex.clip(x1, y1, x2, y2, min, min, max, max, clipped)) {
+				size = flush(part, size, tolerance, lines);
+				continue;
+			}
+			if (clipped[0] > 0) {
+				size = flush(part, size, tolerance, lines);
+			}
+			if (size == 0) {
+				part[size++] = x1 + (x2 - x1) * clipped[0];
+				part[size++] = y1 + (y2 - y1) * clipped[0];
+			}
+			if (size + 2 > part.length) {
+				part = Arrays.copyOf(part, part.length * 2);
+			}
+			part[size++] = x1 + (x2 - x1) * clipped[1];
+			part[size++] = y1 + (y2 - y1) * clipped[1];
+			if (clipped[1] < 1) {
+				size = flush(part, size, tolerance, lines);
+			}
+		}
+		flush(part, size, tolerance, lines);
+		return lines;
+	}
+
+	/**
+	 * Simplifies and rounds a part, and adds it to the lines unless it is too short.
+	 *
+	 * @return 0, the size of the next part.
+	 */
+	private static int flush(double[] part, int size, double tolerance, List<int[]> lines) {
+		if (size < 4) {
+			return 0;
+		}
+		boolean[] kept = simplify(part, size / 2, tolerance);
+		int[] line = new int[size];
+		int length = 0;
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+		for (int i = 0; i < size / 2; i++) {
+			if (!kept[i]) {
+				continue;
+			}
+			int px = (int) Math.round(part[2 * i]);
+			int py = (int) Math.round(part[2 * i + 1]);
+			if (length > 0 && line[length - 2] == px && line[length - 1] == py) {
+				continue;
+			}
+			line[length++] = px;
+			line[length++] = py;
+			minX = Math.min(minX, px);
+			minY = Math.min(minY, py);
+			maxX = Math.max(maxX, px);
+			maxY = Math.max(maxY, py);
+		}
+		if (length >= 4 && Math.max(maxX - minX, maxY - minY) >= tolerance) {
+			lines.add(Arrays.copyOf(line, length));
+		}
+		return 0;
+	}
+
+	/**
+	 * Douglas-Peucker simplification, without recursion.
+	 *
+	 * @return For every point, {@code true} if it is kept; the ends always are.
+	 */
+	static boolean[] simplify(double[] line, int points, double tolerance) {
+		boolean[] kept = new boolean[points];
+		kept[0] = true;
+		kept[points - 1] = true;
+		if (points < 3 || tolerance <= 0) {
+			Arrays.fill(kept, true);
+			return kept;
+		}
+		double squaredTolerance = tolerance * tolerance;
+		int[] stack = new int[2 * points];
+		int top = 0;
+		stack[top++] = 0;
+		stack[top++] = points - 1;
+		while (top > 0) {
+			int last = stack[--top];
+			int first = stack[--top];
+			double farthest = 0;
+			int index = -1;
+			for (int i = first + 1; i < last; i++) {
+				double d = squaredSegmentDistance(line[2 * i], line[2 * i + 1], line[2 * first], line[2 * first + 1],
+						line[2 * last], line[2 * last + 1]);
+				if (d > farthest) {
+					farthest = d;
+					index = i;
+				}
+			}
+			if (index >= 0 && farthest > squaredTolerance) {
+				kept[index] = true;
+				stack[top++] = first;
+				stack[top++] = index;
+				stack[top++] = index;
+				stack[top++] = last;
+			}
+		}
+		return kept;
+	}
+
+	private static double squaredSegmentDistance(double px, double py, double ax, double ay, double bx, double by) {
+		double dx = bx - ax;
+		double dy = by - ay;
+		double t = dx == 0 && dy == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / (dx * dx + dy * dy);
+		t = Math.max(0, Math.min(1, t));
+		double ex = ax + t * dx - px;
+		double ey = ay + t * dy - py;
+		return ex * ex + ey * ey;
+	}
+}
@@ -0,0 +1,59 @@
+package presentation.rest;
+
+import java.io.IOException;
+
+import javax.ejb.EJB;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+import application.databaseManagementService.DatabaseManagementServiceLocal;
+import data.databaseDriver.BookmarkRegistry;
+
+/**
+ * Carries the causal bookmarks of the database across the requests of a client.
+ * <p>
+ * The response to a write has the {@value #BOOKMARK} header with the bookmarks of the last writes
+ * of this server. A client that sends it back with a later request, to this server or to another
+ * one, reads data at least as recent as its writes, even from a replica. The header is optional:
+ * without it the reads of a server still see the writes of the same server.
+ */
+@Provider
+public class BookmarkFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+	public static final String BOOKMARK = "X-Bookmark";
+
+	private static final int MAX_LENGTH = 4096;
+
+	@EJB
+	DatabaseManagementServiceLocal database;
+
+	@Override
+	public void filter(ContainerRequestContext request) throws IOException {
+		String header = request.getHeaderString(BOOKMARK);
+		if (header != null && header.length() > MAX_LENGTH) {
+			request.abortWith(Response.status(Response.Status.BAD_REQUEST).build());
+			return;
+		}
+		// always set, so that a thread never keeps the bookmark of a previous request
+		BookmarkRegistry.setRequestBookmark(header);
+	}
+
+	@Override
+	public void filter(ContainerRequestContext request, ContainerResponseContext response) throws IOException {
+		BookmarkRegistry.setRequestBookmark(null);
+		String method = request.getMethod();
+		if (HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method) || HttpMethod.OPTIONS.equals(method)
+				|| response.getStatus() >= 400 || database == null) {
+			return;
+		}
+		String bookmark = database.getBookmark();
+		if (bookmark != null) {
+			response.getHeaders().putSingle(BOOKMARK, bookmark);
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package presentation.rest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.UriInfo;
+
+import data.dataModel.Coordinate;
+import data.dataModel.Street;
+import util.PolylineCodec;
+
+/**
+ * Wire format of the street geometry selected by the client.
+ * <p>
+ * By default the geometry is the JSON array of coordinates. The compact encoded polyline is
+ * selected with the {@code geometry=polyline} query parameter or by accepting
+ * {@value #APPLICATION_POLYLINE_JSON}; the precision comes from the {@code precision} query
+ * parameter or from the {@code precision} parameter of the media type.
+ */
+public class GeometryFormat {
+
+	public static final String POLYLINE = "polyline";
+	public static final String APPLICATION_POLYLINE_JSON = "application/vnd.otm.polyline+json";
+	public static final String PRECISION = "precision";
+
+	private static final GeometryFormat COORDINATES = new GeometryFormat(false, PolylineCodec.DEFAULT_PRECISION);
+
+	private final boolean polyline;
+	private final int precision;
+
+	private GeometryFormat(boolean polyline, int precision) {
+		this.polyline = polyline;
+		this.precision = precision;
+	}
+
+	/**
+	 * Selects the geometry format of a request.
+	 *
+	 * @param uriInfo Query parameters of the request.
+	 * @param headers Headers of the request.
+	 * @return The selected format.
+	 */
+	public static GeometryFormat from(UriInfo uriInfo, HttpHeaders headers) {
+		String precision = uriInfo.getQueryParameters().getFirst(PRECISION);
+		if (POLYLINE.equalsIgnoreCase(uriInfo.getQueryParameters().getFirst("geometry"))) {
+			return polyline(precision);
+		}
+		for (MediaType type : headers.getAcceptableMediaTypes()) {
+			if (APPLICATION_POLYLINE_JSON.equals(type.getType() + "/" + type.getSubtype())) {
+				return polyline(precision != null ? precision : type.getParameters().get(PRECISION));
+			}
+		}
+		return COORDINATES;
+	}
+
+	/**
+	 * @param precision Number of decimal digits of the encoded coordinates, the default one if
+	 *                  {@code null}.
+	 * @return The encoded polyline format.
+	 * @throws BadRequestException if the precision is not a number between 0 and
+	 *                             {@link PolylineCodec#MAX_PRECISION}.
+	 */
+	public static GeometryFormat polyline(String precision) {
+		if (precision == null || precision.isEmpty()) {
+			return new GeometryFormat(true, PolylineCodec.DEFAULT_PRECISION);
+		}
+		try {
+			int value = Integer.parseInt(precision);
+			if (value >= 0 && value <= PolylineCodec.MAX_PRECISION) {
+				return new GeometryFormat(true, value);
+			}
+		} catch (NumberFormatException e) {
+			// reported below
+		}
+		throw new BadRequestException("precision must be between 0 and " + PolylineCodec.MAX_PRECISION);
+	}
+
+	public boolean isPolyline() {
+		return polyline;
+	}
+
+	public int getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * @param street A street with the geometry as coordinates.
+	 * @return The street with the geometry in this format. The given street is never modified.
+	 */
+	public Street encode(Street street) {
+		if (!polyline || street == null || street.getCoordinates() == null) {
+			return street;
+		}
+		Street s = new Street(null, street.getId(), street.getAccess(), street.getArea(), street.getBridge(),
+				street.getOsmidStart(), street.getOsmidDest(), street.getHighway(), street.getJunction(),
+				street.getKey(), street.getArrayLanes(), street.getLenght(), street.getMaxSpeed(), street.getName(),
+				street.isOneWay(), street.getOsmidEdges(), street.getRef(), street.isTransportService(),
+				street.getTunnel(), street.getWidth(), street.getOrigId(), street.getWeight(), street.getFlow(),
+				street.getAverageTravelTime(), street.isInterrupted());
+		s.setPolyline(PolylineCodec.encode(street.getCoordinates(), precision));
+		return s;
+	}
+
+	/**
+	 * @param streets Streets with the geometry as coordinates.
+	 * @return The streets with the geometry in this format.
+	 */
+	public HashMap<Integer, Street> encode(HashMap<Integer, Street> streets) {
+		if (!polyline || streets == null) {
+			return streets;
+		}
+		HashMap<Integer, Street> encoded = new HashMap<>();
+		for (Map.Entry<Integer, Street> e : streets.entrySet()) {
+			encoded.put(e.getKey(), encode(e.getValue()));
+		}
+		return encoded;
+	}
+
+	/**
+	 * @param streets Streets with the geometry as coordinates.
+	 * @return The streets with the geometry in this format, in the same order.
+	 */
+	public ArrayList<Street> encode(List<Street> streets) {
+		if (streets == null) {
+			return null;
+		}
+		ArrayList<Street> encoded = new ArrayList<>(streets.size());
+		for (Street s : streets) {
+			encoded.add(encode(s));
+		}
+		return encoded;
+	}
+
+	/**
+	 * Restores the coordinates of the streets that carry only the encoded polyline.
+	 *
+	 * @param streets Streets read from a request body.
+	 * @return The streets with the geometry as coordinates; a street whose polyline cannot be
+	 *         decoded is returned as {@code null}.
+	 */
+	public Iterator<Street> decode(Iterator<Street> streets) {
+		return new Iterator<Street>() {
+			@Override
+			public boolean hasNext() {
+				return streets.hasNext();
+			}
+
+			@Override
+			public Street next() {
+				Street s = streets.next();
+				if (s == null || s.getPolyline() == null
+						|| (s.getCoordinates() != null && !s.getCoordinates().isEmpty())) {
+					return s;
+				}
+				try {
+					ArrayList<Coordinate> coordinates = PolylineCodec.decode(s.getPolyline(), precision);
+					s.setCoordinates(coordinates);
+					s.setPolyline(null);
+					return s;
+				} catch (IllegalArgumentException e) {
+					return null;
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,127 @@
+package presentation.rest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.ws.rs.BadRequestException;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.jboss.logging.Logger;
+
+/**
+ * Reads a request body of JSON documents one at a time, without materializing the whole body.
+ * <p>
+ * The body is either a JSON array of documents or an NDJSON stream (one document per line).
+ * A document that cannot be parsed is returned as {@code null}, so the caller can count it as a
+ * failed row: NDJSON goes on with the following line, while a JSON array stops at the first
+ * malformed element because the rest of the array cannot be resynchronized.
+ *
+ * @param <T> Type of the documents.
+ */
+public class JsonStreamIterator<T> implements Iterator<T> {
+
+	public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+	private static final Logger logger = Logger.getLogger(JsonStreamIterator.class);
+
+	private final Gson gson;
+	private final Type type;
+	private final boolean ndjson;
+	private BufferedReader lines;
+	private JsonReader array;
+	private String nextLine;
+	private boolean finished;
+
+	/**
+	 * @param body   The request body.
+	 * @param type   Type of the documents.
+	 * @param ndjson {@code true} if the body is an NDJSON stream, {@code false} if it is a JSON array.
+	 * @param gson   Deserializer of the documents.
+	 * @throws BadRequestException if the body is expected to be a JSON array and is not.
+	 */
+	public JsonStreamIterator(InputStream body, Type type, boolean ndjson, Gson gson) {
+		this.gson = gson;
+		this.type = type;
+		this.ndjson = ndjson;
+		this.finished = false;
+		InputStreamReader reader = new InputStreamReader(body, StandardCharsets.UTF_8);
+		try {
+			if (ndjson) {
+				this.lines = new BufferedReader(reader);
+			} else {
+				this.array = new JsonReader(reader);
+				this.array.beginArray();
+			}
+		} catch (IOException | IllegalStateException e) {
+			logger.warn("JsonStreamIterator: the body is not a JSON array, " + e.getMessage());
+			throw new BadRequestException("the body must be a JSON array");
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (finished) {
+			return false;
+		}
+		try {
+			if (ndjson) {
+				while (nextLine == null) {
+					String line = lines.readLine();
+					if (line == null) {
+						finished = true;
+						return false;
+					}
+					if (!line.trim().isEmpty()) {
+						nextLine = line;
+					}
+				}
+				return true;
+			}
+			if (array.peek() == JsonToken.END_ARRAY) {
+				finished = true;
+			}
+			return !finished;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		try {
+			if (ndjson) {
+				String line = nextLine;
+				nextLine = null;
+				return gson.fromJson(line, type);
+			}
+			return gson.fromJson(array, type);
+		} catch (JsonParseException | IllegalStateException e) {
+			logger.warn("JsonStreamIterator: malformed document, " + e.getMessage());
+			if (!ndjson) {
+				finished = true;
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * @param mediaType Media type of the request body.
+	 * @return {@code true} if the media type is the NDJSON one.
+	 */
+	public static boolean isNdjson(String mediaType) {
+		return mediaType != null && mediaType.startsWith(APPLICATION_NDJSON);
+	}
+}
@@ -0,0 +1,123 @@
+package presentation.rest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import org.jboss.logging.Logger;
+
+/**
+ * Writes a response body of JSON documents one per line (NDJSON) as they are produced, without
+ * materializing the whole body.
+ * <p>
+ * The documents come from an exporter that pushes them to a consumer, typically reading them
+ * from a database cursor, so the heap holds one document and the write buffers whatever the
+ * number of documents. The body is optionally compressed with gzip. If the client goes away the
+ * write error stops the exporter.
+ *
+ * @param <T> Type of the documents.
+ */
+public class NdjsonStreamingOutput<T> implements StreamingOutput {
+
+	public static final String GZIP = "gzip";
+
+	private static final Logger logger = Logger.getLogger(NdjsonStreamingOutput.class);
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final ToLongFunction<Consumer<T>> exporter;
+	private final Gson gson;
+	private final boolean gzip;
+
+	/**
+	 * @param exporter Pushes every document to the given consumer and returns their number.
+	 * @param gson     Serializer of the documents.
+	 * @param gzip     {@code true} to compress the body with gzip.
+	 */
+	public NdjsonStreamingOutput(ToLongFunction<Consumer<T>> exporter, Gson gson, boolean gzip) {
+		this.exporter = exporter;
+		this.gson = gson;
+		this.gzip = gzip;
+	}
+
+	/**
+	 * @param acceptEncoding The {@code Accept-Encoding} header of the request, possibly
+	 *                       {@code null}.
+	 * @return {@code true} if the client accepts a gzip body.
+	 */
+	public static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parameters = coding.split(";");
+			String name = parameters[0].trim();
+			if (!GZIP.equalsIgnoreCase(name) && !"x-gzip".equalsIgnoreCase(name)) {
+				continue;
+			}
+			for (int i = 1; i < parameters.length; i++) {
+				String parameter = parameters[i].trim();
+				if (parameter.startsWith("q=")) {
+					try {
+						return Double.parseDouble(parameter.substring(2)) > 0;
+					} catch (NumberFormatException e) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	public boolean isGzip() {
+		return gzip;
+	}
+
+	@Override
+	public void write(OutputStream output) throws IOException {
+		GZIPOutputStream compressed = gzip ? new GZIPOutputStream(output, BUFFER_SIZE) : null;
+		Writer writer = new BufferedWriter(
+				new OutputStreamWriter(gzip ? compressed : output, StandardCharsets.UTF_8), BUFFER_SIZE);
+		IOException[] failure = new IOException[1];
+		long documents;
+		try {
+			documents = exporter.applyAsLong(document -> {
+				try {
+					gson.toJson(document, writer);
+					writer.write('\n');
+				} catch (IOException e) {
+					failure[0] = e;
+				} catch (JsonIOException e) {
+					failure[0] = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e);
+				}
+				if (failure[0] != null) {
+					throw new UncheckedIOException(failure[0]);
+				}
+			});
+		} catch (RuntimeException e) {
+			// The exporter may wrap the exception, as an EJB does.
+			if (failure[0] == null) {
+				throw e;
+			}
+			logger.warn("NdjsonStreamingOutput.write: export interrupted, " + failure[0]);
+			throw failure[0];
+		}
+		writer.flush();
+		if (gzip) {
+			compressed.finish();
+		}
+		output.flush();
+		logger.info("NdjsonStreamingOutput.write: documents = " + documents + ", gzip = " + gzip);
+	}
+}
@@ -11,6 +11,7 @@ public class RestApplication extends Application {
 	public Set<Class<?>> getClasses() {
 		Set<Class<?>> s = new HashSet<Class<?>>();
 		s.add(presentation.rest.databaseManagementController.DatabaseManagementController.class);
+		s.add(presentation.rest.BookmarkFilter.class);
 		return s;
 	}
 
@@ -0,0 +1,61 @@
+package presentation.rest;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+
+/**
+ * Validators of the responses derived from the version of the graph.
+ * <p>
+ * The ETag is weak because the same data can be sent with different geometry formats, selected
+ * by the {@code Accept} header. The version is the {@code Control} timestamp, a local date time
+ * of the database, read as UTC.
+ */
+public class VersionPreconditions {
+
+	private VersionPreconditions() {
+	}
+
+	/**
+	 * Evaluates {@code If-None-Match} and {@code If-Modified-Since} against the graph version.
+	 *
+	 * @param request The request.
+	 * @param version Version of the graph, {@code null} if unknown.
+	 * @return The 304 response if the copy of the client is current, otherwise {@code null}.
+	 */
+	public static Response evaluate(Request request, LocalDateTime version) {
+		if (version == null) {
+			return null;
+		}
+		Response.ResponseBuilder notModified = request.evaluatePreconditions(lastModified(version), entityTag(version));
+		return notModified == null ? null : tag(notModified, version).build();
+	}
+
+	/**
+	 * @param builder The response.
+	 * @param version Version of the graph read to build the response, {@code null} if unknown.
+	 * @return The response with the ETag and Last-Modified headers.
+	 */
+	public static Response.ResponseBuilder tag(Response.ResponseBuilder builder, LocalDateTime version) {
+		if (version == null) {
+			return builder;
+		}
+		return builder.tag(entityTag(version)).lastModified(lastModified(version))
+				.header(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+	}
+
+	public static EntityTag entityTag(LocalDateTime version) {
+		long nanos = version.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + version.getNano();
+		return new EntityTag(Long.toHexString(nanos), true);
+	}
+
+	public static Date lastModified(LocalDateTime version) {
+		// HTTP dates have no fraction of second
+		return Date.from(version.withNano(0).toInstant(ZoneOffset.UTC));
+	}
+}
@@ -1,15 +1,28 @@
 package presentation.rest.databaseManagementController;
 
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 
+import javax.annotation.Resource;
 import javax.ejb.EJB;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.enterprise.context.RequestScoped;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import application.databaseManagementService.*;
@@ -17,13 +30,19 @@ import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
 import data.dataModel.*;
+import data.graph.BinarySnapshot;
 import org.jboss.logging.Logger;
+import presentation.rest.GeometryFormat;
+import presentation.rest.JsonStreamIterator;
+import presentation.rest.NdjsonStreamingOutput;
 import presentation.rest.ResponseBuilder;
+import presentation.rest.VersionPreconditions;
 
 
 @RequestScoped
 @Path("/otm-admin")
-@Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_FORM_URLENCODED})
+@Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_FORM_URLENCODED,
+        GeometryFormat.APPLICATION_POLYLINE_JSON})
 @Consumes({MediaType.APPLICATION_JSON, MediaType.APPLICATION_FORM_URLENCODED})
 
 public class DatabaseManagementController implements DatabaseManagementControllerApi {
@@ -34,6 +53,18 @@ public class DatabaseManagementController implements DatabaseManagementControlle
     DatabaseManagementServiceLocal database;
 
 
+    @Context
+    UriInfo uriInfo;
+
+    @Context
+    HttpHeaders headers;
+
+    @Context
+    Request request;
+
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    ManagedExecutorService executor;
+
     static Logger logger = Logger.getLogger(DatabaseManagementController.class);
 
     @Override
@@ -67,6 +98,15 @@ public class DatabaseManagementController implements DatabaseManagementControlle
         return Response.ok().entity(i).build();
     }
 
+    @Override
+    public Response addIntersections(InputStream body, String contentType, int chunkSize) {
+        logger.info("DatabaseManagementController.addIntersections: contentType = " + contentType + ", chunkSize = " + chunkSize);
+        JsonStreamIterator<Intersection> intersections = new JsonStreamIterator<>(body, Intersection.class,
+                JsonStreamIterator.isNdjson(contentType), new Gson());
+        ImportReport report = database.addIntersections(intersections, chunkSize);
+        return Response.ok().entity(report).build();
+    }
+
     @Override
     public Response addStreet(String coordinatesJSON, int id, String access, String area, String bridge,
                               long osmidStart, long osmidDest, String highway, String junction, int key, String arrayLanesJSON,
@@ -91,108 +131,498 @@ public class DatabaseManagementController implements DatabaseManagementControlle
         Street s = database.addStreet(coordinates, id, access, area, bridge, osmidStart, osmidDest, highway, junction,
                 key, arrayLanes, length, maxSpeed, name, oneWay, osmidEdges, ref, transportService, tunnel, width,
                 origId, weight, flow, averageTravelTime, interrupted);
-        return Response.ok().entity(s).build();
+        return Response.ok().entity(GeometryFormat.from(uriInfo, headers).encode(s)).build();
+    }
+
+    @Override
+    public Response addStreets(InputStream body, String contentType, int chunkSize, String precision) {
+        logger.info("DatabaseManagementController.addStreets: contentType = " + contentType + ", chunkSize = " + chunkSize +
+                ", precision = " + precision);
+        JsonStreamIterator<Street> streets = new JsonStreamIterator<>(body, Street.class,
+                JsonStreamIterator.isNdjson(contentType), new Gson());
+        ImportReport report = database.addStreets(GeometryFormat.polyline(precision).decode(streets), chunkSize);
+        return Response.ok().entity(report).build();
     }
 
     @Override
-    public Response setStreetWeight(int id, double weight) {
+    public Response setStreetWeights(InputStream body, String contentType, int chunkSize) {
+        logger.info("DatabaseManagementController.setStreetWeights: contentType = " + contentType + ", chunkSize = " + chunkSize);
+        JsonStreamIterator<StreetWeightUpdate> updates = new JsonStreamIterator<>(body, StreetWeightUpdate.class,
+                JsonStreamIterator.isNdjson(contentType), new Gson());
+        BatchUpdateReport report = database.setStreetWeights(updates, chunkSize);
+        return Response.ok().entity(report).build();
+    }
+
+    @Override
+    public Response setStreetsInterrupted(InputStream body, String contentType, int chunkSize) {
+        logger.info("DatabaseManagementController.setStreetsInterrupted: contentType = " + contentType + ", chunkSize = " + chunkSize);
+        JsonStreamIterator<StreetInterruptionUpdate> updates = new JsonStreamIterator<>(body,
+                StreetInterruptionUpdate.class, JsonStreamIterator.isNdjson(contentType), new Gson());
+        BatchUpdateReport report = database.setStreetsInterrupted(updates, chunkSize);
+        return Response.ok().entity(report).build();
+    }
+
+    /**
+     * Updates the weight of a street. When the updates are coalesced, answers at once with 202 and
+     * no body: the update is written by the next flush.
+     */
+    @Override
+    public void setStreetWeight(int id, double weight, AsyncResponse response) {
         logger.info("DatabaseManagementController.setStreetWeight: id = " + id + ", weight = " + weight);
-        Street s = database.setStreetWeight(id, weight);
-        return Response.ok().entity(s).build();
+        if (database.bufferStreetWeight(id, weight)) {
+            response.resume(Response.accepted().build());
+            return;
+        }
+        GeometryFormat format = GeometryFormat.from(uriInfo, headers);
+        resume(response, database.setStreetWeightAsync(id, weight),
+                s -> Response.ok().entity(format.encode(s)).build());
     }
 
     @Override
-    public Response setBetweennessIntersection(long osmid, double betweennees) {
+    public void setBetweennessIntersection(long osmid, double betweennees, AsyncResponse response) {
         logger.info("DatabaseManagementController.setBetweennessIntersection: osmid = " + osmid + ", betweennees = " + betweennees);
-        Intersection i = database.setBetweennessIntersection(osmid, betweennees);
-        return Response.ok().entity(i).build();
+        resume(response, database.setBetweennessIntersectionAsync(osmid, betweennees),
+                i -> Response.ok().entity(i).build());
     }
 
     @Override
-    public Response getIntersection(long osmid) {
+    public void getIntersection(long osmid, AsyncResponse response) {
         logger.info("DatabaseManagementController.getIntersection: osmid = " + osmid);
-        Intersection i = database.getIntersection(osmid);
-        return Response.ok().entity(i).build();
+        LocalDateTime version = database.getGraphVersion();
+        if (notModified(response, version)) {
+            return;
+        }
+        resume(response, database.getIntersectionAsync(osmid),
+                i -> VersionPreconditions.tag(Response.ok().entity(i), version).build());
     }
 
     @Override
-    public Response getStreetProperties(UriInfo info) {
+    public void getStreetProperties(UriInfo info, AsyncResponse response) {
         logger.info("DatabaseManagementController.getStreetProperties: info = " + info);
         String id = info.getQueryParameters().getFirst("id");
         String osmidStart = info.getQueryParameters().getFirst("osmidStart");
         String osmidDest = info.getQueryParameters().getFirst("osmidDest");
+        String bbox = info.getQueryParameters().getFirst("bbox");
+
+        if (bbox != null) {
+            double[] box = boundingBox(bbox);
+            String limit = info.getQueryParameters().getFirst("limit");
+            LocalDateTime version = database.getSpatialIndexVersion();
+            if (notModified(response, version)) {
+                return;
+            }
+            GeometryFormat format = GeometryFormat.from(info, headers);
+            CompletionStage<ArrayList<Street>> streets = database.getStreetsWithinAsync(box[0], box[1], box[2], box[3],
+                    limit == null ? 0 : Integer.parseInt(limit));
+            if (streets == null) {
+                response.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE).build());
+                return;
+            }
+            resume(response, streets,
+                    s -> VersionPreconditions.tag(Response.ok().entity(format.encode(s)), version).build());
+            return;
+        }
+        if (id != null || (osmidStart != null && osmidDest != null)) {
+            LocalDateTime version = database.getGraphVersion();
+            if (notModified(response, version)) {
+                return;
+            }
+            if (id != null) {
+                GeometryFormat format = GeometryFormat.from(info, headers);
+                resume(response, database.getStreetAsync(Integer.parseInt(id)),
+                        s -> VersionPreconditions.tag(Response.ok().entity(format.encode(s)), version).build());
+                return;
+            }
+            resume(response, database.getLinkKeyAsync(Integer.parseInt(osmidStart), Integer.parseInt(osmidDest)),
+                    key -> VersionPreconditions.tag(Response.ok().entity(key), version).build());
+            return;
+        }
+        response.resume(Response.serverError().build());
+    }
 
-        if (id != null) {
-            Street s = database.getStreet(Integer.parseInt(id));
-            return Response.ok().entity(s).build();
+    @Override
+    public void getIntersectionsWithin(String bbox, int limit, AsyncResponse response) {
+        logger.info("DatabaseManagementController.getIntersectionsWithin: bbox = " + bbox + ", limit = " + limit);
+        double[] box = boundingBox(bbox);
+        LocalDateTime version = database.getSpatialIndexVersion();
+        if (notModified(response, version)) {
+            return;
+        }
+        CompletionStage<ArrayList<Intersection>> intersections = database.getIntersectionsWithinAsync(box[0], box[1],
+                box[2], box[3], limit);
+        if (intersections == null) {
+            response.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE).build());
+            return;
+        }
+        resume(response, intersections,
+                i -> VersionPreconditions.tag(Response.ok().entity(i), version).build());
+    }
+
+    @Override
+    public void getNearestIntersections(Double longitude, Double latitude, int k, boolean parking, boolean hospital,
+                                        boolean busStop, boolean museum, AsyncResponse response) {
+        logger.info("DatabaseManagementController.getNearestIntersections: longitude = " + longitude +
+                ", latitude = " + latitude + ", k = " + k + ", parking = " + parking + ", hospital = " + hospital +
+                ", busStop = " + busStop + ", museum = " + museum);
+        if (longitude == null || latitude == null || Math.abs(longitude) > 180 || Math.abs(latitude) > 90) {
+            throw new BadRequestException("lon and lat must be a valid position");
+        }
+        if (k < 1) {
+            throw new BadRequestException("k must be positive");
+        }
+        LocalDateTime version = database.getSpatialIndexVersion();
+        if (notModified(response, version)) {
+            return;
         }
-        if (osmidStart != null && osmidDest != null) {
-            int key = database.getLinkKey(Integer.parseInt(osmidStart), Integer.parseInt(osmidDest));
-            return Response.ok().entity(key).build();
+        CompletionStage<ArrayList<NearestIntersection>> nearest = database.getNearestIntersectionsAsync(longitude,
+                latitude, k, parking, hospital, busStop, museum);
+        if (nearest == null) {
+            response.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE).build());
+            return;
         }
-        return Response.serverError().build();
+        resume(response, nearest, n -> VersionPreconditions.tag(Response.ok().entity(n), version).build());
     }
 
     @Override
-    public Response getStreets(long osmid) {
+    public Response exportIntersections(String acceptEncoding) {
+        logger.info("DatabaseManagementController.exportIntersections: acceptEncoding = " + acceptEncoding);
+        return export(new NdjsonStreamingOutput<Intersection>(database::exportIntersections, new Gson(),
+                NdjsonStreamingOutput.acceptsGzip(acceptEncoding)));
+    }
+
+    @Override
+    public Response exportStreets(String acceptEncoding) {
+        logger.info("DatabaseManagementController.exportStreets: acceptEncoding = " + acceptEncoding);
+        GeometryFormat format = GeometryFormat.from(uriInfo, headers);
+        return export(new NdjsonStreamingOutput<Street>(
+                streets -> database.exportStreets(s -> streets.accept(format.encode(s))), new Gson(),
+                NdjsonStreamingOutput.acceptsGzip(acceptEncoding)));
+    }
+
+    @Override
+    public Response exportBinarySnapshot() {
+        logger.info("DatabaseManagementController.exportBinarySnapshot");
+        Response notModified = VersionPreconditions.evaluate(request, database.getGraphVersion());
+        if (notModified != null) {
+            return notModified;
+        }
+        BinarySnapshotManager.Snapshot snapshot = database.getBinarySnapshot();
+        if (snapshot == null) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
+        StreamingOutput output = snapshot::writeTo;
+        return VersionPreconditions.tag(Response.ok(output, BinarySnapshot.MEDIA_TYPE), snapshot.getVersion())
+                .header(HttpHeaders.CONTENT_LENGTH, snapshot.getSize()).build();
+    }
+
+    private static Response export(NdjsonStreamingOutput<?> output) {
+        Response.ResponseBuilder builder = Response.ok(output, JsonStreamIterator.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (output.isGzip()) {
+            builder.encoding(NdjsonStreamingOutput.GZIP);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Response getVectorTile(int z, int x, int y) {
+        logger.info("DatabaseManagementController.getVectorTile: z = " + z + ", x = " + x + ", y = " + y);
+        if (z < 0 || z > VectorTileManager.MAX_ZOOM) {
+            throw new BadRequestException("z must be between 0 and " + VectorTileManager.MAX_ZOOM);
+        }
+        if (x < 0 || y < 0 || x >= 1 << z || y >= 1 << z) {
+            throw new BadRequestException("x and y must be between 0 and 2^z - 1");
+        }
+        LocalDateTime version = database.getSpatialIndexVersion();
+        Response notModified = VersionPreconditions.evaluate(request, version);
+        if (notModified != null) {
+            return notModified;
+        }
+        byte[] tile = database.getVectorTile(z, x, y);
+        if (tile == null) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
+        return VersionPreconditions.tag(Response.ok().entity(tile), version).build();
+    }
+
+    /**
+     * Parses a bounding box given as {@code minLongitude,minLatitude,maxLongitude,maxLatitude}.
+     */
+    private static double[] boundingBox(String bbox) {
+        String[] values = bbox == null ? new String[0] : bbox.split(",");
+        if (values.length != 4) {
+            throw new BadRequestException("bbox must be minLongitude,minLatitude,maxLongitude,maxLatitude");
+        }
+        double[] box = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                box[i] = Double.parseDouble(values[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("bbox must be minLongitude,minLatitude,maxLongitude,maxLatitude");
+        }
+        if (!(box[0] <= box[2]) || !(box[1] <= box[3])) {
+            throw new BadRequestException("bbox minimum greater than maximum");
+        }
+        return box;
+    }
+
+    @Override
+    public void getStreets(long osmid, AsyncResponse response) {
         logger.info("DatabaseManagementController.getStreets: osmid = " + osmid);
-        HashMap<Integer, Street> s = database.getStreets(osmid);
-        return Response.ok().entity(s).build();
+        LocalDateTime version = database.getGraphVersion();
+        if (notModified(response, version)) {
+            return;
+        }
+        GeometryFormat format = GeometryFormat.from(uriInfo, headers);
+        resume(response, database.getStreetsAsync(osmid),
+                s -> VersionPreconditions.tag(Response.ok().entity(format.encode(s)), version).build());
     }
 
     @Override
-    public Response deleteIntersection(long osmid) {
+    public void deleteIntersection(long osmid, AsyncResponse response) {
         logger.info("DatabaseManagementController.deleteIntersection: osmid = " + osmid);
-        database.deleteIntersection(osmid);
-        return Response.ok().build();
+        resume(response, database.deleteIntersectionAsync(osmid), v -> Response.ok().build());
     }
 
     @Override
-    public Response deleteStreet(int id) {
+    public void deleteStreet(int id, AsyncResponse response) {
         logger.info("DatabaseManagementController.deleteStreet: id = " + id);
-        database.deleteStreet(id);
-        return Response.ok().build();
-    }
-
-//    @Override
-//    public Response updateBetweennes(UriInfo info) {
-//        logger.info("DatabaseManagementController.updateBetweennes: info = " + info);
-//        String alg = info.getQueryParameters().getFirst("alg");
-//        switch (alg) {
-//            case "exact":
-//                database.updateBetweennesExact();
-//                return Response.ok().build();
-//            case "brandes-random":
-//                database.updateBetweeennessBrandesRandom();
-//                return Response.ok().build();
-//            case "brandes-degree":
-//                database.updateBetweeennessBrandesDegree();
-//                return Response.ok().build();
-//            case "default":
-//                database.updateBetweenness();
-//                return Response.ok().build();
-//            default:
-//                return Response.serverError().build();
-//        }
-//    }
-
-    @Override
-    public Response getStreet(int id) {
+        resume(response, database.deleteStreetAsync(id), v -> Response.ok().build());
+    }
+
+    /**
+     * Submits the update of the betweenness as a background job and answers at once with 202 and
+     * the location of the job, or 503 if too many jobs are queued.
+     */
+    @Override
+    public Response updateBetweennes(UriInfo info) {
+        logger.info("DatabaseManagementController.updateBetweennes: info = " + info);
+        String alg = info.getQueryParameters().getFirst("alg");
+        String strategy;
+        switch (alg == null ? "default" : alg) {
+            case "exact":
+                strategy = "EXACT";
+                break;
+            case "brandes-random":
+                strategy = "RANDOM";
+                break;
+            case "brandes-degree":
+            case "default":
+                strategy = "DEGREE";
+                break;
+            default:
+                return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        JobStatus job = database.submitBetweennessJob(strategy);
+        if (job == null) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
+        return Response.accepted(job)
+                .location(uriInfo.getBaseUriBuilder().path(DatabaseManagementController.class)
+                        .path("jobs").path(job.getId()).build())
+                .build();
+    }
+
+    @Override
+    public Response getJobs() {
+        logger.info("DatabaseManagementController.getJobs");
+        ArrayList<JobStatus> jobs = database.getJobs();
+        return Response.ok().entity(jobs).build();
+    }
+
+    @Override
+    public Response getJob(String id) {
+        logger.info("DatabaseManagementController.getJob: id = " + id);
+        JobStatus job = database.getJob(id);
+        if (job == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.ok().entity(job).build();
+    }
+
+    /**
+     * Cancels a job, answering 409 if it has already finished.
+     */
+    @Override
+    public Response cancelJob(String id) {
+        logger.info("DatabaseManagementController.cancelJob: id = " + id);
+        JobStatus job = database.cancelJob(id);
+        if (job == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        if (!job.isCancelRequested()) {
+            return Response.status(Response.Status.CONFLICT).entity(job).build();
+        }
+        return Response.ok().entity(job).build();
+    }
+
+    @Override
+    public void getStreet(int id, AsyncResponse response) {
         logger.info("DatabaseManagementController.getStreet: id = " + id);
-        return Response.ok().entity(database.getStreet(id)).build();
+        LocalDateTime version = database.getGraphVersion();
+        if (notModified(response, version)) {
+            return;
+        }
+        GeometryFormat format = GeometryFormat.from(uriInfo, headers);
+        resume(response, database.getStreetAsync(id),
+                s -> VersionPreconditions.tag(Response.ok().entity(format.encode(s)), version).build());
     }
 
 
     @Override
-    public Response setStreetInterrupted(int id, boolean interrupted) {
+    public void setStreetInterrupted(int id, boolean interrupted, AsyncResponse response) {
         logger.info("DatabaseManagementController.setStreetInterrupted: id = " + id + ", interrupted = " + interrupted);
-        try {
-            database.setStreetInterrupted(id, interrupted);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return Response.serverError().build();
+        CompletionStage<Boolean> updated = database.setStreetInterruptedAsync(id, interrupted).handle((v, e) -> {
+            if (e != null) {
+                e.printStackTrace();
+                return false;
+            }
+            return true;
+        });
+        resume(response, updated, ok -> ok ? Response.ok().build() : Response.serverError().build());
+    }
+
+    /**
+     * Answers a conditional GET with 304 if the copy of the client matches the graph version,
+     * without querying the graph.
+     *
+     * @return {@code true} if the request has been answered.
+     */
+    private boolean notModified(AsyncResponse response, LocalDateTime version) {
+        Response notModified = VersionPreconditions.evaluate(request, version);
+        if (notModified == null) {
+            return false;
         }
-        return Response.ok().build();
+        response.resume(notModified);
+        return true;
+    }
+
+    /**
+     * Resumes a suspended request with the outcome of a database call.
+     * <p>
+     * The response is built and written by the container executor rather than by the driver
+     * I/O thread that completed the call, so a slow client never stalls the driver. A failed
+     * call resumes the request with its cause, mapped by JAX-RS as for a synchronous endpoint.
+     */
+    private <T> void resume(AsyncResponse response, CompletionStage<T> stage, Function<T, Response> ok) {
+        stage.whenCompleteAsync((value, error) -> {
+            if (error != null) {
+                response.resume(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+                return;
+            }
+            try {
+                response.resume(ok.apply(value));
+            } catch (RuntimeException e) {
+                response.resume(e);
+            }
+        }, executor);
+    }
+
+    @Override
+    public Response migrateStreetGeometry(int batchSize) {
+        logger.info("DatabaseManagementController.migrateStreetGeometry: batchSize = " + batchSize);
+        ImportReport report = database.migrateStreetGeometry(batchSize);
+        return Response.ok().entity(report).build();
+    }
+
+    @Override
+    public Response getQueryStatistics() {
+        logger.info("DatabaseManagementController.getQueryStatistics");
+        Map<String, Long> statistics = database.getQueryStatistics();
+        return Response.ok().entity(statistics).build();
+    }
+
+    @Override
+    public Response getConnectionPoolStatistics() {
+        logger.info("DatabaseManagementController.getConnectionPoolStatistics");
+        ArrayList<ConnectionPoolStatistics> statistics = database.getConnectionPoolStatistics();
+        return Response.ok().entity(statistics).build();
+    }
+
+    @Override
+    public Response getCacheStatistics() {
+        logger.info("DatabaseManagementController.getCacheStatistics");
+        ArrayList<CacheStatistics> statistics = database.getCacheStatistics();
+        return Response.ok().entity(statistics).build();
+    }
+
+    @Override
+    public Response refreshGraphSnapshot() {
+        logger.info("DatabaseManagementController.refreshGraphSnapshot");
+        GraphSnapshotStatistics statistics = database.refreshGraphSnapshot();
+        return Response.ok().entity(statistics).build();
+    }
+
+    @Override
+    public Response getGraphSnapshotStatistics() {
+        logger.info("DatabaseManagementController.getGraphSnapshotStatistics");
+        GraphSnapshotStatistics statistics = database.getGraphSnapshotStatistics();
+        return Response.ok().entity(statistics).build();
+    }
+
+    @Override
+    public Response flushWriteBuffer() {
+        logger.info("DatabaseManagementController.flushWriteBuffer");
+        WriteBufferStatistics statistics = database.flushWriteBuffer();
+        return Response.ok().entity(statistics).build();
+    }
+
+    @Override
+    public Response getWriteBufferStatistics() {
+        logger.info("DatabaseManagementController.getWriteBufferStatistics");
+        WriteBufferStatistics statistics = database.getWriteBufferStatistics();
+        return Response.ok().entity(statistics).build();
+    }
+
+    @Override
+    public Response getStreetDirectoryStatistics() {
+        logger.info("DatabaseManagementController.getStreetDirectoryStatistics");
+        StreetDirectoryStatistics statistics = database.getStreetDirectoryStatistics();
+        return Response.ok().entity(statistics).build();
+    }
+
+    @Override
+    public Response rebuildStreetDirectory() {
+        logger.info("DatabaseManagementController.rebuildStreetDirectory");
+        StreetDirectoryStatistics statistics = database.rebuildStreetDirectory();
+        return Response.ok().entity(statistics).build();
+    }
+
+    @Override
+    public Response getSpatialIndexStatistics() {
+        logger.info("DatabaseManagementController.getSpatialIndexStatistics");
+        SpatialIndexStatistics statistics = database.getSpatialIndexStatistics();
+        return Response.ok().entity(statistics).build();
+    }
+
+    @Override
+    public Response rebuildSpatialIndex() {
+        logger.info("DatabaseManagementController.rebuildSpatialIndex");
+        SpatialIndexStatistics statistics = database.rebuildSpatialIndex();
+        return Response.ok().entity(statistics).build();
+    }
+
+    @Override
+    public Response getSchemaStatus() {
+        logger.info("DatabaseManagementController.getSchemaStatus");
+        SchemaStatus status = database.getSchemaStatus();
+        return Response.ok().entity(status).build();
+    }
+
+    @Override
+    public Response ensureSchema() {
+        logger.info("DatabaseManagementController.ensureSchema");
+        SchemaStatus status = database.ensureSchema();
+        return Response.ok().entity(status).build();
+    }
+
+    @Override
+    public Response getBetweennessAccuracy() {
+        logger.info("DatabaseManagementController.getBetweennessAccuracy");
+        BetweennessAccuracyReport report = database.getBetweennessAccuracy();
+        return Response.ok().entity(report).build();
     }
 
 }
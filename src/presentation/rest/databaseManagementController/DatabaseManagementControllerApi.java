@@ -1,19 +1,34 @@
 package presentation.rest.databaseManagementController;
 
 
+import java.io.InputStream;
+
+import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.FormParam;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
+import data.graph.BinarySnapshot;
+import presentation.rest.GeometryFormat;
+import presentation.rest.JsonStreamIterator;
+import presentation.rest.PATCH;
+import util.VectorTileEncoder;
+
 public interface DatabaseManagementControllerApi {
 
 	@POST
@@ -24,6 +39,12 @@ public interface DatabaseManagementControllerApi {
 							 @FormParam("hospital") boolean hospital, @FormParam("busStop") boolean busStop,
 							 @FormParam("museum") boolean museum);
 
+	@POST
+	@Path("/intersections/bulk")
+	@Consumes({MediaType.APPLICATION_JSON, JsonStreamIterator.APPLICATION_NDJSON})
+	Response addIntersections(InputStream body, @HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType,
+							  @QueryParam("chunkSize") int chunkSize);
+
 	@POST
 	@Path("/streets")
 	Response addStreet(@FormParam("coordinatesJSON") String coordinatesJSON, @FormParam("id") int id,
@@ -38,46 +59,174 @@ public interface DatabaseManagementControllerApi {
 					   @FormParam("flow") double flow, @FormParam("averageTravelTime") double averageTravelTime,
 					   @FormParam("interrupted") boolean interrupted);
 
+	@POST
+	@Path("/streets/bulk")
+	@Consumes({MediaType.APPLICATION_JSON, JsonStreamIterator.APPLICATION_NDJSON})
+	Response addStreets(InputStream body, @HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType,
+						@QueryParam("chunkSize") int chunkSize, @QueryParam(GeometryFormat.PRECISION) String precision);
+
+	@PATCH
+	@Path("/streets/weights")
+	@Consumes({MediaType.APPLICATION_JSON, JsonStreamIterator.APPLICATION_NDJSON})
+	Response setStreetWeights(InputStream body, @HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType,
+							  @QueryParam("chunkSize") int chunkSize);
+
+	@PATCH
+	@Path("/streets/interruptions")
+	@Consumes({MediaType.APPLICATION_JSON, JsonStreamIterator.APPLICATION_NDJSON})
+	Response setStreetsInterrupted(InputStream body, @HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType,
+								   @QueryParam("chunkSize") int chunkSize);
+
 	@PUT
 	@Path("/streets/{id}")
-	Response setStreetWeight(@PathParam("id") int id, @FormParam("weight") double weight);
+	void setStreetWeight(@PathParam("id") int id, @FormParam("weight") double weight,
+						 @Suspended AsyncResponse response);
 
 	@PUT
 	@Path("/intersections/{osmid}")
-	Response setBetweennessIntersection(@PathParam("osmid") long osmid,
-										@FormParam("betweennees") double betweennees);
+	void setBetweennessIntersection(@PathParam("osmid") long osmid,
+									@FormParam("betweennees") double betweennees,
+									@Suspended AsyncResponse response);
 
 	@GET
 	@Path("/intersections/{osmid}")
-	Response getIntersection(@PathParam("osmid") long osmid);
+	void getIntersection(@PathParam("osmid") long osmid, @Suspended AsyncResponse response);
+
+	@GET
+	@Path("/intersections")
+	void getIntersectionsWithin(@QueryParam("bbox") String bbox, @QueryParam("limit") @DefaultValue("0") int limit,
+								@Suspended AsyncResponse response);
+
+	@GET
+	@Path("/intersections/nearest")
+	void getNearestIntersections(@QueryParam("lon") Double longitude, @QueryParam("lat") Double latitude,
+								 @QueryParam("k") @DefaultValue("1") int k,
+								 @QueryParam("parking") @DefaultValue("false") boolean parking,
+								 @QueryParam("hospital") @DefaultValue("false") boolean hospital,
+								 @QueryParam("busStop") @DefaultValue("false") boolean busStop,
+								 @QueryParam("museum") @DefaultValue("false") boolean museum,
+								 @Suspended AsyncResponse response);
+
+	@GET
+	@Path("/export/intersections")
+	@Produces(JsonStreamIterator.APPLICATION_NDJSON)
+	Response exportIntersections(@HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding);
+
+	@GET
+	@Path("/export/streets")
+	@Produces(JsonStreamIterator.APPLICATION_NDJSON)
+	Response exportStreets(@HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding);
+
+	@GET
+	@Path("/export/snapshot")
+	@Produces(BinarySnapshot.MEDIA_TYPE)
+	Response exportBinarySnapshot();
+
+	@GET
+	@Path("/tiles/{z}/{x}/{y}")
+	@Produces(VectorTileEncoder.MEDIA_TYPE)
+	Response getVectorTile(@PathParam("z") int z, @PathParam("x") int x, @PathParam("y") int y);
 
 	@GET
 	@Path("/streets")
-	Response getStreetProperties(@Context UriInfo info);
+	void getStreetProperties(@Context UriInfo info, @Suspended AsyncResponse response);
 
 	@GET
 	@Path("/intersections/{osmid}/streets")
-	Response getStreets(@PathParam("osmid") long osmid);
+	void getStreets(@PathParam("osmid") long osmid, @Suspended AsyncResponse response);
 
 	@DELETE
 	@Path("/intersections/{osmid}")
-	Response deleteIntersection(@PathParam("osmid") long osmid);
+	void deleteIntersection(@PathParam("osmid") long osmid, @Suspended AsyncResponse response);
 
 	@DELETE
 	@Path("/streets/{id}")
-	Response deleteStreet(@PathParam("id") int id);
-//
-//	@PUT
-//	@Path("/criticalNodes")
-//	Response updateBetweennes(@Context UriInfo info);
+	void deleteStreet(@PathParam("id") int id, @Suspended AsyncResponse response);
+
+	@PUT
+	@Path("/criticalNodes")
+	Response updateBetweennes(@Context UriInfo info);
+
+	@GET
+	@Path("/jobs")
+	Response getJobs();
+
+	@GET
+	@Path("/jobs/{id}")
+	Response getJob(@PathParam("id") String id);
+
+	@DELETE
+	@Path("/jobs/{id}")
+	Response cancelJob(@PathParam("id") String id);
 
 	@GET
 	@Path("/streets/{id}")
-	Response getStreet(@PathParam("id") int id);
+	void getStreet(@PathParam("id") int id, @Suspended AsyncResponse response);
 
 	@PUT
 	@Path("/streets/interruptions/{id}")
-	Response setStreetInterrupted(@PathParam("id") int id, @FormParam("interrupted") boolean interrupted);
+	void setStreetInterrupted(@PathParam("id") int id, @FormParam("interrupted") boolean interrupted,
+							  @Suspended AsyncResponse response);
+
+	@POST
+	@Path("/maintenance/street-geometry")
+	Response migrateStreetGeometry(@QueryParam("batchSize") int batchSize);
+
+	@GET
+	@Path("/statistics/queries")
+	Response getQueryStatistics();
+
+	@GET
+	@Path("/statistics/connection-pool")
+	Response getConnectionPoolStatistics();
+
+	@GET
+	@Path("/statistics/cache")
+	Response getCacheStatistics();
+
+	@POST
+	@Path("/maintenance/graph-snapshot")
+	Response refreshGraphSnapshot();
+
+	@GET
+	@Path("/statistics/graph-snapshot")
+	Response getGraphSnapshotStatistics();
+
+	@POST
+	@Path("/maintenance/write-buffer")
+	Response flushWriteBuffer();
+
+	@GET
+	@Path("/statistics/write-buffer")
+	Response getWriteBufferStatistics();
+
+	@GET
+	@Path("/statistics/street-directory")
+	Response getStreetDirectoryStatistics();
+
+	@POST
+	@Path("/maintenance/street-directory")
+	Response rebuildStreetDirectory();
+
+	@GET
+	@Path("/statistics/spatial-index")
+	Response getSpatialIndexStatistics();
+
+	@POST
+	@Path("/maintenance/spatial-index")
+	Response rebuildSpatialIndex();
+
+	@GET
+	@Path("/statistics/schema")
+	Response getSchemaStatus();
+
+	@POST
+	@Path("/maintenance/schema")
+	Response ensureSchema();
+
+	@GET
+	@Path("/statistics/betweenness-accuracy")
+	Response getBetweennessAccuracy();
 
 	@GET
 	@Path("/test")
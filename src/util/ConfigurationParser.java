@@ -45,9 +45,16 @@ public class ConfigurationParser {
     //restituisce il primo elemento che si trova nel file xml con le caratteristiche passate in param
     private static String getElement(Document doc, String tagName, String elementName) {
      Node settingNode = doc.getElementsByTagName(tagName).item(0);
+        if (settingNode == null) {
+            return null;
+        }
 
         Element settingElement = (Element) settingNode;
-        return settingElement.getElementsByTagName(elementName).item(0).getTextContent();
+        Node elementNode = settingElement.getElementsByTagName(elementName).item(0);
+        if (elementNode == null) {
+            return null;
+        }
+        return elementNode.getTextContent().trim();
     }
 
 }
@@ -0,0 +1,189 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Map from {@code int} keys to pairs of {@code long} values on primitive arrays, with open
+ * addressing and linear probing, so that millions of entries cost 21 bytes each (at full load)
+ * instead of a boxed key, an array and a hash map node.
+ * <p>
+ * Not thread-safe.
+ */
+public class IntLongPairHashMap {
+
+	private static final float LOAD_FACTOR = 0.6f;
+
+	private int[] keys;
+	private long[] firsts;
+	private long[] seconds;
+	private boolean[] used;
+	private int size;
+	private int mask;
+
+	/**
+	 * @param expectedSize Number of entries expected, to size the arrays once.
+	 */
+	public IntLongPairHashMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		firsts = new long[capacity];
+		seconds = new long[capacity];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+		size = 0;
+	}
+
+	private int slot(int key) {
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	/**
+	 * @param key    The key.
+	 * @param first  First value of the pair.
+	 * @param second Second value of the pair.
+	 * @return {@code true} if the key was not in the map.
+	 */
+	public boolean put(int key, long first, long second) {
+		int i = slot(key);
+		while (used[i]) {
+			if (keys[i] == key) {
+				firsts[i] = first;
+				seconds[i] = second;
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		used[i] = true;
+		keys[i] = key;
+		firsts[i] = first;
+		seconds[i] = second;
+		if (++size > keys.length * LOAD_FACTOR) {
+			grow();
+		}
+		return true;
+	}
+
+	/**
+	 * @param key The key.
+	 * @return {@code true} if the key is in the map.
+	 */
+	public boolean containsKey(int key) {
+		return find(key) >= 0;
+	}
+
+	/**
+	 * @param key  The key.
+	 * @param pair Receives the pair of the key, if present.
+	 * @return {@code true} if the key is in the map.
+	 */
+	public boolean get(int key, long[] pair) {
+		int i = find(key);
+		if (i < 0) {
+			return false;
+		}
+		pair[0] = firsts[i];
+		pair[1] = seconds[i];
+		return true;
+	}
+
+	private int find(int key) {
+		int i = slot(key);
+		while (used[i]) {
+			if (keys[i] == key) {
+				return i;
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param key The key.
+	 * @return {@code true} if the key was in the map.
+	 */
+	public boolean remove(int key) {
+		int i = find(key);
+		if (i < 0) {
+			return false;
+		}
+		used[i] = false;
+		size--;
+		// moves back the following entries of the cluster, which may be reachable only through i
+		int j = (i + 1) & mask;
+		while (used[j]) {
+			int k = keys[j];
+			long first = firsts[j];
+			long second = seconds[j];
+			used[j] = false;
+			size--;
+			put(k, first, second);
+			j = (j + 1) & mask;
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the entries whose first or second value is {@code value}, by a scan of the map.
+	 *
+	 * @param value The value.
+	 * @return Number of entries removed.
+	 */
+	public int removeValue(long value) {
+		// removing moves entries back, so the keys are collected first
+		int[] matching = new int[8];
+		int count = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (used[i] && (firsts[i] == value || seconds[i] == value)) {
+				if (count == matching.length) {
+					matching = Arrays.copyOf(matching, count << 1);
+				}
+				matching[count++] = keys[i];
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			remove(matching[i]);
+		}
+		return count;
+	}
+
+	private void grow() {
+		int[] oldKeys = keys;
+		long[] oldFirsts = firsts;
+		long[] oldSeconds = seconds;
+		boolean[] oldUsed = used;
+		allocate(oldKeys.length << 1);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				put(oldKeys[i], oldFirsts[i], oldSeconds[i]);
+			}
+		}
+	}
+
+	/**
+	 * Removes all the entries, keeping the arrays.
+	 */
+	public void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return keys.length;
+	}
+
+	/**
+	 * @return Approximate heap size of the map, in bytes.
+	 */
+	public long getMemoryFootprint() {
+		return 16L + 4L * keys.length + 2 * (16L + 8L * firsts.length) + 16L + used.length + 32L;
+	}
+}
@@ -0,0 +1,134 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Map from {@code long} keys to {@code int} values on two primitive arrays, with open addressing
+ * and linear probing, so that millions of entries cost 12 bytes each (at full load) instead of a
+ * pair of boxed objects and a hash map node.
+ * <p>
+ * Not thread-safe; values are never negative, {@code -1} marks a missing key.
+ */
+public class LongIntHashMap {
+
+	public static final int MISSING = -1;
+
+	private static final float LOAD_FACTOR = 0.6f;
+
+	private long[] keys;
+	private int[] values;
+	private int size;
+	private int mask;
+
+	/**
+	 * @param expectedSize Number of entries expected, to size the arrays once.
+	 */
+	public LongIntHashMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(values, MISSING);
+		mask = capacity - 1;
+		size = 0;
+	}
+
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	/**
+	 * @param key   The key.
+	 * @param value The value, not negative.
+	 * @return The previous value, {@link #MISSING} if none.
+	 */
+	public int put(long key, int value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Negative value " + value);
+		}
+		int i = slot(key);
+		while (values[i] != MISSING) {
+			if (keys[i] == key) {
+				int previous = values[i];
+				values[i] = value;
+				return previous;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		if (++size > keys.length * LOAD_FACTOR) {
+			grow();
+		}
+		return MISSING;
+	}
+
+	/**
+	 * @param key The key.
+	 * @return The value, {@link #MISSING} if the key is not in the map.
+	 */
+	public int get(long key) {
+		int i = slot(key);
+		while (values[i] != MISSING) {
+			if (keys[i] == key) {
+				return values[i];
+			}
+			i = (i + 1) & mask;
+		}
+		return MISSING;
+	}
+
+	/**
+	 * @param key The key.
+	 * @return The removed value, {@link #MISSING} if the key was not in the map.
+	 */
+	public int remove(long key) {
+		int i = slot(key);
+		while (values[i] != MISSING) {
+			if (keys[i] == key) {
+				int removed = values[i];
+				values[i] = MISSING;
+				size--;
+				// moves back the following entries of the cluster, which may be reachable only through i
+				int j = (i + 1) & mask;
+				while (values[j] != MISSING) {
+					long k = keys[j];
+					int v = values[j];
+					values[j] = MISSING;
+					size--;
+					put(k, v);
+					j = (j + 1) & mask;
+				}
+				return removed;
+			}
+			i = (i + 1) & mask;
+		}
+		return MISSING;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(oldKeys.length << 1);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] != MISSING) {
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return Approximate heap size of the map, in bytes.
+	 */
+	public long getMemoryFootprint() {
+		return 16L + 8L * keys.length + 16L + 4L * values.length + 16L + 32L;
+	}
+}
@@ -0,0 +1,152 @@
+package util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+
+/**
+ * Bounded map that evicts the least recently used entry when it is full, counting hits, misses,
+ * evictions and invalidations.
+ * <p>
+ * A value loaded from the database may be stale when it is stored if a write invalidated the cache
+ * while the load was in flight. The loader takes {@link #generation()} before the load and stores
+ * the value with {@link #put(Object, Object, long)}, which discards it if any invalidation happened
+ * in the meantime.
+ *
+ * @param <K> Type of the keys.
+ * @param <V> Type of the values.
+ */
+public class LruCache<K, V> {
+
+	private final String name;
+	private final int capacity;
+	private final LinkedHashMap<K, V> entries;
+	private long generation;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder invalidations = new LongAdder();
+
+	/**
+	 * @param name     Name of the cache, used in the statistics.
+	 * @param capacity Maximum number of entries; the cache is disabled if not positive.
+	 */
+	public LruCache(String name, int capacity) {
+		this.name = name;
+		this.capacity = capacity;
+		this.generation = 0;
+		this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				if (size() > LruCache.this.capacity) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * @param key The key.
+	 * @return The cached value, {@code null} on a miss.
+	 */
+	public synchronized V get(K key) {
+		V value = entries.get(key);
+		if (value == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return value;
+	}
+
+	/**
+	 * @return Token to pass to {@link #put(Object, Object, long)} for a value loaded after this call.
+	 */
+	public synchronized long generation() {
+		return generation;
+	}
+
+	/**
+	 * Stores a loaded value, unless the cache has been invalidated since {@code generation}.
+	 *
+	 * @param key        The key.
+	 * @param value      The loaded value; {@code null} is never stored.
+	 * @param generation Value of {@link #generation()} taken before the load.
+	 */
+	public synchronized void put(K key, V value, long generation) {
+		if (capacity > 0 && value != null && generation == this.generation) {
+			entries.put(key, value);
+		}
+	}
+
+	/**
+	 * @param key The key of the entry to drop.
+	 */
+	public synchronized void invalidate(K key) {
+		generation++;
+		if (entries.remove(key) != null) {
+			invalidations.increment();
+		}
+	}
+
+	/**
+	 * Drops all the entries matching a condition, scanning the whole cache.
+	 *
+	 * @param condition Condition on the key and the value of an entry.
+	 */
+	public synchronized void invalidateIf(BiPredicate<K, V> condition) {
+		generation++;
+		Iterator<Map.Entry<K, V>> it = entries.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<K, V> e = it.next();
+			if (condition.test(e.getKey(), e.getValue())) {
+				it.remove();
+				invalidations.increment();
+			}
+		}
+	}
+
+	/**
+	 * Drops all the entries.
+	 */
+	public synchronized void invalidateAll() {
+		generation++;
+		invalidations.add(entries.size());
+		entries.clear();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	public long getInvalidations() {
+		return invalidations.sum();
+	}
+}
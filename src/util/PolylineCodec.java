@@ -0,0 +1,95 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import data.dataModel.Coordinate;
+
+/**
+ * Encoded polyline representation of a street geometry.
+ * <p>
+ * Every coordinate is scaled by 10^precision and rounded, then the difference from the previous
+ * point is zig-zag encoded and written as a varint of 5-bit groups, each one offset by 63 to make
+ * it a printable ASCII character. Latitude is written before longitude, as in the Google encoded
+ * polyline format, which uses precision 5.
+ */
+public class PolylineCodec {
+
+	public static final int DEFAULT_PRECISION = 5;
+	public static final int MAX_PRECISION = 10;
+
+	private PolylineCodec() {
+	}
+
+	/**
+	 * @param coordinates Geometry of the street.
+	 * @param precision   Number of decimal digits kept for every coordinate.
+	 * @return The encoded polyline.
+	 */
+	public static String encode(List<Coordinate> coordinates, int precision) {
+		double factor = Math.pow(10, precision);
+		StringBuilder sb = new StringBuilder(coordinates.size() * 8);
+		long previousLatitude = 0;
+		long previousLongitude = 0;
+		for (Coordinate c : coordinates) {
+			long latitude = Math.round(c.getLatitude() * factor);
+			long longitude = Math.round(c.getLongitude() * factor);
+			encodeValue(latitude - previousLatitude, sb);
+			encodeValue(longitude - previousLongitude, sb);
+			previousLatitude = latitude;
+			previousLongitude = longitude;
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param polyline  The encoded polyline.
+	 * @param precision Number of decimal digits used to encode the polyline.
+	 * @return Geometry of the street.
+	 * @throws IllegalArgumentException if the polyline is truncated, contains invalid characters or a
+	 *                                  value longer than 64 bits.
+	 */
+	public static ArrayList<Coordinate> decode(String polyline, int precision) {
+		double factor = Math.pow(10, precision);
+		ArrayList<Coordinate> coordinates = new ArrayList<>();
+		int[] index = {0};
+		long latitude = 0;
+		long longitude = 0;
+		while (index[0] < polyline.length()) {
+			latitude += decodeValue(polyline, index);
+			longitude += decodeValue(polyline, index);
+			coordinates.add(new Coordinate(longitude / factor, latitude / factor));
+		}
+		return coordinates;
+	}
+
+	private static void encodeValue(long delta, StringBuilder sb) {
+		long value = delta < 0 ? ~(delta << 1) : delta << 1;
+		while (value >= 0x20) {
+			sb.append((char) ((0x20 | (value & 0x1f)) + 63));
+			value >>>= 5;
+		}
+		sb.append((char) (value + 63));
+	}
+
+	private static long decodeValue(String polyline, int[] index) {
+		long value = 0;
+		int shift = 0;
+		int chunk;
+		do {
+			if (index[0] >= polyline.length()) {
+				throw new IllegalArgumentException("Truncated polyline");
+			}
+			if (shift >= 64) {
+				throw new IllegalArgumentException("Overlong polyline value at " + index[0]);
+			}
+			chunk = polyline.charAt(index[0]++) - 63;
+			if (chunk < 0 || chunk > 0x3f) {
+				throw new IllegalArgumentException("Invalid polyline character at " + (index[0] - 1));
+			}
+			value |= (long) (chunk & 0x1f) << shift;
+			shift += 5;
+		} while (chunk >= 0x20);
+		return (value & 1) != 0 ? ~(value >>> 1) : value >>> 1;
+	}
+}
@@ -54,6 +54,209 @@ public class ServerUtilities {
 		return ConfigurationParser.readElementFromFileXml(configurationFile, "neo4j-core", "password");
 	}
 
+	public int getConnectionPoolMaxSize() {
+		return readInt("connection-pool", "max-size", 100);
+	}
+
+	public int getConnectionAcquisitionTimeout() {
+		return readInt("connection-pool", "acquisition-timeout-ms", 60000);
+	}
+
+	public int getConnectionMaxLifetime() {
+		return readInt("connection-pool", "max-lifetime-ms", 3600000);
+	}
+
+	public int getBulkImportChunkSize() {
+		return readInt("bulk-import", "chunk-size", 1000);
+	}
+
+	public int getCacheIntersectionsSize() {
+		return readInt("cache", "intersections", 10000);
+	}
+
+	public int getCacheStreetsSize() {
+		return readInt("cache", "streets", 50000);
+	}
+
+	public int getGraphVersionRefresh() {
+		return readInt("graph-version", "refresh-ms", 1000);
+	}
+
+	public int getGraphSnapshotRefresh() {
+		return readInt("graph-snapshot", "refresh-ms", 60000);
+	}
+
+	/**
+	 * @return Threads computing the betweenness, 0 for one per processor.
+	 */
+	public int getBetweennessParallelism() {
+		return readInt("betweenness", "parallelism", 0);
+	}
+
+	/**
+	 * @return Probability of selection of the sources of the random strategy, 0 for
+	 *         log10(N) / e^2.
+	 */
+	public double getBetweennessProbability() {
+		String value = ConfigurationParser.readElementFromFileXml(configurationFile, "betweenness", "probability");
+		return value == null || value.isEmpty() ? 0 : Double.parseDouble(value);
+	}
+
+	/**
+	 * @return {@code true} to keep the betweenness of the last full computation up to date when
+	 *         the weights and the interruptions of the streets change.
+	 */
+	public boolean getBetweennessDynamic() {
+		return readBoolean("betweenness", "dynamic", false);
+	}
+
+	/**
+	 * @return Threads running the background jobs.
+	 */
+	public int getJobThreads() {
+		return readInt("jobs", "threads", 1);
+	}
+
+	/**
+	 * @return Jobs that can wait for a thread; further submissions are rejected.
+	 */
+	public int getJobQueueSize() {
+		return readInt("jobs", "queue-size", 16);
+	}
+
+	/**
+	 * @return Finished jobs whose status is kept.
+	 */
+	public int getJobRetention() {
+		return readInt("jobs", "retention", 100);
+	}
+
+	/**
+	 * @return {@code true} to coalesce the updates of the street weights.
+	 */
+	public boolean getWriteCoalescingEnabled() {
+		return readBoolean("write-coalescing", "enabled", false);
+	}
+
+	/**
+	 * @return Interval between two writes of the coalesced street weights, in milliseconds.
+	 */
+	public int getWriteCoalescingFlush() {
+		return readInt("write-coalescing", "flush-ms", 200);
+	}
+
+	/**
+	 * @return Pending street weights that trigger a write before the interval.
+	 */
+	public int getWriteCoalescingMaxEntries() {
+		return readInt("write-coalescing", "max-entries", 1000);
+	}
+
+	/**
+	 * @return Seconds the startup waits for the population of the indexes, 0 not to wait.
+	 */
+	public int getSchemaAwaitSeconds() {
+		return readInt("schema", "await-seconds", 0);
+	}
+
+	/**
+	 * @return {@code true} to make the reads wait for the bookmarks of the last writes.
+	 */
+	public boolean getBookmarksEnabled() {
+		return readBoolean("bookmarks", "enabled", true);
+	}
+
+	/**
+	 * @return Bookmarks of the last writes the reads wait for.
+	 */
+	public int getBookmarksRetained() {
+		return readInt("bookmarks", "retained", 8);
+	}
+
+	/**
+	 * @return {@code true} to keep the spatial index of the intersections and of the streets.
+	 */
+	public boolean getSpatialIndexEnabled() {
+		return readBoolean("spatial-index", "enabled", true);
+	}
+
+	/**
+	 * @return Side of a cell of the spatial index, in decimal degrees.
+	 */
+	public double getSpatialIndexCellDegrees() {
+		String value = ConfigurationParser.readElementFromFileXml(configurationFile, "spatial-index", "cell-degrees");
+		return value == null || value.isEmpty() ? 0.005 : Double.parseDouble(value);
+	}
+
+	/**
+	 * @return Maximum number of elements returned by a query by bounding box.
+	 */
+	public int getSpatialIndexMaxResults() {
+		return readInt("spatial-index", "max-results", 10000);
+	}
+
+	/**
+	 * @return Vector tiles kept in memory.
+	 */
+	public int getTilesCacheSize() {
+		return readInt("tiles", "cache-size", 1000);
+	}
+
+	/**
+	 * @return Lowest zoom level whose tiles contain the streets; the tiles below it are empty.
+	 */
+	public int getTilesMinZoom() {
+		return readInt("tiles", "min-zoom", 10);
+	}
+
+	/**
+	 * @return Units of a side of a vector tile.
+	 */
+	public int getTilesExtent() {
+		return readInt("tiles", "extent", 4096);
+	}
+
+	/**
+	 * @return Units of geometry kept outside of every side of a vector tile.
+	 */
+	public int getTilesBuffer() {
+		return readInt("tiles", "buffer", 64);
+	}
+
+	/**
+	 * @return Simplification tolerance of the vector tiles, in tile units.
+	 */
+	public double getTilesTolerance() {
+		String value = ConfigurationParser.readElementFromFileXml(configurationFile, "tiles", "tolerance");
+		return value == null || value.isEmpty() ? 8 : Double.parseDouble(value);
+	}
+
+	/**
+	 * Reads an optional integer setting of the configuration file.
+	 *
+	 * @param tagName      Tag that groups the setting.
+	 * @param elementName  Name of the setting.
+	 * @param defaultValue Value returned when the setting is missing.
+	 * @return The configured value, or the default one.
+	 */
+	protected int readInt(String tagName, String elementName, int defaultValue) {
+		String value = ConfigurationParser.readElementFromFileXml(configurationFile, tagName, elementName);
+		return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+	}
+
+	/**
+	 * Reads an optional boolean setting of the configuration file.
+	 *
+	 * @param tagName      Tag that groups the setting.
+	 * @param elementName  Name of the setting.
+	 * @param defaultValue Value returned when the setting is missing.
+	 * @return The configured value, or the default one.
+	 */
+	protected boolean readBoolean(String tagName, String elementName, boolean defaultValue) {
+		String value = ConfigurationParser.readElementFromFileXml(configurationFile, tagName, elementName);
+		return value == null || value.isEmpty() ? defaultValue : Boolean.parseBoolean(value.trim());
+	}
+
 	@Override
 	public String toString() {
 		return "ServerUtilities{" +
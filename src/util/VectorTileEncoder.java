@@ -0,0 +1,181 @@
+package util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writer of a Mapbox Vector Tile (version 2.1) with a single layer of line strings.
+ * <p>
+ * The tile is a protocol buffer: the layer lists every attribute name and value once and the
+ * features refer to them by index. The geometry of a feature is a sequence of MoveTo and LineTo
+ * commands on integer coordinates of the tile, each one relative to the previous point and
+ * zig-zag encoded, so a short segment takes two or three bytes.
+ */
+public class VectorTileEncoder {
+
+	public static final String MEDIA_TYPE = "application/vnd.mapbox-vector-tile";
+
+	private static final int VERSION = 2;
+	private static final int LINESTRING = 2;
+	private static final int MOVE_TO = 1;
+	private static final int LINE_TO = 2;
+
+	private final String layer;
+	private final int extent;
+	private final Map<String, Integer> keys = new LinkedHashMap<>();
+	private final Map<Object, Integer> values = new LinkedHashMap<>();
+	private final List<byte[]> features = new ArrayList<>();
+
+	/**
+	 * @param layer  Name of the layer.
+	 * @param extent Units of a side of the tile.
+	 */
+	public VectorTileEncoder(String layer, int extent) {
+		this.layer = layer;
+		this.extent = extent;
+	}
+
+	/**
+	 * Adds a feature made of one or more line strings.
+	 *
+	 * @param id         Identifier of the feature.
+	 * @param lines      Points of every line string, interleaved, x first, in tile units.
+	 * @param attributes Attributes of the feature: strings, numbers or booleans; {@code null}
+	 *                   values are left out.
+	 */
+	public void addLineString(long id, List<int[]> lines, Map<String, Object> attributes) {
+		if (lines.isEmpty()) {
+			return;
+		}
+		Buffer tags = new Buffer();
+		for (Map.Entry<String, Object> a : attributes.entrySet()) {
+			if (a.getValue() == null) {
+				continue;
+			}
+			Object value = a.getValue() instanceof Number ? (Object) ((Number) a.getValue()).doubleValue() : a.getValue();
+			tags.varint(index(keys, a.getKey()));
+			tags.varint(index(values, value));
+		}
+		Buffer geometry = new Buffer();
+		int x = 0;
+		int y = 0;
+		for (int[] line : lines) {
+			geometry.varint(command(MOVE_TO, 1));
+			geometry.varint(zigZag(line[0] - x));
+			geometry.varint(zigZag(line[1] - y));
+			geometry.varint(command(LINE_TO, line.length / 2 - 1));
+			for (int i = 2; i < line.length; i += 2) {
+				geometry.varint(zigZag(line[i] - line[i - 2]));
+				geometry.varint(zigZag(line[i + 1] - line[i - 1]));
+			}
+			x = line[line.length - 2];
+			y = line[line.length - 1];
+		}
+		Buffer feature = new Buffer();
+		feature.tag(1, 0).varint(id);
+		feature.tag(2, 2).bytes(tags);
+		feature.tag(3, 0).varint(LINESTRING);
+		feature.tag(4, 2).bytes(geometry);
+		features.add(feature.toByteArray());
+	}
+
+	public boolean isEmpty() {
+		return features.isEmpty();
+	}
+
+	/**
+	 * @return The tile; empty, which is a valid tile, if no feature has been added.
+	 */
+	public byte[] encode() {
+		if (features.isEmpty()) {
+			return new byte[0];
+		}
+		Buffer l = new Buffer();
+		l.tag(15, 0).varint(VERSION);
+		l.tag(1, 2).string(layer);
+		for (byte[] f : features) {
+			l.tag(2, 2).bytes(f);
+		}
+		for (String k : keys.keySet()) {
+			l.tag(3, 2).string(k);
+		}
+		for (Object v : values.keySet()) {
+			Buffer value = new Buffer();
+			if (v instanceof Boolean) {
+				value.tag(7, 0).varint((Boolean) v ? 1 : 0);
+			} else if (v instanceof Double) {
+				value.tag(3, 1).fixed64(Double.doubleToLongBits((Double) v));
+			} else {
+				value.tag(1, 2).string(v.toString());
+			}
+			l.tag(4, 2).bytes(value);
+		}
+		l.tag(5, 0).varint(extent);
+		Buffer tile = new Buffer();
+		tile.tag(3, 2).bytes(l);
+		return tile.toByteArray();
+	}
+
+	private static <T> int index(Map<T, Integer> dictionary, T entry) {
+		Integer i = dictionary.get(entry);
+		if (i == null) {
+			i = dictionary.size();
+			dictionary.put(entry, i);
+		}
+		return i;
+	}
+
+	private static int command(int id, int count) {
+		return (id & 0x7) | (count << 3);
+	}
+
+	private static int zigZag(int n) {
+		return (n << 1) ^ (n >> 31);
+	}
+
+	/**
+	 * Protocol buffer writer, limited to the wire types used by the tile.
+	 */
+	private static class Buffer extends ByteArrayOutputStream {
+
+		Buffer tag(int field, int wireType) {
+			return varint((field << 3) | wireType);
+		}
+
+		Buffer varint(long value) {
+			while ((value & ~0x7FL) != 0) {
+				write((int) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			write((int) value);
+			return this;
+		}
+
+		Buffer fixed64(long value) {
+			for (int i = 0; i < 8; i++) {
+				write((int) (value >>> (8 * i)));
+			}
+			return this;
+		}
+
+		Buffer bytes(byte[] value) {
+			varint(value.length);
+			write(value, 0, value.length);
+			return this;
+		}
+
+		Buffer bytes(Buffer value) {
+			varint(value.size());
+			write(value.buf, 0, value.count);
+			return this;
+		}
+
+		Buffer string(String value) {
+			return bytes(value.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+}
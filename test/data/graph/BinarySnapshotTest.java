@@ -0,0 +1,311 @@
+package data.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import data.dataModel.Coordinate;
+import data.dataModel.Intersection;
+import data.dataModel.Street;
+
+/**
+ * Writes snapshots with {@link BinarySnapshot.Writer} and reads them back.
+ */
+public class BinarySnapshotTest {
+
+	private static final LocalDateTime VERSION = LocalDateTime.of(2026, 10, 17, 12, 0, 1, 123456789);
+	private static final String[] HIGHWAYS = { "residential", "primary", null, "tertiary" };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void header() throws IOException {
+		BinarySnapshot.Writer writer = new BinarySnapshot.Writer(VERSION, 0, 0);
+		writer.addIntersection(intersection(3, 14.25, 40.85));
+		BinarySnapshot snapshot = write(writer);
+		assertEquals(VERSION, snapshot.getVersion());
+		assertEquals(BinarySnapshot.MINOR_VERSION, snapshot.getMinorVersion());
+		assertEquals(1, snapshot.getIntersectionCount());
+		assertEquals(0, snapshot.getStreetCount());
+		assertEquals(0, snapshot.getSize() % 8);
+	}
+
+	@Test
+	public void emptyGraphWithoutVersion() throws IOException {
+		BinarySnapshot snapshot = write(new BinarySnapshot.Writer(null, 0, 0));
+		assertNull(snapshot.getVersion());
+		assertEquals(0, snapshot.getIntersectionCount());
+		assertEquals(0, snapshot.getStreetCount());
+		assertEquals(-1, snapshot.indexOf(1));
+	}
+
+	@Test
+	public void intersections() throws IOException {
+		BinarySnapshot.Writer writer = new BinarySnapshot.Writer(VERSION, 0, 0);
+		writer.addIntersection(new Intersection(new Coordinate(-73.98564321, 40.74844), "traffic_signals", 30, "A1",
+				0.25, true, false, true, false));
+		writer.addIntersection(new Intersection(null, null, 10, null, 0, false, true, false, true));
+		writer.addIntersection(intersection(20, 179.99999999, -89.99999994));
+		// a duplicate osmid is ignored
+		writer.addIntersection(intersection(30, 0, 0));
+		assertEquals(3, writer.getIntersectionCount());
+		BinarySnapshot snapshot = write(writer);
+
+		// sorted by osmid
+		assertEquals(3, snapshot.getIntersectionCount());
+		assertEquals(10, snapshot.osmid(0));
+		assertEquals(20, snapshot.osmid(1));
+		assertEquals(30, snapshot.osmid(2));
+		assertEquals(1, snapshot.indexOf(20));
+		assertEquals(-1, snapshot.indexOf(15));
+		assertEquals(-1, snapshot.indexOf(31));
+
+		Intersection missing = snapshot.intersection(0);
+		assertNull(missing.getCoordinate());
+		assertTrue(Double.isNaN(snapshot.longitude(0)));
+		assertEquals(BinarySnapshot.HOSPITAL | BinarySnapshot.MUSEUM, snapshot.intersectionFlags(0));
+
+		// rounded to 10^-7 degrees
+		assertEquals(180, snapshot.longitude(1), 0);
+		assertEquals(-89.9999999, snapshot.latitude(1), 1e-12);
+
+		Intersection read = snapshot.intersection(2);
+		assertEquals(-73.9856432, read.getCoordinate().getLongitude(), 1e-12);
+		assertEquals(40.74844, read.getCoordinate().getLatitude(), 1e-12);
+		assertEquals("traffic_signals", read.getHighway());
+		assertEquals("A1", read.getRef());
+		assertEquals(0.25, read.getBetweenness(), 0);
+		assertTrue(read.isParking() && !read.isHospital() && read.isBusStop() && !read.isMuseum());
+	}
+
+	@Test
+	public void streets() throws IOException {
+		BinarySnapshot.Writer writer = new BinarySnapshot.Writer(VERSION, 0, 0);
+		writer.addIntersection(intersection(2, 14.25, 40.85));
+		writer.addIntersection(intersection(1, 14.26, 40.86));
+		writer.addIntersection(new Intersection(null, null, 3, null, 0, false, false, false, false));
+		ArrayList<Coordinate> coordinates = new ArrayList<>(Arrays.asList(new Coordinate(14.25, 40.85),
+				new Coordinate(14.2550000449, 40.8549999551), new Coordinate(14.26, 40.86)));
+		ArrayList<Integer> lanes = new ArrayList<>(Arrays.asList(2, -1, 0, 1 << 20));
+		ArrayList<Long> osmidEdges = new ArrayList<>(Arrays.asList(2L, 1L << 40, 5L, -7L, 1L));
+		writer.addStreet(new Street(coordinates, 7, "yes", "no", "bridge", 2, 1, "primary", "roundabout", 3, lanes,
+				120.5, "50", "Via Toledo", true, osmidEdges, "SS7", false, "tunnel", "4", 1L << 35, 3.5, 0.75, 12.25,
+				true));
+		// from an intersection without a position, and without geometry or lists
+		writer.addStreet(new Street(null, 8, null, null, null, 3, 2, null, null, 0, null, 0, null, null, false, null,
+				null, true, null, null, 0, 0, 0, 0, false));
+		// an endpoint is missing
+		writer.addStreet(street(9, 2, 4, new double[] { 14.25, 40.85 }));
+		writer.addStreet(street(10, 5, 1, new double[] { 14.25, 40.85 }));
+		assertEquals(2, writer.getStreetCount());
+		assertEquals(2, writer.getDropped());
+		BinarySnapshot snapshot = write(writer);
+
+		assertEquals(2, snapshot.getStreetCount());
+		int from2 = snapshot.firstStreet(snapshot.indexOf(2));
+		assertEquals(1, snapshot.outDegree(snapshot.indexOf(2)));
+		Street read = snapshot.street(from2);
+		assertEquals(7, read.getId());
+		assertEquals(2, read.getOsmidStart());
+		assertEquals(1, read.getOsmidDest());
+		assertEquals(snapshot.indexOf(1), snapshot.target(from2));
+		assertEquals(3, read.getCoordinates().size());
+		assertEquals(14.2550000, read.getCoordinates().get(1).getLongitude(), 1e-12);
+		assertEquals(40.8550000, read.getCoordinates().get(1).getLatitude(), 1e-12);
+		assertEquals(lanes, read.getArrayLanes());
+		assertEquals(osmidEdges, read.getOsmidEdges());
+		assertEquals(1L << 35, read.getOrigId());
+		assertEquals(3, read.getKey());
+		assertEquals(120.5, read.getLenght(), 0);
+		assertEquals(3.5, read.getWeight(), 0);
+		assertEquals(0.75, read.getFlow(), 0);
+		assertEquals(12.25, read.getAverageTravelTime(), 0);
+		assertEquals("yes no bridge primary roundabout 50 Via Toledo SS7 tunnel 4",
+				String.join(" ", read.getAccess(), read.getArea(), read.getBridge(), read.getHighway(),
+						read.getJunction(), read.getMaxSpeed(), read.getName(), read.getRef(), read.getTunnel(),
+						read.getWidth()));
+		assertTrue(read.isOneWay() && !read.isTransportService() && read.isInterrupted());
+		assertEquals(BinarySnapshot.ONE_WAY | BinarySnapshot.INTERRUPTED, snapshot.streetFlags(from2));
+
+		int from3 = snapshot.firstStreet(snapshot.indexOf(3));
+		Street bare = snapshot.street(from3);
+		assertEquals(8, bare.getId());
+		assertTrue(bare.getCoordinates().isEmpty());
+		assertEquals(0, snapshot.geometry(from3).length);
+		assertTrue(bare.getArrayLanes().isEmpty());
+		assertTrue(bare.getOsmidEdges().isEmpty());
+		assertNull(bare.getName());
+		assertTrue(bare.isTransportService());
+		assertEquals(0, snapshot.outDegree(snapshot.indexOf(1)));
+	}
+
+	@Test
+	public void randomGraph() throws IOException {
+		Random random = new Random(5);
+		int n = 2000;
+		int m = 5000;
+		BinarySnapshot.Writer writer = new BinarySnapshot.Writer(VERSION, 16, 16);
+		Map<Long, Intersection> intersections = new HashMap<>();
+		List<Long> osmids = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			long osmid = random.nextLong() >>> 20;
+			Coordinate c = i % 97 == 0 ? null
+					: new Coordinate(14.1 + random.nextDouble() * 0.4, 40.7 + random.nextDouble() * 0.3);
+			Intersection intersection = new Intersection(c, HIGHWAYS[random.nextInt(HIGHWAYS.length)], osmid, null,
+					random.nextDouble(), random.nextBoolean(), random.nextBoolean(), random.nextBoolean(),
+					random.nextBoolean());
+			writer.addIntersection(intersection);
+			intersections.put(osmid, intersection);
+			osmids.add(osmid);
+		}
+		Map<Integer, Street> streets = new HashMap<>();
+		for (int j = 0; j < m; j++) {
+			long source = osmids.get(random.nextInt(n));
+			long target = osmids.get(random.nextInt(n));
+			double[] geometry = new double[2 * (random.nextInt(8))];
+			for (int k = 0; k < geometry.length; k += 2) {
+				geometry[k] = 14.1 + random.nextDouble() * 0.4;
+				geometry[k + 1] = 40.7 + random.nextDouble() * 0.3;
+			}
+			Street street = street(j, source, target, geometry);
+			street.setWeight(random.nextDouble());
+			writer.addStreet(street);
+			streets.put(j, street);
+		}
+		BinarySnapshot snapshot = write(writer);
+
+		assertEquals(n, snapshot.getIntersectionCount());
+		assertEquals(m, snapshot.getStreetCount());
+		int edges = 0;
+		for (int node = 0; node < n; node++) {
+			long osmid = snapshot.osmid(node);
+			if (node > 0) {
+				assertTrue(snapshot.osmid(node - 1) < osmid);
+			}
+			assertEquals(node, snapshot.indexOf(osmid));
+			Intersection expected = intersections.get(osmid);
+			Intersection read = snapshot.intersection(node);
+			if (expected.getCoordinate() == null) {
+				assertNull(read.getCoordinate());
+			} else {
+				assertEquals(expected.getCoordinate().getLongitude(), read.getCoordinate().getLongitude(), 0.5e-7);
+				assertEquals(expected.getCoordinate().getLatitude(), read.getCoordinate().getLatitude(), 0.5e-7);
+			}
+			assertEquals(expected.getHighway(), read.getHighway());
+			assertEquals(expected.getBetweenness(), read.getBetweenness(), 0);
+			assertEquals(SpatialIndex.flags(expected.isParking(), expected.isHospital(), expected.isBusStop(),
+					expected.isMuseum()), snapshot.intersectionFlags(node));
+
+			int previousId = -1;
+			for (int e = snapshot.firstStreet(node); e < snapshot.firstStreet(node + 1); e++, edges++) {
+				assertEquals(node, snapshot.source(e));
+				Street street = streets.get(snapshot.streetId(e));
+				// grouped by source in the order they were added
+				assertTrue(street.getId() > previousId);
+				previousId = street.getId();
+				assertEquals(osmid, street.getOsmidStart());
+				assertEquals(street.getOsmidDest(), snapshot.osmid(snapshot.target(e)));
+				assertEquals(street.getWeight(), snapshot.weight(e), 0);
+				double[] geometry = snapshot.geometry(e);
+				assertEquals(2 * street.getCoordinates().size(), geometry.length);
+				for (int k = 0; k < street.getCoordinates().size(); k++) {
+					Coordinate c = street.getCoordinates().get(k);
+					assertEquals(c.getLongitude(), geometry[2 * k], 0.5e-7);
+					assertEquals(c.getLatitude(), geometry[2 * k + 1], 0.5e-7);
+				}
+			}
+		}
+		assertEquals(m, edges);
+	}
+
+	@Test
+	public void notASnapshot() throws IOException {
+		Path file = folder.newFile().toPath();
+		assertUnreadable(file, "Not a graph snapshot: 0 bytes");
+		Files.write(file, new byte[BinarySnapshot.HEADER_SIZE]);
+		assertUnreadable(file, "Not a graph snapshot: wrong magic number");
+	}
+
+	@Test
+	public void truncated() throws IOException {
+		BinarySnapshot.Writer writer = new BinarySnapshot.Writer(VERSION, 0, 0);
+		writer.addIntersection(intersection(1, 14.25, 40.85));
+		writer.addIntersection(intersection(2, 14.26, 40.86));
+		writer.addStreet(street(1, 1, 2, new double[] { 14.25, 40.85, 14.26, 40.86 }));
+		Path file = folder.newFile().toPath();
+		try (OutputStream output = Files.newOutputStream(file)) {
+			writer.writeTo(output);
+		}
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 8));
+		assertUnreadable(file, "Corrupted graph snapshot: section 5 at " + bytes.length);
+	}
+
+	@Test
+	public void writtenSize() throws IOException {
+		BinarySnapshot.Writer writer = new BinarySnapshot.Writer(VERSION, 0, 0);
+		writer.addIntersection(intersection(1, 14.25, 40.85));
+		Path file = folder.newFile().toPath();
+		long written;
+		try (OutputStream output = Files.newOutputStream(file)) {
+			written = writer.writeTo(output);
+		}
+		assertEquals(Files.size(file), written);
+		BinarySnapshot snapshot = BinarySnapshot.open(file);
+		assertEquals(written, snapshot.getSize());
+		assertEquals(14.25, snapshot.longitude(0), 0);
+		assertEquals(40.85, snapshot.latitude(0), 0);
+	}
+
+	private BinarySnapshot write(BinarySnapshot.Writer writer) throws IOException {
+		Path file = folder.newFile().toPath();
+		try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(file))) {
+			writer.writeTo(output);
+		}
+		return BinarySnapshot.open(file);
+	}
+
+	private static void assertUnreadable(Path file, String message) {
+		try {
+			BinarySnapshot.open(file);
+			fail("opened " + file);
+		} catch (IOException e) {
+			assertEquals(message, e.getMessage());
+		}
+	}
+
+	private static Intersection intersection(long osmid, double longitude, double latitude) {
+		return new Intersection(new Coordinate(longitude, latitude), null, osmid, null, 0, false, false, false, false);
+	}
+
+	/**
+	 * @param geometry Points of the street, interleaved, longitude first.
+	 */
+	private static Street street(int id, long source, long target, double[] geometry) {
+		ArrayList<Coordinate> coordinates = new ArrayList<>();
+		for (int i = 0; i < geometry.length; i += 2) {
+			coordinates.add(new Coordinate(geometry[i], geometry[i + 1]));
+		}
+		return new Street(coordinates, id, null, null, null, source, target, null, null, 0, null, 0, null, null, false,
+				null, null, false, null, null, 0, 0, 0, 0, false);
+	}
+}
@@ -0,0 +1,144 @@
+package data.graph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks {@link SpatialIndex#getNearestIntersections} against a scan of every intersection.
+ */
+public class SpatialIndexTest {
+
+	private static final double CELL_DEGREES = 0.01;
+
+	@Test
+	public void nearestMatchesAScan() {
+		Random random = new Random(11);
+		List<double[]> nodes = new ArrayList<>();
+		SpatialIndex index = build(random, nodes, 14.1, 40.7, 0.4, 0.3, 3000);
+		for (int q = 0; q < 200; q++) {
+			// inside the area, around it, and far from it
+			double scale = q < 100 ? 1 : q < 180 ? 3 : 50;
+			double longitude = 14.3 + (random.nextDouble() - 0.5) * 0.4 * scale;
+			double latitude = 40.85 + (random.nextDouble() - 0.5) * 0.3 * scale;
+			int k = 1 + random.nextInt(20);
+			assertNearest(index, nodes, longitude, latitude, 0, k);
+		}
+	}
+
+	@Test
+	public void nearestWithAFilter() {
+		Random random = new Random(12);
+		List<double[]> nodes = new ArrayList<>();
+		SpatialIndex index = build(random, nodes, 14.1, 40.7, 0.4, 0.3, 3000);
+		int[] filters = { SpatialIndex.PARKING, SpatialIndex.HOSPITAL | SpatialIndex.BUS_STOP, SpatialIndex.MUSEUM,
+				SpatialIndex.PARKING | SpatialIndex.HOSPITAL | SpatialIndex.BUS_STOP | SpatialIndex.MUSEUM };
+		for (int q = 0; q < 200; q++) {
+			double longitude = 14.1 + random.nextDouble() * 0.4;
+			double latitude = 40.7 + random.nextDouble() * 0.3;
+			assertNearest(index, nodes, longitude, latitude, filters[q % filters.length], 1 + random.nextInt(10));
+		}
+	}
+
+	@Test
+	public void nearestAtHighLatitude() {
+		// the cells are much narrower in meters along the longitude than along the latitude
+		Random random = new Random(13);
+		List<double[]> nodes = new ArrayList<>();
+		SpatialIndex index = build(random, nodes, 18.8, 69.6, 0.3, 0.1, 2000);
+		for (int q = 0; q < 200; q++) {
+			double longitude = 18.8 + random.nextDouble() * 0.3;
+			double latitude = 69.6 + random.nextDouble() * 0.1;
+			assertNearest(index, nodes, longitude, latitude, 0, 1 + random.nextInt(10));
+		}
+	}
+
+	@Test
+	public void fewerMatchesThanSearched() {
+		Random random = new Random(14);
+		List<double[]> nodes = new ArrayList<>();
+		SpatialIndex index = build(random, nodes, 14.1, 40.7, 0.4, 0.3, 500);
+		long[] osmids = new long[600];
+		double[] distances = new double[600];
+		assertEquals(500, index.getNearestIntersections(14.3, 40.85, 0, osmids, distances));
+		assertNearest(index, nodes, 14.3, 40.85, SpatialIndex.MUSEUM, 600);
+		assertEquals(0, index.getNearestIntersections(14.3, 40.85, 0, new long[0], new double[0]));
+		assertEquals(0, new SpatialIndex(CELL_DEGREES, 0, 0).getNearestIntersections(14.3, 40.85, 0, osmids,
+				distances));
+	}
+
+	@Test
+	public void nearestAfterUpdates() {
+		Random random = new Random(15);
+		List<double[]> nodes = new ArrayList<>();
+		SpatialIndex index = build(random, nodes, 14.1, 40.7, 0.4, 0.3, 1000);
+		for (int i = 0; i < 300; i++) {
+			double[] node = nodes.get(random.nextInt(nodes.size()));
+			if (random.nextBoolean()) {
+				index.removeIntersection((long) node[0]);
+				nodes.remove(node);
+			} else {
+				// moved to another cell
+				node[1] = 14.1 + random.nextDouble() * 0.4;
+				node[2] = 40.7 + random.nextDouble() * 0.3;
+				index.putIntersection((long) node[0], node[1], node[2], (int) node[3]);
+			}
+		}
+		for (int q = 0; q < 100; q++) {
+			assertNearest(index, nodes, 14.1 + random.nextDouble() * 0.4, 40.7 + random.nextDouble() * 0.3, 0,
+					1 + random.nextInt(10));
+		}
+	}
+
+	/**
+	 * @param nodes Receives every intersection as {osmid, longitude, latitude, flags}.
+	 */
+	private static SpatialIndex build(Random random, List<double[]> nodes, double minLongitude, double minLatitude,
+			double width, double height, int count) {
+		SpatialIndex index = new SpatialIndex(CELL_DEGREES, count, 0);
+		for (int i = 0; i < count; i++) {
+			long osmid = 1000 + i;
+			double longitude = minLongitude + random.nextDouble() * width;
+			double latitude = minLatitude + random.nextDouble() * height;
+			// museums are rare, to exercise the scan of the non-empty cells
+			int flags = SpatialIndex.flags(random.nextInt(3) == 0, random.nextInt(4) == 0, random.nextBoolean(),
+					random.nextInt(200) == 0);
+			index.putIntersection(osmid, longitude, latitude, flags);
+			nodes.add(new double[] { osmid, longitude, latitude, flags });
+		}
+		return index;
+	}
+
+	private static void assertNearest(SpatialIndex index, List<double[]> nodes, double longitude, double latitude,
+			int flags, int k) {
+		List<double[]> expected = new ArrayList<>();
+		for (double[] node : nodes) {
+			if (((int) node[3] & flags) == flags) {
+				expected.add(new double[] { node[0],
+						SpatialIndex.haversine(longitude, latitude, node[1], node[2]) });
+			}
+		}
+		expected.sort(Comparator.comparingDouble(e -> e[1]));
+		int found = Math.min(k, expected.size());
+		long[] expectedOsmids = new long[found];
+		double[] expectedDistances = new double[found];
+		for (int i = 0; i < found; i++) {
+			expectedOsmids[i] = (long) expected.get(i)[0];
+			expectedDistances[i] = expected.get(i)[1];
+		}
+
+		long[] osmids = new long[k];
+		double[] distances = new double[k];
+		String query = "(" + longitude + ", " + latitude + "), flags = " + flags + ", k = " + k;
+		assertEquals(query, found, index.getNearestIntersections(longitude, latitude, flags, osmids, distances));
+		assertArrayEquals(query, expectedOsmids, Arrays.copyOf(osmids, found));
+		assertArrayEquals(query, expectedDistances, Arrays.copyOf(distances, found), 0);
+	}
+}
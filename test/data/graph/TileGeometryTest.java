@@ -0,0 +1,158 @@
+package data.graph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class TileGeometryTest {
+
+	private static final int Z = 14;
+	private static final int X = 8838;
+	private static final int Y = 6155;
+	private static final int EXTENT = 4096;
+	private static final int BUFFER = 64;
+
+	@Test
+	public void world() {
+		assertEquals(0, TileGeometry.worldX(-180), 0);
+		assertEquals(0.5, TileGeometry.worldX(0), 0);
+		assertEquals(1, TileGeometry.worldX(180), 0);
+		assertEquals(0.5, TileGeometry.worldY(0), 1e-15);
+		assertEquals(0, TileGeometry.worldY(TileGeometry.MAX_LATITUDE), 1e-12);
+		assertEquals(1, TileGeometry.worldY(-TileGeometry.MAX_LATITUDE), 1e-12);
+		// clamped beyond the square
+		assertEquals(0, TileGeometry.worldY(89.9), 1e-12);
+	}
+
+	@Test
+	public void bounds() {
+		assertArrayEquals(new double[] { -180, -TileGeometry.MAX_LATITUDE, 180, TileGeometry.MAX_LATITUDE },
+				TileGeometry.bounds(0, 0, 0, 0), 1e-9);
+		// the north-west quarter, with a margin of half a tile clamped at the antimeridian
+		assertArrayEquals(new double[] { -180, worldLatitude(0.75), 90, TileGeometry.MAX_LATITUDE },
+				TileGeometry.bounds(1, 0, 0, 0.5), 1e-9);
+		double[] bounds = TileGeometry.bounds(Z, X, Y, 0);
+		assertEquals(0, tileX(bounds[0]), 1e-6);
+		assertEquals(EXTENT, tileX(bounds[2]), 1e-6);
+		assertEquals(EXTENT, tileY(bounds[1]), 1e-6);
+		assertEquals(0, tileY(bounds[3]), 1e-6);
+	}
+
+	@Test
+	public void inside() {
+		List<int[]> lines = lines(0, 100, 200, 300, 400, 100, 4000, 4000, 4000);
+		assertEquals(1, lines.size());
+		assertArrayEquals(new int[] { 100, 200, 300, 400, 100, 4000, 4000, 4000 }, lines.get(0));
+	}
+
+	@Test
+	public void crossingTheBorder() {
+		// leaves through the east border, clipped at the buffer
+		List<int[]> lines = lines(0, 4000, 1000, 4400, 1000);
+		assertEquals(1, lines.size());
+		assertArrayEquals(new int[] { 4000, 1000, EXTENT + BUFFER, 1000 }, lines.get(0));
+		// crosses the whole tile diagonally, from the north-west to the south-east
+		lines = lines(0, -1000, -1000, 5000, 5000);
+		assertEquals(1, lines.size());
+		assertArrayEquals(new int[] { -BUFFER, -BUFFER, EXTENT + BUFFER, EXTENT + BUFFER }, lines.get(0));
+	}
+
+	@Test
+	public void leavingAndEntering() {
+		// out through the north border and back: two parts
+		List<int[]> lines = lines(0, 1000, 1000, 2000, -1000, 3000, 1000);
+		assertEquals(2, lines.size());
+		assertArrayEquals(new int[] { 1000, 1000, 1532, -BUFFER }, lines.get(0));
+		assertArrayEquals(new int[] { 2468, -BUFFER, 3000, 1000 }, lines.get(1));
+	}
+
+	@Test
+	public void outside() {
+		// beyond the buffer, and crossing the corner outside of it
+		assertTrue(lines(0, -1000, 100, -500, 4000).isEmpty());
+		assertTrue(lines(0, -1000, 0, 0, -1000).isEmpty());
+		assertTrue(lines(0, 5000, 5000, 6000, 6000).isEmpty());
+		// a single point
+		assertTrue(TileGeometry.lines(new double[] { longitude(100), latitude(100) }, Z, X, Y, EXTENT, BUFFER, 0)
+				.isEmpty());
+	}
+
+	@Test
+	public void insideTheBuffer() {
+		List<int[]> lines = lines(0, -50, 100, -50, 4000);
+		assertEquals(1, lines.size());
+		assertArrayEquals(new int[] { -50, 100, -50, 4000 }, lines.get(0));
+	}
+
+	@Test
+	public void simplification() {
+		// a roof: the points on its sides are within the tolerance of them
+		List<int[]> lines = lines(2, 0, 0, 1000, 26, 2000, 50, 3000, 24, 4000, 0);
+		assertEquals(1, lines.size());
+		assertArrayEquals(new int[] { 0, 0, 2000, 50, 4000, 0 }, lines.get(0));
+		// without tolerance every point is kept
+		assertArrayEquals(new int[] { 0, 0, 1000, 26, 2000, 50, 3000, 24, 4000, 0 },
+				lines(0, 0, 0, 1000, 26, 2000, 50, 3000, 24, 4000, 0).get(0));
+	}
+
+	@Test
+	public void shortLines() {
+		// shorter than the tolerance
+		assertTrue(lines(4, 100, 100, 102, 101).isEmpty());
+		// rounded to a single point
+		assertTrue(lines(0, 100.1, 100.2, 100.3, 99.9).isEmpty());
+		// repeated points are merged
+		assertArrayEquals(new int[] { 100, 100, 200, 100 }, lines(0, 100, 100, 100.2, 100.1, 200, 100).get(0));
+	}
+
+	@Test
+	public void simplify() {
+		// an L, with a point off each side
+		double[] line = { 0, 0, 1, 0.1, 2, 0, 2, 1, 2.1, 2, 2, 3 };
+		assertArrayEquals(new boolean[] { true, false, true, false, false, true },
+				TileGeometry.simplify(line, 6, 0.5));
+		assertArrayEquals(new boolean[] { true, true, true, true, true, true },
+				TileGeometry.simplify(line, 6, 0));
+		// a point on the line is dropped at any tolerance
+		assertArrayEquals(new boolean[] { true, true, true, false, true, true },
+				TileGeometry.simplify(line, 6, 0.05));
+		assertArrayEquals(new boolean[] { true, true }, TileGeometry.simplify(line, 2, 10));
+	}
+
+	/**
+	 * @param points Points of the polyline in units of the tile, interleaved, x first.
+	 * @return The lines of the polyline in the tile.
+	 */
+	private static List<int[]> lines(double tolerance, double... points) {
+		double[] geometry = new double[points.length];
+		for (int i = 0; i < points.length; i += 2) {
+			geometry[i] = longitude(points[i]);
+			geometry[i + 1] = latitude(points[i + 1]);
+		}
+		return TileGeometry.lines(geometry, Z, X, Y, EXTENT, BUFFER, tolerance);
+	}
+
+	private static double longitude(double tileX) {
+		return ((X + tileX / EXTENT) / (1 << Z)) * 360 - 180;
+	}
+
+	private static double latitude(double tileY) {
+		return worldLatitude((Y + tileY / EXTENT) / (1 << Z));
+	}
+
+	private static double worldLatitude(double worldY) {
+		return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * worldY))));
+	}
+
+	private static double tileX(double longitude) {
+		return (TileGeometry.worldX(longitude) * (1 << Z) - X) * EXTENT;
+	}
+
+	private static double tileY(double latitude) {
+		return (TileGeometry.worldY(latitude) * (1 << Z) - Y) * EXTENT;
+	}
+}
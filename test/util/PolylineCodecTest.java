@@ -0,0 +1,117 @@
+package util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import data.dataModel.Coordinate;
+
+public class PolylineCodecTest {
+
+	/**
+	 * The example of the Google encoded polyline format.
+	 */
+	private static final List<Coordinate> EXAMPLE = Arrays.asList(new Coordinate(-120.2, 38.5),
+			new Coordinate(-120.95, 40.7), new Coordinate(-126.453, 43.252));
+	private static final String EXAMPLE_POLYLINE = "_p~iF~ps|U_ulLnnqC_mqNvxq`@";
+
+	@Test
+	public void encodesTheReferenceExample() {
+		assertEquals(EXAMPLE_POLYLINE, PolylineCodec.encode(EXAMPLE, PolylineCodec.DEFAULT_PRECISION));
+	}
+
+	@Test
+	public void decodesTheReferenceExample() {
+		assertCoordinates(EXAMPLE, PolylineCodec.decode(EXAMPLE_POLYLINE, PolylineCodec.DEFAULT_PRECISION), 1e-5);
+	}
+
+	@Test
+	public void emptyGeometry() {
+		assertEquals("", PolylineCodec.encode(Collections.emptyList(), PolylineCodec.DEFAULT_PRECISION));
+		assertTrue(PolylineCodec.decode("", PolylineCodec.DEFAULT_PRECISION).isEmpty());
+	}
+
+	@Test
+	public void zigZagKeepsTheSignOfSmallDeltas() {
+		// deltas of -1, 0, +1 unit around zero and across the sign change
+		List<Coordinate> coordinates = Arrays.asList(new Coordinate(0, 0), new Coordinate(-0.00001, 0.00001),
+				new Coordinate(0, -0.00001), new Coordinate(0.00001, 0), new Coordinate(-0.00001, -0.00001));
+		String polyline = PolylineCodec.encode(coordinates, PolylineCodec.DEFAULT_PRECISION);
+		// zig-zag: 0 is '?', -1 is '@', +1 is 'A', -2 is 'B'
+		assertEquals("??A@BAAA@B", polyline);
+		assertCoordinates(coordinates, PolylineCodec.decode(polyline, PolylineCodec.DEFAULT_PRECISION), 1e-9);
+	}
+
+	@Test
+	public void roundTripAtEveryPrecision() {
+		Random random = new Random(7);
+		for (int precision = 0; precision <= PolylineCodec.MAX_PRECISION; precision++) {
+			List<Coordinate> coordinates = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				coordinates.add(new Coordinate(random.nextDouble() * 360 - 180, random.nextDouble() * 180 - 90));
+			}
+			String polyline = PolylineCodec.encode(coordinates, precision);
+			assertCoordinates(coordinates, PolylineCodec.decode(polyline, precision), 0.5 / Math.pow(10, precision) + 1e-12);
+		}
+	}
+
+	@Test
+	public void extremeDeltas() {
+		// the widest jumps: across the whole range, both ways
+		List<Coordinate> coordinates = Arrays.asList(new Coordinate(-180, -90), new Coordinate(180, 90),
+				new Coordinate(-180, -90));
+		String polyline = PolylineCodec.encode(coordinates, PolylineCodec.MAX_PRECISION);
+		assertCoordinates(coordinates, PolylineCodec.decode(polyline, PolylineCodec.MAX_PRECISION), 1e-10);
+	}
+
+	@Test
+	public void truncatedValue() {
+		// the last value ends with a continuation chunk
+		assertInvalid(EXAMPLE_POLYLINE.substring(0, EXAMPLE_POLYLINE.length() - 1), "Truncated polyline");
+	}
+
+	@Test
+	public void missingLongitude() {
+		// a latitude without its longitude
+		assertInvalid(EXAMPLE_POLYLINE.substring(0, 5), "Truncated polyline");
+	}
+
+	@Test
+	public void invalidCharacters() {
+		assertInvalid("_p~iF ps|U", "Invalid polyline character at 5");
+		assertInvalid("_p~iF~ps|U\u007f?", "Invalid polyline character at 10");
+	}
+
+	@Test
+	public void overlongValue() {
+		// continuation chunks past 64 bits
+		char[] chunks = new char[14];
+		Arrays.fill(chunks, (char) (0x20 + 63));
+		assertInvalid(new String(chunks) + "??", "Overlong polyline value at 13");
+	}
+
+	private static void assertInvalid(String polyline, String message) {
+		try {
+			PolylineCodec.decode(polyline, PolylineCodec.DEFAULT_PRECISION);
+			fail("decoded " + polyline);
+		} catch (IllegalArgumentException e) {
+			assertEquals(message, e.getMessage());
+		}
+	}
+
+	private static void assertCoordinates(List<Coordinate> expected, List<Coordinate> actual, double delta) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals("longitude " + i, expected.get(i).getLongitude(), actual.get(i).getLongitude(), delta);
+			assertEquals("latitude " + i, expected.get(i).getLatitude(), actual.get(i).getLatitude(), delta);
+		}
+	}
+}
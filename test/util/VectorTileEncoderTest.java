@@ -0,0 +1,281 @@
+package util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Decodes the tiles written by {@link VectorTileEncoder} with a minimal protocol buffer reader and
+ * checks them against the Mapbox Vector Tile specification.
+ */
+public class VectorTileEncoderTest {
+
+	private static final int MOVE_TO_1 = 1 | (1 << 3);
+
+	@Test
+	public void emptyTile() {
+		VectorTileEncoder encoder = new VectorTileEncoder("streets", 4096);
+		encoder.addLineString(1, Collections.emptyList(), Collections.emptyMap());
+		assertTrue(encoder.isEmpty());
+		assertEquals(0, encoder.encode().length);
+	}
+
+	@Test
+	public void layer() {
+		VectorTileEncoder encoder = new VectorTileEncoder("streets", 4096);
+		encoder.addLineString(1, lines(new int[] { 0, 0, 1, 1 }), Collections.emptyMap());
+		Layer layer = Layer.decode(encoder.encode());
+		assertEquals(2, layer.version);
+		assertEquals("streets", layer.name);
+		assertEquals(4096, layer.extent);
+		assertEquals(1, layer.features.size());
+	}
+
+	@Test
+	public void commands() {
+		VectorTileEncoder encoder = new VectorTileEncoder("streets", 4096);
+		encoder.addLineString(7, lines(new int[] { 2, 3, 5, 7, 1, 1 }, new int[] { 10, 10, 12, 8 }),
+				Collections.emptyMap());
+		Feature feature = Layer.decode(encoder.encode()).features.get(0);
+		assertEquals(7, feature.id);
+		assertEquals(2, feature.type);
+		// MoveTo(+2,+3) LineTo x2 (+3,+4) (-4,-6); the second line starts from the end of the first
+		// one: MoveTo(+9,+9) LineTo x1 (+2,-2)
+		assertArrayEquals(new long[] { MOVE_TO_1, 4, 6, lineTo(2), 6, 8, 7, 11, MOVE_TO_1, 18, 18, lineTo(1), 4, 3 },
+				feature.geometry);
+	}
+
+	@Test
+	public void zigZagOfWideDeltas() {
+		VectorTileEncoder encoder = new VectorTileEncoder("streets", 4096);
+		encoder.addLineString(1L << 40, lines(new int[] { -100000, 70000, 100000, -70000 }), Collections.emptyMap());
+		Feature feature = Layer.decode(encoder.encode()).features.get(0);
+		assertEquals(1L << 40, feature.id);
+		assertArrayEquals(new long[] { MOVE_TO_1, 199999, 140000, lineTo(1), 400000, 279999 }, feature.geometry);
+		assertArrayEquals(new int[] { -100000, 70000, 100000, -70000 }, feature.points().get(0));
+	}
+
+	@Test
+	public void attributes() {
+		VectorTileEncoder encoder = new VectorTileEncoder("streets", 4096);
+		Map<String, Object> first = new LinkedHashMap<>();
+		first.put("name", "Via Toledo");
+		first.put("weight", 12);
+		first.put("interrupted", false);
+		first.put("ref", null);
+		Map<String, Object> second = new LinkedHashMap<>();
+		second.put("weight", 12.0);
+		second.put("name", "Via Roma");
+		second.put("interrupted", true);
+		encoder.addLineString(1, lines(new int[] { 0, 0, 1, 1 }), first);
+		encoder.addLineString(2, lines(new int[] { 0, 0, 1, 1 }), second);
+		Layer layer = Layer.decode(encoder.encode());
+
+		// every key and value once, numbers as doubles, null values left out
+		assertEquals(Arrays.asList("name", "weight", "interrupted"), layer.keys);
+		assertEquals(Arrays.asList("Via Toledo", 12.0, false, "Via Roma", true), layer.values);
+		assertArrayEquals(new long[] { 0, 0, 1, 1, 2, 2 }, layer.features.get(0).tags);
+		assertArrayEquals(new long[] { 1, 1, 0, 3, 2, 4 }, layer.features.get(1).tags);
+	}
+
+	@Test
+	public void roundTrip() {
+		VectorTileEncoder encoder = new VectorTileEncoder("streets", 4096);
+		List<int[]> lines = lines(new int[] { -64, 4160, 0, 4096, 2048, 2048, 4096, 0 }, new int[] { 17, 17, 17, 300 },
+				new int[] { 4000, 5, 3, 3000, 3, 3 });
+		encoder.addLineString(3, lines, Collections.emptyMap());
+		List<int[]> decoded = Layer.decode(encoder.encode()).features.get(0).points();
+		assertEquals(lines.size(), decoded.size());
+		for (int i = 0; i < lines.size(); i++) {
+			assertArrayEquals(lines.get(i), decoded.get(i));
+		}
+	}
+
+	private static List<int[]> lines(int[]... lines) {
+		return Arrays.asList(lines);
+	}
+
+	private static long lineTo(int count) {
+		return 2 | (count << 3);
+	}
+
+	private static final class Layer {
+		long version;
+		String name;
+		long extent;
+		final List<Feature> features = new ArrayList<>();
+		final List<String> keys = new ArrayList<>();
+		final List<Object> values = new ArrayList<>();
+
+		static Layer decode(byte[] tile) {
+			Reader t = new Reader(tile);
+			assertEquals(3, t.field());
+			Reader l = new Reader(t.bytes());
+			assertTrue(t.done());
+			Layer layer = new Layer();
+			while (!l.done()) {
+				switch (l.field()) {
+				case 15:
+					layer.version = l.varint();
+					break;
+				case 1:
+					layer.name = new String(l.bytes(), StandardCharsets.UTF_8);
+					break;
+				case 2:
+					layer.features.add(Feature.decode(l.bytes()));
+					break;
+				case 3:
+					layer.keys.add(new String(l.bytes(), StandardCharsets.UTF_8));
+					break;
+				case 4:
+					Reader v = new Reader(l.bytes());
+					int field = v.field();
+					if (field == 1) {
+						layer.values.add(new String(v.bytes(), StandardCharsets.UTF_8));
+					} else if (field == 3) {
+						layer.values.add(Double.longBitsToDouble(v.fixed64()));
+					} else {
+						assertEquals(7, field);
+						layer.values.add(v.varint() != 0);
+					}
+					assertTrue(v.done());
+					break;
+				case 5:
+					layer.extent = l.varint();
+					break;
+				default:
+					throw new AssertionError("unexpected layer field");
+				}
+			}
+			return layer;
+		}
+	}
+
+	private static final class Feature {
+		long id;
+		long type;
+		long[] tags;
+		long[] geometry;
+
+		static Feature decode(byte[] bytes) {
+			Reader f = new Reader(bytes);
+			Feature feature = new Feature();
+			while (!f.done()) {
+				switch (f.field()) {
+				case 1:
+					feature.id = f.varint();
+					break;
+				case 2:
+					feature.tags = new Reader(f.bytes()).packed();
+					break;
+				case 3:
+					feature.type = f.varint();
+					break;
+				case 4:
+					feature.geometry = new Reader(f.bytes()).packed();
+					break;
+				default:
+					throw new AssertionError("unexpected feature field");
+				}
+			}
+			return feature;
+		}
+
+		/**
+		 * @return The absolute points of every line string, interpreting the commands.
+		 */
+		List<int[]> points() {
+			List<int[]> lines = new ArrayList<>();
+			int x = 0, y = 0;
+			int i = 0;
+			while (i < geometry.length) {
+				assertEquals(MOVE_TO_1, geometry[i++]);
+				x += unZigZag(geometry[i++]);
+				y += unZigZag(geometry[i++]);
+				assertEquals(2, geometry[i] & 7);
+				int count = (int) (geometry[i++] >> 3);
+				int[] line = new int[2 * count + 2];
+				line[0] = x;
+				line[1] = y;
+				for (int p = 1; p <= count; p++) {
+					x += unZigZag(geometry[i++]);
+					y += unZigZag(geometry[i++]);
+					line[2 * p] = x;
+					line[2 * p + 1] = y;
+				}
+				lines.add(line);
+			}
+			return lines;
+		}
+
+		private static int unZigZag(long n) {
+			return (int) ((n >>> 1) ^ -(n & 1));
+		}
+	}
+
+	private static final class Reader {
+		private final byte[] bytes;
+		private int position;
+		private int wireType;
+
+		Reader(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		boolean done() {
+			return position == bytes.length;
+		}
+
+		int field() {
+			long tag = varint();
+			wireType = (int) (tag & 7);
+			return (int) (tag >>> 3);
+		}
+
+		long varint() {
+			long value = 0;
+			for (int shift = 0;; shift += 7) {
+				byte b = bytes[position++];
+				value |= (long) (b & 0x7F) << shift;
+				if (b >= 0) {
+					return value;
+				}
+			}
+		}
+
+		long fixed64() {
+			assertEquals(1, wireType);
+			long value = 0;
+			for (int i = 0; i < 8; i++) {
+				value |= (bytes[position++] & 0xFFL) << (8 * i);
+			}
+			return value;
+		}
+
+		byte[] bytes() {
+			assertEquals(2, wireType);
+			int length = (int) varint();
+			byte[] value = Arrays.copyOfRange(bytes, position, position + length);
+			position += length;
+			return value;
+		}
+
+		long[] packed() {
+			List<Long> values = new ArrayList<>();
+			while (!done()) {
+				values.add(varint());
+			}
+			return values.stream().mapToLong(Long::longValue).toArray();
+		}
+	}
+}